@@ -0,0 +1,244 @@
+package pl.put.poznan.buildinginfo.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.put.poznan.buildinginfo.logic.BuildingParser;
+import pl.put.poznan.buildinginfo.logic.BuildingReport;
+import pl.put.poznan.buildinginfo.logic.ColumnarBuilding;
+import pl.put.poznan.buildinginfo.logic.MetricAccumulator;
+import pl.put.poznan.buildinginfo.logic.ParallelAggregator;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+import pl.put.poznan.buildinginfo.logic.entities.Room;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@code calculate*} methods of a whole building.
+ *
+ * Composites cache their sums, so the plain benchmarks measure a cached read. The
+ * {@code recompute} benchmarks run on a fresh copy of the building, built before every
+ * invocation and outside the measured time, whose levels have not summed their rooms yet,
+ * so every level and the building sum their children; {@code parallelRecompute} does the
+ * same with {@link ParallelAggregator}. {@code deltaUpdate} adds and removes a scratch room
+ * on every level, which only applies the change of the totals to the level and the
+ * building, and then reads the total area. The {@code columnar} benchmarks sum
+ * the columns of a {@link ColumnarBuilding}, which has no cache. {@code accumulate} walks
+ * the rooms with a reused {@link MetricAccumulator}; its {@code gc.alloc.rate.norm}
+ * shows that the walk allocates nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class AggregationBenchmark {
+
+    @Param({"4", "1000", "100000", "1000000"})
+    private int rooms;
+
+    private Building building;
+    private ColumnarBuilding columns;
+    private final Room scratch = new Room("scratch", null, 0, 0, 0, 0);
+    private final MetricAccumulator accumulator = new MetricAccumulator();
+
+    /**
+     * Parses the building once per trial.
+     *
+     * @throws IOException never, the document is valid
+     */
+    @Setup
+    public void setUp() throws IOException {
+        building = BuildingParser.parseJson(BenchmarkBuildings.json(rooms));
+        columns = ColumnarBuilding.of(building);
+    }
+
+    /**
+     * Reads the cached total area.
+     *
+     * @return the total area
+     */
+    @Benchmark
+    public double calculateArea() {
+        return building.calculateArea();
+    }
+
+    /**
+     * Reads the cached total heating.
+     *
+     * @return the total heating
+     */
+    @Benchmark
+    public double calculateHeat() {
+        return building.calculateHeat();
+    }
+
+    /**
+     * Reads the cached total volume.
+     *
+     * @return the total volume
+     */
+    @Benchmark
+    public double calculateCube() {
+        return building.calculateCube();
+    }
+
+    /**
+     * Reads the cached total lighting.
+     *
+     * @return the total lighting
+     */
+    @Benchmark
+    public double calculateLight() {
+        return building.calculateLight();
+    }
+
+    /**
+     * Recomputes the total area of a fresh copy of the building.
+     *
+     * @param fresh the copy of the building
+     * @return the total area
+     */
+    @Benchmark
+    public double recomputeArea(Fresh fresh) {
+        return fresh.building.calculateArea();
+    }
+
+    /**
+     * Recomputes the total heating of a fresh copy of the building.
+     *
+     * @param fresh the copy of the building
+     * @return the total heating
+     */
+    @Benchmark
+    public double recomputeHeat(Fresh fresh) {
+        return fresh.building.calculateHeat();
+    }
+
+    /**
+     * Recomputes the total volume of a fresh copy of the building.
+     *
+     * @param fresh the copy of the building
+     * @return the total volume
+     */
+    @Benchmark
+    public double recomputeCube(Fresh fresh) {
+        return fresh.building.calculateCube();
+    }
+
+    /**
+     * Recomputes the total lighting of a fresh copy of the building.
+     *
+     * @param fresh the copy of the building
+     * @return the total lighting
+     */
+    @Benchmark
+    public double recomputeLight(Fresh fresh) {
+        return fresh.building.calculateLight();
+    }
+
+    /**
+     * Recomputes all four totals of a fresh copy of the building with fork/join.
+     *
+     * @param fresh the copy of the building
+     * @return the totals
+     */
+    @Benchmark
+    public BuildingReport parallelRecompute(Fresh fresh) {
+        return ParallelAggregator.commonPool().aggregate(fresh.building);
+    }
+
+    /**
+     * Adds and removes a scratch room on every level and reads the updated total area.
+     *
+     * @return the total area
+     */
+    @Benchmark
+    public double deltaUpdate() {
+        for (BuildingComponent level : building.getComponents()) {
+            level.addComponent(scratch);
+            level.removeComponent(scratch);
+        }
+        return building.calculateArea();
+    }
+
+    /**
+     * Sums the area column.
+     *
+     * @return the total area
+     */
+    @Benchmark
+    public double columnarArea() {
+        return columns.calculateArea();
+    }
+
+    /**
+     * Sums the heating column.
+     *
+     * @return the total heating
+     */
+    @Benchmark
+    public double columnarHeat() {
+        return columns.calculateHeat();
+    }
+
+    /**
+     * Sums the volume column.
+     *
+     * @return the total volume
+     */
+    @Benchmark
+    public double columnarCube() {
+        return columns.calculateCube();
+    }
+
+    /**
+     * Sums the lighting column.
+     *
+     * @return the total lighting
+     */
+    @Benchmark
+    public double columnarLight() {
+        return columns.calculateLight();
+    }
+
+    /**
+     * Sums all four totals from the rooms with a reused accumulator.
+     *
+     * @return the total area
+     */
+    @Benchmark
+    public double accumulate() {
+        return accumulator.accumulate(building).getArea();
+    }
+
+    /**
+     * A copy of the building without cached aggregates, built before every invocation.
+     */
+    @State(Scope.Thread)
+    public static class Fresh {
+        private Building building;
+
+        /**
+         * Builds the copy from the columns of the benchmark building.
+         *
+         * @param benchmark the benchmark state holding the columns
+         */
+        @Setup(Level.Invocation)
+        public void setUp(AggregationBenchmark benchmark) {
+            building = benchmark.columns.toBuilding();
+        }
+    }
+}
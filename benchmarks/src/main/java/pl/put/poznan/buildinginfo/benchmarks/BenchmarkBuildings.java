@@ -0,0 +1,73 @@
+package pl.put.poznan.buildinginfo.benchmarks;
+
+import pl.put.poznan.buildinginfo.logic.BuildingGenerator;
+
+/**
+ * Creates the buildings used by the benchmarks with {@link BuildingGenerator}.
+ *
+ * A building with four rooms has the shape of the files in {@code examples/}: two levels
+ * with two rooms each. Larger buildings have {@value #ROOMS_PER_LEVEL} rooms per level.
+ * Every room has its own name, "Room n", so the last room is the worst case for a
+ * recursive search.
+ */
+final class BenchmarkBuildings {
+
+    /** Number of rooms per level in buildings larger than the examples. */
+    static final int ROOMS_PER_LEVEL = 100;
+
+    /** Seed of all benchmark buildings, so that runs can be compared. */
+    private static final long SEED = 2024;
+
+    private BenchmarkBuildings() {
+    }
+
+    /**
+     * Generates the JSON of a building with the given number of rooms.
+     *
+     * @param rooms the number of rooms, either at most 4 or a multiple of {@value #ROOMS_PER_LEVEL}
+     * @return the building as UTF-8 JSON
+     */
+    static byte[] json(int rooms) {
+        return BuildingGenerator.builder()
+                .seed(SEED)
+                .levels(levels(rooms))
+                .roomsPerLevel(Math.min(rooms, roomsPerLevel(rooms)))
+                .build()
+                .toJson();
+    }
+
+    /**
+     * Gets the number of levels of the building with the given number of rooms.
+     *
+     * @param rooms the number of rooms
+     * @return the number of levels
+     */
+    static int levels(int rooms) {
+        int perLevel = roomsPerLevel(rooms);
+        return (rooms + perLevel - 1) / perLevel;
+    }
+
+    /**
+     * Gets the name given to a level.
+     *
+     * @param level the one-based level number
+     * @return the level name
+     */
+    static String levelName(int level) {
+        return "Level " + level;
+    }
+
+    /**
+     * Gets the name given to a room.
+     *
+     * @param room the one-based room number
+     * @return the room name
+     */
+    static String roomName(int room) {
+        return "Room " + room;
+    }
+
+    private static int roomsPerLevel(int rooms) {
+        return rooms <= 4 ? 2 : ROOMS_PER_LEVEL;
+    }
+}
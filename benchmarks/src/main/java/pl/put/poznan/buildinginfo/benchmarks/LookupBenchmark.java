@@ -0,0 +1,113 @@
+package pl.put.poznan.buildinginfo.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.put.poznan.buildinginfo.logic.BuildingFinder;
+import pl.put.poznan.buildinginfo.logic.BuildingParser;
+import pl.put.poznan.buildinginfo.logic.HeatPerCubeIndex;
+import pl.put.poznan.buildinginfo.logic.RoomFilter;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+import pl.put.poznan.buildinginfo.logic.entities.Room;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures name lookups and heat threshold queries.
+ *
+ * The hit looks up the last room, which is the worst case for a recursive search.
+ * The threshold lets through roughly a third of the rooms. The filter benchmark runs
+ * the same query as a {@link RoomFilter} expression, looked up in the filter cache on
+ * every call as the {@code /rooms} endpoint does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class LookupBenchmark {
+
+    private static final double THRESHOLD = 0.15;
+    private static final String FILTER = "heating / cube > " + THRESHOLD;
+
+    @Param({"4", "1000", "100000", "1000000"})
+    private int rooms;
+
+    private Building building;
+    private String hit;
+
+    /**
+     * Parses the building once per trial.
+     *
+     * @throws IOException never, the document is valid
+     */
+    @Setup
+    public void setUp() throws IOException {
+        building = BuildingParser.parseJson(BenchmarkBuildings.json(rooms));
+        hit = BenchmarkBuildings.roomName(rooms).toUpperCase();
+        HeatPerCubeIndex.of(building);
+    }
+
+    /**
+     * Looks up a room that exists.
+     *
+     * @return the room
+     */
+    @Benchmark
+    public Optional<BuildingComponent> findComponentByNameHit() {
+        return BuildingFinder.findComponentByName(building, hit);
+    }
+
+    /**
+     * Looks up a name that does not exist.
+     *
+     * @return an empty result
+     */
+    @Benchmark
+    public Optional<BuildingComponent> findComponentByNameMiss() {
+        return BuildingFinder.findComponentByName(building, "No Such Room");
+    }
+
+    /**
+     * Searches the hierarchy for rooms above the threshold.
+     *
+     * @return the matching rooms
+     */
+    @Benchmark
+    public List<Room> findRoomsExceedingHeatThreshold() {
+        return BuildingFinder.findRoomsExceedingHeatThreshold(building, THRESHOLD);
+    }
+
+    /**
+     * Answers the same query from the sorted index.
+     *
+     * @return the matching rooms
+     */
+    @Benchmark
+    public List<Room> heatPerCubeIndexExceeding() {
+        return HeatPerCubeIndex.of(building).exceeding(THRESHOLD);
+    }
+
+    /**
+     * Answers the same query with a cached filter expression.
+     *
+     * @return the matching rooms
+     */
+    @Benchmark
+    public List<Room> roomFilterExceeding() {
+        return RoomFilter.of(FILTER).select(building);
+    }
+}
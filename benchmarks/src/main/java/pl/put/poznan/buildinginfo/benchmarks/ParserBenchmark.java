@@ -0,0 +1,95 @@
+package pl.put.poznan.buildinginfo.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.put.poznan.buildinginfo.logic.BuildingParser;
+import pl.put.poznan.buildinginfo.logic.ColumnarBuilding;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing a building with the DOM parser, the streaming parser and straight into columns,
+ * and parsing only its middle level by name.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ParserBenchmark {
+
+    @Param({"4", "1000", "100000", "1000000"})
+    private int rooms;
+
+    private String json;
+    private byte[] bytes;
+    private String middleLevel;
+
+    /**
+     * Creates the JSON document once per trial.
+     */
+    @Setup
+    public void setUp() {
+        bytes = BenchmarkBuildings.json(rooms);
+        json = new String(bytes, StandardCharsets.UTF_8);
+        middleLevel = BenchmarkBuildings.levelName(BenchmarkBuildings.levels(rooms) / 2 + 1);
+    }
+
+    /**
+     * Parses the document through the org.json DOM.
+     *
+     * @return the parsed building
+     */
+    @Benchmark
+    public Building parseJsonString() {
+        return BuildingParser.parseJson(json);
+    }
+
+    /**
+     * Parses the document with the streaming parser.
+     *
+     * @return the parsed building
+     * @throws IOException never, the document is valid
+     */
+    @Benchmark
+    public Building parseJsonBytes() throws IOException {
+        return BuildingParser.parseJson(bytes);
+    }
+
+    /**
+     * Parses the document straight into columns.
+     *
+     * @return the parsed building
+     * @throws IOException never, the document is valid
+     */
+    @Benchmark
+    public ColumnarBuilding parseColumnar() throws IOException {
+        return ColumnarBuilding.parse(bytes);
+    }
+
+    /**
+     * Parses only the middle level, skipping the levels after it.
+     *
+     * @return the parsed level
+     * @throws IOException never, the document is valid
+     */
+    @Benchmark
+    public Optional<BuildingComponent> parseScopedLevel() throws IOException {
+        return BuildingParser.parseComponent(bytes, middleLevel);
+    }
+}
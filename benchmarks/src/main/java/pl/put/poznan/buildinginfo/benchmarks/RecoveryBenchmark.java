@@ -0,0 +1,108 @@
+package pl.put.poznan.buildinginfo.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.put.poznan.buildinginfo.logic.BuildingParser;
+import pl.put.poznan.buildinginfo.logic.BuildingRegistry;
+import pl.put.poznan.buildinginfo.logic.RegistryStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the warm start of a registry holding a number of 1000-room buildings: recovering
+ * it from a {@link RegistryStore} snapshot, and, for comparison, parsing the JSON of every
+ * building again as clients re-uploading them would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class RecoveryBenchmark {
+
+    private static final int ROOMS = 1000;
+
+    @Param({"10", "100", "1000"})
+    private int buildings;
+
+    private byte[] json;
+    private Path directory;
+
+    /**
+     * Stores the buildings once per trial and writes their snapshot.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        json = BenchmarkBuildings.json(ROOMS);
+        directory = Files.createTempDirectory("registry-benchmark");
+        BuildingRegistry registry = new BuildingRegistry(Long.MAX_VALUE);
+        try (RegistryStore store = new RegistryStore(directory)) {
+            store.recover(registry);
+            for (int i = 0; i < buildings; i++) {
+                registry.register(BuildingParser.parseJson(json));
+            }
+            store.snapshot(registry);
+        }
+    }
+
+    /**
+     * Deletes the snapshot and the change logs.
+     *
+     * @throws IOException if the files cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    /**
+     * Recovers the registry from the snapshot.
+     *
+     * @return the recovered registry
+     * @throws IOException if the snapshot cannot be read
+     */
+    @Benchmark
+    public BuildingRegistry recoverFromSnapshot() throws IOException {
+        BuildingRegistry registry = new BuildingRegistry(Long.MAX_VALUE);
+        try (RegistryStore store = new RegistryStore(directory)) {
+            store.recover(registry);
+        }
+        return registry;
+    }
+
+    /**
+     * Fills the registry by parsing the JSON of every building.
+     *
+     * @return the filled registry
+     * @throws IOException never, the document is valid
+     */
+    @Benchmark
+    public BuildingRegistry reparseJson() throws IOException {
+        BuildingRegistry registry = new BuildingRegistry(Long.MAX_VALUE);
+        for (int i = 0; i < buildings; i++) {
+            registry.register(BuildingParser.parseJson(json));
+        }
+        return registry;
+    }
+}
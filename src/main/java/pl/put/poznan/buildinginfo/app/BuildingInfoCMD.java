@@ -1,38 +1,216 @@
 package pl.put.poznan.buildinginfo.app;
 
+import pl.put.poznan.buildinginfo.logic.BuildingBatchProcessor;
+import pl.put.poznan.buildinginfo.logic.BuildingBinaryFormat;
+import pl.put.poznan.buildinginfo.logic.BuildingFileWatcher;
 import pl.put.poznan.buildinginfo.logic.BuildingFinder;
 import pl.put.poznan.buildinginfo.logic.BuildingParser;
+import pl.put.poznan.buildinginfo.logic.BuildingReport;
+import pl.put.poznan.buildinginfo.logic.HeatPerCubeIndex;
+import pl.put.poznan.buildinginfo.logic.Metric;
+import pl.put.poznan.buildinginfo.logic.ParallelAggregator;
+import pl.put.poznan.buildinginfo.logic.RoomRanking;
 import pl.put.poznan.buildinginfo.logic.entities.Building;
 import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
 import pl.put.poznan.buildinginfo.logic.entities.Room;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.InputMismatchException;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Scanner;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class BuildingInfoCMD {
 
+    /** Calculates the totals of large buildings on all cores; small ones stay sequential. */
+    private static final ParallelAggregator AGGREGATOR = ParallelAggregator.commonPool();
+
     private static Building building;
 
+    /**
+     * Runs the interactive menu, converts a building file when given two paths, or evaluates
+     * many building files without interaction in batch mode.
+     *
+     * With no arguments the bundled building-cmd.json is loaded. A single argument is the path
+     * of a building to load, either JSON or, when it ends with ".bin", the binary format of
+     * {@link BuildingBinaryFormat}. Two arguments convert the first file to the second, between
+     * JSON and the binary format depending on their extensions, and exit.
+     *
+     * Batch mode is started with {@code --batch <directory or glob> --output <file>}, optionally
+     * followed by {@code --threads <n>}, {@code --metrics <list>} and {@code --format csv|ndjson}.
+     * See {@link #runBatch(String[])}.
+     *
+     * Watch mode is started with {@code --watch <file>...}, optionally followed by
+     * {@code --metrics <list>} and {@code --debounce <milliseconds>}. See {@link #runWatch(String[])}.
+     *
+     * @param args optional path of the building file, the source and target of a conversion, batch or watch options
+     */
     public static void main(String[] args) {
         try {
-            InputStream inputStream = BuildingInfoCMD.class.getClassLoader().getResourceAsStream("building-cmd.json");
-            if (inputStream == null) {
-                throw new IOException("File not found: building-cmd.json");
+            if (args.length > 0 && args[0].equals("--batch")) {
+                try {
+                    runBatch(args);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Invalid batch options: " + e.getMessage());
+                }
+                return;
+            }
+            if (args.length > 0 && args[0].equals("--watch")) {
+                try {
+                    runWatch(args);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Invalid watch options: " + e.getMessage());
+                }
+                return;
+            }
+            if (args.length == 2) {
+                convert(Paths.get(args[0]), Paths.get(args[1]));
+                return;
             }
-            String content = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
-            building = BuildingParser.parseJson(content);
+            building = args.length == 1 ? BuildingBatchProcessor.loadFile(Paths.get(args[0])) : loadBundled();
             showMenu();
         } catch (IOException e) {
-            System.err.println("Error reading the JSON file: " + e.getMessage());
+            System.err.println("Error reading the building file: " + e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Invalid building file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Evaluates every building file at a location on a pool of worker threads and writes one
+     * result line per file to the output file as soon as the file is finished. Prints the number
+     * of files and rooms processed and the throughput at the end.
+     *
+     * Options: {@code --batch} a directory, whose ".json" and ".bin" files are read, or a glob
+     * pattern; {@code --output} the result file; {@code --threads} the number of workers, one per
+     * processor by default; {@code --metrics} a comma separated list of metrics, all by default;
+     * {@code --format} csv or ndjson, ndjson by default.
+     *
+     * @param args the batch options
+     * @throws IOException if the files cannot be listed or the output cannot be written
+     */
+    private static void runBatch(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected --option value pairs, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        String output = options.get("output");
+        if (output == null) {
+            throw new IllegalArgumentException("Missing --output file");
+        }
+        int threads = options.containsKey("threads")
+                ? Integer.parseInt(options.get("threads"))
+                : Runtime.getRuntime().availableProcessors();
+        Set<Metric> metrics = Metric.parseList(options.get("metrics"));
+        BuildingBatchProcessor.OutputFormat format = BuildingBatchProcessor.OutputFormat.fromName(options.get("format"));
+
+        List<Path> files = BuildingBatchProcessor.findFiles(options.get("batch"));
+        BuildingBatchProcessor.Summary summary;
+        try (BuildingBatchProcessor processor = new BuildingBatchProcessor(threads, threads * 4);
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(Paths.get(output)))) {
+            summary = processor.processFiles(files, metrics, format, out);
+        }
+        System.out.printf(Locale.ROOT, "Processed %d files (%d failed) and %d rooms in %.2f s: %.1f files/s, %.1f rooms/s%n",
+                summary.getFiles(), summary.getFailures(), summary.getRooms(), summary.getElapsedSeconds(),
+                summary.getFilesPerSecond(), summary.getRoomsPerSecond());
+    }
+
+    /**
+     * Watches building files and prints their metrics at start and again every time one of them
+     * is saved, until the process is stopped. Only the changed file is loaded again, once it has
+     * not changed for the debounce interval, and the JVM stays warm between the edits.
+     *
+     * Options: {@code --watch} one or more building files, JSON or ".bin"; {@code --metrics} a comma
+     * separated list of metrics, all by default; {@code --debounce} how many milliseconds a file
+     * must stay unchanged before it is loaded, 200 by default.
+     *
+     * @param args the watch options
+     * @throws IOException if the directories of the files cannot be watched
+     */
+    private static void runWatch(String[] args) throws IOException {
+        List<Path> files = new ArrayList<>();
+        int i = 1;
+        while (i < args.length && !args[i].startsWith("--")) {
+            files.add(Paths.get(args[i++]));
+        }
+        Map<String, String> options = new HashMap<>();
+        for (; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected --option value pairs, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        Set<Metric> metrics = Metric.parseList(options.get("metrics"));
+        long debounce = options.containsKey("debounce") ? Long.parseLong(options.get("debounce")) : 200;
+
+        BuildingFileWatcher.Listener listener = new BuildingFileWatcher.Listener() {
+            @Override
+            public void loaded(Path file, Building loaded) {
+                System.out.println("[" + LocalTime.now().truncatedTo(ChronoUnit.SECONDS) + "] " + file
+                        + " (" + loaded.getId() + ")");
+                BuildingReport.of(loaded).toMap(metrics)
+                        .forEach((key, value) -> System.out.println("  " + key + ": " + value));
+            }
+
+            @Override
+            public void failed(Path file, Exception error) {
+                System.out.println("[" + LocalTime.now().truncatedTo(ChronoUnit.SECONDS) + "] " + file
+                        + " could not be loaded: " + error.getMessage());
+            }
+        };
+        try (BuildingFileWatcher watcher = new BuildingFileWatcher(files, debounce, listener)) {
+            System.out.println("Watching " + files.size() + " file(s), press Ctrl+C to stop");
+            watcher.run();
         }
     }
 
+    private static Building loadBundled() throws IOException {
+        InputStream inputStream = BuildingInfoCMD.class.getClassLoader().getResourceAsStream("building-cmd.json");
+        if (inputStream == null) {
+            throw new IOException("File not found: building-cmd.json");
+        }
+        String content = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        return BuildingParser.parseJson(content);
+    }
+
+    private static void convert(Path source, Path target) throws IOException {
+        if (isBinary(source) == isBinary(target)) {
+            throw new IOException("Conversion needs one .bin and one .json file");
+        }
+        if (isBinary(source)) {
+            try (OutputStream out = Files.newOutputStream(target)) {
+                BuildingBinaryFormat.binaryToJson(source, out);
+            }
+        } else {
+            try (InputStream in = Files.newInputStream(source)) {
+                BuildingBinaryFormat.jsonToBinary(in, target);
+            }
+        }
+        System.out.println("Converted " + source + " to " + target);
+    }
+
+    private static boolean isBinary(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".bin");
+    }
+
     private static void showMenu() {
         Scanner scanner = new Scanner(System.in);
         while (true) {
@@ -46,7 +224,8 @@ public class BuildingInfoCMD {
             System.out.println("7. Calculate minimum restrooms per area");
             System.out.println("8. Calculate total lighting");
             System.out.println("9. Calculate lighting per area");
-            System.out.println("10. Exit");
+            System.out.println("10. Find top rooms by a metric");
+            System.out.println("11. Exit");
 
             int choice = 0;
             boolean validInput = false;
@@ -82,7 +261,7 @@ public class BuildingInfoCMD {
                         scanner.next(); // consume invalid input
                     }
                     double threshold = scanner.nextDouble();
-                    List<Room> rooms = BuildingFinder.findRoomsExceedingHeatThreshold(building, threshold);
+                    List<Room> rooms = HeatPerCubeIndex.of(building).exceeding(threshold);
                     rooms.forEach(room -> System.out.println(room.getName() + " - Heat per cube: " + (room.getHeating() / room.getCube())));
                     break;
                 case 5:
@@ -111,6 +290,9 @@ public class BuildingInfoCMD {
                     calculateAndPrintLightingPerArea(lightingName);
                     break;
                 case 10:
+                    showTopRooms(scanner);
+                    break;
+                case 11:
                     System.out.println("Exiting...");
                     return;
                 default:
@@ -119,18 +301,60 @@ public class BuildingInfoCMD {
         }
     }
 
+    private static void showTopRooms(Scanner scanner) {
+        System.out.print("Enter metric (heatPerCube, heating, lightPerArea, area): ");
+        String metricName = scanner.nextLine();
+        System.out.print("Enter number of rooms: ");
+        while (!scanner.hasNextInt()) {
+            System.out.println("Invalid input. Please enter a valid number of rooms.");
+            scanner.next(); // consume invalid input
+        }
+        int k = scanner.nextInt();
+        scanner.nextLine(); // consume newline
+        System.out.print("Enter order, desc or asc (or press Enter for highest first): ");
+        String orderName = scanner.nextLine();
+        System.out.print("Enter component name (or press Enter for the whole building): ");
+        String name = scanner.nextLine();
+
+        RoomRanking.RoomMetric metric;
+        RoomRanking.Order order;
+        try {
+            metric = RoomRanking.RoomMetric.fromName(metricName);
+            order = RoomRanking.Order.fromName(orderName);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Unknown metric or order");
+            return;
+        }
+        BuildingComponent component = building;
+        if (!name.isEmpty()) {
+            Optional<BuildingComponent> found = BuildingFinder.findComponentByName(building, name);
+            if (!found.isPresent()) {
+                System.out.println("Component with given name not found");
+                return;
+            }
+            component = found.get();
+        }
+        if (k <= 0) {
+            System.out.println("Number of rooms must be positive");
+            return;
+        }
+        for (Room room : RoomRanking.top(component, metric, k, order)) {
+            System.out.println(room.getName() + " - " + metric.getName() + ": " + Math.round(metric.of(room) * 100.0) / 100.0);
+        }
+    }
+
     private static void calculateAndPrintArea(String name) {
         double totalArea;
         if (name != null && !name.isEmpty()) {
             Optional<BuildingComponent> component = BuildingFinder.findComponentByName(building, name);
             if (component.isPresent()) {
-                totalArea = component.get().calculateArea();
+                totalArea = AGGREGATOR.aggregate(component.get()).getArea();
             } else {
                 System.out.println("Component with given name not found");
                 return;
             }
         } else {
-            totalArea = building.calculateArea();
+            totalArea = AGGREGATOR.aggregate(building).getArea();
         }
         System.out.println("Total area: " + Math.round(totalArea * 100.0) / 100.0);
     }
@@ -140,13 +364,13 @@ public class BuildingInfoCMD {
         if (name != null && !name.isEmpty()) {
             Optional<BuildingComponent> component = BuildingFinder.findComponentByName(building, name);
             if (component.isPresent()) {
-                totalHeat = component.get().calculateHeat();
+                totalHeat = AGGREGATOR.aggregate(component.get()).getHeat();
             } else {
                 System.out.println("Component with given name not found");
                 return;
             }
         } else {
-            totalHeat = building.calculateHeat();
+            totalHeat = AGGREGATOR.aggregate(building).getHeat();
         }
         System.out.println("Total heating: " + Math.round(totalHeat * 100.0) / 100.0);
     }
@@ -156,13 +380,13 @@ public class BuildingInfoCMD {
         if (name != null && !name.isEmpty()) {
             Optional<BuildingComponent> component = BuildingFinder.findComponentByName(building, name);
             if (component.isPresent()) {
-                totalArea = component.get().calculateArea();
+                totalArea = AGGREGATOR.aggregate(component.get()).getArea();
             } else {
                 System.out.println("Component with given name not found");
                 return;
             }
         } else {
-            totalArea = building.calculateArea();
+            totalArea = AGGREGATOR.aggregate(building).getArea();
         }
         int maxPeople = (int) Math.floor(totalArea / 3.0);
         System.out.println("Maximum people: " + maxPeople);
@@ -173,13 +397,13 @@ public class BuildingInfoCMD {
         if (name != null && !name.isEmpty()) {
             Optional<BuildingComponent> component = BuildingFinder.findComponentByName(building, name);
             if (component.isPresent()) {
-                totalCube = component.get().calculateCube();
+                totalCube = AGGREGATOR.aggregate(component.get()).getCube();
             } else {
                 System.out.println("Component with given name not found");
                 return;
             }
         } else {
-            totalCube = building.calculateCube();
+            totalCube = AGGREGATOR.aggregate(building).getCube();
         }
         System.out.println("Total cube: " + Math.round(totalCube * 100.0) / 100.0);
     }
@@ -189,13 +413,13 @@ public class BuildingInfoCMD {
         if (name != null && !name.isEmpty()) {
             Optional<BuildingComponent> component = BuildingFinder.findComponentByName(building, name);
             if (component.isPresent()) {
-                totalArea = component.get().calculateArea();
+                totalArea = AGGREGATOR.aggregate(component.get()).getArea();
             } else {
                 System.out.println("Component with given name not found");
                 return;
             }
         } else {
-            totalArea = building.calculateArea();
+            totalArea = AGGREGATOR.aggregate(building).getArea();
         }
         int maxPeople = (int) Math.floor(totalArea / 3.0);
         int restrooms = (int) Math.ceil(maxPeople / 15.0);
@@ -207,33 +431,32 @@ public class BuildingInfoCMD {
         if (name != null && !name.isEmpty()) {
             Optional<BuildingComponent> component = BuildingFinder.findComponentByName(building, name);
             if (component.isPresent()) {
-                totalLight = component.get().calculateLight();
+                totalLight = AGGREGATOR.aggregate(component.get()).getLight();
             } else {
                 System.out.println("Component with given name not found");
                 return;
             }
         } else {
-            totalLight = building.calculateLight();
+            totalLight = AGGREGATOR.aggregate(building).getLight();
         }
         System.out.println("Total lighting: " + Math.round(totalLight * 100.0) / 100.0);
     }
 
     private static void calculateAndPrintLightingPerArea(String name) {
-        double totalLighting;
-        double totalArea;
+        BuildingReport report;
         if (name != null && !name.isEmpty()) {
             Optional<BuildingComponent> component = BuildingFinder.findComponentByName(building, name);
             if (component.isPresent()) {
-                totalLighting = component.get().calculateLight();
-                totalArea = component.get().calculateArea();
+                report = AGGREGATOR.aggregate(component.get());
             } else {
                 System.out.println("Component with given name not found");
                 return;
             }
         } else {
-            totalLighting = building.calculateLight();
-            totalArea = building.calculateArea();
+            report = AGGREGATOR.aggregate(building);
         }
+        double totalLighting = report.getLight();
+        double totalArea = report.getArea();
         double lightingPerArea = totalLighting / totalArea;
         System.out.println("Lighting per area: " + Math.round(lightingPerArea * 100.0) / 100.0);
     }
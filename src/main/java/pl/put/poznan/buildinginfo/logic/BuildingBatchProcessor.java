@@ -0,0 +1,611 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Evaluates many buildings at once on a fixed pool of worker threads.
+ *
+ * The input is either newline-delimited JSON, one building per line, or a JSON array of
+ * buildings; the format is recognised by its first character. The reading thread splits
+ * the input into single building documents and hands them to the workers, which parse
+ * them and compute the requested {@link Metric}s. Each building produces one line of
+ * JSON as soon as it is finished, so the lines come out in completion order and carry
+ * the position of the building in the input:
+ *
+ * {@code {"index":0,"id":"building1","totalArea":105.0}}
+ *
+ * A building that cannot be parsed produces {@code {"index":1,"error":"..."}} instead and
+ * does not affect the others. In a JSON array a syntax error cannot be skipped, so it
+ * ends the batch after the error line of the building it occurs in.
+ *
+ * At most {@code maxInFlight} buildings of one batch are held in memory at a time; the
+ * reading thread waits for a worker to finish before reading further.
+ *
+ * Building files can be evaluated the same way with {@link #processFiles}, which writes
+ * one line per file as NDJSON or CSV and reports the throughput of the batch.
+ */
+public class BuildingBatchProcessor implements AutoCloseable {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private final ThreadPoolExecutor executor;
+    private final int maxInFlight;
+
+    /**
+     * Creates a processor with its own pool of worker threads.
+     *
+     * @param threads     the number of worker threads
+     * @param maxInFlight the maximum number of buildings of one batch read but not yet finished
+     * @throws IllegalArgumentException if either number is not positive
+     */
+    public BuildingBatchProcessor(int threads, int maxInFlight) {
+        if (threads <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("Invalid batch pool size: " + threads + " threads, " + maxInFlight + " in flight");
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "building-batch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Gets the number of worker threads.
+     *
+     * @return the number of worker threads
+     */
+    public int getThreads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Evaluates every building of the input and writes one result line per building.
+     * Returns once all buildings have been written. Neither stream is closed.
+     *
+     * @param in      the buildings, as newline-delimited JSON or a JSON array
+     * @param metrics the metrics to compute for each building
+     * @param out     the stream receiving the UTF-8 result lines; flushed after each line
+     * @return the number of buildings read
+     * @throws IOException if the input cannot be read or the output cannot be written
+     */
+    public int process(InputStream in, Set<Metric> metrics, OutputStream out) throws IOException {
+        Batch batch = new Batch(metrics, out);
+        BufferedInputStream input = new BufferedInputStream(in);
+        try {
+            if (firstByte(input) == '[') {
+                readArray(input, batch);
+            } else {
+                readLines(input, batch);
+            }
+        } finally {
+            batch.awaitAll();
+        }
+        batch.rethrowWriteFailure();
+        return batch.count;
+    }
+
+    /**
+     * Evaluates building files and writes one result line per file as soon as it is finished.
+     * Files ending with ".bin" are read in the format of {@link BuildingBinaryFormat}, all others as JSON.
+     *
+     * A result line holds the file, the building id, the number of rooms and the requested metrics,
+     * or the file and an "error" field if the file cannot be read. In {@link OutputFormat#CSV} the
+     * lines follow a header line and the error column is empty for files read successfully.
+     * Returns once all files have been written; the stream is not closed.
+     *
+     * @param files   the building files
+     * @param metrics the metrics to compute for each building
+     * @param format  the format of the result lines
+     * @param out     the stream receiving the UTF-8 result lines; flushed after each line
+     * @return the number of files and rooms processed and the time it took
+     * @throws IOException if the output cannot be written
+     */
+    public Summary processFiles(List<Path> files, Set<Metric> metrics, OutputFormat format, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        Batch batch = new Batch(metrics, out);
+        AtomicLong rooms = new AtomicLong();
+        AtomicInteger failures = new AtomicInteger();
+        if (format == OutputFormat.CSV) {
+            StringBuilder header = new StringBuilder("file,id,rooms");
+            for (Metric metric : metrics) {
+                header.append(',').append(metric.getKey());
+            }
+            batch.writeText(header.append(",error").toString());
+        }
+        try {
+            for (Path file : files) {
+                if (batch.failed()) {
+                    break;
+                }
+                batch.execute(() -> {
+                    try {
+                        if (isBinary(file)) {
+                            // The columns have their own sums, so no rooms are created
+                            ColumnarBuilding building = BuildingBinaryFormat.read(file);
+                            rooms.addAndGet(building.getRoomCount());
+                            batch.writeFileResult(format, file, building.getId(), building.getRoomCount(),
+                                    BuildingReport.of(building).toMap(metrics), null);
+                        } else {
+                            Building building = loadFile(file);
+                            long roomCount = MetricAccumulator.countRooms(building);
+                            rooms.addAndGet(roomCount);
+                            batch.writeFileResult(format, file, building.getId(), roomCount,
+                                    BuildingReport.of(building).toMap(metrics), null);
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                        String message = e instanceof JsonProcessingException
+                                ? ((JsonProcessingException) e).getOriginalMessage()
+                                : String.valueOf(e.getMessage());
+                        batch.writeFileResult(format, file, null, 0, null, message);
+                    }
+                });
+            }
+        } finally {
+            batch.awaitAll();
+        }
+        batch.rethrowWriteFailure();
+        return new Summary(files.size(), failures.get(), rooms.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * Finds the building files at a location: a single file, every ".json" and ".bin" file below a
+     * directory, or every file matching a glob pattern such as {@code exports/*.json}.
+     *
+     * @param location the path of a file or directory, or a glob pattern
+     * @return the matching files, sorted by path
+     * @throws IOException if the files cannot be listed
+     */
+    public static List<Path> findFiles(String location) throws IOException {
+        int glob = indexOfGlob(location);
+        if (glob < 0) {
+            Path path = Paths.get(location);
+            if (!Files.isDirectory(path)) {
+                return Collections.singletonList(path);
+            }
+            return walk(path, file -> {
+                String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+                return name.endsWith(".json") || name.endsWith(".bin");
+            });
+        }
+        int separator = Math.max(location.lastIndexOf('/', glob), location.lastIndexOf(File.separatorChar, glob));
+        Path base = Paths.get(separator < 0 ? "." : location.substring(0, separator + 1));
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + location);
+        return walk(base, file -> matcher.matches(separator < 0 ? base.relativize(file) : file));
+    }
+
+    private static int indexOfGlob(String location) {
+        for (int i = 0; i < location.length(); i++) {
+            if ("*?[{".indexOf(location.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<Path> walk(Path base, Predicate<Path> filter) throws IOException {
+        try (Stream<Path> paths = Files.walk(base)) {
+            return paths.filter(Files::isRegularFile).filter(filter).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Loads a building file, JSON or, when the name ends with ".bin", the binary format of
+     * {@link BuildingBinaryFormat}.
+     *
+     * @param file the building file
+     * @return the building
+     * @throws IOException if the file cannot be read or its content is malformed
+     */
+    public static Building loadFile(Path file) throws IOException {
+        if (isBinary(file)) {
+            return BuildingBinaryFormat.read(file).toBuilding();
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            return BuildingParser.parseJson(in);
+        }
+    }
+
+    private static boolean isBinary(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".bin");
+    }
+
+    /**
+     * Stops the worker threads. Batches still running are not waited for.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the first byte that is not whitespace, leaving it in the stream.
+     */
+    private static int firstByte(BufferedInputStream input) throws IOException {
+        while (true) {
+            input.mark(1);
+            int b = input.read();
+            if (b == -1 || !Character.isWhitespace(b)) {
+                input.reset();
+                return b;
+            }
+        }
+    }
+
+    private static void readLines(InputStream input, Batch batch) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        boolean blank = true;
+        int b;
+        while ((b = input.read()) != -1 && !batch.failed()) {
+            if (b == '\n') {
+                if (!blank) {
+                    batch.submit(line.toByteArray());
+                }
+                line.reset();
+                blank = true;
+            } else {
+                line.write(b);
+                blank &= Character.isWhitespace(b);
+            }
+        }
+        if (!blank && !batch.failed()) {
+            batch.submit(line.toByteArray());
+        }
+    }
+
+    private static void readArray(InputStream input, Batch batch) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(input)) {
+            parser.nextToken(); // START_ARRAY
+            ByteArrayOutputStream element = new ByteArrayOutputStream();
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null && !batch.failed()) {
+                    element.reset();
+                    try (JsonGenerator copy = JSON_FACTORY.createGenerator(element, JsonEncoding.UTF8)) {
+                        copy.copyCurrentStructure(parser);
+                    }
+                    batch.submit(element.toByteArray());
+                }
+            } catch (JsonProcessingException e) {
+                // The position in the array is lost, so nothing after this can be read
+                batch.fail(e.getOriginalMessage());
+            }
+        }
+    }
+
+    /**
+     * The state of one call to {@link #process}.
+     */
+    private final class Batch {
+        private final Set<Metric> metrics;
+        private final OutputStream out;
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        private final AtomicReference<IOException> writeFailure = new AtomicReference<>();
+        private int count;
+
+        Batch(Set<Metric> metrics, OutputStream out) {
+            this.metrics = metrics;
+            this.out = out;
+        }
+
+        /**
+         * Hands a building to the workers, waiting while too many are in flight.
+         */
+        void submit(byte[] json) throws IOException {
+            int index = count++;
+            execute(() -> evaluate(index, json));
+        }
+
+        /**
+         * Runs a task on the workers, waiting while too many are in flight.
+         */
+        void execute(Runnable task) throws IOException {
+            acquire(1);
+            try {
+                executor.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                inFlight.release();
+                throw e;
+            }
+        }
+
+        /**
+         * Writes an error line for a building that could not be read from the input.
+         */
+        void fail(String message) {
+            write(error(count++, message));
+        }
+
+        boolean failed() {
+            return writeFailure.get() != null;
+        }
+
+        void awaitAll() throws IOException {
+            acquire(maxInFlight);
+            inFlight.release(maxInFlight);
+        }
+
+        void rethrowWriteFailure() throws IOException {
+            IOException failure = writeFailure.get();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        private void acquire(int permits) throws IOException {
+            try {
+                inFlight.acquire(permits);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the batch workers");
+            }
+        }
+
+        private void evaluate(int index, byte[] json) {
+            try {
+                Building building = BuildingParser.parseJson(json);
+                Map<String, Object> result = BuildingReport.of(building).toMap(metrics);
+                write(generator -> {
+                    generator.writeStartObject();
+                    generator.writeNumberField("index", index);
+                    generator.writeStringField("id", building.getId());
+                    for (Map.Entry<String, Object> entry : result.entrySet()) {
+                        generator.writeFieldName(entry.getKey());
+                        writeNumber(generator, (Number) entry.getValue());
+                    }
+                    generator.writeEndObject();
+                });
+            } catch (Exception e) {
+                String message = e instanceof JsonProcessingException
+                        ? ((JsonProcessingException) e).getOriginalMessage()
+                        : e.getMessage();
+                write(error(index, message));
+            }
+        }
+
+        private LineWriter error(int index, String message) {
+            return generator -> {
+                generator.writeStartObject();
+                generator.writeNumberField("index", index);
+                generator.writeStringField("error", message);
+                generator.writeEndObject();
+            };
+        }
+
+        /**
+         * Writes the result line of a building file, with either the metrics or an error message.
+         */
+        void writeFileResult(OutputFormat format, Path file, String id, long rooms, Map<String, Object> result, String error) {
+            if (format == OutputFormat.CSV) {
+                StringBuilder line = new StringBuilder();
+                line.append(csvField(file.toString())).append(',').append(csvField(id)).append(',');
+                if (error == null) {
+                    line.append(rooms);
+                }
+                for (Metric metric : metrics) {
+                    line.append(',');
+                    if (result != null) {
+                        line.append(result.get(metric.getKey()));
+                    }
+                }
+                writeText(line.append(',').append(csvField(error)).toString());
+                return;
+            }
+            write(generator -> {
+                generator.writeStartObject();
+                generator.writeStringField("file", file.toString());
+                if (error != null) {
+                    generator.writeStringField("error", error);
+                } else {
+                    generator.writeStringField("id", id);
+                    generator.writeNumberField("rooms", rooms);
+                    for (Map.Entry<String, Object> entry : result.entrySet()) {
+                        generator.writeFieldName(entry.getKey());
+                        writeNumber(generator, (Number) entry.getValue());
+                    }
+                }
+                generator.writeEndObject();
+            });
+        }
+
+        /**
+         * Writes one line of text; lines from different workers never interleave.
+         */
+        void writeText(String line) {
+            if (failed()) {
+                return;
+            }
+            synchronized (out) {
+                try {
+                    out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                } catch (IOException e) {
+                    writeFailure.compareAndSet(null, e);
+                }
+            }
+        }
+
+        /**
+         * Writes one line; lines from different workers never interleave.
+         */
+        private void write(LineWriter line) {
+            if (failed()) {
+                return;
+            }
+            synchronized (out) {
+                try (JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+                    line.write(generator);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    writeFailure.compareAndSet(null, e);
+                }
+            }
+        }
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static void writeNumber(JsonGenerator generator, Number value) throws IOException {
+        if (value instanceof Integer || value instanceof Long) {
+            generator.writeNumber(value.longValue());
+        } else {
+            generator.writeNumber(value.doubleValue());
+        }
+    }
+
+    /**
+     * The formats of the result lines written by {@link #processFiles}.
+     */
+    public enum OutputFormat {
+        /** One JSON object per line. */
+        NDJSON,
+        /** Comma separated values after a header line. */
+        CSV;
+
+        /**
+         * Finds a format by its name, ignoring case.
+         *
+         * @param name "ndjson" or "csv", or null for the default, NDJSON
+         * @return the matching format
+         * @throws IllegalArgumentException if no format has the given name
+         */
+        public static OutputFormat fromName(String name) {
+            if (name == null || name.trim().isEmpty()) {
+                return NDJSON;
+            }
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * The outcome of {@link #processFiles}: how much was processed and how fast.
+     */
+    public static final class Summary {
+        private final int files;
+        private final int failures;
+        private final long rooms;
+        private final long elapsedNanos;
+
+        Summary(int files, int failures, long rooms, long elapsedNanos) {
+            this.files = files;
+            this.failures = failures;
+            this.rooms = rooms;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Gets the number of processed files, including those that failed.
+         *
+         * @return the number of files
+         */
+        public int getFiles() {
+            return files;
+        }
+
+        /**
+         * Gets the number of files that could not be read.
+         *
+         * @return the number of failed files
+         */
+        public int getFailures() {
+            return failures;
+        }
+
+        /**
+         * Gets the total number of rooms of the buildings read.
+         *
+         * @return the number of rooms
+         */
+        public long getRooms() {
+            return rooms;
+        }
+
+        /**
+         * Gets the wall-clock time of the batch.
+         *
+         * @return the elapsed time in seconds
+         */
+        public double getElapsedSeconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        /**
+         * Gets the throughput in files.
+         *
+         * @return the number of files processed per second
+         */
+        public double getFilesPerSecond() {
+            return files / Math.max(getElapsedSeconds(), 1e-9);
+        }
+
+        /**
+         * Gets the throughput in rooms.
+         *
+         * @return the number of rooms processed per second
+         */
+        public double getRoomsPerSecond() {
+            return rooms / Math.max(getElapsedSeconds(), 1e-9);
+        }
+    }
+
+    @FunctionalInterface
+    private interface LineWriter {
+        void write(JsonGenerator generator) throws IOException;
+    }
+}
@@ -0,0 +1,349 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A compact, versioned binary file format for buildings, loaded through a memory mapped file.
+ *
+ * The file is a {@link ColumnarBuilding} written column by column, all values little-endian:
+ * <pre>
+ * header        magic "BLDG", version, level count L, room count R,
+ *               string count S, string bytes B, building id code, building name code (8 x int32)
+ * area          R x float64
+ * cube          R x float64
+ * heating       R x float32
+ * light         R x float32
+ * room ids      R x int32 (string codes)
+ * room names    R x int32 (string codes, -1 for no name)
+ * level offsets (L + 1) x int32, the rooms of level i are [offset i, offset i + 1)
+ * level ids     L x int32
+ * level names   L x int32
+ * string ends   S x int32, the end of every string in the string data
+ * string data   B bytes of UTF-8
+ * </pre>
+ * The columns follow the header without padding. Because the header and every double column
+ * are a multiple of 8 bytes long, the double columns stay aligned.
+ *
+ * Loading maps the file and copies every column into its array with a single bulk get.
+ * Numbers are never decoded one field at a time. Only the strings in the string table are decoded,
+ * once per distinct string.
+ */
+public class BuildingBinaryFormat {
+
+    /** The first four bytes of every building file, "BLDG" in ASCII. */
+    public static final int MAGIC = 0x474C4442;
+
+    /** The version written by this class; files with a newer version are rejected. */
+    public static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 8 * Integer.BYTES;
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    /**
+     * Writes a building to a file, replacing its content.
+     *
+     * @param building the building to write
+     * @param file     the file to write to
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(ColumnarBuilding building, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(building, channel);
+        }
+    }
+
+    /**
+     * Writes a building to a channel. The channel is not closed.
+     *
+     * @param building the building to write
+     * @param channel  the channel to write to
+     * @throws IOException if the channel cannot be written
+     */
+    public static void write(ColumnarBuilding building, WritableByteChannel channel) throws IOException {
+        String[] dictionary = building.dictionary();
+        byte[][] strings = new byte[dictionary.length][];
+        int[] stringEnds = new int[dictionary.length];
+        long stringBytes = 0;
+        for (int i = 0; i < dictionary.length; i++) {
+            strings[i] = dictionary[i].getBytes(StandardCharsets.UTF_8);
+            stringBytes += strings[i].length;
+            if (stringBytes > Integer.MAX_VALUE) {
+                throw new IOException("String table too large");
+            }
+            stringEnds[i] = (int) stringBytes;
+        }
+
+        ColumnWriter out = new ColumnWriter(channel);
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putInt(building.getLevelCount());
+        out.putInt(building.getRoomCount());
+        out.putInt(dictionary.length);
+        out.putInt((int) stringBytes);
+        out.putInt(building.idCode());
+        out.putInt(building.nameCode());
+        out.putDoubles(building.areaColumn());
+        out.putDoubles(building.cubeColumn());
+        out.putFloats(building.heatingColumn());
+        out.putFloats(building.lightColumn());
+        out.putInts(building.roomIds());
+        out.putInts(building.roomNames());
+        out.putInts(building.levelOffsets());
+        out.putInts(building.levelIds());
+        out.putInts(building.levelNames());
+        out.putInts(stringEnds);
+        for (byte[] string : strings) {
+            out.putBytes(string);
+        }
+        out.flush();
+    }
+
+    /**
+     * Loads a building from a file by mapping it into memory.
+     *
+     * @param file the file to read
+     * @return the loaded building
+     * @throws IOException if the file cannot be read, is not a building file, has an unsupported
+     *                     version or is corrupt
+     */
+    public static ColumnarBuilding read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Building file too large: " + size + " bytes");
+            }
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Loads a building from a buffer holding a whole building file, starting at its position.
+     * The position of the buffer is not changed.
+     *
+     * @param buffer the contents of a building file
+     * @return the loaded building
+     * @throws IOException if the buffer does not hold a building file, has an unsupported
+     *                     version or is corrupt
+     */
+    public static ColumnarBuilding read(ByteBuffer buffer) throws IOException {
+        ByteBuffer in = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (in.remaining() < HEADER_BYTES || in.getInt() != MAGIC) {
+            throw new IOException("Not a building file");
+        }
+        int version = in.getInt();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported building file version: " + version);
+        }
+        int levels = in.getInt();
+        int rooms = in.getInt();
+        int stringCount = in.getInt();
+        int stringBytes = in.getInt();
+        int idCode = in.getInt();
+        int nameCode = in.getInt();
+        if (levels < 0 || rooms < 0 || stringCount < 0 || stringBytes < 0) {
+            throw new IOException("Corrupt building file: negative count");
+        }
+        long expected = HEADER_BYTES
+                + 2L * rooms * Double.BYTES
+                + 2L * rooms * Float.BYTES
+                + (2L * rooms + 3L * levels + 1 + stringCount) * Integer.BYTES
+                + stringBytes;
+        if (in.remaining() + HEADER_BYTES != expected) {
+            throw new IOException("Corrupt building file: expected " + expected + " bytes but found "
+                    + (in.remaining() + HEADER_BYTES));
+        }
+
+        double[] area = new double[rooms];
+        double[] cube = new double[rooms];
+        float[] heating = new float[rooms];
+        float[] light = new float[rooms];
+        int[] roomIds = new int[rooms];
+        int[] roomNames = new int[rooms];
+        int[] levelOffsets = new int[levels + 1];
+        int[] levelIds = new int[levels];
+        int[] levelNames = new int[levels];
+        int[] stringEnds = new int[stringCount];
+        byte[] strings = new byte[stringBytes];
+
+        in.asDoubleBuffer().get(area);
+        skip(in, area.length * Double.BYTES);
+        in.asDoubleBuffer().get(cube);
+        skip(in, cube.length * Double.BYTES);
+        in.asFloatBuffer().get(heating);
+        skip(in, heating.length * Float.BYTES);
+        in.asFloatBuffer().get(light);
+        skip(in, light.length * Float.BYTES);
+        for (int[] column : new int[][]{roomIds, roomNames, levelOffsets, levelIds, levelNames, stringEnds}) {
+            in.asIntBuffer().get(column);
+            skip(in, column.length * Integer.BYTES);
+        }
+        in.get(strings);
+
+        String[] dictionary = new String[stringCount];
+        int start = 0;
+        for (int i = 0; i < stringCount; i++) {
+            int end = stringEnds[i];
+            if (end < start || end > stringBytes) {
+                throw new IOException("Corrupt building file: invalid string table");
+            }
+            dictionary[i] = new String(strings, start, end - start, StandardCharsets.UTF_8);
+            start = end;
+        }
+
+        try {
+            return ColumnarBuilding.ofColumns(dictionary, idCode, nameCode, levelOffsets, levelIds, levelNames,
+                    roomIds, roomNames, area, cube, heating, light);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt building file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes a building as JSON in the format accepted by {@link BuildingParser}.
+     * Rooms, levels and the building have no "name" field when they have no name.
+     * The stream is not closed.
+     *
+     * @param building the building to write
+     * @param out      the stream to write UTF-8 encoded JSON to
+     * @throws IOException if the stream cannot be written
+     */
+    public static void writeJson(ColumnarBuilding building, OutputStream out) throws IOException {
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            json.writeStartObject();
+            writeIdAndName(json, building.getId(), building.getName());
+            json.writeArrayFieldStart("levels");
+            for (int level = 0; level < building.getLevelCount(); level++) {
+                json.writeStartObject();
+                writeIdAndName(json, building.getLevelId(level), building.getLevelName(level));
+                json.writeArrayFieldStart("rooms");
+                for (int room = building.getLevelStart(level); room < building.getLevelEnd(level); room++) {
+                    json.writeStartObject();
+                    writeIdAndName(json, building.getRoomId(room), building.getRoomName(room));
+                    json.writeNumberField("area", building.getArea(room));
+                    json.writeNumberField("cube", building.getCube(room));
+                    json.writeNumberField("heating", building.getHeating(room));
+                    json.writeNumberField("light", building.getLight(room));
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+
+    /**
+     * Converts a JSON building, in the format accepted by {@link BuildingParser}, to a building file.
+     *
+     * @param json   a stream of UTF-8 encoded JSON; it is not closed
+     * @param target the building file to write
+     * @throws IOException if the JSON is malformed or a stream or file cannot be accessed
+     * @throws org.json.JSONException if required fields are missing or have the wrong type
+     */
+    public static void jsonToBinary(InputStream json, Path target) throws IOException {
+        write(ColumnarBuilding.parse(json), target);
+    }
+
+    /**
+     * Converts a building file to JSON in the format accepted by {@link BuildingParser}.
+     *
+     * @param source the building file to read
+     * @param json   the stream to write UTF-8 encoded JSON to; it is not closed
+     * @throws IOException if the file is not a valid building file or a stream cannot be accessed
+     */
+    public static void binaryToJson(Path source, OutputStream json) throws IOException {
+        writeJson(read(source), json);
+    }
+
+    private static void writeIdAndName(JsonGenerator json, String id, String name) throws IOException {
+        json.writeStringField("id", id);
+        if (name != null) {
+            json.writeStringField("name", name);
+        }
+    }
+
+    private static void skip(ByteBuffer buffer, int bytes) {
+        buffer.position(buffer.position() + bytes);
+    }
+
+    /**
+     * Writes little-endian columns to a channel through a fixed size buffer.
+     */
+    private static final class ColumnWriter {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        ColumnWriter(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putInts(int[] values) throws IOException {
+            for (int value : values) {
+                ensure(Integer.BYTES);
+                buffer.putInt(value);
+            }
+        }
+
+        void putFloats(float[] values) throws IOException {
+            for (float value : values) {
+                ensure(Float.BYTES);
+                buffer.putFloat(value);
+            }
+        }
+
+        void putDoubles(double[] values) throws IOException {
+            for (double value : values) {
+                ensure(Double.BYTES);
+                buffer.putDouble(value);
+            }
+        }
+
+        void putBytes(byte[] values) throws IOException {
+            int offset = 0;
+            while (offset < values.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), values.length - offset);
+                buffer.put(values, offset, length);
+                offset += length;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches building files and loads them again whenever they change.
+ *
+ * The directories of the files are registered with a {@link WatchService}, so waiting for a
+ * change costs no polling. Editors usually save a file in several writes, or by writing a new
+ * file and renaming it over the old one, so a file is only loaded once no change to it has been
+ * seen for the debounce interval. Each burst of writes therefore gives one load, and only the
+ * files that changed are loaded; changes to other files in the same directories are ignored.
+ *
+ * The watcher is meant to stay running in a long-lived process, for example the watch mode of
+ * the command-line application, so that repeated evaluations do not pay for starting the JVM.
+ */
+public class BuildingFileWatcher implements AutoCloseable {
+
+    /**
+     * Receives the buildings loaded by a watcher, on the thread running {@link #run()}.
+     */
+    public interface Listener {
+
+        /**
+         * Called with the building loaded from a file, at start and after every change.
+         *
+         * @param file     the watched file
+         * @param building the building loaded from it
+         */
+        void loaded(Path file, Building building);
+
+        /**
+         * Called when a watched file cannot be loaded, for example because it is missing or
+         * not a valid building. The file stays watched.
+         *
+         * @param file  the watched file
+         * @param error the reason
+         */
+        void failed(Path file, Exception error);
+    }
+
+    private final Set<Path> files = new LinkedHashSet<>();
+    private final long debounceNanos;
+    private final Listener listener;
+    private final WatchService watchService;
+
+    /**
+     * Constructs a watcher and registers the directories of the files.
+     *
+     * @param files          the building files to watch, JSON or ".bin"
+     * @param debounceMillis how long a file must stay unchanged before it is loaded again
+     * @param listener       the listener receiving the loaded buildings
+     * @throws IOException              if a directory cannot be watched
+     * @throws IllegalArgumentException if no files are given or the debounce interval is negative
+     */
+    public BuildingFileWatcher(List<Path> files, long debounceMillis, Listener listener) throws IOException {
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("No files to watch");
+        }
+        if (debounceMillis < 0) {
+            throw new IllegalArgumentException("Debounce interval cannot be negative");
+        }
+        for (Path file : files) {
+            this.files.add(file.toAbsolutePath().normalize());
+        }
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+        this.listener = listener;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        try {
+            Set<Path> directories = new LinkedHashSet<>();
+            for (Path file : this.files) {
+                directories.add(file.getParent());
+            }
+            for (Path directory : directories) {
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Loads every watched file, then loads the files again as they change, until the watcher is
+     * closed or the thread is interrupted.
+     */
+    public void run() {
+        for (Path file : files) {
+            load(file);
+        }
+        // Files with changes not yet loaded, and when they may be loaded if nothing changes before
+        Map<Path, Long> pending = new LinkedHashMap<>();
+        try {
+            while (true) {
+                WatchKey key = pending.isEmpty()
+                        ? watchService.take()
+                        : watchService.poll(nextDeadline(pending) - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (key != null) {
+                    collect(key, pending);
+                }
+                loadSettled(pending);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Closed by another thread
+        }
+    }
+
+    /**
+     * Stops watching. A thread in {@link #run()} returns.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void collect(WatchKey key, Map<Path, Long> pending) {
+        Path directory = (Path) key.watchable();
+        long deadline = System.nanoTime() + debounceNanos;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Events were lost, so any file of the directory may have changed
+                for (Path file : files) {
+                    if (file.getParent().equals(directory)) {
+                        pending.put(file, deadline);
+                    }
+                }
+                continue;
+            }
+            Path file = directory.resolve((Path) event.context());
+            if (files.contains(file)) {
+                pending.put(file, deadline);
+            }
+        }
+        key.reset();
+    }
+
+    private void loadSettled(Map<Path, Long> pending) {
+        long now = System.nanoTime();
+        List<Path> settled = new ArrayList<>();
+        for (Iterator<Map.Entry<Path, Long>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Path, Long> entry = it.next();
+            if (entry.getValue() - now <= 0) {
+                settled.add(entry.getKey());
+                it.remove();
+            }
+        }
+        for (Path file : settled) {
+            load(file);
+        }
+    }
+
+    private static long nextDeadline(Map<Path, Long> pending) {
+        long next = Long.MAX_VALUE;
+        boolean first = true;
+        for (long deadline : pending.values()) {
+            if (first || deadline - next < 0) {
+                next = deadline;
+                first = false;
+            }
+        }
+        return next;
+    }
+
+    private void load(Path file) {
+        Building building;
+        try {
+            building = BuildingBatchProcessor.loadFile(file);
+        } catch (Exception e) {
+            listener.failed(file, e);
+            return;
+        }
+        listener.loaded(file, building);
+    }
+}
@@ -1,6 +1,7 @@
 package pl.put.poznan.buildinginfo.logic;
 
 import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+import pl.put.poznan.buildinginfo.logic.entities.ComponentVisitor;
 import pl.put.poznan.buildinginfo.logic.entities.Room;
 
 import java.util.ArrayList;
@@ -10,27 +11,36 @@ import java.util.Optional;
 public class BuildingFinder {
 
     /**
-     * Helper method to recursively find a component by name in the building hierarchy.
+     * Helper method to find a component by name in the building hierarchy, ignoring case.
+     * If the component has a {@link BuildingNameIndex} attached, the lookup is answered
+     * from the index; otherwise the hierarchy is searched depth first with a
+     * {@link pl.put.poznan.buildinginfo.logic.entities.ComponentWalker}, stopping at the first match.
      *
      * @param component The root component to start the search
      * @param name      The name of the component to find
      * @return An {@link Optional} containing the component if found, otherwise empty
      */
     public static Optional<BuildingComponent> findComponentByName(BuildingComponent component, String name) {
-        if (component.getName().equalsIgnoreCase(name)) {
-            return Optional.of(component);
+        Optional<BuildingNameIndex> index = BuildingNameIndex.of(component);
+        if (index.isPresent()) {
+            return index.get().find(name);
         }
-        for (BuildingComponent child : component.getComponents()) {
-            Optional<BuildingComponent> found = findComponentByName(child, name);
-            if (found.isPresent()) {
-                return found;
-            }
+        return searchComponentByName(component, name);
+    }
+
+    private static Optional<BuildingComponent> searchComponentByName(BuildingComponent component, String name) {
+        if (name == null) {
+            return Optional.empty();
         }
-        return Optional.empty();
+        NameSearch search = new NameSearch(name);
+        component.accept(search);
+        return Optional.ofNullable(search.found);
     }
 
     /**
      * Helper method to find rooms with heating per cubic meter exceeding a given threshold.
+     * The rooms are returned in traversal order; for repeated queries on the same building
+     * use {@link HeatPerCubeIndex} instead.
      *
      * @param component The root component to start the search
      * @param threshold The heating threshold per cubic meter
@@ -38,19 +48,45 @@ public class BuildingFinder {
      */
     public static List<Room> findRoomsExceedingHeatThreshold(BuildingComponent component, double threshold) {
         List<Room> roomsExceedingThreshold = new ArrayList<>();
-
-        if (component instanceof Room) {
-            Room room = (Room) component;
+        component.accept(room -> {
             double heatPerCube = room.getHeating() / room.getCube();
             if (heatPerCube > threshold) {
                 roomsExceedingThreshold.add(room);
             }
-        } else {
-            for (BuildingComponent child : component.getComponents()) {
-                roomsExceedingThreshold.addAll(findRoomsExceedingHeatThreshold(child, threshold));
+        });
+        return roomsExceedingThreshold;
+    }
+
+    /**
+     * Finds the first component with a name, ignoring case, in the order of a recursive search.
+     */
+    private static final class NameSearch implements ComponentVisitor {
+        private final String name;
+        private BuildingComponent found;
+
+        private NameSearch(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void visitRoom(Room room) {
+            if (name.equalsIgnoreCase(room.getName())) {
+                found = room;
             }
         }
 
-        return roomsExceedingThreshold;
+        @Override
+        public boolean enterComposite(BuildingComponent component) {
+            if (name.equalsIgnoreCase(component.getName())) {
+                found = component;
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isDone() {
+            return found != null;
+        }
     }
 }
@@ -0,0 +1,366 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic buildings in the JSON format read by {@link BuildingParser}.
+ *
+ * The output depends only on the settings and the seed, so the same generator always
+ * writes the same bytes. Buildings are written token by token to the output stream,
+ * which makes it possible to produce documents far larger than the heap.
+ *
+ * Every building has {@code levels} levels of {@code roomsPerLevel} rooms. Ids are unique
+ * within a building ("building1", "level1", "room1", ...). Room names cycle through
+ * "Room 1" to "Room n", where n is the name cardinality; a cardinality of 0 leaves
+ * the rooms without names. The room values are drawn from the configured distributions
+ * and rounded to two decimal places.
+ */
+public final class BuildingGenerator {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private final long seed;
+    private final int levels;
+    private final int roomsPerLevel;
+    private final int nameCardinality;
+    private final Distribution area;
+    private final Distribution cube;
+    private final Distribution heating;
+    private final Distribution light;
+
+    private BuildingGenerator(Builder builder) {
+        this.seed = builder.seed;
+        this.levels = builder.levels;
+        this.roomsPerLevel = builder.roomsPerLevel;
+        this.nameCardinality = builder.nameCardinality >= 0
+                ? builder.nameCardinality
+                : (int) Math.min(Integer.MAX_VALUE, Math.max(1, getRoomCount()));
+        this.area = builder.area;
+        this.cube = builder.cube;
+        this.heating = builder.heating;
+        this.light = builder.light;
+    }
+
+    /**
+     * Creates a builder with the default settings: seed 0, 2 levels of 2 rooms, unique room
+     * names and values in the ranges of the example buildings.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets the number of rooms in each generated building.
+     *
+     * @return the number of rooms per building
+     */
+    public long getRoomCount() {
+        return (long) levels * roomsPerLevel;
+    }
+
+    /**
+     * Writes a single building, the same as the first building of a portfolio.
+     *
+     * @param out the stream to write UTF-8 JSON to; it is flushed but not closed
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(OutputStream out) throws IOException {
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            writeBuilding(json, 1, new SplittableRandom(seed).split());
+        }
+    }
+
+    /**
+     * Writes a single building to a file, replacing it if it exists.
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(out);
+        }
+    }
+
+    /**
+     * Generates a single building in memory. Meant for tests and benchmarks; use
+     * {@link #write(OutputStream)} for large buildings.
+     *
+     * @return the building as UTF-8 JSON
+     */
+    public byte[] toJson() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8, getRoomCount() * 110 + 64));
+        try {
+            write(out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // not thrown by ByteArrayOutputStream
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes a portfolio of buildings as a JSON array. Building n has the id "building n"
+     * and its own random stream, so the first buildings of a larger portfolio are the same
+     * as those of a smaller one.
+     *
+     * @param out       the stream to write UTF-8 JSON to; it is flushed but not closed
+     * @param buildings the number of buildings
+     * @throws IOException if the stream cannot be written
+     */
+    public void writePortfolio(OutputStream out, int buildings) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            json.writeStartArray();
+            for (int i = 1; i <= buildings; i++) {
+                writeBuilding(json, i, random.split());
+            }
+            json.writeEndArray();
+        }
+    }
+
+    /**
+     * Writes a portfolio of buildings as newline-delimited JSON, one building per line.
+     * The buildings are the same as those of {@link #writePortfolio(OutputStream, int)}.
+     *
+     * @param out       the stream to write UTF-8 JSON to; it is flushed but not closed
+     * @param buildings the number of buildings
+     * @throws IOException if the stream cannot be written
+     */
+    public void writePortfolioLines(OutputStream out, int buildings) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            json.setRootValueSeparator(null);
+            for (int i = 1; i <= buildings; i++) {
+                writeBuilding(json, i, random.split());
+                json.writeRaw('\n');
+            }
+        }
+    }
+
+    private void writeBuilding(JsonGenerator json, int number, SplittableRandom random) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("id", "building" + number);
+        json.writeStringField("name", "Building " + number);
+        json.writeArrayFieldStart("levels");
+        long room = 0;
+        for (int level = 1; level <= levels; level++) {
+            json.writeStartObject();
+            json.writeStringField("id", "level" + level);
+            json.writeStringField("name", "Level " + level);
+            json.writeArrayFieldStart("rooms");
+            for (int i = 0; i < roomsPerLevel; i++) {
+                json.writeStartObject();
+                json.writeStringField("id", "room" + (room + 1));
+                if (nameCardinality > 0) {
+                    json.writeStringField("name", "Room " + (room % nameCardinality + 1));
+                }
+                json.writeNumberField("area", round(area.sample(random)));
+                json.writeNumberField("cube", round(cube.sample(random)));
+                json.writeNumberField("heating", round(heating.sample(random)));
+                json.writeNumberField("light", round(light.sample(random)));
+                json.writeEndObject();
+                room++;
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    /**
+     * A source of room values.
+     */
+    public interface Distribution {
+
+        /**
+         * Draws the next value.
+         *
+         * @param random the random stream of the building being generated
+         * @return the value
+         */
+        double sample(SplittableRandom random);
+
+        /**
+         * Always returns the same value.
+         *
+         * @param value the value
+         * @return the distribution
+         */
+        static Distribution constant(double value) {
+            return random -> value;
+        }
+
+        /**
+         * Draws values uniformly from a range.
+         *
+         * @param min the smallest value, inclusive
+         * @param max the largest value, exclusive
+         * @return the distribution
+         */
+        static Distribution uniform(double min, double max) {
+            if (!(min < max)) {
+                throw new IllegalArgumentException("Invalid range: " + min + " - " + max);
+            }
+            return random -> random.nextDouble(min, max);
+        }
+
+        /**
+         * Draws values from a normal distribution, cut off at zero so that rooms never
+         * have negative values.
+         *
+         * @param mean              the mean
+         * @param standardDeviation the standard deviation
+         * @return the distribution
+         */
+        static Distribution normal(double mean, double standardDeviation) {
+            return random -> {
+                // Box-Muller transform; 1 - u keeps the logarithm finite
+                double u = 1.0 - random.nextDouble();
+                double v = random.nextDouble();
+                double gaussian = Math.sqrt(-2.0 * Math.log(u)) * Math.cos(2.0 * Math.PI * v);
+                return Math.max(0.0, mean + standardDeviation * gaussian);
+            };
+        }
+    }
+
+    /**
+     * Collects the settings of a {@link BuildingGenerator}.
+     */
+    public static final class Builder {
+        private long seed;
+        private int levels = 2;
+        private int roomsPerLevel = 2;
+        private int nameCardinality = -1;
+        private Distribution area = Distribution.uniform(20.0, 60.0);
+        private Distribution cube = Distribution.uniform(60.0, 180.0);
+        private Distribution heating = Distribution.uniform(10.0, 25.0);
+        private Distribution light = Distribution.uniform(100.0, 400.0);
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the seed of the random values.
+         *
+         * @param seed the seed
+         * @return this builder
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Sets the number of levels in each building.
+         *
+         * @param levels the number of levels, not negative
+         * @return this builder
+         */
+        public Builder levels(int levels) {
+            if (levels < 0) {
+                throw new IllegalArgumentException("Invalid number of levels: " + levels);
+            }
+            this.levels = levels;
+            return this;
+        }
+
+        /**
+         * Sets the number of rooms on each level.
+         *
+         * @param roomsPerLevel the number of rooms, not negative
+         * @return this builder
+         */
+        public Builder roomsPerLevel(int roomsPerLevel) {
+            if (roomsPerLevel < 0) {
+                throw new IllegalArgumentException("Invalid number of rooms per level: " + roomsPerLevel);
+            }
+            this.roomsPerLevel = roomsPerLevel;
+            return this;
+        }
+
+        /**
+         * Sets the number of distinct room names. By default every room of a building
+         * has its own name.
+         *
+         * @param nameCardinality the number of distinct names, or 0 for rooms without names
+         * @return this builder
+         */
+        public Builder nameCardinality(int nameCardinality) {
+            if (nameCardinality < 0) {
+                throw new IllegalArgumentException("Invalid name cardinality: " + nameCardinality);
+            }
+            this.nameCardinality = nameCardinality;
+            return this;
+        }
+
+        /**
+         * Sets the distribution of room areas.
+         *
+         * @param area the distribution
+         * @return this builder
+         */
+        public Builder area(Distribution area) {
+            this.area = area;
+            return this;
+        }
+
+        /**
+         * Sets the distribution of room volumes.
+         *
+         * @param cube the distribution
+         * @return this builder
+         */
+        public Builder cube(Distribution cube) {
+            this.cube = cube;
+            return this;
+        }
+
+        /**
+         * Sets the distribution of room heating demands.
+         *
+         * @param heating the distribution
+         * @return this builder
+         */
+        public Builder heating(Distribution heating) {
+            this.heating = heating;
+            return this;
+        }
+
+        /**
+         * Sets the distribution of room lighting.
+         *
+         * @param light the distribution
+         * @return this builder
+         */
+        public Builder light(Distribution light) {
+            this.light = light;
+            return this;
+        }
+
+        /**
+         * Creates the generator.
+         *
+         * @return the generator
+         */
+        public BuildingGenerator build() {
+            return new BuildingGenerator(this);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingSnapshot;
+import pl.put.poznan.buildinginfo.logic.entities.Room;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Writes a building hierarchy as JSON in the format accepted by {@link BuildingParser},
+ * streaming it to an output stream component by component. Only a small, fixed size
+ * buffer is held in memory, however large the building is.
+ *
+ * The written fields can be restricted to a subset of {@link Field}; the "levels" and
+ * "rooms" arrays are always written. The levels of a building can be restricted to those
+ * whose id or name is in a given set. Missing names are left out.
+ */
+public class BuildingJsonWriter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    /**
+     * The fields that can be written for a component. Id and name are written for every
+     * component, the others only for rooms.
+     */
+    public enum Field {
+        /** The id of the component. */
+        ID("id"),
+        /** The name of the component, left out if missing. */
+        NAME("name"),
+        /** The area of a room in square meters. */
+        AREA("area"),
+        /** The volume of a room in cubic meters. */
+        CUBE("cube"),
+        /** The heating demand of a room. */
+        HEATING("heating"),
+        /** The lighting of a room in lumens. */
+        LIGHT("light");
+
+        private final String name;
+
+        Field(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Gets the name of the field in the JSON format.
+         *
+         * @return the name of the field
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Finds a field by its name, ignoring case.
+         *
+         * @param name the name of the field
+         * @return the matching field
+         * @throws IllegalArgumentException if no field has the given name
+         */
+        public static Field fromName(String name) {
+            for (Field field : values()) {
+                if (field.name.equalsIgnoreCase(name.trim())) {
+                    return field;
+                }
+            }
+            throw new IllegalArgumentException("Unknown field: " + name);
+        }
+
+        /**
+         * Parses a comma separated list of field names.
+         *
+         * @param names the field names, or null or empty for all fields
+         * @return the requested fields in declaration order
+         * @throws IllegalArgumentException if a name does not match any field
+         */
+        public static Set<Field> parseList(String names) {
+            if (names == null || names.trim().isEmpty()) {
+                return EnumSet.allOf(Field.class);
+            }
+            Set<Field> fields = EnumSet.noneOf(Field.class);
+            for (String name : names.split(",")) {
+                if (!name.trim().isEmpty()) {
+                    fields.add(fromName(name.toLowerCase(Locale.ROOT)));
+                }
+            }
+            return fields;
+        }
+    }
+
+    private final Set<Field> fields;
+    private final Set<String> levels;
+
+    /**
+     * Creates a writer of all fields and all levels.
+     */
+    public BuildingJsonWriter() {
+        this(EnumSet.allOf(Field.class), Collections.emptySet());
+    }
+
+    /**
+     * Creates a writer of the given fields and levels.
+     *
+     * @param fields the fields to write
+     * @param levels the ids or names of the levels of a building to write, or an empty set for all levels
+     */
+    public BuildingJsonWriter(Set<Field> fields, Set<String> levels) {
+        this.fields = fields.isEmpty() ? EnumSet.noneOf(Field.class) : EnumSet.copyOf(fields);
+        this.levels = new LinkedHashSet<>(levels);
+    }
+
+    /**
+     * Parses a comma separated list of level ids or names.
+     *
+     * @param levels the level ids or names, or null or empty for all levels
+     * @return the level ids or names, an empty set standing for all levels
+     */
+    public static Set<String> parseLevels(String levels) {
+        Set<String> result = new LinkedHashSet<>();
+        if (levels != null) {
+            for (String level : levels.split(",")) {
+                if (!level.trim().isEmpty()) {
+                    result.add(level.trim());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes a component and all of its subcomponents as UTF-8 encoded JSON.
+     * The stream is flushed but not closed.
+     *
+     * @param component the component to write
+     * @param out       the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(BuildingComponent component, OutputStream out) throws IOException {
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            writeComponent(json, component);
+        }
+    }
+
+    private void writeComponent(JsonGenerator json, BuildingComponent component) throws IOException {
+        json.writeStartObject();
+        if (fields.contains(Field.ID)) {
+            json.writeStringField("id", component.getId());
+        }
+        if (fields.contains(Field.NAME) && component.getName() != null) {
+            json.writeStringField("name", component.getName());
+        }
+        if (component instanceof Room) {
+            writeRoomFields(json, (Room) component);
+        } else {
+            boolean building = component instanceof Building || component instanceof BuildingSnapshot;
+            json.writeArrayFieldStart(building ? "levels" : "rooms");
+            for (BuildingComponent child : component.getComponents()) {
+                if (!building || isSelected(child)) {
+                    writeComponent(json, child);
+                }
+            }
+            json.writeEndArray();
+        }
+        json.writeEndObject();
+    }
+
+    private void writeRoomFields(JsonGenerator json, Room room) throws IOException {
+        if (fields.contains(Field.AREA)) {
+            json.writeNumberField("area", room.getArea());
+        }
+        if (fields.contains(Field.CUBE)) {
+            json.writeNumberField("cube", room.getCube());
+        }
+        if (fields.contains(Field.HEATING)) {
+            json.writeNumberField("heating", room.getHeating());
+        }
+        if (fields.contains(Field.LIGHT)) {
+            json.writeNumberField("light", room.getLight());
+        }
+    }
+
+    private boolean isSelected(BuildingComponent level) {
+        return levels.isEmpty() || levels.contains(level.getId())
+                || (level.getName() != null && levels.contains(level.getName()));
+    }
+}
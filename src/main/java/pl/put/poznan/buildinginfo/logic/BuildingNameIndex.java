@@ -0,0 +1,243 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+import pl.put.poznan.buildinginfo.logic.entities.CompositeComponent;
+import pl.put.poznan.buildinginfo.logic.entities.StructureListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * A case-insensitive index from component names to the components of a hierarchy.
+ *
+ * Names are normalized so that two names map to the same key exactly when
+ * {@link String#equalsIgnoreCase(String)} considers them equal. When several components
+ * share a name, the index resolves to the one a depth-first, pre-order traversal from the
+ * root reaches first, which is the component {@link BuildingFinder#findComponentByName}
+ * would return. The index listens to the root and stays up to date when components are
+ * added or removed anywhere in the hierarchy.
+ *
+ * Added components are appended to the components of their name, which are put back in
+ * traversal order by the next lookup of that name, so a change costs constant time per
+ * added component instead of a search for its position.
+ */
+public class BuildingNameIndex implements StructureListener {
+
+    private final CompositeComponent root;
+    /** Components per normalized name. */
+    private final Map<String, Bucket> components = new ConcurrentHashMap<>();
+
+    private BuildingNameIndex(CompositeComponent root) {
+        this.root = root;
+    }
+
+    /**
+     * Builds an index of the given hierarchy and keeps it up to date on later changes.
+     * If the root already has an index, that index is returned.
+     *
+     * @param root the root of the hierarchy to index
+     * @return the index attached to the root
+     */
+    public static synchronized BuildingNameIndex attach(CompositeComponent root) {
+        Optional<BuildingNameIndex> existing = root.findStructureListener(BuildingNameIndex.class);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        BuildingNameIndex index = new BuildingNameIndex(root);
+        index.addSubtree(root);
+        root.addStructureListener(index);
+        return index;
+    }
+
+    /**
+     * Gets the index attached to the given component, if it is the root of an indexed hierarchy.
+     *
+     * @param component the component to check
+     * @return an {@link Optional} containing the index, or empty if the component has none
+     */
+    public static Optional<BuildingNameIndex> of(BuildingComponent component) {
+        if (component instanceof CompositeComponent) {
+            return ((CompositeComponent) component).findStructureListener(BuildingNameIndex.class);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Finds a component by name, ignoring case.
+     *
+     * @param name the name of the component to find
+     * @return an {@link Optional} containing the first component in traversal order with the given name,
+     * otherwise empty
+     */
+    public Optional<BuildingComponent> find(String name) {
+        List<BuildingComponent> found = findAll(name);
+        return found.isEmpty() ? Optional.empty() : Optional.of(found.get(0));
+    }
+
+    /**
+     * Finds all components with the given name, ignoring case.
+     *
+     * @param name the name of the components to find
+     * @return the matching components in traversal order
+     */
+    public List<BuildingComponent> findAll(String name) {
+        Bucket bucket = name == null ? null : components.get(normalize(name));
+        if (bucket == null) {
+            return Collections.emptyList();
+        }
+        List<BuildingComponent> ordered = bucket.ordered;
+        return ordered != null ? ordered : order(bucket);
+    }
+
+    @Override
+    public synchronized void componentAdded(BuildingComponent component) {
+        forEachInSubtree(component, this::insert);
+    }
+
+    @Override
+    public synchronized void componentRemoved(BuildingComponent component, CompositeComponent parent) {
+        Map<String, Set<BuildingComponent>> removed = new HashMap<>();
+        forEachInSubtree(component, c -> {
+            if (c.getName() != null) {
+                removed.computeIfAbsent(normalize(c.getName()), key -> Collections.newSetFromMap(new IdentityHashMap<>())).add(c);
+            }
+        });
+        removed.forEach(this::delete);
+    }
+
+    /**
+     * Normalizes a name so that it equals another normalized name exactly when
+     * the two names are equal ignoring case.
+     *
+     * @param name the name to normalize
+     * @return the normalized name
+     */
+    static String normalize(String name) {
+        char[] chars = name.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Indexes the subtree during construction, when nodes arrive in traversal order.
+     */
+    private void addSubtree(BuildingComponent subtreeRoot) {
+        Map<String, Bucket> built = new HashMap<>();
+        forEachInSubtree(subtreeRoot, component -> {
+            if (component.getName() != null) {
+                built.computeIfAbsent(normalize(component.getName()), key -> new Bucket()).members.add(component);
+            }
+        });
+        built.values().forEach(Bucket::publish);
+        components.putAll(built);
+    }
+
+    private void insert(BuildingComponent component) {
+        if (component.getName() != null) {
+            Bucket bucket = components.computeIfAbsent(normalize(component.getName()), key -> new Bucket());
+            bucket.members.add(component);
+            bucket.ordered = null;
+        }
+    }
+
+    private void delete(String key, Set<BuildingComponent> removed) {
+        Bucket bucket = components.get(key);
+        if (bucket == null) {
+            return;
+        }
+        bucket.members.removeIf(removed::contains);
+        if (bucket.members.isEmpty()) {
+            components.remove(key);
+        } else if (bucket.ordered != null) {
+            // Removing keeps the order of the others
+            bucket.publish();
+        }
+    }
+
+    /**
+     * Sorts the components of a name into traversal order and publishes them.
+     */
+    private synchronized List<BuildingComponent> order(Bucket bucket) {
+        if (bucket.ordered == null) {
+            Map<BuildingComponent, Map<BuildingComponent, Integer>> positions = new IdentityHashMap<>();
+            Map<BuildingComponent, int[]> paths = new IdentityHashMap<>();
+            for (BuildingComponent member : bucket.members) {
+                paths.put(member, path(member, positions));
+            }
+            bucket.members.sort(Comparator.comparing(paths::get, BuildingNameIndex::comparePaths));
+            bucket.publish();
+        }
+        return bucket.ordered;
+    }
+
+    /**
+     * Gets the child positions leading from the root to the component, numbering the children
+     * of every parent once per sort.
+     */
+    private int[] path(BuildingComponent component, Map<BuildingComponent, Map<BuildingComponent, Integer>> positions) {
+        int depth = 0;
+        for (BuildingComponent c = component; c != root; c = c.getParent()) {
+            depth++;
+        }
+        int[] path = new int[depth];
+        for (BuildingComponent c = component; c != root; c = c.getParent()) {
+            path[--depth] = positions.computeIfAbsent(c.getParent(), BuildingNameIndex::number).get(c);
+        }
+        return path;
+    }
+
+    private static Map<BuildingComponent, Integer> number(BuildingComponent parent) {
+        List<BuildingComponent> children = parent.getComponents();
+        Map<BuildingComponent, Integer> numbers = new IdentityHashMap<>(children.size());
+        for (int i = 0; i < children.size(); i++) {
+            numbers.put(children.get(i), i);
+        }
+        return numbers;
+    }
+
+    /**
+     * Compares two paths in pre-order: an ancestor comes before its descendants.
+     */
+    private static int comparePaths(int[] a, int[] b) {
+        for (int i = 0; i < Math.min(a.length, b.length); i++) {
+            if (a[i] != b[i]) {
+                return Integer.compare(a[i], b[i]);
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    private static void forEachInSubtree(BuildingComponent subtreeRoot, Consumer<BuildingComponent> action) {
+        action.accept(subtreeRoot);
+        for (BuildingComponent child : subtreeRoot.getComponents()) {
+            forEachInSubtree(child, action);
+        }
+    }
+
+    /**
+     * The components of one name. The members are changed under the lock of the index;
+     * lookups read the published list, which is replaced, never modified.
+     */
+    private static final class Bucket {
+        private final List<BuildingComponent> members = new ArrayList<>();
+        /** The members in traversal order, or null if members were added since they were ordered. */
+        private volatile List<BuildingComponent> ordered;
+
+        private void publish() {
+            ordered = members.size() == 1
+                    ? Collections.singletonList(members.get(0))
+                    : Collections.unmodifiableList(new ArrayList<>(members));
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of parsed buildings keyed by a SHA-256 hash of the JSON text,
+ * so that repeated requests with an unchanged body skip {@link BuildingParser} completely.
+ *
+ * Entries are weighed by {@link BuildingSizeEstimator} and the least recently used ones are
+ * evicted once the memory budget is exceeded. Cached buildings are shared between callers
+ * and must be treated as read-only. Components parsed on their own by
+ * {@link #parseComponent(String, String)} are cached the same way, under the text and the name.
+ */
+public class BuildingParseCache {
+
+    /** Weight of a cached component on top of the component itself, for its key and entry. */
+    private static final long COMPONENT_ENTRY_BYTES = 128;
+
+    private final long maxBytes;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs a cache with the given memory budget.
+     *
+     * @param maxBytes the maximum estimated size of all cached buildings, in bytes
+     * @throws IllegalArgumentException if the budget is negative
+     */
+    public BuildingParseCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Memory budget cannot be negative");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the building for the given JSON text, parsing it only if the same text
+     * is not already cached.
+     *
+     * @param json a JSON string representing the building structure
+     * @return the parsed, possibly shared {@link Building}
+     * @throws IOException if the JSON data is malformed
+     * @throws org.json.JSONException if required fields are missing or have the wrong type
+     */
+    public Building parse(String json) throws IOException {
+        return parseCounted(json).getBuilding();
+    }
+
+    /**
+     * Returns the building for the given JSON text together with its number of rooms, parsing
+     * it only if the same text is not already cached. The rooms are counted once, when the
+     * building is parsed.
+     *
+     * @param json a JSON string representing the building structure
+     * @return the parsed, possibly shared building and its number of rooms
+     * @throws IOException if the JSON data is malformed
+     * @throws org.json.JSONException if required fields are missing or have the wrong type
+     */
+    public Parsed parseCounted(String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        String key = hash(bytes);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits.increment();
+                return entry.parsed;
+            }
+        }
+        misses.increment();
+        Building building = BuildingParser.parseJson(bytes);
+        Parsed parsed = new Parsed(building, MetricAccumulator.countRooms(building));
+        put(key, new Entry(parsed, null, BuildingSizeEstimator.estimateBytes(building)));
+        return parsed;
+    }
+
+    /**
+     * Returns the component with the given name for the given JSON text. If the same text is
+     * cached, the component is looked up in the cached building. Otherwise, unless the same
+     * component was asked for before, only the part of the text the component needs is turned
+     * into objects through {@link BuildingParser#parseComponent}, and the result is cached. Either
+     * way a text is accepted or rejected as by {@link #parse(String)}.
+     *
+     * @param json a JSON string representing the building structure
+     * @param name the name of the component, as understood by {@link BuildingFinder#findComponentByName}
+     * @return the matching, possibly shared component, or an empty {@link Optional} if no component has the name
+     * @throws IOException if the JSON data is malformed
+     * @throws org.json.JSONException if required fields are missing or have the wrong type
+     */
+    public Optional<BuildingComponent> parseComponent(String json, String name) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        String key = hash(bytes);
+        String componentKey = name == null ? null : key + '\n' + BuildingNameIndex.normalize(name);
+        Building building = null;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                building = entry.parsed.getBuilding();
+            } else if (componentKey != null) {
+                entry = entries.get(componentKey);
+                if (entry != null) {
+                    hits.increment();
+                    return Optional.ofNullable(entry.component);
+                }
+            }
+        }
+        if (building != null) {
+            hits.increment();
+            return BuildingFinder.findComponentByName(building, name);
+        }
+        misses.increment();
+        Optional<BuildingComponent> component = BuildingParser.parseComponent(bytes, name);
+        if (componentKey != null) {
+            long componentBytes = component.map(BuildingSizeEstimator::estimateBytes).orElse(0L);
+            put(componentKey, new Entry(null, component.orElse(null), COMPONENT_ENTRY_BYTES + componentBytes));
+        }
+        return component;
+    }
+
+    /**
+     * Gets the number of requests answered from the cache.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of requests that had to be parsed.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of buildings evicted to stay within the memory budget.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Gets the number of cached buildings and components.
+     *
+     * @return the number of entries in the cache
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the estimated size of all cached buildings.
+     *
+     * @return the used part of the memory budget, in bytes
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Gets the memory budget of the cache.
+     *
+     * @return the maximum estimated size of all cached buildings, in bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    private void put(String key, Entry entry) {
+        if (entry.bytes > maxBytes) {
+            return;
+        }
+        synchronized (this) {
+            Entry previous = entries.put(key, entry);
+            usedBytes += entry.bytes - (previous == null ? 0 : previous.bytes);
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (usedBytes > maxBytes) {
+                usedBytes -= eldest.next().bytes;
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private static String hash(byte[] bytes) {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * A parsed building and its number of rooms.
+     */
+    public static final class Parsed {
+        private final Building building;
+        private final long rooms;
+
+        private Parsed(Building building, long rooms) {
+            this.building = building;
+            this.rooms = rooms;
+        }
+
+        /**
+         * Gets the parsed building.
+         *
+         * @return the possibly shared building
+         */
+        public Building getBuilding() {
+            return building;
+        }
+
+        /**
+         * Gets the number of rooms of the building, counted when it was parsed.
+         *
+         * @return the number of rooms
+         */
+        public long getRooms() {
+            return rooms;
+        }
+    }
+
+    /**
+     * A cached building, or a component parsed on its own, which is null if no component has the name.
+     */
+    private static final class Entry {
+        private final Parsed parsed;
+        private final BuildingComponent component;
+        private final long bytes;
+
+        private Entry(Parsed parsed, BuildingComponent component, long bytes) {
+            this.parsed = parsed;
+            this.component = component;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -1,19 +1,36 @@
 package pl.put.poznan.buildinginfo.logic;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
 import pl.put.poznan.buildinginfo.logic.entities.Level;
 import pl.put.poznan.buildinginfo.logic.entities.Room;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * A utility class for parsing JSON data and creating a {@link Building} object hierarchy.
+ * Every parsed building gets a {@link BuildingNameIndex} attached, so that name lookups
+ * through {@link BuildingFinder} do not have to search the whole hierarchy.
  */
 public class BuildingParser {
 
+    /**
+     * Shared factory for the streaming parsers. Callers own the streams they pass in,
+     * so parsers never close their source.
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
     /**
      * Parses a JSON string and constructs a {@link Building} object.
      *
@@ -83,6 +100,515 @@ public class BuildingParser {
         // Add levels to the building
         building.setLevels(levels);
 
+        BuildingNameIndex.attach(building);
         return building; // Return the constructed Building object
     }
+
+    /**
+     * Parses UTF-8 encoded JSON bytes and constructs a {@link Building} object.
+     * See {@link #parseJson(InputStream)} for details.
+     *
+     * @param json UTF-8 encoded JSON representing the building structure
+     * @return a {@link Building} object constructed from the JSON data
+     * @throws IOException if the JSON data is malformed
+     * @throws org.json.JSONException if required fields are missing or have the wrong type
+     */
+    public static Building parseJson(byte[] json) throws IOException {
+        return read(json, new EntityHandler());
+    }
+
+    /**
+     * Parses a building from a JSON stream without building an intermediate DOM.
+     *
+     * Tokens are read one at a time and copied straight into {@link Building},
+     * {@link Level} and {@link Room} objects. The expected structure and the
+     * required/optional field rules are the same as for {@link #parseJson(String)}:
+     * "name" may be missing or null, every other field must be present, and
+     * numeric fields also accept numeric strings. Unknown fields are skipped.
+     * The stream is not closed.
+     *
+     * @param json a stream of UTF-8 encoded JSON representing the building structure
+     * @return a {@link Building} object constructed from the JSON data
+     * @throws IOException if the stream cannot be read or the JSON data is malformed
+     * @throws org.json.JSONException if required fields are missing or have the wrong type
+     */
+    public static Building parseJson(InputStream json) throws IOException {
+        return read(json, new EntityHandler());
+    }
+
+    /**
+     * Parses only the component a name refers to, skipping the parts of the building it does not need.
+     *
+     * The result is the component {@link BuildingFinder#findComponentByName} would return for the
+     * fully parsed building: the first one in depth-first order whose name equals the given name,
+     * ignoring case. A matching level comes with all of its rooms, and a matching building is
+     * parsed in full. A matching level or room is not attached to a building.
+     *
+     * Rooms and levels are only turned into objects when they can be part of the result. Once
+     * the result is known, the remaining levels and rooms are still read and validated, but not
+     * kept, so a document is rejected exactly when {@link #parseJson(byte[])} would reject it.
+     *
+     * @param json UTF-8 encoded JSON representing the building structure
+     * @param name the name of the component to parse
+     * @return the matching component, or an empty {@link Optional} if no component has the name
+     * @throws IOException if the JSON data is malformed
+     * @throws org.json.JSONException if required fields of the parsed parts are missing or have the wrong type
+     */
+    public static Optional<BuildingComponent> parseComponent(byte[] json, String name) throws IOException {
+        if (name == null) {
+            return Optional.empty();
+        }
+        ScopedHandler handler = new ScopedHandler(name);
+        BuildingComponent component = read(json, handler);
+        if (handler.buildingMatchedLate) {
+            // The building name followed its levels, which were no longer kept
+            return Optional.of(parseJson(json));
+        }
+        return Optional.ofNullable(component);
+    }
+
+    /**
+     * Parses a single level, with its rooms, in the format it has within the "levels" array of a building.
+     *
+     * @param json UTF-8 encoded JSON representing the level
+     * @return the parsed level, not attached to a building
+     * @throws IOException if the JSON data is malformed
+     * @throws org.json.JSONException if required fields are missing or have the wrong type
+     */
+    public static Level parseLevel(byte[] json) throws IOException {
+        EntityHandler handler = new EntityHandler();
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            startDocument(parser);
+            readLevel(parser, handler);
+        }
+        return handler.levels.get(0);
+    }
+
+    /**
+     * Parses a single room in the format it has within the "rooms" array of a level.
+     *
+     * @param json UTF-8 encoded JSON representing the room
+     * @return the parsed room, not attached to a level
+     * @throws IOException if the JSON data is malformed
+     * @throws org.json.JSONException if required fields are missing or have the wrong type
+     */
+    public static Room parseRoom(byte[] json) throws IOException {
+        EntityHandler handler = new EntityHandler();
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            startDocument(parser);
+            readRoom(parser, handler);
+        }
+        return handler.rooms.get(0);
+    }
+
+    /**
+     * Receives the elements of a building as the streaming reader encounters them.
+     * Rooms are reported as soon as they are read; a level is reported after all its
+     * rooms and the building last, since "id" and "name" may follow the nested arrays.
+     *
+     * @param <T> the type of the model built from the reported elements
+     */
+    interface Handler<T> {
+
+        /**
+         * Called for each room of the level that is currently being read.
+         */
+        void room(String id, String name, double area, double cube, float heating, float light);
+
+        /**
+         * Called once all the rooms of a level have been reported.
+         */
+        void level(String id, String name);
+
+        /**
+         * Called once all the levels have been reported.
+         *
+         * @return the finished model
+         */
+        T building(String id, String name);
+
+        /**
+         * Called as soon as the name of the building is read, which may be before or after its levels.
+         */
+        default void buildingName(String name) {
+        }
+
+        /**
+         * Called as soon as the name of the level being read is read, which may be before or after its rooms.
+         */
+        default void levelName(String name) {
+        }
+
+        /**
+         * Tells whether the values of the next room or level are needed. If not, they are still
+         * validated, but strings and numbers are not converted and reach the handler as empty
+         * strings and zeros.
+         */
+        default boolean keepsValues() {
+            return true;
+        }
+    }
+
+    /**
+     * Builds the {@link Building}, {@link Level} and {@link Room} hierarchy.
+     */
+    private static final class EntityHandler implements Handler<Building> {
+        private List<Room> rooms = new ArrayList<>();
+        private final List<Level> levels = new ArrayList<>();
+
+        @Override
+        public void room(String id, String name, double area, double cube, float heating, float light) {
+            rooms.add(new Room(id, name, area, cube, heating, light));
+        }
+
+        @Override
+        public void level(String id, String name) {
+            Level level = new Level(id, name);
+            level.setRooms(rooms);
+            levels.add(level);
+            rooms = new ArrayList<>();
+        }
+
+        @Override
+        public Building building(String id, String name) {
+            Building building = new Building(id, name);
+            building.setLevels(levels);
+            BuildingNameIndex.attach(building);
+            return building;
+        }
+    }
+
+    /**
+     * Keeps only the first component, in depth-first order, whose name matches.
+     * The result is null if no component matches.
+     */
+    private static final class ScopedHandler implements Handler<BuildingComponent> {
+        private final String name;
+
+        /** Parses everything once the building itself is known to match. */
+        private EntityHandler building;
+        /** Set when the building matches but its name was read after the levels. */
+        private boolean buildingMatchedLate;
+        private BuildingComponent found;
+        /** Set once anything of the first level has been read. */
+        private boolean levelsStarted;
+
+        private boolean levelNameKnown;
+        private boolean levelMatches;
+        /** The rooms of the current level, kept while the level may still match. */
+        private List<Room> rooms = new ArrayList<>();
+        /** The first matching room of the current level, while its name is not known yet. */
+        private Room firstRoom;
+
+        ScopedHandler(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean keepsValues() {
+            return building != null || found == null;
+        }
+
+        @Override
+        public void buildingName(String buildingName) {
+            if (matches(buildingName)) {
+                if (!levelsStarted) {
+                    building = new EntityHandler();
+                } else {
+                    buildingMatchedLate = true;
+                }
+            }
+        }
+
+        @Override
+        public void levelName(String levelName) {
+            levelsStarted = true;
+            levelNameKnown = true;
+            levelMatches = matches(levelName);
+        }
+
+        @Override
+        public void room(String id, String roomName, double area, double cube, float heating, float light) {
+            levelsStarted = true;
+            if (building != null) {
+                building.room(id, roomName, area, cube, heating, light);
+            } else if (found != null) {
+                return;
+            } else if (!levelNameKnown) {
+                Room room = new Room(id, roomName, area, cube, heating, light);
+                rooms.add(room);
+                if (firstRoom == null && matches(roomName)) {
+                    firstRoom = room;
+                }
+            } else if (levelMatches) {
+                rooms.add(new Room(id, roomName, area, cube, heating, light));
+            } else if (matches(roomName)) {
+                found = new Room(id, roomName, area, cube, heating, light);
+            }
+        }
+
+        @Override
+        public void level(String id, String levelName) {
+            levelsStarted = true;
+            if (building != null) {
+                building.level(id, levelName);
+            } else if (found == null) {
+                if (matches(levelName)) {
+                    Level level = new Level(id, levelName);
+                    level.setRooms(rooms);
+                    found = level;
+                } else if (firstRoom != null) {
+                    found = firstRoom;
+                }
+            }
+            levelNameKnown = false;
+            levelMatches = false;
+            rooms = new ArrayList<>();
+            firstRoom = null;
+        }
+
+        @Override
+        public BuildingComponent building(String id, String buildingName) {
+            return building != null ? building.building(id, buildingName) : found;
+        }
+
+        private boolean matches(String candidate) {
+            return candidate != null && name.equalsIgnoreCase(candidate);
+        }
+    }
+
+    /**
+     * Reads a whole building document and reports its elements to the handler.
+     * Opens its own parser; the stream is not closed.
+     */
+    static <T> T read(InputStream json, Handler<T> handler) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return readDocument(parser, handler);
+        }
+    }
+
+    /**
+     * Reads a whole building document from UTF-8 bytes and reports its elements to the handler.
+     */
+    static <T> T read(byte[] json, Handler<T> handler) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return readDocument(parser, handler);
+        }
+    }
+
+    private static <T> T readDocument(JsonParser parser, Handler<T> handler) throws IOException {
+        startDocument(parser);
+        return readBuilding(parser, handler);
+    }
+
+    private static void startDocument(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JSONException("A JSONObject text must begin with '{'");
+        }
+    }
+
+    /**
+     * Reads a building object. The parser must be positioned on its START_OBJECT token.
+     */
+    private static <T> T readBuilding(JsonParser parser, Handler<T> handler) throws IOException {
+        String id = null;
+        String name = null;
+        boolean levels = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id":
+                    id = readString(parser, field);
+                    break;
+                case "name":
+                    name = readOptionalString(parser, field);
+                    handler.buildingName(name);
+                    break;
+                case "levels":
+                    expectArray(value, field);
+                    levels = true;
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        expectObject(parser.currentToken(), field);
+                        readLevel(parser, handler);
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        require(id, "id");
+        if (!levels) {
+            throw notFound("levels");
+        }
+        return handler.building(id, name);
+    }
+
+    /**
+     * Reads a level object. The parser must be positioned on its START_OBJECT token.
+     */
+    private static void readLevel(JsonParser parser, Handler<?> handler) throws IOException {
+        boolean keep = handler.keepsValues();
+        String id = null;
+        String name = null;
+        boolean rooms = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id":
+                    id = readString(parser, field, keep);
+                    break;
+                case "name":
+                    name = readOptionalString(parser, field, keep);
+                    handler.levelName(name);
+                    break;
+                case "rooms":
+                    expectArray(value, field);
+                    rooms = true;
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        expectObject(parser.currentToken(), field);
+                        readRoom(parser, handler);
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        require(id, "id");
+        if (!rooms) {
+            throw notFound("rooms");
+        }
+        handler.level(id, name);
+    }
+
+    /**
+     * Reads a room object. The parser must be positioned on its START_OBJECT token.
+     */
+    private static void readRoom(JsonParser parser, Handler<?> handler) throws IOException {
+        boolean keep = handler.keepsValues();
+        String id = null;
+        String name = null;
+        double area = 0;
+        double cube = 0;
+        double heating = 0;
+        double light = 0;
+        // Bit mask of the numeric fields seen so far, in the order area, cube, heating, light
+        int seen = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "id":
+                    id = readString(parser, field, keep);
+                    break;
+                case "name":
+                    name = readOptionalString(parser, field, keep);
+                    break;
+                case "area":
+                    area = readDouble(parser, field, keep);
+                    seen |= 1;
+                    break;
+                case "cube":
+                    cube = readDouble(parser, field, keep);
+                    seen |= 2;
+                    break;
+                case "heating":
+                    heating = readDouble(parser, field, keep);
+                    seen |= 4;
+                    break;
+                case "light":
+                    light = readDouble(parser, field, keep);
+                    seen |= 8;
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        require(id, "id");
+        if (seen != 15) {
+            String[] numericFields = {"area", "cube", "heating", "light"};
+            for (int i = 0; i < numericFields.length; i++) {
+                if ((seen & (1 << i)) == 0) {
+                    throw notFound(numericFields[i]);
+                }
+            }
+        }
+        handler.room(id, name, area, cube, (float) heating, (float) light);
+    }
+
+    private static String readString(JsonParser parser, String field) throws IOException {
+        return readString(parser, field, true);
+    }
+
+    private static String readString(JsonParser parser, String field, boolean keep) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            throw new JSONException("JSONObject[\"" + field + "\"] is not a string.");
+        }
+        return keep ? parser.getText() : "";
+    }
+
+    /**
+     * Mirrors {@link JSONObject#optString(String, String)}: null stays null and
+     * any other scalar is returned as its text.
+     */
+    private static String readOptionalString(JsonParser parser, String field) throws IOException {
+        return readOptionalString(parser, field, true);
+    }
+
+    private static String readOptionalString(JsonParser parser, String field, boolean keep) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!token.isScalarValue()) {
+            throw new JSONException("JSONObject[\"" + field + "\"] is not a string.");
+        }
+        return keep ? parser.getText() : "";
+    }
+
+    /**
+     * Mirrors {@link JSONObject#getDouble(String)}: numbers are read directly and
+     * strings are accepted if they hold a valid number.
+     */
+    private static double readDouble(JsonParser parser, String field, boolean keep) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token.isNumeric()) {
+            return keep ? parser.getDoubleValue() : 0;
+        }
+        if (token.isScalarValue()) {
+            try {
+                return Double.parseDouble(parser.getText());
+            } catch (NumberFormatException e) {
+                throw new JSONException("JSONObject[\"" + field + "\"] is not a double.", e);
+            }
+        }
+        throw new JSONException("JSONObject[\"" + field + "\"] is not a double.");
+    }
+
+    private static void expectArray(JsonToken token, String field) {
+        if (token != JsonToken.START_ARRAY) {
+            throw new JSONException("JSONObject[\"" + field + "\"] is not a JSONArray.");
+        }
+    }
+
+    private static void expectObject(JsonToken token, String field) {
+        if (token != JsonToken.START_OBJECT) {
+            throw new JSONException("JSONArray[\"" + field + "\"] element is not a JSONObject.");
+        }
+    }
+
+    private static <T> T require(T value, String field) {
+        if (value == null) {
+            throw notFound(field);
+        }
+        return value;
+    }
+
+    private static JSONException notFound(String field) {
+        return new JSONException("JSONObject[\"" + field + "\"] not found.");
+    }
 }
@@ -0,0 +1,488 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingSnapshot;
+import pl.put.poznan.buildinginfo.logic.entities.Level;
+import pl.put.poznan.buildinginfo.logic.entities.LevelSnapshot;
+import pl.put.poznan.buildinginfo.logic.entities.Room;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * An in-memory store of parsed buildings, so that a building is parsed once and queried many times.
+ *
+ * The registry is bounded by a memory budget based on {@link BuildingSizeEstimator}. When a new
+ * building does not fit, the least recently used buildings are evicted. Lookups are lock-free and
+ * may run concurrently with each other and with registrations.
+ *
+ * Every stored building is a {@link VersionedBuilding}. Queries made through
+ * {@link #read(String, Function)} run on the current {@link BuildingSnapshot} without locking,
+ * so they never wait for a change and never see a half-applied one. Adding, removing and updating
+ * rooms and levels publishes a new version that copies only the path to the change; changes to
+ * the same building are serialized, changes to different buildings are not.
+ *
+ * Every registration, removal, eviction and change can be recorded by a {@link Journal}, for
+ * example a {@link RegistryStore} keeping the registry on disk. {@link #runExclusively(Supplier)}
+ * waits for the changes in progress and holds back new ones, so that a consistent copy of all
+ * buildings can be taken.
+ */
+public class BuildingRegistry {
+
+    /**
+     * Receives every change to the registry after it has been made, in the order of the changes
+     * to each building. A building is always registered before it is changed and removed after.
+     * The methods are called while the change holds its locks, so they should be quick.
+     */
+    public interface Journal {
+
+        /**
+         * Called when a building is registered.
+         *
+         * @param id       the id of the building
+         * @param building the building as it was passed to {@link #register(Building)}
+         */
+        void registered(String id, Building building);
+
+        /**
+         * Called when a building is removed or evicted.
+         *
+         * @param id the id of the building
+         */
+        void removed(String id);
+
+        /**
+         * Called when a level is added to a building.
+         *
+         * @param id    the id of the building
+         * @param level the added level, with its rooms
+         */
+        void levelAdded(String id, Level level);
+
+        /**
+         * Called when a level is removed from a building.
+         *
+         * @param id      the id of the building
+         * @param levelId the id of the removed level
+         */
+        void levelRemoved(String id, String levelId);
+
+        /**
+         * Called when a room is added to a level.
+         *
+         * @param id      the id of the building
+         * @param levelId the id of the level
+         * @param room    the added room
+         */
+        void roomAdded(String id, String levelId, Room room);
+
+        /**
+         * Called when the values of a room are changed.
+         *
+         * @param id      the id of the building
+         * @param levelId the id of the level
+         * @param room    the room, with its new values
+         */
+        void roomUpdated(String id, String levelId, Room room);
+
+        /**
+         * Called when a room is removed from a level.
+         *
+         * @param id      the id of the building
+         * @param levelId the id of the level
+         * @param roomId  the id of the removed room
+         */
+        void roomRemoved(String id, String levelId, String roomId);
+    }
+
+    private final long maxBytes;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    /** Shared by every change, exclusive in {@link #runExclusively(Supplier)}. */
+    private final ReadWriteLock changeLock = new ReentrantReadWriteLock();
+    private volatile Journal journal;
+    private long usedBytes;
+
+    /**
+     * Constructs a registry with the given memory budget.
+     *
+     * @param maxBytes the maximum estimated size of all stored buildings, in bytes
+     * @throws IllegalArgumentException if the budget is not positive
+     */
+    public BuildingRegistry(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Memory budget must be positive");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Stores a copy of a building under a newly generated id, evicting least recently used
+     * buildings if needed to stay within the memory budget. Later changes to the given
+     * building do not affect the stored copy.
+     *
+     * @param building the building to store
+     * @return the id under which the building can be retrieved
+     * @throws IllegalArgumentException if the building alone exceeds the memory budget
+     */
+    public String register(Building building) {
+        BuildingSnapshot snapshot = BuildingSnapshot.of(building);
+        long bytes = BuildingSizeEstimator.estimateBytes(snapshot);
+        if (bytes > maxBytes) {
+            throw new IllegalArgumentException("Building exceeds the registry memory budget");
+        }
+        String id = UUID.randomUUID().toString();
+        changeLock.readLock().lock();
+        try {
+            // Not yet visible to other threads, so it can be recorded before it is stored
+            journal(journal -> journal.registered(id, building));
+            synchronized (this) {
+                while (usedBytes + bytes > maxBytes) {
+                    evictLeastRecentlyUsed(null);
+                }
+                entries.put(id, new Entry(snapshot, bytes));
+                usedBytes += bytes;
+            }
+        } finally {
+            changeLock.readLock().unlock();
+        }
+        return id;
+    }
+
+    /**
+     * Stores a copy of a building under a known id, without recording it in the journal, to rebuild the
+     * registry from a copy kept elsewhere. The memory budget is not enforced, so that buildings
+     * are not evicted in a different order than they were originally; the next registration
+     * evicts buildings if the registry is over its budget.
+     *
+     * @param id       the id of the building
+     * @param building the building to store
+     * @throws IllegalArgumentException if a building with the same id is already stored
+     */
+    public synchronized void restore(String id, Building building) {
+        if (entries.containsKey(id)) {
+            throw new IllegalArgumentException("Building with given id already exists");
+        }
+        BuildingSnapshot snapshot = BuildingSnapshot.of(building);
+        long bytes = BuildingSizeEstimator.estimateBytes(snapshot);
+        entries.put(id, new Entry(snapshot, bytes));
+        usedBytes += bytes;
+    }
+
+    /**
+     * Sets the journal receiving the changes made from now on.
+     *
+     * @param journal the journal, or null to stop recording changes
+     */
+    public void setJournal(Journal journal) {
+        changeLock.writeLock().lock();
+        try {
+            this.journal = journal;
+        } finally {
+            changeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Runs an action while no building is being registered, removed or changed. Queries made
+     * through {@link #read(String, Function)} are not held back.
+     *
+     * @param action the action, which may read every stored building, for example with {@link #forEach}
+     * @param <T>    the type of the result
+     * @return the result of the action
+     */
+    public <T> T runExclusively(Supplier<T> action) {
+        changeLock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            changeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Passes the current version of every stored building to an action, without marking it as
+     * recently used. Buildings may be changed concurrently unless this is called within
+     * {@link #runExclusively(Supplier)}.
+     *
+     * @param action the action, receiving the id and the building
+     */
+    public void forEach(BiConsumer<String, BuildingSnapshot> action) {
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            action.accept(entry.getKey(), entry.getValue().versions.current());
+        }
+    }
+
+    /**
+     * Retrieves the current version of a stored building and marks it as recently used.
+     * The version does not change; later changes to the building publish new versions.
+     *
+     * @param id the id returned by {@link #register(Building)}
+     * @return an {@link Optional} containing the building, or empty if it is unknown or was evicted
+     */
+    public Optional<BuildingSnapshot> get(String id) {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        entry.lastAccess = System.nanoTime();
+        return Optional.of(entry.versions.current());
+    }
+
+    /**
+     * Queries the current version of a stored building and marks it as recently used.
+     * The query does not wait for changes in progress and sees none of them.
+     *
+     * @param id    the id returned by {@link #register(Building)}
+     * @param query the query to run on the building
+     * @param <T>   the type of the result
+     * @return an {@link Optional} containing the result of the query, or empty if the building is unknown or was evicted
+     */
+    public <T> Optional<T> read(String id, Function<? super BuildingSnapshot, T> query) {
+        return get(id).map(query);
+    }
+
+    /**
+     * Adds a level, with its rooms, to a stored building.
+     *
+     * @param id    the id of the building
+     * @param level the level to add
+     * @return the totals of the building after the change
+     * @throws IllegalArgumentException if the building is unknown or already has a level with the same id
+     */
+    public BuildingReport addLevel(String id, Level level) {
+        LevelSnapshot snapshot = LevelSnapshot.of(level);
+        return change(id, building -> {
+            BuildingSnapshot next = building.withLevel(snapshot);
+            journal(journal -> journal.levelAdded(id, level));
+            return new Version(next, BuildingSizeEstimator.estimateChildBytes(snapshot));
+        });
+    }
+
+    /**
+     * Removes a level, with its rooms, from a stored building.
+     *
+     * @param id      the id of the building
+     * @param levelId the id of the level
+     * @return the totals of the building after the change
+     * @throws IllegalArgumentException if the building or the level is unknown
+     */
+    public BuildingReport removeLevel(String id, String levelId) {
+        return change(id, building -> {
+            LevelSnapshot level = level(building, levelId);
+            BuildingSnapshot next = building.withoutLevel(levelId);
+            journal(journal -> journal.levelRemoved(id, levelId));
+            return new Version(next, -BuildingSizeEstimator.estimateChildBytes(level));
+        });
+    }
+
+    /**
+     * Adds a copy of a room to a level of a stored building.
+     *
+     * @param id      the id of the building
+     * @param levelId the id of the level
+     * @param room    the room to add
+     * @return the totals of the building after the change
+     * @throws IllegalArgumentException if the building or the level is unknown, or the level already
+     *                                  has a room with the same id
+     */
+    public BuildingReport addRoom(String id, String levelId, Room room) {
+        return change(id, building -> {
+            BuildingSnapshot next = building.withRoom(levelId, room);
+            journal(journal -> journal.roomAdded(id, levelId, room));
+            return new Version(next, BuildingSizeEstimator.estimateChildBytes(room));
+        });
+    }
+
+    /**
+     * Removes a room from a level of a stored building.
+     *
+     * @param id      the id of the building
+     * @param levelId the id of the level
+     * @param roomId  the id of the room
+     * @return the totals of the building after the change
+     * @throws IllegalArgumentException if the building, the level or the room is unknown
+     */
+    public BuildingReport removeRoom(String id, String levelId, String roomId) {
+        return change(id, building -> {
+            Room room = room(level(building, levelId), roomId);
+            BuildingSnapshot next = building.withoutRoom(levelId, roomId);
+            journal(journal -> journal.roomRemoved(id, levelId, roomId));
+            return new Version(next, -BuildingSizeEstimator.estimateChildBytes(room));
+        });
+    }
+
+    /**
+     * Changes the values of a room of a stored building. The change is made to a copy of the
+     * room, typically through {@link Room#update}, whose values then replace those of the room.
+     *
+     * @param id      the id of the building
+     * @param levelId the id of the level
+     * @param roomId  the id of the room
+     * @param update  the change to make to the room
+     * @return the totals of the building after the change
+     * @throws IllegalArgumentException if the building, the level or the room is unknown
+     */
+    public BuildingReport updateRoom(String id, String levelId, String roomId, Consumer<Room> update) {
+        return change(id, building -> {
+            Room current = room(level(building, levelId), roomId);
+            Room room = new Room(current.getId(), current.getName(), current.getArea(), current.getCube(),
+                    current.getHeating(), current.getLight());
+            update.accept(room);
+            BuildingSnapshot next = building.withRoomUpdated(levelId, roomId, room.getArea(), room.getCube(),
+                    room.getHeating(), room.getLight());
+            journal(journal -> journal.roomUpdated(id, levelId, room));
+            return new Version(next, 0);
+        });
+    }
+
+    /**
+     * Removes a stored building.
+     *
+     * @param id the id of the building to remove
+     * @return true if the building was stored, false otherwise
+     */
+    public boolean remove(String id) {
+        changeLock.readLock().lock();
+        try {
+            synchronized (this) {
+                Entry entry = entries.remove(id);
+                if (entry == null) {
+                    return false;
+                }
+                usedBytes -= entry.bytes;
+                journal(journal -> journal.removed(id));
+                return true;
+            }
+        } finally {
+            changeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of stored buildings.
+     *
+     * @return the number of buildings in the registry
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the estimated size of all stored buildings.
+     *
+     * @return the used part of the memory budget, in bytes
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Gets the memory budget of the registry.
+     *
+     * @return the maximum estimated size of all stored buildings, in bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Publishes the next version of a building and accounts for the change of its size,
+     * evicting other buildings if the registry no longer fits in its budget.
+     *
+     * @param change the change, deriving the next version from the current one
+     */
+    private BuildingReport change(String id, Function<BuildingSnapshot, Version> change) {
+        changeLock.readLock().lock();
+        try {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                throw new IllegalArgumentException("Building with given id not found");
+            }
+            entry.lastAccess = System.nanoTime();
+            Version[] version = new Version[1];
+            entry.versions.update(building -> {
+                version[0] = change.apply(building);
+                return version[0].building;
+            });
+            long bytes = version[0].bytes;
+            synchronized (this) {
+                if (entries.get(id) == entry) {
+                    entry.bytes += bytes;
+                    usedBytes += bytes;
+                    while (usedBytes > maxBytes && entries.size() > 1) {
+                        evictLeastRecentlyUsed(id);
+                    }
+                }
+            }
+            return BuildingReport.of(version[0].building);
+        } finally {
+            changeLock.readLock().unlock();
+        }
+    }
+
+    private void journal(Consumer<Journal> record) {
+        Journal current = journal;
+        if (current != null) {
+            record.accept(current);
+        }
+    }
+
+    private static LevelSnapshot level(BuildingSnapshot building, String levelId) {
+        return building.getLevel(levelId).orElseThrow(() -> new IllegalArgumentException("Level with given id not found"));
+    }
+
+    private static Room room(LevelSnapshot level, String roomId) {
+        return level.getRoom(roomId).orElseThrow(() -> new IllegalArgumentException("Room with given id not found"));
+    }
+
+    /**
+     * Evicts the least recently used building other than the given one.
+     */
+    private void evictLeastRecentlyUsed(String keep) {
+        String oldestId = null;
+        long oldestAccess = Long.MAX_VALUE;
+        for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+            long access = candidate.getValue().lastAccess;
+            if (!candidate.getKey().equals(keep) && (oldestId == null || access - oldestAccess < 0)) {
+                oldestId = candidate.getKey();
+                oldestAccess = access;
+            }
+        }
+        usedBytes -= entries.remove(oldestId).bytes;
+        String evicted = oldestId;
+        journal(journal -> journal.removed(evicted));
+    }
+
+    private static final class Entry {
+        private final VersionedBuilding versions;
+        /** Guarded by the registry. */
+        private long bytes;
+        private volatile long lastAccess = System.nanoTime();
+
+        private Entry(BuildingSnapshot building, long bytes) {
+            this.versions = new VersionedBuilding(building);
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * The next version of a building and the number of bytes the building grew by.
+     */
+    private static final class Version {
+        private final BuildingSnapshot building;
+        private final long bytes;
+
+        private Version(BuildingSnapshot building, long bytes) {
+            this.building = building;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * All metrics of a building component, calculated together.
+ *
+ * The area, heat, cube and light totals are read once from the component; composite
+ * components compute them in a single pass over their subtree. The number of people,
+ * the required restrooms and the lighting per area are derived from those totals.
+ */
+public class BuildingReport {
+
+    /** Floor area in square meters needed per person. */
+    public static final double AREA_PER_PERSON = 3.0;
+    /** Number of people served by one restroom. */
+    public static final double PEOPLE_PER_RESTROOM = 15.0;
+
+    private final double area;
+    private final double heat;
+    private final double cube;
+    private final double light;
+
+    /**
+     * Constructs a report from already calculated totals.
+     *
+     * @param area  the total area
+     * @param heat  the total heat demand
+     * @param cube  the total cube
+     * @param light the total light demand
+     */
+    public BuildingReport(double area, double heat, double cube, double light) {
+        this.area = area;
+        this.heat = heat;
+        this.cube = cube;
+        this.light = light;
+    }
+
+    /**
+     * Calculates the report of a component.
+     *
+     * @param component the component to report on
+     * @return the report of the component
+     */
+    public static BuildingReport of(BuildingComponent component) {
+        return new BuildingReport(component.calculateArea(), component.calculateHeat(),
+                component.calculateCube(), component.calculateLight());
+    }
+
+    /**
+     * Calculates the report of a building stored in columns, from the columns themselves.
+     *
+     * @param building the columnar building to report on
+     * @return the report of the building
+     */
+    public static BuildingReport of(ColumnarBuilding building) {
+        return new BuildingReport(building.calculateArea(), building.calculateHeat(),
+                building.calculateCube(), building.calculateLight());
+    }
+
+    /**
+     * Gets the total area.
+     *
+     * @return the total area of the component
+     */
+    public double getArea() {
+        return area;
+    }
+
+    /**
+     * Gets the total heat demand.
+     *
+     * @return the total heat demand of the component
+     */
+    public double getHeat() {
+        return heat;
+    }
+
+    /**
+     * Gets the total cube.
+     *
+     * @return the total cube of the component
+     */
+    public double getCube() {
+        return cube;
+    }
+
+    /**
+     * Gets the total light demand.
+     *
+     * @return the total light demand of the component
+     */
+    public double getLight() {
+        return light;
+    }
+
+    /**
+     * Calculates the maximum number of people for the area.
+     *
+     * @return the area divided by {@link #AREA_PER_PERSON}, rounded down
+     */
+    public int getMaxPeople() {
+        return (int) Math.floor(area / AREA_PER_PERSON);
+    }
+
+    /**
+     * Calculates the required number of restrooms for the maximum number of people.
+     *
+     * @return the maximum number of people divided by {@link #PEOPLE_PER_RESTROOM}, rounded up
+     */
+    public int getRequiredRestrooms() {
+        return (int) Math.ceil(getMaxPeople() / PEOPLE_PER_RESTROOM);
+    }
+
+    /**
+     * Calculates the lighting per unit area.
+     *
+     * @return the total light divided by the total area
+     */
+    public double getLightingPerArea() {
+        return light / area;
+    }
+
+    /**
+     * Gets the value of a metric, with totals and ratios rounded to two decimals
+     * as in the REST responses.
+     *
+     * @param metric the metric to get
+     * @return the value of the metric
+     */
+    public Number getValue(Metric metric) {
+        switch (metric) {
+            case AREA:
+                return round(area);
+            case HEAT:
+                return round(heat);
+            case CUBE:
+                return round(cube);
+            case LIGHT:
+                return round(light);
+            case MAX_PEOPLE:
+                return getMaxPeople();
+            case RESTROOMS:
+                return getRequiredRestrooms();
+            case LIGHTING_PER_AREA:
+                return round(getLightingPerArea());
+            default:
+                throw new IllegalArgumentException("Unknown metric: " + metric);
+        }
+    }
+
+    /**
+     * Collects the values of the selected metrics under their response keys.
+     *
+     * @param metrics the metrics to include
+     * @return a map from response keys to metric values, in metric declaration order
+     */
+    public Map<String, Object> toMap(Set<Metric> metrics) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (Metric metric : metrics) {
+            values.put(metric.getKey(), getValue(metric));
+        }
+        return values;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+}
@@ -0,0 +1,59 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+import pl.put.poznan.buildinginfo.logic.entities.Room;
+
+import java.util.List;
+
+/**
+ * A utility class estimating the heap footprint of a {@link BuildingComponent} hierarchy.
+ * The estimate assumes a 64-bit JVM with compressed references and compact strings,
+ * and is meant for memory budgets rather than exact accounting.
+ */
+public class BuildingSizeEstimator {
+
+    /** Object header plus id and name references, rounded to the 8 byte alignment. */
+    private static final long COMPONENT_BYTES = 24;
+    /** Two doubles and two floats on top of the component fields. */
+    private static final long ROOM_FIELDS_BYTES = 24;
+    /** The child list of a composite component and its backing array header. */
+    private static final long LIST_BYTES = 40;
+    /** One reference slot in the backing array of a child list. */
+    private static final long REFERENCE_BYTES = 4;
+    /** String object plus the header of its byte array. */
+    private static final long STRING_BYTES = 40;
+
+    /**
+     * Estimates the number of bytes retained by the component and all of its subcomponents.
+     *
+     * @param component the root of the hierarchy to measure
+     * @return the estimated size in bytes
+     */
+    public static long estimateBytes(BuildingComponent component) {
+        long bytes = COMPONENT_BYTES + estimateBytes(component.getId()) + estimateBytes(component.getName());
+        if (component instanceof Room) {
+            return bytes + ROOM_FIELDS_BYTES;
+        }
+        List<BuildingComponent> children = component.getComponents();
+        bytes += LIST_BYTES + REFERENCE_BYTES * children.size();
+        for (BuildingComponent child : children) {
+            bytes += estimateBytes(child);
+        }
+        return bytes;
+    }
+
+    /**
+     * Estimates the number of bytes a composite component grows by when the component is added to it,
+     * which is the size of the component plus its slot in the child list.
+     *
+     * @param component the added or removed component
+     * @return the estimated size in bytes
+     */
+    public static long estimateChildBytes(BuildingComponent component) {
+        return REFERENCE_BYTES + estimateBytes(component);
+    }
+
+    private static long estimateBytes(String value) {
+        return value == null ? 0 : STRING_BYTES + ((value.length() + 7) & ~7);
+    }
+}
@@ -0,0 +1,687 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingSnapshot;
+import pl.put.poznan.buildinginfo.logic.entities.Level;
+import pl.put.poznan.buildinginfo.logic.entities.LevelSnapshot;
+import pl.put.poznan.buildinginfo.logic.entities.Room;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A read-only, column oriented copy of a building.
+ *
+ * Instead of one {@link Room} object per room, the room attributes are kept in
+ * primitive arrays indexed by room number, with the rooms of every level stored
+ * next to each other. The rooms of level {@code i} occupy the range
+ * {@code [levelStart(i), levelEnd(i))}. Ids and names are dictionary encoded: every
+ * distinct string is stored once and rooms and levels refer to it by its code,
+ * with -1 standing for a missing name.
+ *
+ * The metrics are answered by summing the columns over a room range, so a building,
+ * a level and a single room are all handled by {@link Scope}.
+ */
+public final class ColumnarBuilding {
+
+    /** Code used for a missing (null) name. */
+    static final int NO_NAME = -1;
+
+    private final String[] dictionary;
+    private final int idCode;
+    private final int nameCode;
+
+    private final int[] levelOffsets;
+    private final int[] levelIds;
+    private final int[] levelNames;
+
+    private final int[] roomIds;
+    private final int[] roomNames;
+    private final double[] area;
+    private final double[] cube;
+    private final float[] heating;
+    private final float[] light;
+
+    private ColumnarBuilding(String[] dictionary, int idCode, int nameCode,
+                             int[] levelOffsets, int[] levelIds, int[] levelNames,
+                             int[] roomIds, int[] roomNames, double[] area, double[] cube, float[] heating, float[] light) {
+        this.dictionary = dictionary;
+        this.idCode = idCode;
+        this.nameCode = nameCode;
+        this.levelOffsets = levelOffsets;
+        this.levelIds = levelIds;
+        this.levelNames = levelNames;
+        this.roomIds = roomIds;
+        this.roomNames = roomNames;
+        this.area = area;
+        this.cube = cube;
+        this.heating = heating;
+        this.light = light;
+    }
+
+    /**
+     * Creates a building from complete columns, taking ownership of the arrays.
+     * Used by {@link BuildingBinaryFormat} to load a file without going through a {@link Builder}.
+     *
+     * @throws IllegalArgumentException if the columns are inconsistent
+     */
+    static ColumnarBuilding ofColumns(String[] dictionary, int idCode, int nameCode,
+                                      int[] levelOffsets, int[] levelIds, int[] levelNames,
+                                      int[] roomIds, int[] roomNames, double[] area, double[] cube, float[] heating, float[] light) {
+        int levels = levelIds.length;
+        int rooms = roomIds.length;
+        if (levelNames.length != levels || levelOffsets.length != levels + 1) {
+            throw new IllegalArgumentException("Level columns have different lengths");
+        }
+        if (roomNames.length != rooms || area.length != rooms || cube.length != rooms
+                || heating.length != rooms || light.length != rooms) {
+            throw new IllegalArgumentException("Room columns have different lengths");
+        }
+        if (levelOffsets[0] != 0 || levelOffsets[levels] != rooms) {
+            throw new IllegalArgumentException("Level offsets do not cover the rooms");
+        }
+        for (int i = 0; i < levels; i++) {
+            if (levelOffsets[i] > levelOffsets[i + 1]) {
+                throw new IllegalArgumentException("Level offsets are not ascending");
+            }
+        }
+        checkCode(idCode, dictionary.length, false);
+        checkCode(nameCode, dictionary.length, true);
+        checkCodes(levelIds, dictionary.length, false);
+        checkCodes(levelNames, dictionary.length, true);
+        checkCodes(roomIds, dictionary.length, false);
+        checkCodes(roomNames, dictionary.length, true);
+        return new ColumnarBuilding(dictionary, idCode, nameCode, levelOffsets, levelIds, levelNames,
+                roomIds, roomNames, area, cube, heating, light);
+    }
+
+    private static void checkCodes(int[] codes, int dictionarySize, boolean optional) {
+        for (int code : codes) {
+            checkCode(code, dictionarySize, optional);
+        }
+    }
+
+    private static void checkCode(int code, int dictionarySize, boolean optional) {
+        if (code >= dictionarySize || code < (optional ? NO_NAME : 0)) {
+            throw new IllegalArgumentException("Invalid string code: " + code);
+        }
+    }
+
+    /**
+     * Copies a building hierarchy into columns.
+     *
+     * @param building a building made of levels that contain rooms, as produced by {@link BuildingParser},
+     *                 or a {@link BuildingSnapshot} of one
+     * @return the columnar copy of the building
+     * @throws IllegalArgumentException if the hierarchy does not have the building, level, room shape
+     */
+    public static ColumnarBuilding of(BuildingComponent building) {
+        Builder builder = new Builder();
+        for (BuildingComponent level : building.getComponents()) {
+            if (!(level instanceof Level || level instanceof LevelSnapshot)) {
+                throw new IllegalArgumentException("Expected a level but found: " + level);
+            }
+            for (BuildingComponent component : level.getComponents()) {
+                if (!(component instanceof Room)) {
+                    throw new IllegalArgumentException("Expected a room but found: " + component);
+                }
+                Room room = (Room) component;
+                builder.room(room.getId(), room.getName(), room.getArea(), room.getCube(),
+                        room.getHeating(), room.getLight());
+            }
+            builder.level(level.getId(), level.getName());
+        }
+        return builder.building(building.getId(), building.getName());
+    }
+
+    /**
+     * Parses a building from a JSON stream straight into columns, without creating
+     * any {@link Room} objects. The accepted format is the one of
+     * {@link BuildingParser#parseJson(InputStream)}. The stream is not closed.
+     *
+     * @param json a stream of UTF-8 encoded JSON representing the building structure
+     * @return the columnar building
+     * @throws IOException if the stream cannot be read or the JSON data is malformed
+     * @throws org.json.JSONException if required fields are missing or have the wrong type
+     */
+    public static ColumnarBuilding parse(InputStream json) throws IOException {
+        return BuildingParser.read(json, new Builder());
+    }
+
+    /**
+     * Parses a building from UTF-8 encoded JSON bytes straight into columns.
+     * See {@link #parse(InputStream)} for details.
+     *
+     * @param json UTF-8 encoded JSON representing the building structure
+     * @return the columnar building
+     * @throws IOException if the JSON data is malformed
+     * @throws org.json.JSONException if required fields are missing or have the wrong type
+     */
+    public static ColumnarBuilding parse(byte[] json) throws IOException {
+        return BuildingParser.read(json, new Builder());
+    }
+
+    /**
+     * Rebuilds the object hierarchy from the columns.
+     *
+     * @return a new {@link Building} equal in content to this one
+     */
+    public Building toBuilding() {
+        List<Level> levels = new ArrayList<>(getLevelCount());
+        for (int i = 0; i < getLevelCount(); i++) {
+            Level level = new Level(getLevelId(i), getLevelName(i));
+            List<Room> rooms = new ArrayList<>(getLevelEnd(i) - getLevelStart(i));
+            for (int r = getLevelStart(i); r < getLevelEnd(i); r++) {
+                rooms.add(new Room(getRoomId(r), getRoomName(r), area[r], cube[r], heating[r], light[r]));
+            }
+            level.setRooms(rooms);
+            levels.add(level);
+        }
+        Building building = new Building(getId(), getName());
+        building.setLevels(levels);
+        BuildingNameIndex.attach(building);
+        return building;
+    }
+
+    /**
+     * Gets the scope covering every room of the building.
+     *
+     * @return the scope of the whole building
+     */
+    public Scope scope() {
+        return new Scope(0, getRoomCount());
+    }
+
+    /**
+     * Gets the scope covering the rooms of a level.
+     *
+     * @param level the level number
+     * @return the scope of the level
+     */
+    public Scope levelScope(int level) {
+        return new Scope(getLevelStart(level), getLevelEnd(level));
+    }
+
+    /**
+     * Gets the scope covering a single room.
+     *
+     * @param room the room number
+     * @return the scope of the room
+     */
+    public Scope roomScope(int room) {
+        return new Scope(room, room + 1);
+    }
+
+    /**
+     * Finds the building, level or room with the given name, ignoring case, and returns its scope.
+     * Like {@link BuildingFinder#findComponentByName}, the building is checked first and then
+     * each level followed by its rooms.
+     *
+     * Names are compared once per distinct dictionary entry; the level and room columns
+     * are then scanned by code only.
+     *
+     * @param name the name to look for
+     * @return the scope of the first match, or empty if nothing has that name
+     */
+    public Optional<Scope> findScopeByName(String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        boolean[] matches = new boolean[dictionary.length];
+        boolean any = false;
+        for (int i = 0; i < dictionary.length; i++) {
+            if (name.equalsIgnoreCase(dictionary[i])) {
+                matches[i] = true;
+                any = true;
+            }
+        }
+        if (!any) {
+            return Optional.empty();
+        }
+        if (nameCode != NO_NAME && matches[nameCode]) {
+            return Optional.of(scope());
+        }
+        for (int i = 0; i < levelNames.length; i++) {
+            if (levelNames[i] != NO_NAME && matches[levelNames[i]]) {
+                return Optional.of(levelScope(i));
+            }
+            for (int r = levelOffsets[i]; r < levelOffsets[i + 1]; r++) {
+                if (roomNames[r] != NO_NAME && matches[roomNames[r]]) {
+                    return Optional.of(roomScope(r));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Calculates the total area of the building.
+     *
+     * @return the total area in square meters
+     */
+    public double calculateArea() {
+        return sum(area, 0, area.length);
+    }
+
+    /**
+     * Calculates the total heating demand of the building.
+     *
+     * @return the total heating demand
+     */
+    public double calculateHeat() {
+        return sum(heating, 0, heating.length);
+    }
+
+    /**
+     * Calculates the total volume of the building.
+     *
+     * @return the total volume in cubic meters
+     */
+    public double calculateCube() {
+        return sum(cube, 0, cube.length);
+    }
+
+    /**
+     * Calculates the total lighting of the building.
+     *
+     * @return the total lighting in lumens
+     */
+    public double calculateLight() {
+        return sum(light, 0, light.length);
+    }
+
+    /**
+     * Gets the id of the building.
+     *
+     * @return the building id
+     */
+    public String getId() {
+        return dictionary[idCode];
+    }
+
+    /**
+     * Gets the name of the building.
+     *
+     * @return the building name, or null if it has none
+     */
+    public String getName() {
+        return decode(nameCode);
+    }
+
+    /**
+     * Gets the number of levels.
+     *
+     * @return the number of levels
+     */
+    public int getLevelCount() {
+        return levelIds.length;
+    }
+
+    /**
+     * Gets the number of rooms across all levels.
+     *
+     * @return the number of rooms
+     */
+    public int getRoomCount() {
+        return roomIds.length;
+    }
+
+    /**
+     * Gets the number of distinct ids and names.
+     *
+     * @return the size of the string dictionary
+     */
+    public int getDictionarySize() {
+        return dictionary.length;
+    }
+
+    /**
+     * Gets the id of a level.
+     *
+     * @param level the level number
+     * @return the level id
+     */
+    public String getLevelId(int level) {
+        return dictionary[levelIds[level]];
+    }
+
+    /**
+     * Gets the name of a level.
+     *
+     * @param level the level number
+     * @return the level name, or null if it has none
+     */
+    public String getLevelName(int level) {
+        return decode(levelNames[level]);
+    }
+
+    /**
+     * Gets the number of the first room of a level.
+     *
+     * @param level the level number
+     * @return the first room number, inclusive
+     */
+    public int getLevelStart(int level) {
+        return levelOffsets[level];
+    }
+
+    /**
+     * Gets the number following the last room of a level.
+     *
+     * @param level the level number
+     * @return the last room number, exclusive
+     */
+    public int getLevelEnd(int level) {
+        return levelOffsets[level + 1];
+    }
+
+    /**
+     * Gets the id of a room.
+     *
+     * @param room the room number
+     * @return the room id
+     */
+    public String getRoomId(int room) {
+        return dictionary[roomIds[room]];
+    }
+
+    /**
+     * Gets the name of a room.
+     *
+     * @param room the room number
+     * @return the room name, or null if it has none
+     */
+    public String getRoomName(int room) {
+        return decode(roomNames[room]);
+    }
+
+    /**
+     * Gets the area of a room.
+     *
+     * @param room the room number
+     * @return the area in square meters
+     */
+    public double getArea(int room) {
+        return area[room];
+    }
+
+    /**
+     * Gets the volume of a room.
+     *
+     * @param room the room number
+     * @return the volume in cubic meters
+     */
+    public double getCube(int room) {
+        return cube[room];
+    }
+
+    /**
+     * Gets the heating demand of a room.
+     *
+     * @param room the room number
+     * @return the heating demand
+     */
+    public float getHeating(int room) {
+        return heating[room];
+    }
+
+    /**
+     * Gets the lighting of a room.
+     *
+     * @param room the room number
+     * @return the lighting in lumens
+     */
+    public float getLight(int room) {
+        return light[room];
+    }
+
+    // Raw columns for BuildingBinaryFormat; callers must not modify them
+
+    String[] dictionary() {
+        return dictionary;
+    }
+
+    int idCode() {
+        return idCode;
+    }
+
+    int nameCode() {
+        return nameCode;
+    }
+
+    int[] levelOffsets() {
+        return levelOffsets;
+    }
+
+    int[] levelIds() {
+        return levelIds;
+    }
+
+    int[] levelNames() {
+        return levelNames;
+    }
+
+    int[] roomIds() {
+        return roomIds;
+    }
+
+    int[] roomNames() {
+        return roomNames;
+    }
+
+    double[] areaColumn() {
+        return area;
+    }
+
+    double[] cubeColumn() {
+        return cube;
+    }
+
+    float[] heatingColumn() {
+        return heating;
+    }
+
+    float[] lightColumn() {
+        return light;
+    }
+
+    private String decode(int code) {
+        return code == NO_NAME ? null : dictionary[code];
+    }
+
+    /**
+     * Sums a column range with Neumaier compensation. The cached aggregates of the object
+     * model are exact sums, so the two may differ in the last bits.
+     */
+    private static double sum(double[] values, int from, int to) {
+        double sum = 0;
+        double compensation = 0;
+        for (int i = from; i < to; i++) {
+            double value = values[i];
+            double t = sum + value;
+            if (Math.abs(sum) >= Math.abs(value)) {
+                compensation += (sum - t) + value;
+            } else {
+                compensation += (value - t) + sum;
+            }
+            sum = t;
+        }
+        return sum + compensation;
+    }
+
+    private static double sum(float[] values, int from, int to) {
+        double sum = 0;
+        double compensation = 0;
+        for (int i = from; i < to; i++) {
+            double value = values[i];
+            double t = sum + value;
+            if (Math.abs(sum) >= Math.abs(value)) {
+                compensation += (sum - t) + value;
+            } else {
+                compensation += (value - t) + sum;
+            }
+            sum = t;
+        }
+        return sum + compensation;
+    }
+
+    /**
+     * A contiguous range of rooms: the whole building, one level or one room.
+     */
+    public final class Scope {
+        private final int from;
+        private final int to;
+
+        private Scope(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Gets the number of the first room in the scope.
+         *
+         * @return the first room number, inclusive
+         */
+        public int getFrom() {
+            return from;
+        }
+
+        /**
+         * Gets the number following the last room in the scope.
+         *
+         * @return the last room number, exclusive
+         */
+        public int getTo() {
+            return to;
+        }
+
+        /**
+         * Calculates the total area of the rooms in the scope.
+         *
+         * @return the total area in square meters
+         */
+        public double calculateArea() {
+            return sum(area, from, to);
+        }
+
+        /**
+         * Calculates the total heating demand of the rooms in the scope.
+         *
+         * @return the total heating demand
+         */
+        public double calculateHeat() {
+            return sum(heating, from, to);
+        }
+
+        /**
+         * Calculates the total volume of the rooms in the scope.
+         *
+         * @return the total volume in cubic meters
+         */
+        public double calculateCube() {
+            return sum(cube, from, to);
+        }
+
+        /**
+         * Calculates the total lighting of the rooms in the scope.
+         *
+         * @return the total lighting in lumens
+         */
+        public double calculateLight() {
+            return sum(light, from, to);
+        }
+    }
+
+    /**
+     * Collects rooms and levels into growing columns. Used both by {@link #of(BuildingComponent)}
+     * and as the handler of the streaming parser.
+     */
+    static final class Builder implements BuildingParser.Handler<ColumnarBuilding> {
+        private final List<String> dictionary = new ArrayList<>();
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        private int levelCount;
+        private int[] levelOffsets = new int[8];
+        private int[] levelIds = new int[8];
+        private int[] levelNames = new int[8];
+
+        private int roomCount;
+        private int[] roomIds = new int[64];
+        private int[] roomNames = new int[64];
+        private double[] area = new double[64];
+        private double[] cube = new double[64];
+        private float[] heating = new float[64];
+        private float[] light = new float[64];
+
+        @Override
+        public void room(String id, String name, double area, double cube, float heating, float light) {
+            if (roomCount == roomIds.length) {
+                int capacity = roomCount * 2;
+                roomIds = Arrays.copyOf(roomIds, capacity);
+                roomNames = Arrays.copyOf(roomNames, capacity);
+                this.area = Arrays.copyOf(this.area, capacity);
+                this.cube = Arrays.copyOf(this.cube, capacity);
+                this.heating = Arrays.copyOf(this.heating, capacity);
+                this.light = Arrays.copyOf(this.light, capacity);
+            }
+            roomIds[roomCount] = encode(id);
+            roomNames[roomCount] = encode(name);
+            this.area[roomCount] = area;
+            this.cube[roomCount] = cube;
+            this.heating[roomCount] = heating;
+            this.light[roomCount] = light;
+            roomCount++;
+        }
+
+        @Override
+        public void level(String id, String name) {
+            // levelOffsets holds one more entry than there are levels
+            if (levelCount + 1 == levelOffsets.length) {
+                int capacity = levelOffsets.length * 2;
+                levelOffsets = Arrays.copyOf(levelOffsets, capacity);
+                levelIds = Arrays.copyOf(levelIds, capacity);
+                levelNames = Arrays.copyOf(levelNames, capacity);
+            }
+            levelIds[levelCount] = encode(id);
+            levelNames[levelCount] = encode(name);
+            levelCount++;
+            levelOffsets[levelCount] = roomCount;
+        }
+
+        @Override
+        public ColumnarBuilding building(String id, String name) {
+            int idCode = encode(id);
+            int nameCode = encode(name);
+            return new ColumnarBuilding(dictionary.toArray(new String[0]), idCode, nameCode,
+                    Arrays.copyOf(levelOffsets, levelCount + 1),
+                    Arrays.copyOf(levelIds, levelCount),
+                    Arrays.copyOf(levelNames, levelCount),
+                    Arrays.copyOf(roomIds, roomCount),
+                    Arrays.copyOf(roomNames, roomCount),
+                    Arrays.copyOf(area, roomCount),
+                    Arrays.copyOf(cube, roomCount),
+                    Arrays.copyOf(heating, roomCount),
+                    Arrays.copyOf(light, roomCount));
+        }
+
+        private int encode(String value) {
+            if (value == null) {
+                return NO_NAME;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingSnapshot;
+import pl.put.poznan.buildinginfo.logic.entities.CompositeComponent;
+import pl.put.poznan.buildinginfo.logic.entities.Room;
+import pl.put.poznan.buildinginfo.logic.entities.StructureListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The rooms of a hierarchy sorted by heating per cubic meter, answering threshold
+ * and range queries with a binary search and a slice of the sorted rooms.
+ *
+ * Rooms with equal heating per cubic meter keep their traversal order. Rooms whose
+ * heating per cubic meter is not a number never match a query and are left out.
+ * An index obtained through {@link #of(BuildingComponent)} is cached on the component
+ * and dropped as soon as a component is added, removed or changed below it. A
+ * {@link BuildingSnapshot} never changes, so its index is kept for as long as the snapshot is in use.
+ */
+public class HeatPerCubeIndex implements StructureListener {
+
+    /** Indexes of snapshots, held weakly so that they go away with their snapshots. */
+    private static final Map<BuildingSnapshot, HeatPerCubeIndex> SNAPSHOTS = new WeakHashMap<>();
+
+    private final CompositeComponent owner;
+    private final List<Room> rooms;
+    private final double[] heatPerCube;
+
+    private HeatPerCubeIndex(BuildingComponent component, CompositeComponent owner) {
+        this.owner = owner;
+        List<Room> collected = new ArrayList<>();
+        collectRooms(component, collected);
+        Room[] sorted = collected.toArray(new Room[0]);
+        Arrays.sort(sorted, Comparator.comparingDouble(HeatPerCubeIndex::heatPerCube));
+        this.rooms = Collections.unmodifiableList(Arrays.asList(sorted));
+        this.heatPerCube = new double[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            heatPerCube[i] = heatPerCube(sorted[i]);
+        }
+    }
+
+    /**
+     * Gets the index of the given component, building it if the component has none
+     * or changed since the index was built.
+     *
+     * @param component the root of the hierarchy to index
+     * @return the index of the rooms below the component
+     */
+    public static HeatPerCubeIndex of(BuildingComponent component) {
+        if (component instanceof BuildingSnapshot) {
+            synchronized (SNAPSHOTS) {
+                return SNAPSHOTS.computeIfAbsent((BuildingSnapshot) component, snapshot -> new HeatPerCubeIndex(snapshot, null));
+            }
+        }
+        if (!(component instanceof CompositeComponent)) {
+            return new HeatPerCubeIndex(component, null);
+        }
+        CompositeComponent composite = (CompositeComponent) component;
+        synchronized (composite) {
+            return composite.findStructureListener(HeatPerCubeIndex.class).orElseGet(() -> {
+                HeatPerCubeIndex index = new HeatPerCubeIndex(composite, composite);
+                composite.addStructureListener(index);
+                return index;
+            });
+        }
+    }
+
+    /**
+     * Calculates the heating per cubic meter of a room.
+     *
+     * @param room the room
+     * @return the heating of the room divided by its cube
+     */
+    public static double heatPerCube(Room room) {
+        return room.getHeating() / room.getCube();
+    }
+
+    /**
+     * Finds the rooms whose heating per cubic meter exceeds the threshold.
+     *
+     * @param threshold the heating threshold per cubic meter
+     * @return the matching rooms in ascending order of heating per cubic meter
+     */
+    public List<Room> exceeding(double threshold) {
+        return rooms.subList(firstAbove(threshold), heatPerCube.length);
+    }
+
+    /**
+     * Finds the rooms whose heating per cubic meter lies between the bounds, inclusive.
+     *
+     * @param min the lower bound of heating per cubic meter
+     * @param max the upper bound of heating per cubic meter
+     * @return the matching rooms in ascending order of heating per cubic meter
+     */
+    public List<Room> between(double min, double max) {
+        int from = firstAtLeast(min);
+        int to = firstAbove(max);
+        return from < to ? rooms.subList(from, to) : Collections.emptyList();
+    }
+
+    /**
+     * Finds the rooms exceeding each of the thresholds.
+     *
+     * @param thresholds the heating thresholds per cubic meter
+     * @return for every threshold, in the same order, the rooms exceeding it
+     */
+    public List<List<Room>> exceedingEach(double... thresholds) {
+        List<List<Room>> result = new ArrayList<>(thresholds.length);
+        for (double threshold : thresholds) {
+            result.add(exceeding(threshold));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of indexed rooms.
+     *
+     * @return the number of rooms with a defined heating per cubic meter
+     */
+    public int size() {
+        return heatPerCube.length;
+    }
+
+    @Override
+    public void componentAdded(BuildingComponent component) {
+        owner.removeStructureListener(this);
+    }
+
+    @Override
+    public void componentRemoved(BuildingComponent component, CompositeComponent parent) {
+        owner.removeStructureListener(this);
+    }
+
+    @Override
+    public void componentChanged(BuildingComponent component) {
+        owner.removeStructureListener(this);
+    }
+
+    /**
+     * Gets the position of the first room with heating per cubic meter greater than the value.
+     */
+    private int firstAbove(double value) {
+        if (Double.isNaN(value)) {
+            return heatPerCube.length;
+        }
+        int low = 0;
+        int high = heatPerCube.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (heatPerCube[middle] > value) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gets the position of the first room with heating per cubic meter greater than or equal to the value.
+     */
+    private int firstAtLeast(double value) {
+        if (Double.isNaN(value)) {
+            return heatPerCube.length;
+        }
+        int low = 0;
+        int high = heatPerCube.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (heatPerCube[middle] >= value) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private static void collectRooms(BuildingComponent component, List<Room> rooms) {
+        component.accept(room -> {
+            if (!Double.isNaN(heatPerCube(room))) {
+                rooms.add(room);
+            }
+        });
+    }
+}
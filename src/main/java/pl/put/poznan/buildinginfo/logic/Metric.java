@@ -0,0 +1,87 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The metrics that can be calculated for a building component, together with
+ * the names used to request them and the keys under which they are reported.
+ */
+public enum Metric {
+    /** The total area in square meters. */
+    AREA("area", "totalArea"),
+    /** The total heating demand. */
+    HEAT("heat", "totalHeat"),
+    /** The total volume in cubic meters. */
+    CUBE("cube", "totalCube"),
+    /** The total lighting in lumens. */
+    LIGHT("light", "totalLight"),
+    /** The maximum number of people for the area. */
+    MAX_PEOPLE("maxPeople", "maxPeople"),
+    /** The number of restrooms required for the maximum number of people. */
+    RESTROOMS("restrooms", "requiredRestrooms"),
+    /** The total lighting divided by the total area. */
+    LIGHTING_PER_AREA("lightingPerArea", "lightingPerArea");
+
+    private final String name;
+    private final String key;
+
+    Metric(String name, String key) {
+        this.name = name;
+        this.key = key;
+    }
+
+    /**
+     * Gets the name used to request the metric.
+     *
+     * @return the name of the metric
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the key under which the metric is reported.
+     *
+     * @return the response key of the metric
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Finds a metric by its name or response key, ignoring case.
+     *
+     * @param name the name of the metric
+     * @return the matching metric
+     * @throws IllegalArgumentException if no metric has the given name
+     */
+    public static Metric fromName(String name) {
+        for (Metric metric : values()) {
+            if (metric.name.equalsIgnoreCase(name.trim()) || metric.key.equalsIgnoreCase(name.trim())) {
+                return metric;
+            }
+        }
+        throw new IllegalArgumentException("Unknown metric: " + name);
+    }
+
+    /**
+     * Parses a comma separated list of metric names.
+     *
+     * @param names the metric names, or null or empty for all metrics
+     * @return the requested metrics in declaration order
+     * @throws IllegalArgumentException if a name does not match any metric
+     */
+    public static Set<Metric> parseList(String names) {
+        if (names == null || names.trim().isEmpty()) {
+            return EnumSet.allOf(Metric.class);
+        }
+        Set<Metric> metrics = EnumSet.noneOf(Metric.class);
+        for (String name : names.split(",")) {
+            if (!name.trim().isEmpty()) {
+                metrics.add(fromName(name));
+            }
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,188 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+import pl.put.poznan.buildinginfo.logic.entities.ComponentVisitor;
+import pl.put.poznan.buildinginfo.logic.entities.ComponentWalker;
+import pl.put.poznan.buildinginfo.logic.entities.Room;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Sums the rooms below a component, and the room values the requested {@link Metric}s need,
+ * in one walk of a {@link ComponentWalker}.
+ *
+ * The sums are kept in primitive fields with compensated summation and the rooms are read
+ * through their own fields, so the walk neither allocates nor calls the abstract
+ * {@code calculate*} methods of {@link BuildingComponent}. An accumulator can be reused for
+ * any number of components; once its walker has seen a tree as deep, accumulating allocates
+ * nothing. Unlike {@link BuildingReport#of}, the totals are computed from the rooms and not
+ * read from the aggregates cached by the composites, so they also work for walks that skip
+ * part of the tree or only count some of the rooms.
+ *
+ * An accumulator is not thread-safe.
+ */
+public final class MetricAccumulator implements ComponentVisitor {
+
+    private final boolean sumArea;
+    private final boolean sumHeat;
+    private final boolean sumCube;
+    private final boolean sumLight;
+    private final ComponentWalker walker = new ComponentWalker();
+
+    private long rooms;
+    private double area;
+    private double areaCompensation;
+    private double heat;
+    private double heatCompensation;
+    private double cube;
+    private double cubeCompensation;
+    private double light;
+    private double lightCompensation;
+
+    /**
+     * Constructs an accumulator for all metrics.
+     */
+    public MetricAccumulator() {
+        this(EnumSet.allOf(Metric.class));
+    }
+
+    /**
+     * Constructs an accumulator summing only the room values the given metrics need.
+     * The rooms are always counted.
+     *
+     * @param metrics the metrics to accumulate
+     */
+    public MetricAccumulator(Set<Metric> metrics) {
+        boolean people = metrics.contains(Metric.MAX_PEOPLE) || metrics.contains(Metric.RESTROOMS);
+        this.sumArea = people || metrics.contains(Metric.AREA) || metrics.contains(Metric.LIGHTING_PER_AREA);
+        this.sumHeat = metrics.contains(Metric.HEAT);
+        this.sumCube = metrics.contains(Metric.CUBE);
+        this.sumLight = metrics.contains(Metric.LIGHT) || metrics.contains(Metric.LIGHTING_PER_AREA);
+    }
+
+    /**
+     * Clears the sums and accumulates the rooms below a component.
+     *
+     * @param component the building, level or room
+     * @return this accumulator
+     */
+    public MetricAccumulator accumulate(BuildingComponent component) {
+        reset();
+        walker.visit(component, this);
+        return this;
+    }
+
+    /**
+     * Clears the sums.
+     */
+    public void reset() {
+        rooms = 0;
+        area = 0;
+        areaCompensation = 0;
+        heat = 0;
+        heatCompensation = 0;
+        cube = 0;
+        cubeCompensation = 0;
+        light = 0;
+        lightCompensation = 0;
+    }
+
+    /**
+     * Adds a room to the sums.
+     *
+     * @param room the room
+     */
+    @Override
+    public void visitRoom(Room room) {
+        rooms++;
+        if (sumArea) {
+            double value = room.getArea();
+            double total = area + value;
+            areaCompensation += Math.abs(area) >= Math.abs(value) ? (area - total) + value : (value - total) + area;
+            area = total;
+        }
+        if (sumHeat) {
+            double value = room.getHeating();
+            double total = heat + value;
+            heatCompensation += Math.abs(heat) >= Math.abs(value) ? (heat - total) + value : (value - total) + heat;
+            heat = total;
+        }
+        if (sumCube) {
+            double value = room.getCube();
+            double total = cube + value;
+            cubeCompensation += Math.abs(cube) >= Math.abs(value) ? (cube - total) + value : (value - total) + cube;
+            cube = total;
+        }
+        if (sumLight) {
+            double value = room.getLight();
+            double total = light + value;
+            lightCompensation += Math.abs(light) >= Math.abs(value) ? (light - total) + value : (value - total) + light;
+            light = total;
+        }
+    }
+
+    /**
+     * Gets the number of accumulated rooms.
+     *
+     * @return the number of rooms
+     */
+    public long getRooms() {
+        return rooms;
+    }
+
+    /**
+     * Gets the total area of the accumulated rooms.
+     *
+     * @return the total area, or 0 if the area is not needed by the metrics
+     */
+    public double getArea() {
+        return area + areaCompensation;
+    }
+
+    /**
+     * Gets the total heating of the accumulated rooms.
+     *
+     * @return the total heating, or 0 if the heating is not needed by the metrics
+     */
+    public double getHeat() {
+        return heat + heatCompensation;
+    }
+
+    /**
+     * Gets the total cube of the accumulated rooms.
+     *
+     * @return the total cube, or 0 if the cube is not needed by the metrics
+     */
+    public double getCube() {
+        return cube + cubeCompensation;
+    }
+
+    /**
+     * Gets the total light of the accumulated rooms.
+     *
+     * @return the total light, or 0 if the light is not needed by the metrics
+     */
+    public double getLight() {
+        return light + lightCompensation;
+    }
+
+    /**
+     * Creates a report of the accumulated totals.
+     *
+     * @return a new report
+     */
+    public BuildingReport toReport() {
+        return new BuildingReport(getArea(), getHeat(), getCube(), getLight());
+    }
+
+    /**
+     * Counts the rooms below a component.
+     *
+     * @param component the building, level or room
+     * @return the number of rooms
+     */
+    public static long countRooms(BuildingComponent component) {
+        return new MetricAccumulator(EnumSet.noneOf(Metric.class)).accumulate(component).getRooms();
+    }
+}
@@ -0,0 +1,178 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+import pl.put.poznan.buildinginfo.logic.entities.CompositeComponent;
+import pl.put.poznan.buildinginfo.logic.entities.PartialTotals;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Calculates the area, heat, cube and light totals of large buildings on several cores.
+ *
+ * The totals always come from the aggregates cached by the composites, so they are exactly
+ * the values of the {@code calculate*} methods and of {@link BuildingReport#of}, whether or
+ * not the building is larger than the cutoff. A component whose aggregates are cached is
+ * answered at once. Otherwise its subcomponents without cached aggregates are split into
+ * halves with fork/join until a range holds at most {@code cutoff} rooms, and each of them
+ * fills its own cache, so that the component then only sums the cached totals of its
+ * subcomponents. A component with more than {@code cutoff} direct subcomponents, such as a
+ * level with many rooms, is instead split into ranges of at most {@code cutoff} subcomponents
+ * whose exact partial sums are combined into its cache. Since exact sums do not depend on the
+ * order the values arrive in, the totals are the same on every run, whatever the parallelism.
+ * Components with at most {@code cutoff} rooms are not split at all.
+ */
+public class ParallelAggregator {
+
+    /** Default number of rooms below which a range is summed sequentially. */
+    public static final int DEFAULT_CUTOFF = 16_384;
+
+    private static final ParallelAggregator COMMON = new ParallelAggregator(ForkJoinPool.commonPool(), DEFAULT_CUTOFF);
+
+    private final ForkJoinPool pool;
+    private final int cutoff;
+
+    /**
+     * Creates an aggregator running on the given pool.
+     *
+     * @param pool   the pool to run the tasks on
+     * @param cutoff the number of rooms below which a range is summed sequentially
+     * @throws IllegalArgumentException if the cutoff is not positive
+     */
+    public ParallelAggregator(ForkJoinPool pool, int cutoff) {
+        if (cutoff <= 0) {
+            throw new IllegalArgumentException("Invalid cutoff: " + cutoff);
+        }
+        this.pool = pool;
+        this.cutoff = cutoff;
+    }
+
+    /**
+     * Gets an aggregator running on the common fork/join pool with the default cutoff.
+     *
+     * @return the shared aggregator
+     */
+    public static ParallelAggregator commonPool() {
+        return COMMON;
+    }
+
+    /**
+     * Gets the number of rooms below which a range is summed sequentially.
+     *
+     * @return the cutoff
+     */
+    public int getCutoff() {
+        return cutoff;
+    }
+
+    /**
+     * Calculates the totals of a component, filling the caches of its dirty subcomponents in
+     * parallel if it is larger than the cutoff.
+     *
+     * @param component the component to calculate
+     * @return the report of the component
+     */
+    public BuildingReport aggregate(BuildingComponent component) {
+        List<BuildingComponent> components = component.getComponents();
+        if (dirty(component) && weight(components, 0, components.size()) > cutoff) {
+            pool.invoke(new RefreshTask(Collections.singletonList(component), 0, 1));
+        }
+        return BuildingReport.of(component);
+    }
+
+    private static boolean dirty(BuildingComponent component) {
+        return component instanceof CompositeComponent && !((CompositeComponent) component).isCached();
+    }
+
+    /**
+     * Estimates the number of rooms in a range from the number of subcomponents one level down.
+     */
+    private static long weight(List<BuildingComponent> components, int from, int to) {
+        long weight = 0;
+        for (int i = from; i < to; i++) {
+            weight += weight(components.get(i));
+        }
+        return weight;
+    }
+
+    private static int weight(BuildingComponent component) {
+        return component instanceof CompositeComponent ? component.getComponents().size() : 1;
+    }
+
+    /**
+     * Fills the caches of the dirty components in a range of sibling components.
+     */
+    private final class RefreshTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<BuildingComponent> components;
+        private final int from;
+        private final int to;
+
+        RefreshTask(List<BuildingComponent> components, int from, int to) {
+            this.components = components;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1 || weight(components, from, to) <= cutoff) {
+                for (int i = from; i < to; i++) {
+                    refresh(components.get(i));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RefreshTask(components, from, middle), new RefreshTask(components, middle, to));
+        }
+
+        private void refresh(BuildingComponent component) {
+            if (!dirty(component)) {
+                return;
+            }
+            List<BuildingComponent> children = component.getComponents();
+            if (children.size() > cutoff) {
+                ((CompositeComponent) component).refresh(new SumTask(children, 0, children.size()).compute());
+                return;
+            }
+            if (weight(children, 0, children.size()) > cutoff) {
+                new RefreshTask(children, 0, children.size()).compute();
+            }
+            component.calculateArea();
+        }
+    }
+
+    /**
+     * Sums the totals of a range of sibling components, splitting it into halves until a range
+     * holds at most {@code cutoff} components.
+     */
+    private final class SumTask extends RecursiveTask<PartialTotals> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<BuildingComponent> components;
+        private final int from;
+        private final int to;
+
+        SumTask(List<BuildingComponent> components, int from, int to) {
+            this.components = components;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected PartialTotals compute() {
+            if (to - from <= cutoff) {
+                return PartialTotals.of(components, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            SumTask right = new SumTask(components, middle, to);
+            right.fork();
+            PartialTotals left = new SumTask(components, from, middle).compute();
+            return left.plus(right.join());
+        }
+    }
+}
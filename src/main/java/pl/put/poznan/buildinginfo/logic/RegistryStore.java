@@ -0,0 +1,594 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+import pl.put.poznan.buildinginfo.logic.entities.Level;
+import pl.put.poznan.buildinginfo.logic.entities.Room;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the buildings of a {@link BuildingRegistry} on disk, so that a restarted server gets
+ * them back without clients uploading them again and without parsing any JSON.
+ *
+ * The directory holds periodic snapshots of the whole registry and an append-only change log.
+ * Both are numbered by generation: {@code snapshot-N.bin} holds the registry as it was when
+ * {@code changes-N.log} was started. As the store's {@link BuildingRegistry.Journal}, every
+ * change to the registry is appended to the current log as one record, a length, a CRC32 and
+ * the change. Taking a snapshot starts a new log, writes the snapshot next to it and then
+ * deletes the older snapshots and logs. A snapshot is written to a temporary file first and
+ * renamed when complete; temporary files left by a crash are deleted on recovery.
+ *
+ * A snapshot stores every building in the {@link BuildingBinaryFormat}, preceded by its id and
+ * length. Recovery maps the snapshot into memory, decodes its buildings in parallel with bulk
+ * column copies and then replays the logs of the snapshot's generation and later ones. A record
+ * cut short by a crash, or one whose checksum does not match, ends the replay of its log.
+ *
+ * Log records are written without forcing them to the disk, so they survive a crash of the
+ * process but not necessarily one of the machine; snapshots are forced before they replace
+ * the previous one.
+ */
+public class RegistryStore implements BuildingRegistry.Journal, AutoCloseable {
+
+    /** The first four bytes of every snapshot, "BREG" in ASCII. */
+    public static final int SNAPSHOT_MAGIC = 0x47455242;
+
+    /** The version of the snapshots and logs written by this class. */
+    public static final int VERSION = 1;
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final String LOG_PREFIX = "changes-";
+    private static final String LOG_SUFFIX = ".log";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private static final byte REGISTERED = 1;
+    private static final byte REMOVED = 2;
+    private static final byte LEVEL_ADDED = 3;
+    private static final byte LEVEL_REMOVED = 4;
+    private static final byte ROOM_ADDED = 5;
+    private static final byte ROOM_UPDATED = 6;
+    private static final byte ROOM_REMOVED = 7;
+
+    private final Path directory;
+    /** Guarded by this store. */
+    private FileChannel log;
+    /** Guarded by this store. */
+    private long generation;
+
+    /**
+     * Constructs a store keeping its files in a directory, which is created if needed.
+     * Call {@link #recover(BuildingRegistry)} before using the store.
+     *
+     * @param directory the directory of the snapshots and logs
+     * @throws IOException if the directory cannot be created
+     */
+    public RegistryStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    /**
+     * Loads the latest snapshot into an empty registry, replays the changes made after it,
+     * and from then on records every change to the registry. Snapshots left half written by a
+     * crash are deleted.
+     *
+     * @param registry the registry to fill
+     * @return the number of buildings recovered and how long it took
+     * @throws IOException if the files cannot be read or are corrupt
+     */
+    public Recovery recover(BuildingRegistry registry) throws IOException {
+        long start = System.nanoTime();
+        for (Path stale : files(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX + TEMPORARY_SUFFIX).values()) {
+            Files.deleteIfExists(stale);
+        }
+        NavigableMap<Long, Path> snapshots = files(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        NavigableMap<Long, Path> logs = files(LOG_PREFIX, LOG_SUFFIX);
+        long first = 0;
+        if (!snapshots.isEmpty()) {
+            Map.Entry<Long, Path> latest = snapshots.lastEntry();
+            loadSnapshot(latest.getValue(), registry);
+            first = latest.getKey();
+        }
+        long changes = 0;
+        for (Path file : logs.tailMap(first, true).values()) {
+            changes += replay(file, registry);
+        }
+        long last = Math.max(first, logs.isEmpty() ? 0 : logs.lastKey());
+        synchronized (this) {
+            generation = last + 1;
+            log = openLog(generation);
+        }
+        registry.setJournal(this);
+        return new Recovery(registry.size(), changes, System.nanoTime() - start);
+    }
+
+    /**
+     * Writes a snapshot of all the buildings of a registry and deletes the older snapshots and logs.
+     * Changes are held back only while the buildings are copied, not while the snapshot is written.
+     *
+     * @param registry the registry this store records
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void snapshot(BuildingRegistry registry) throws IOException {
+        List<String> ids = new ArrayList<>();
+        List<ColumnarBuilding> buildings = new ArrayList<>();
+        long snapshotGeneration;
+        try {
+            snapshotGeneration = registry.runExclusively(() -> {
+                registry.forEach((id, building) -> {
+                    ids.add(id);
+                    buildings.add(ColumnarBuilding.of(building));
+                });
+                synchronized (this) {
+                    try {
+                        FileChannel next = openLog(generation + 1);
+                        log.close();
+                        log = next;
+                        return ++generation;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        Path target = file(SNAPSHOT_PREFIX, snapshotGeneration, SNAPSHOT_SUFFIX);
+        Path temporary = target.resolveSibling(target.getFileName() + TEMPORARY_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(3 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(SNAPSHOT_MAGIC).putInt(VERSION).putInt(ids.size()).flip();
+            writeFully(channel, header);
+            for (int i = 0; i < ids.size(); i++) {
+                byte[] id = ids.get(i).getBytes(StandardCharsets.UTF_8);
+                ByteBuffer entry = ByteBuffer.allocate(Integer.BYTES + id.length + Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                entry.putInt(id.length).put(id).putLong(0).flip();
+                long lengthPosition = channel.position() + Integer.BYTES + id.length;
+                writeFully(channel, entry);
+                long start = channel.position();
+                BuildingBinaryFormat.write(buildings.get(i), channel);
+                ByteBuffer length = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                length.putLong(0, channel.position() - start);
+                channel.write(length, lengthPosition);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        for (Path old : files(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).headMap(snapshotGeneration).values()) {
+            Files.deleteIfExists(old);
+        }
+        for (Path old : files(LOG_PREFIX, LOG_SUFFIX).headMap(snapshotGeneration).values()) {
+            Files.deleteIfExists(old);
+        }
+    }
+
+    /**
+     * Stops recording changes and closes the current log.
+     *
+     * @throws IOException if the log cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+    }
+
+    /**
+     * Appends the registration of a building, with the building in the binary format.
+     *
+     * @param id the id of the building
+     * @param building the registered building
+     * @throws UncheckedIOException if the log cannot be written
+     */
+    @Override
+    public void registered(String id, Building building) {
+        append(REGISTERED, id, out -> {
+            ByteArrayOutputStream binary = new ByteArrayOutputStream();
+            BuildingBinaryFormat.write(ColumnarBuilding.of(building), Channels.newChannel(binary));
+            out.writeInt(binary.size());
+            binary.writeTo(out);
+        });
+    }
+
+    /**
+     * Appends the removal of a building.
+     *
+     * @param id the id of the building
+     * @throws UncheckedIOException if the log cannot be written
+     */
+    @Override
+    public void removed(String id) {
+        append(REMOVED, id, out -> {
+        });
+    }
+
+    /**
+     * Appends the addition of a level, with its rooms.
+     *
+     * @param id the id of the building
+     * @param level the added level
+     * @throws UncheckedIOException if the log cannot be written
+     */
+    @Override
+    public void levelAdded(String id, Level level) {
+        append(LEVEL_ADDED, id, out -> {
+            writeString(out, level.getId());
+            writeString(out, level.getName());
+            out.writeInt(level.getComponents().size());
+            for (BuildingComponent room : level.getComponents()) {
+                writeRoom(out, (Room) room);
+            }
+        });
+    }
+
+    /**
+     * Appends the removal of a level.
+     *
+     * @param id the id of the building
+     * @param levelId the id of the level
+     * @throws UncheckedIOException if the log cannot be written
+     */
+    @Override
+    public void levelRemoved(String id, String levelId) {
+        append(LEVEL_REMOVED, id, out -> writeString(out, levelId));
+    }
+
+    /**
+     * Appends the addition of a room.
+     *
+     * @param id the id of the building
+     * @param levelId the id of the level
+     * @param room the room
+     * @throws UncheckedIOException if the log cannot be written
+     */
+    @Override
+    public void roomAdded(String id, String levelId, Room room) {
+        append(ROOM_ADDED, id, out -> {
+            writeString(out, levelId);
+            writeRoom(out, room);
+        });
+    }
+
+    /**
+     * Appends the new values of a room.
+     *
+     * @param id the id of the building
+     * @param levelId the id of the level
+     * @param room the room
+     * @throws UncheckedIOException if the log cannot be written
+     */
+    @Override
+    public void roomUpdated(String id, String levelId, Room room) {
+        append(ROOM_UPDATED, id, out -> {
+            writeString(out, levelId);
+            writeRoom(out, room);
+        });
+    }
+
+    /**
+     * Appends the removal of a room.
+     *
+     * @param id the id of the building
+     * @param levelId the id of the level
+     * @param roomId the id of the room
+     * @throws UncheckedIOException if the log cannot be written
+     */
+    @Override
+    public void roomRemoved(String id, String levelId, String roomId) {
+        append(ROOM_REMOVED, id, out -> {
+            writeString(out, levelId);
+            writeString(out, roomId);
+        });
+    }
+
+    /**
+     * Loads the buildings of a snapshot. The buildings are located sequentially and decoded in parallel.
+     */
+    private static void loadSnapshot(Path file, BuildingRegistry registry) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large: " + channel.size() + " bytes");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer in = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (in.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a registry snapshot: " + file);
+            }
+            int version = in.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported registry snapshot version: " + version);
+            }
+            int count = in.getInt();
+            if (count < 0) {
+                throw new IOException("Corrupt registry snapshot: negative count");
+            }
+            String[] ids = new String[count];
+            ByteBuffer[] slices = new ByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                byte[] id = new byte[in.getInt()];
+                in.get(id);
+                ids[i] = new String(id, StandardCharsets.UTF_8);
+                long length = in.getLong();
+                if (length < 0 || length > in.remaining()) {
+                    throw new IOException("Corrupt registry snapshot: invalid building length");
+                }
+                slices[i] = in.slice().limit((int) length);
+                in.position(in.position() + (int) length);
+            }
+            Building[] buildings = new Building[count];
+            IntStream.range(0, count).parallel().forEach(i -> {
+                try {
+                    buildings[i] = BuildingBinaryFormat.read(slices[i]).toBuilding();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            for (int i = 0; i < count; i++) {
+                registry.restore(ids[i], buildings[i]);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt registry snapshot: " + file, e);
+        }
+    }
+
+    /**
+     * Applies the changes of a log to a registry, up to the end of the log or the first damaged record.
+     *
+     * @return the number of changes applied
+     */
+    private static long replay(Path file, BuildingRegistry registry) throws IOException {
+        long changes = 0;
+        long size = Files.size(file);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                byte[] record;
+                int checksum;
+                try {
+                    int length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < 0 || length > size) {
+                        break;
+                    }
+                    record = new byte[length];
+                    in.readFully(record);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(record);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                apply(new DataInputStream(new ByteArrayInputStream(record)), registry);
+                changes++;
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Cannot replay change log " + file, e);
+        }
+        return changes;
+    }
+
+    private static void apply(DataInputStream in, BuildingRegistry registry) throws IOException {
+        byte type = in.readByte();
+        String id = readString(in);
+        if (type == REGISTERED) {
+            byte[] binary = new byte[in.readInt()];
+            in.readFully(binary);
+            registry.restore(id, BuildingBinaryFormat.read(ByteBuffer.wrap(binary)).toBuilding());
+            return;
+        }
+        if (type == REMOVED) {
+            registry.remove(id);
+            return;
+        }
+        if (!registry.get(id).isPresent()) {
+            // Changed while it was being removed; the removal was recorded first
+            return;
+        }
+        switch (type) {
+            case LEVEL_ADDED:
+                Level level = new Level(readString(in), readString(in));
+                int rooms = in.readInt();
+                for (int i = 0; i < rooms; i++) {
+                    level.addComponent(readRoom(in));
+                }
+                registry.addLevel(id, level);
+                break;
+            case LEVEL_REMOVED:
+                registry.removeLevel(id, readString(in));
+                break;
+            case ROOM_ADDED:
+                registry.addRoom(id, readString(in), readRoom(in));
+                break;
+            case ROOM_UPDATED:
+                String levelId = readString(in);
+                Room room = readRoom(in);
+                registry.updateRoom(id, levelId, room.getId(),
+                        r -> r.update(room.getArea(), room.getCube(), room.getHeating(), room.getLight()));
+                break;
+            case ROOM_REMOVED:
+                registry.removeRoom(id, readString(in), readString(in));
+                break;
+            default:
+                throw new IOException("Unknown change type: " + type);
+        }
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Appends one record to the current log with a single write.
+     */
+    private void append(byte type, String id, RecordWriter body) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeByte(type);
+            writeString(out, id);
+            body.write(out);
+            out.flush();
+            ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), 2 * Integer.BYTES, record.capacity() - 2 * Integer.BYTES);
+            record.putInt(0, record.capacity() - 2 * Integer.BYTES);
+            record.putInt(Integer.BYTES, (int) crc.getValue());
+            synchronized (this) {
+                if (log == null) {
+                    throw new IOException("Registry store is closed");
+                }
+                writeFully(log, record);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write change log", e);
+        }
+    }
+
+    private FileChannel openLog(long generation) throws IOException {
+        return FileChannel.open(file(LOG_PREFIX, generation, LOG_SUFFIX),
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private Path file(String prefix, long generation, String suffix) {
+        return directory.resolve(prefix + generation + suffix);
+    }
+
+    /**
+     * Finds the files with a prefix and suffix, sorted by the generation between them.
+     */
+    private NavigableMap<Long, Path> files(String prefix, String suffix) throws IOException {
+        NavigableMap<Long, Path> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.forEach(path -> {
+                String name = path.getFileName().toString();
+                if (name.startsWith(prefix) && name.endsWith(suffix)) {
+                    try {
+                        files.put(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())), path);
+                    } catch (NumberFormatException e) {
+                        // Not one of ours
+                    }
+                }
+            });
+        }
+        return files;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void writeRoom(DataOutputStream out, Room room) throws IOException {
+        writeString(out, room.getId());
+        writeString(out, room.getName());
+        out.writeDouble(room.getArea());
+        out.writeDouble(room.getCube());
+        out.writeFloat(room.getHeating());
+        out.writeFloat(room.getLight());
+    }
+
+    private static Room readRoom(DataInputStream in) throws IOException {
+        return new Room(readString(in), readString(in), in.readDouble(), in.readDouble(), in.readFloat(), in.readFloat());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The outcome of {@link #recover(BuildingRegistry)}.
+     */
+    public static final class Recovery {
+        private final int buildings;
+        private final long changes;
+        private final long elapsedNanos;
+
+        private Recovery(int buildings, long changes, long elapsedNanos) {
+            this.buildings = buildings;
+            this.changes = changes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Gets the number of buildings in the registry after recovery.
+         *
+         * @return the number of recovered buildings
+         */
+        public int getBuildings() {
+            return buildings;
+        }
+
+        /**
+         * Gets the number of changes replayed from the logs.
+         *
+         * @return the number of replayed changes
+         */
+        public long getChanges() {
+            return changes;
+        }
+
+        /**
+         * Gets how long the recovery took.
+         *
+         * @return the elapsed time in milliseconds
+         */
+        public double getElapsedMillis() {
+            return elapsedNanos / 1e6;
+        }
+    }
+}
@@ -0,0 +1,464 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+import pl.put.poznan.buildinginfo.logic.entities.Room;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A filter on rooms written as an expression over the room fields {@code area}, {@code cube},
+ * {@code heating} and {@code light}, such as {@code area > 50 and light / area < 5} or
+ * {@code heating / cube between 0.1 and 0.3}.
+ *
+ * Values are combined with {@code + - * /} and parentheses, and compared with
+ * {@code < <= > >= = !=} or {@code between ... and ...}, which includes both bounds.
+ * Comparisons are combined with {@code and}, {@code or}, {@code not} and parentheses.
+ * Parentheses, signs and {@code not}s can be nested at most {@value #MAX_DEPTH} deep.
+ * Keywords and field names ignore case. As in {@link RoomRanking}, a comparison with a value
+ * that is not a number, such as {@code heating / cube} of a room without volume, is false.
+ *
+ * An expression is parsed once into a tree of small evaluators that read the room fields and
+ * return primitive values, so testing a room neither boxes nor allocates; constant parts are
+ * folded while parsing. {@link #of} keeps the filters of the most recently used expressions,
+ * so repeated queries skip parsing too. Filters are immutable and can be shared between threads.
+ */
+public final class RoomFilter implements Predicate<Room> {
+
+    /** Maximum number of compiled filters kept by {@link #of}. */
+    private static final int CACHE_SIZE = 256;
+
+    /** Maximum nesting of parentheses, signs and {@code not}s, which the parser follows recursively. */
+    static final int MAX_DEPTH = 64;
+
+    private static final Map<String, RoomFilter> CACHE = new LinkedHashMap<String, RoomFilter>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RoomFilter> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final String expression;
+    private final Predicate<Room> predicate;
+
+    private RoomFilter(String expression, Predicate<Room> predicate) {
+        this.expression = expression;
+        this.predicate = predicate;
+    }
+
+    /**
+     * Returns the filter for an expression, compiling it only if the same text was not
+     * compiled recently.
+     *
+     * @param expression the filter expression
+     * @return the compiled, possibly shared filter
+     * @throws IllegalArgumentException if the expression is empty or invalid
+     */
+    public static RoomFilter of(String expression) {
+        if (expression == null || expression.trim().isEmpty()) {
+            throw new IllegalArgumentException("Filter cannot be empty");
+        }
+        synchronized (CACHE) {
+            RoomFilter filter = CACHE.get(expression);
+            if (filter != null) {
+                return filter;
+            }
+        }
+        RoomFilter filter = compile(expression);
+        synchronized (CACHE) {
+            CACHE.put(expression, filter);
+        }
+        return filter;
+    }
+
+    /**
+     * Compiles an expression without looking it up in, or adding it to, the cache of {@link #of}.
+     *
+     * @param expression the filter expression
+     * @return a new filter
+     * @throws IllegalArgumentException if the expression is invalid
+     */
+    public static RoomFilter compile(String expression) {
+        return new RoomFilter(expression, new Parser(expression).parse());
+    }
+
+    /**
+     * Tests whether a room matches the filter.
+     *
+     * @param room the room
+     * @return true if the room matches
+     */
+    @Override
+    public boolean test(Room room) {
+        return predicate.test(room);
+    }
+
+    /**
+     * Finds the rooms below a component that match the filter, in the order of the building.
+     *
+     * @param component the building, level or room to search
+     * @return the matching rooms
+     */
+    public List<Room> select(BuildingComponent component) {
+        List<Room> rooms = new ArrayList<>();
+        component.accept(room -> {
+            if (predicate.test(room)) {
+                rooms.add(room);
+            }
+        });
+        return rooms;
+    }
+
+    /**
+     * Gets the expression the filter was compiled from.
+     *
+     * @return the expression
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    /**
+     * Evaluates a numeric part of an expression for a room.
+     */
+    @FunctionalInterface
+    private interface Value {
+        double of(Room room);
+    }
+
+    private static final class Constant implements Value {
+        private final double value;
+
+        private Constant(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public double of(Room room) {
+            return value;
+        }
+    }
+
+    /**
+     * A parsed part of an expression: either a value or a condition, since a parenthesis may
+     * hold either.
+     */
+    private static final class Term {
+        private final Value value;
+        private final Predicate<Room> condition;
+        private final int position;
+
+        private Term(Value value, Predicate<Room> condition, int position) {
+            this.value = value;
+            this.condition = condition;
+            this.position = position;
+        }
+    }
+
+    /**
+     * Recursive descent parser of the filter grammar, lowest precedence first:
+     * {@code or}, {@code and}, {@code not}, comparisons, {@code + -}, {@code * /}, and
+     * signs, numbers, fields and parentheses.
+     */
+    private static final class Parser {
+        private final String text;
+        private int position;
+        private int depth;
+
+        private Parser(String text) {
+            this.text = text;
+        }
+
+        private Predicate<Room> parse() {
+            Predicate<Room> predicate = condition(or());
+            skipSpaces();
+            if (position < text.length()) {
+                throw error(position, "unexpected '" + text.charAt(position) + "'");
+            }
+            return predicate;
+        }
+
+        private Term or() {
+            Term left = and();
+            while (keyword("or")) {
+                Predicate<Room> first = condition(left);
+                Predicate<Room> second = condition(and());
+                left = new Term(null, room -> first.test(room) || second.test(room), left.position);
+            }
+            return left;
+        }
+
+        private Term and() {
+            Term left = not();
+            while (keyword("and")) {
+                Predicate<Room> first = condition(left);
+                Predicate<Room> second = condition(not());
+                left = new Term(null, room -> first.test(room) && second.test(room), left.position);
+            }
+            return left;
+        }
+
+        private Term not() {
+            skipSpaces();
+            int start = position;
+            if (keyword("not")) {
+                enter(start);
+                Predicate<Room> negated = condition(not());
+                depth--;
+                return new Term(null, room -> !negated.test(room), start);
+            }
+            return comparison();
+        }
+
+        private Term comparison() {
+            Term left = sum();
+            skipSpaces();
+            if (keyword("between")) {
+                Value value = value(left);
+                Value min = value(sum());
+                if (!keyword("and")) {
+                    throw error(position, "expected 'and' after the lower bound of 'between'");
+                }
+                Value max = value(sum());
+                return new Term(null, room -> {
+                    double v = value.of(room);
+                    return v >= min.of(room) && v <= max.of(room);
+                }, left.position);
+            }
+            String operator = comparisonOperator();
+            if (operator == null) {
+                return left;
+            }
+            Value first = value(left);
+            Value second = value(sum());
+            switch (operator) {
+                case "<":
+                    return new Term(null, room -> first.of(room) < second.of(room), left.position);
+                case "<=":
+                    return new Term(null, room -> first.of(room) <= second.of(room), left.position);
+                case ">":
+                    return new Term(null, room -> first.of(room) > second.of(room), left.position);
+                case ">=":
+                    return new Term(null, room -> first.of(room) >= second.of(room), left.position);
+                case "=":
+                    return new Term(null, room -> first.of(room) == second.of(room), left.position);
+                default:
+                    return new Term(null, room -> {
+                        double a = first.of(room);
+                        double b = second.of(room);
+                        return a < b || a > b;
+                    }, left.position);
+            }
+        }
+
+        private String comparisonOperator() {
+            for (String operator : new String[]{"<=", ">=", "!=", "<>", "==", "<", ">", "="}) {
+                if (text.startsWith(operator, position)) {
+                    position += operator.length();
+                    switch (operator) {
+                        case "<>":
+                            return "!=";
+                        case "==":
+                            return "=";
+                        default:
+                            return operator;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private Term sum() {
+            Term left = product();
+            while (true) {
+                skipSpaces();
+                if (symbol('+')) {
+                    left = arithmetic('+', left, product());
+                } else if (symbol('-')) {
+                    left = arithmetic('-', left, product());
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        private Term product() {
+            Term left = unary();
+            while (true) {
+                skipSpaces();
+                if (symbol('*')) {
+                    left = arithmetic('*', left, unary());
+                } else if (symbol('/')) {
+                    left = arithmetic('/', left, unary());
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        private Term unary() {
+            skipSpaces();
+            int start = position;
+            if (symbol('-')) {
+                enter(start);
+                Value negated = value(unary());
+                depth--;
+                if (negated instanceof Constant) {
+                    return new Term(new Constant(-negated.of(null)), null, start);
+                }
+                return new Term(room -> -negated.of(room), null, start);
+            }
+            if (symbol('+')) {
+                enter(start);
+                Value value = value(unary());
+                depth--;
+                return new Term(value, null, start);
+            }
+            if (symbol('(')) {
+                enter(start);
+                Term inner = or();
+                skipSpaces();
+                if (!symbol(')')) {
+                    throw error(position, "expected ')'");
+                }
+                depth--;
+                return new Term(inner.value, inner.condition, start);
+            }
+            if (position < text.length() && (Character.isDigit(text.charAt(position)) || text.charAt(position) == '.')) {
+                return new Term(new Constant(number()), null, start);
+            }
+            String word = word();
+            switch (word.toLowerCase(Locale.ROOT)) {
+                case "area":
+                    return new Term(Room::getArea, null, start);
+                case "cube":
+                    return new Term(Room::getCube, null, start);
+                case "heating":
+                    return new Term(Room::getHeating, null, start);
+                case "light":
+                    return new Term(Room::getLight, null, start);
+                case "":
+                    throw error(start, position < text.length() ? "unexpected '" + text.charAt(position) + "'" : "unexpected end");
+                default:
+                    throw error(start, "unknown field '" + word + "', expected one of area, cube, heating, light");
+            }
+        }
+
+        private Term arithmetic(char operator, Term leftTerm, Term rightTerm) {
+            Value left = value(leftTerm);
+            Value right = value(rightTerm);
+            Value result;
+            switch (operator) {
+                case '+':
+                    result = room -> left.of(room) + right.of(room);
+                    break;
+                case '-':
+                    result = room -> left.of(room) - right.of(room);
+                    break;
+                case '*':
+                    result = room -> left.of(room) * right.of(room);
+                    break;
+                default:
+                    result = room -> left.of(room) / right.of(room);
+                    break;
+            }
+            if (left instanceof Constant && right instanceof Constant) {
+                result = new Constant(result.of(null));
+            }
+            return new Term(result, null, leftTerm.position);
+        }
+
+        private double number() {
+            int start = position;
+            while (position < text.length() && (Character.isDigit(text.charAt(position)) || text.charAt(position) == '.')) {
+                position++;
+            }
+            if (position < text.length() && (text.charAt(position) == 'e' || text.charAt(position) == 'E')) {
+                int exponent = position + 1;
+                if (exponent < text.length() && (text.charAt(exponent) == '+' || text.charAt(exponent) == '-')) {
+                    exponent++;
+                }
+                if (exponent < text.length() && Character.isDigit(text.charAt(exponent))) {
+                    position = exponent;
+                    while (position < text.length() && Character.isDigit(text.charAt(position))) {
+                        position++;
+                    }
+                }
+            }
+            try {
+                return Double.parseDouble(text.substring(start, position));
+            } catch (NumberFormatException e) {
+                throw error(start, "invalid number '" + text.substring(start, position) + "'");
+            }
+        }
+
+        private Value value(Term term) {
+            if (term.value == null) {
+                throw error(term.position, "expected a value, not a condition");
+            }
+            return term.value;
+        }
+
+        private Predicate<Room> condition(Term term) {
+            if (term.condition == null) {
+                throw error(term.position, "expected a comparison");
+            }
+            return term.condition;
+        }
+
+        private boolean keyword(String keyword) {
+            skipSpaces();
+            int end = position + keyword.length();
+            if (text.regionMatches(true, position, keyword, 0, keyword.length())
+                    && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)))) {
+                position = end;
+                return true;
+            }
+            return false;
+        }
+
+        private String word() {
+            int start = position;
+            while (position < text.length() && Character.isLetter(text.charAt(position))) {
+                position++;
+            }
+            return text.substring(start, position);
+        }
+
+        private boolean symbol(char symbol) {
+            if (position < text.length() && text.charAt(position) == symbol) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Goes one level deeper into the expression, before following a nested part recursively.
+         */
+        private void enter(int at) {
+            if (++depth > MAX_DEPTH) {
+                throw error(at, "nested more than " + MAX_DEPTH + " deep");
+            }
+        }
+
+        private void skipSpaces() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(int at, String message) {
+            return new IllegalArgumentException("Invalid filter at position " + (at + 1) + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A fixed-size histogram of the values of a room metric, for estimating percentiles.
+ *
+ * Values are counted in logarithmic buckets: bucket i holds the values in
+ * (gamma^(i-1), gamma^i], with gamma chosen so that reporting the middle of a bucket is
+ * within {@link #RELATIVE_ACCURACY} of every value in it. Negative values are counted in
+ * mirrored buckets and values closer to zero than {@link #MIN_MAGNITUDE} as zero. The buckets
+ * cover magnitudes up to {@link #MAX_MAGNITUDE}; larger values are counted in the last one.
+ * A histogram therefore takes the same few kilobytes however many values it holds, and the
+ * percentiles it reports are within the relative accuracy of the exact ones. The minimum and
+ * maximum are kept exactly, and the lowest and highest percentiles are reported exactly.
+ *
+ * Histograms can be merged by adding up their buckets, so the histograms of several levels or
+ * buildings combine into the exact histogram of all their rooms. Not-a-number values, such as the
+ * heating per cubic meter of a room without volume, are not recorded.
+ *
+ * A histogram is not thread-safe; merge the histograms of different threads instead.
+ */
+public final class RoomHistogram {
+
+    /** The maximum relative error of the reported percentiles. */
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    /** The smallest magnitude told apart from zero. */
+    public static final double MIN_MAGNITUDE = 1e-9;
+
+    /** The largest magnitude with buckets of its own. */
+    public static final double MAX_MAGNITUDE = 1e12;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final int MIN_INDEX = index(MIN_MAGNITUDE);
+    private static final int BUCKETS = index(MAX_MAGNITUDE) - MIN_INDEX + 1;
+
+    private final long[] positive = new long[BUCKETS];
+    private long[] negative;
+    private long zero;
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Builds the histogram of a metric over all the rooms below a component, in one pass.
+     *
+     * @param component the building, level or room
+     * @param metric    the metric to record for every room
+     * @return a new histogram
+     */
+    public static RoomHistogram of(BuildingComponent component, RoomRanking.RoomMetric metric) {
+        RoomHistogram histogram = new RoomHistogram();
+        histogram.recordRooms(component, metric);
+        return histogram;
+    }
+
+    /**
+     * Records one value.
+     *
+     * @param value the value to record; NaN is ignored
+     */
+    public void record(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        double magnitude = Math.abs(value);
+        if (magnitude < MIN_MAGNITUDE) {
+            zero++;
+        } else if (value > 0) {
+            positive[bucket(magnitude)]++;
+        } else {
+            if (negative == null) {
+                negative = new long[BUCKETS];
+            }
+            negative[bucket(magnitude)]++;
+        }
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds all the values of another histogram to this one.
+     *
+     * @param other the histogram to merge; it is not changed
+     * @return this histogram
+     */
+    public RoomHistogram merge(RoomHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            positive[i] += other.positive[i];
+        }
+        if (other.negative != null) {
+            if (negative == null) {
+                negative = new long[BUCKETS];
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                negative[i] += other.negative[i];
+            }
+        }
+        zero += other.zero;
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return the number of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the smallest recorded value.
+     *
+     * @return the exact minimum, or NaN if the histogram is empty
+     */
+    public double getMin() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    /**
+     * Gets the largest recorded value.
+     *
+     * @return the exact maximum, or NaN if the histogram is empty
+     */
+    public double getMax() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * Gets the mean of the recorded values.
+     *
+     * @return the mean, or NaN if the histogram is empty
+     */
+    public double getMean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    /**
+     * Estimates a percentile of the recorded values, as the value of rank
+     * {@code p / 100 * (count - 1)} in ascending order.
+     *
+     * @param p the percentile, between 0 and 100
+     * @return the estimated percentile, or NaN if the histogram is empty
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public double percentile(double p) {
+        if (!(p >= 0 && p <= 100)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + p);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) Math.floor(p / 100 * (count - 1));
+        if (rank == 0) {
+            return min;
+        }
+        if (rank == count - 1) {
+            return max;
+        }
+        return Math.max(min, Math.min(max, estimate(rank)));
+    }
+
+    /**
+     * Describes the histogram with the count, minimum, maximum and mean of the values and the given percentiles,
+     * reported under keys like "p50" and "p99.9".
+     *
+     * @param percentiles the percentiles to report, between 0 and 100
+     * @return a map of the statistics, in that order
+     */
+    public Map<String, Object> toMap(double[] percentiles) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", count);
+        result.put("min", getMin());
+        result.put("max", getMax());
+        result.put("mean", getMean());
+        for (double p : percentiles) {
+            result.put(percentileKey(p), percentile(p));
+        }
+        return result;
+    }
+
+    /**
+     * Parses a comma separated list of percentiles.
+     *
+     * @param percentiles the percentiles, or null or empty for 50, 90 and 99
+     * @return the parsed percentiles
+     * @throws IllegalArgumentException if a percentile is not a number between 0 and 100
+     */
+    public static double[] parsePercentiles(String percentiles) {
+        if (percentiles == null || percentiles.trim().isEmpty()) {
+            return new double[]{50, 90, 99};
+        }
+        String[] parts = percentiles.split(",");
+        double[] result = new double[parts.length];
+        int size = 0;
+        for (String part : parts) {
+            if (part.trim().isEmpty()) {
+                continue;
+            }
+            double p = Double.parseDouble(part.trim());
+            if (!(p >= 0 && p <= 100)) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 100: " + part);
+            }
+            result[size++] = p;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private void recordRooms(BuildingComponent component, RoomRanking.RoomMetric metric) {
+        component.accept(room -> record(metric.of(room)));
+    }
+
+    /**
+     * Finds the bucket of the value of the given rank, walking the buckets in ascending order of value,
+     * and returns the middle of the bucket.
+     */
+    private double estimate(long rank) {
+        long seen = 0;
+        if (negative != null) {
+            for (int i = BUCKETS - 1; i >= 0; i--) {
+                seen += negative[i];
+                if (seen > rank) {
+                    return -middle(i);
+                }
+            }
+        }
+        seen += zero;
+        if (seen > rank) {
+            return 0.0;
+        }
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += positive[i];
+            if (seen > rank) {
+                return middle(i);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Gets the value within the relative accuracy of every value in a bucket.
+     */
+    private static double middle(int bucket) {
+        return 2 * Math.pow(GAMMA, bucket + MIN_INDEX) / (GAMMA + 1);
+    }
+
+    private static int bucket(double magnitude) {
+        return Math.max(0, Math.min(index(magnitude), MIN_INDEX + BUCKETS - 1) - MIN_INDEX);
+    }
+
+    private static int index(double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / LOG_GAMMA);
+    }
+
+    private static String percentileKey(double p) {
+        return p == Math.rint(p) ? "p" + (long) p : "p" + p;
+    }
+}
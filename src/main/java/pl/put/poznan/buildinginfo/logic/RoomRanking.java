@@ -0,0 +1,203 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+import pl.put.poznan.buildinginfo.logic.entities.Room;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Finds the K rooms with the highest or lowest value of a per-room metric.
+ *
+ * The rooms are visited once and only the best K seen so far are kept, in a bounded heap
+ * whose root is the worst of them. A room enters the heap only if it beats that root, so
+ * the query needs O(K) memory and O(n log K) time however many rooms the building has.
+ * Rooms with equal values keep their order in the building. Rooms whose metric is not a
+ * number, such as the heating per cubic meter of a room without volume, are left out.
+ */
+public class RoomRanking {
+
+    /**
+     * The per-room metrics rooms can be ranked by.
+     */
+    public enum RoomMetric {
+        /** The heating demand per cubic meter of the room. */
+        HEAT_PER_CUBE("heatPerCube") {
+            @Override
+            public double of(Room room) {
+                return HeatPerCubeIndex.heatPerCube(room);
+            }
+        },
+        /** The heating demand of the room. */
+        HEATING("heating") {
+            @Override
+            public double of(Room room) {
+                return room.getHeating();
+            }
+        },
+        /** The lighting per square meter of the room. */
+        LIGHT_PER_AREA("lightPerArea") {
+            @Override
+            public double of(Room room) {
+                return room.getLight() / room.getArea();
+            }
+        },
+        /** The area of the room. */
+        AREA("area") {
+            @Override
+            public double of(Room room) {
+                return room.getArea();
+            }
+        };
+
+        private final String name;
+
+        RoomMetric(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Calculates the metric for a room.
+         *
+         * @param room the room
+         * @return the value of the metric
+         */
+        public abstract double of(Room room);
+
+        /**
+         * Gets the name used to request the metric.
+         *
+         * @return the name of the metric
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Finds a metric by its name, ignoring case.
+         *
+         * @param name the name of the metric
+         * @return the matching metric
+         * @throws IllegalArgumentException if no metric has the given name
+         */
+        public static RoomMetric fromName(String name) {
+            for (RoomMetric metric : values()) {
+                if (metric.name.equalsIgnoreCase(name.trim())) {
+                    return metric;
+                }
+            }
+            throw new IllegalArgumentException("Unknown room metric: " + name);
+        }
+    }
+
+    /**
+     * The order of a ranking: the highest values first or the lowest values first.
+     */
+    public enum Order {
+        /** The lowest values first. */
+        ASC,
+        /** The highest values first. */
+        DESC;
+
+        /**
+         * Finds an order by its name, ignoring case.
+         *
+         * @param name "asc" or "desc", or null for the default, descending order
+         * @return the matching order
+         * @throws IllegalArgumentException if the name is neither "asc" nor "desc"
+         */
+        public static Order fromName(String name) {
+            if (name == null || name.trim().isEmpty()) {
+                return DESC;
+            }
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Finds the K rooms below a component that rank first by a metric.
+     *
+     * @param component the building, level or room to search
+     * @param metric    the metric to rank the rooms by
+     * @param k         the maximum number of rooms to return
+     * @param order     {@link Order#DESC} for the highest values first, {@link Order#ASC} for the lowest
+     * @return at most K rooms, best first
+     * @throws IllegalArgumentException if K is not positive
+     */
+    public static List<Room> top(BuildingComponent component, RoomMetric metric, int k, Order order) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("K must be positive");
+        }
+        Heap heap = new Heap(metric, k, order == Order.DESC);
+        heap.collect(component);
+        return heap.drain();
+    }
+
+    private static final class Ranked {
+        private final Room room;
+        private final double value;
+        private final long position;
+
+        private Ranked(Room room, double value, long position) {
+            this.room = room;
+            this.value = value;
+            this.position = position;
+        }
+    }
+
+    /**
+     * The best K rooms seen so far, the worst of them at the root.
+     */
+    private static final class Heap {
+        private final RoomMetric metric;
+        private final int k;
+        private final boolean descending;
+        private final PriorityQueue<Ranked> queue;
+        private long position;
+
+        private Heap(RoomMetric metric, int k, boolean descending) {
+            this.metric = metric;
+            this.k = k;
+            this.descending = descending;
+            Comparator<Ranked> byValue = Comparator.comparingDouble(r -> r.value);
+            // Worst first: the lowest value when keeping the highest, later rooms before earlier ones on ties
+            Comparator<Ranked> worstFirst = (descending ? byValue : byValue.reversed())
+                    .thenComparing(Comparator.comparingLong((Ranked r) -> r.position).reversed());
+            this.queue = new PriorityQueue<>(Math.min(k, 1024), worstFirst);
+        }
+
+        private void collect(BuildingComponent component) {
+            component.accept(this::offer);
+        }
+
+        private void offer(Room room) {
+            double value = metric.of(room);
+            long current = position++;
+            if (Double.isNaN(value)) {
+                return;
+            }
+            if (queue.size() < k) {
+                queue.add(new Ranked(room, value, current));
+                return;
+            }
+            // A later room must be strictly better to replace the root
+            double worst = queue.peek().value;
+            if (descending ? value > worst : value < worst) {
+                queue.poll();
+                queue.add(new Ranked(room, value, current));
+            }
+        }
+
+        private List<Room> drain() {
+            Room[] rooms = new Room[queue.size()];
+            for (int i = rooms.length - 1; i >= 0; i--) {
+                rooms[i] = queue.poll().room;
+            }
+            return new ArrayList<>(Arrays.asList(rooms));
+        }
+    }
+}
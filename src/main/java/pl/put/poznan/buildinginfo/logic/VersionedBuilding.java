@@ -0,0 +1,67 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingSnapshot;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * A building shared between threads as a sequence of immutable {@link BuildingSnapshot}s.
+ *
+ * Readers take the current snapshot through a single volatile read and never block, even
+ * while the building is being changed; everything they compute from one snapshot is consistent.
+ * Writers are serialized, derive the next snapshot from the current one by path copying and
+ * publish it by replacing the reference. A reader that took the previous snapshot keeps using
+ * it until it is done.
+ */
+public class VersionedBuilding {
+
+    private volatile BuildingSnapshot current;
+
+    /**
+     * Constructs a versioned building starting from the given snapshot.
+     *
+     * @param initial the first version of the building
+     * @throws IllegalArgumentException if the snapshot is null
+     */
+    public VersionedBuilding(BuildingSnapshot initial) {
+        if (initial == null) {
+            throw new IllegalArgumentException("Snapshot cannot be null");
+        }
+        this.current = initial;
+    }
+
+    /**
+     * Constructs a versioned building starting from a snapshot of the given building.
+     *
+     * @param building the building to copy
+     */
+    public VersionedBuilding(Building building) {
+        this(BuildingSnapshot.of(building));
+    }
+
+    /**
+     * Gets the latest published version of the building.
+     *
+     * @return the current snapshot
+     */
+    public BuildingSnapshot current() {
+        return current;
+    }
+
+    /**
+     * Publishes a new version of the building derived from the current one.
+     * If the change throws, the current version is kept.
+     *
+     * @param change the change, returning the new version, for example {@code s -> s.withoutRoom("level1", "room1")}
+     * @return the published snapshot
+     */
+    public synchronized BuildingSnapshot update(UnaryOperator<BuildingSnapshot> change) {
+        BuildingSnapshot next = change.apply(current);
+        if (next == null) {
+            throw new IllegalArgumentException("Snapshot cannot be null");
+        }
+        current = next;
+        return next;
+    }
+}
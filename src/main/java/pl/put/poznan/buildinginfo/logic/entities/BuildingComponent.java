@@ -10,6 +10,7 @@ import java.util.*;
 public abstract class BuildingComponent {
     private String id;
     private String name;
+    private BuildingComponent parent;
 
     /**
      * Constructs a building component with the specified ID and name.
@@ -40,6 +41,38 @@ public abstract class BuildingComponent {
         return name;
     }
 
+    /**
+     * Gets the composite component containing this component.
+     *
+     * @return the parent component, or null if this component has not been added to one
+     */
+    public BuildingComponent getParent() {
+        return parent;
+    }
+
+    /**
+     * Sets the composite component containing this component.
+     *
+     * @param parent the new parent component, or null to detach this component
+     * @throws IllegalStateException if this component already belongs to another component
+     */
+    void setParent(BuildingComponent parent) {
+        if (parent != null && this.parent != null && this.parent != parent) {
+            throw new IllegalStateException("Component " + id + " already belongs to " + this.parent.getId());
+        }
+        this.parent = parent;
+    }
+
+    /**
+     * Discards any aggregates cached for this component and its ancestors.
+     * Called whenever the subtree rooted at this component changes.
+     */
+    protected void invalidate() {
+        if (parent != null) {
+            parent.invalidate();
+        }
+    }
+
     /**
      * Calculates the area of the building component.
      * This method must be implemented in subclasses.
@@ -107,4 +140,14 @@ public abstract class BuildingComponent {
     public List<BuildingComponent> getComponents() {
         return Collections.emptyList();
     }
+
+    /**
+     * Walks this component and all its subcomponents depth first, without recursion,
+     * passing each of them to the visitor. See {@link ComponentWalker}.
+     *
+     * @param visitor the visitor
+     */
+    public void accept(ComponentVisitor visitor) {
+        ComponentWalker.walk(this, visitor);
+    }
 }
@@ -0,0 +1,245 @@
+package pl.put.poznan.buildinginfo.logic.entities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * An immutable version of a building, which can be shared between threads without locking.
+ *
+ * Every change returns a new version and leaves this one untouched. Only the path to the
+ * change is copied: the new version gets a new level list and a new version of the changed
+ * level, while all the other levels, and the unchanged rooms of the changed level, are shared
+ * with this one. A change therefore costs time and memory proportional to the number of levels
+ * plus the number of rooms of the changed level, not to the size of the building.
+ *
+ * The totals are summed exactly from the totals of the levels when a snapshot is created. A new
+ * version gets them updated by the difference of the changed level, which in turn has its own
+ * totals updated by the difference of the changed room, so a change does not pass over all the
+ * levels or rooms to sum them again. The totals equal those of a {@link Building} with the same
+ * levels and rooms.
+ */
+public final class BuildingSnapshot extends BuildingComponent {
+    private final List<BuildingComponent> levels;
+    private final SnapshotTotals totals;
+
+    private BuildingSnapshot(String id, String name, List<BuildingComponent> levels, SnapshotTotals totals) {
+        super(id, name);
+        this.levels = Collections.unmodifiableList(levels);
+        this.totals = totals;
+    }
+
+    /**
+     * Creates a snapshot of the current state of a building.
+     *
+     * @param building the building to copy
+     * @return a snapshot with copies of the levels and rooms of the building
+     */
+    public static BuildingSnapshot of(Building building) {
+        List<BuildingComponent> levels = new ArrayList<>(building.getComponents().size());
+        for (BuildingComponent level : building.getComponents()) {
+            levels.add(LevelSnapshot.of((Level) level));
+        }
+        return new BuildingSnapshot(building.getId(), building.getName(), levels, SnapshotTotals.of(levels));
+    }
+
+    /**
+     * Gets the levels of the building.
+     *
+     * @return an unmodifiable list of {@link LevelSnapshot} instances
+     */
+    @Override
+    public List<BuildingComponent> getComponents() {
+        return levels;
+    }
+
+    /**
+     * Finds a level of the building by its id.
+     *
+     * @param levelId the id of the level
+     * @return an {@link Optional} containing the level, or empty if the building has no such level
+     */
+    public Optional<LevelSnapshot> getLevel(String levelId) {
+        int index = indexOf(levelId);
+        return index < 0 ? Optional.empty() : Optional.of((LevelSnapshot) levels.get(index));
+    }
+
+    /**
+     * Creates a version of the building with a level added at the end.
+     *
+     * @param level the level to add
+     * @return the new version of the building
+     * @throws IllegalArgumentException if the building already has a level with the same id
+     */
+    public BuildingSnapshot withLevel(LevelSnapshot level) {
+        if (indexOf(level.getId()) >= 0) {
+            throw new IllegalArgumentException("Level with given id already exists");
+        }
+        List<BuildingComponent> copy = new ArrayList<>(levels.size() + 1);
+        copy.addAll(levels);
+        copy.add(level);
+        return new BuildingSnapshot(getId(), getName(), copy, totals.with(null, level));
+    }
+
+    /**
+     * Creates a version of the building without a level.
+     *
+     * @param levelId the id of the level to remove
+     * @return the new version of the building
+     * @throws IllegalArgumentException if the building has no level with the given id
+     */
+    public BuildingSnapshot withoutLevel(String levelId) {
+        int index = requireLevel(levelId);
+        List<BuildingComponent> copy = new ArrayList<>(levels);
+        BuildingComponent removed = copy.remove(index);
+        return new BuildingSnapshot(getId(), getName(), copy, totals.with(removed, null));
+    }
+
+    /**
+     * Creates a version of the building in which one level is replaced by a changed version of it.
+     *
+     * @param levelId the id of the level to change
+     * @param change  the change, returning the new version of the level; it must keep the id
+     * @return the new version of the building
+     * @throws IllegalArgumentException if the building has no level with the given id
+     */
+    public BuildingSnapshot withLevelChanged(String levelId, UnaryOperator<LevelSnapshot> change) {
+        int index = requireLevel(levelId);
+        LevelSnapshot level = change.apply((LevelSnapshot) levels.get(index));
+        if (!level.getId().equals(levelId)) {
+            throw new IllegalArgumentException("Changed level must keep its id");
+        }
+        List<BuildingComponent> copy = new ArrayList<>(levels);
+        BuildingComponent previous = copy.set(index, level);
+        return new BuildingSnapshot(getId(), getName(), copy, totals.with(previous, level));
+    }
+
+    /**
+     * Creates a version of the building with a room added to one of its levels.
+     *
+     * @param levelId the id of the level
+     * @param room    the room to add; it is copied
+     * @return the new version of the building
+     * @throws IllegalArgumentException if the level is unknown or already has a room with the same id
+     */
+    public BuildingSnapshot withRoom(String levelId, Room room) {
+        return withLevelChanged(levelId, level -> level.withRoom(room));
+    }
+
+    /**
+     * Creates a version of the building with the values of a room changed.
+     *
+     * @param levelId the id of the level of the room
+     * @param roomId  the id of the room
+     * @param area    the new area of the room in square meters
+     * @param cube    the new volume of the room in cubic meters
+     * @param heating the new heating demand of the room
+     * @param light   the new lighting level of the room in lumens
+     * @return the new version of the building
+     * @throws IllegalArgumentException if the level or the room is unknown
+     */
+    public BuildingSnapshot withRoomUpdated(String levelId, String roomId, double area, double cube, float heating, float light) {
+        return withLevelChanged(levelId, level -> level.withRoomUpdated(roomId, area, cube, heating, light));
+    }
+
+    /**
+     * Creates a version of the building without a room.
+     *
+     * @param levelId the id of the level of the room
+     * @param roomId  the id of the room to remove
+     * @return the new version of the building
+     * @throws IllegalArgumentException if the level or the room is unknown
+     */
+    public BuildingSnapshot withoutRoom(String levelId, String roomId) {
+        return withLevelChanged(levelId, level -> level.withoutRoom(roomId));
+    }
+
+    /**
+     * Creates a mutable building with copies of the levels and rooms of this snapshot.
+     *
+     * @return a new {@link Building}
+     */
+    public Building toBuilding() {
+        Building building = new Building(getId(), getName());
+        for (BuildingComponent level : levels) {
+            building.addComponent(((LevelSnapshot) level).toLevel());
+        }
+        return building;
+    }
+
+    /**
+     * Gets the total area of the building.
+     *
+     * @return the total area
+     */
+    @Override
+    public double calculateArea() {
+        return totals.area();
+    }
+
+    /**
+     * Gets the total heat demand of the building.
+     *
+     * @return the total heat demand
+     */
+    @Override
+    public double calculateHeat() {
+        return totals.heat();
+    }
+
+    /**
+     * Gets the total cube of the building.
+     *
+     * @return the total cube
+     */
+    @Override
+    public double calculateCube() {
+        return totals.cube();
+    }
+
+    /**
+     * Gets the total light demand of the building.
+     *
+     * @return the total light demand
+     */
+    @Override
+    public double calculateLight() {
+        return totals.light();
+    }
+
+    /**
+     * Returns a string representation of the building in the same format as {@link Building#toString()}.
+     *
+     * @return a string describing the building
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Building ID: ").append(getId()).append("\n")
+                .append("Name: ").append(getName()).append("\n")
+                .append("Levels: \n");
+        for (BuildingComponent level : levels) {
+            sb.append("  ").append(level.toString()).append("\n");
+        }
+        return sb.toString();
+    }
+
+    private int requireLevel(String levelId) {
+        int index = indexOf(levelId);
+        if (index < 0) {
+            throw new IllegalArgumentException("Level with given id not found");
+        }
+        return index;
+    }
+
+    private int indexOf(String levelId) {
+        for (int i = 0; i < levels.size(); i++) {
+            if (levels.get(i).getId().equals(levelId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
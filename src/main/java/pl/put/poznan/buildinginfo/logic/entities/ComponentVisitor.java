@@ -0,0 +1,38 @@
+package pl.put.poznan.buildinginfo.logic.entities;
+
+/**
+ * Receives the components of a building visited by a {@link ComponentWalker}.
+ *
+ * Only {@link #visitRoom} has to be implemented, so a visitor that only looks at rooms
+ * can be written as a lambda. Composites can be skipped, with their whole subtree, from
+ * {@link #enterComposite}, and a search can end the walk early through {@link #isDone}.
+ */
+@FunctionalInterface
+public interface ComponentVisitor {
+
+    /**
+     * Visits a room.
+     *
+     * @param room the room
+     */
+    void visitRoom(Room room);
+
+    /**
+     * Visits a composite component, such as a building or a level, before its subcomponents.
+     *
+     * @param component the composite component
+     * @return true to visit the subcomponents, false to skip them
+     */
+    default boolean enterComposite(BuildingComponent component) {
+        return true;
+    }
+
+    /**
+     * Tells whether the walk can stop. Asked after every visited component.
+     *
+     * @return true to end the walk
+     */
+    default boolean isDone() {
+        return false;
+    }
+}
@@ -0,0 +1,95 @@
+package pl.put.poznan.buildinginfo.logic.entities;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Walks a component tree depth first, in the order of the subcomponents, and passes every
+ * component to a {@link ComponentVisitor}.
+ *
+ * The walk keeps its own stack of composites and child positions instead of recursing, so
+ * the depth of the tree is not limited by the thread stack, and it reads the children by
+ * index, so no iterators are created. The stack arrays are kept between walks and only grow
+ * when a deeper tree is walked, so after the first walk of a tree no further walk of a tree
+ * that deep allocates anything.
+ *
+ * A walker is not thread-safe. {@link #walk(BuildingComponent, ComponentVisitor)} uses one
+ * walker per thread.
+ */
+public final class ComponentWalker {
+
+    private static final ThreadLocal<ComponentWalker> WALKERS = ThreadLocal.withInitial(ComponentWalker::new);
+
+    private BuildingComponent[] parents = new BuildingComponent[8];
+    private int[] positions = new int[8];
+    private boolean walking;
+
+    /**
+     * Walks a component tree with the walker of the current thread. A visitor may start
+     * another walk; the nested walk then uses a walker of its own.
+     *
+     * @param root    the building, level or room to start from
+     * @param visitor the visitor
+     */
+    public static void walk(BuildingComponent root, ComponentVisitor visitor) {
+        ComponentWalker walker = WALKERS.get();
+        if (walker.walking) {
+            walker = new ComponentWalker();
+        }
+        walker.visit(root, visitor);
+    }
+
+    /**
+     * Walks a component tree with this walker.
+     *
+     * @param root    the building, level or room to start from
+     * @param visitor the visitor
+     * @throws IllegalStateException if this walker is already walking a tree
+     */
+    public void visit(BuildingComponent root, ComponentVisitor visitor) {
+        if (walking) {
+            throw new IllegalStateException("Walker is already in use");
+        }
+        if (root instanceof Room) {
+            visitor.visitRoom((Room) root);
+            return;
+        }
+        if (!visitor.enterComposite(root) || visitor.isDone()) {
+            return;
+        }
+        walking = true;
+        int depth = 0;
+        try {
+            parents[0] = root;
+            positions[0] = 0;
+            depth = 1;
+            while (depth > 0) {
+                List<BuildingComponent> children = parents[depth - 1].getComponents();
+                int position = positions[depth - 1];
+                if (position == children.size()) {
+                    parents[--depth] = null;
+                    continue;
+                }
+                positions[depth - 1] = position + 1;
+                BuildingComponent child = children.get(position);
+                if (child instanceof Room) {
+                    visitor.visitRoom((Room) child);
+                } else if (visitor.enterComposite(child)) {
+                    if (depth == parents.length) {
+                        parents = Arrays.copyOf(parents, depth * 2);
+                        positions = Arrays.copyOf(positions, depth * 2);
+                    }
+                    parents[depth] = child;
+                    positions[depth] = 0;
+                    depth++;
+                }
+                if (visitor.isDone()) {
+                    break;
+                }
+            }
+        } finally {
+            Arrays.fill(parents, 0, depth, null);
+            walking = false;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package pl.put.poznan.buildinginfo.logic.entities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Represents a building component made of subcomponents, such as a building or a level.
+ *
+ * The area, heat, cube and light of the subtree are computed together in a single pass
+ * over the subcomponents and cached, so repeated queries on an unchanged model cost O(1).
+ * Once computed, the cached values are kept up to date when a subcomponent is added or
+ * removed or a room changes: the change of the subcomponent's totals is applied to this
+ * component and to each of its ancestors in turn, without visiting the other subcomponents.
+ * The totals are kept as {@link ExactSum}s, so they stay exactly equal to what a full
+ * recomputation would give. Structural changes are also reported to the
+ * {@link StructureListener}s registered on this component and its ancestors.
+ *
+ * Changes are not synchronized with concurrent queries; callers sharing a changing model
+ * between threads must guard it, as {@code BuildingRegistry} does, or share immutable
+ * {@link BuildingSnapshot}s instead.
+ */
+public abstract class CompositeComponent extends BuildingComponent {
+    private final List<BuildingComponent> components = new ArrayList<>();
+    private final List<BuildingComponent> componentsView = Collections.unmodifiableList(components);
+
+    private final ExactSum area = new ExactSum();
+    private final ExactSum heat = new ExactSum();
+    private final ExactSum cube = new ExactSum();
+    private final ExactSum light = new ExactSum();
+    private volatile boolean dirty = true;
+
+    private volatile List<StructureListener> listeners;
+
+    /**
+     * Constructs a composite component with the specified ID and name.
+     *
+     * @param id   the unique identifier of the component
+     * @param name the name of the component
+     */
+    protected CompositeComponent(String id, String name) {
+        super(id, name);
+    }
+
+    /**
+     * Adds a subcomponent and adds its totals to the cached aggregates.
+     *
+     * @param component the {@link BuildingComponent} to add
+     * @throws IllegalArgumentException if the component is null
+     * @throws IllegalStateException if the component already belongs to another component
+     */
+    @Override
+    public void addComponent(BuildingComponent component) {
+        if (component == null) {
+            throw new IllegalArgumentException("Component cannot be null");
+        }
+        component.setParent(this);
+        components.add(component);
+        if (dirty) {
+            invalidate();
+        } else {
+            applyChange(null, totals(component));
+        }
+        for (CompositeComponent c = this; c != null; c = (CompositeComponent) c.getParent()) {
+            c.fireComponentAdded(component);
+        }
+    }
+
+    /**
+     * Removes a subcomponent and subtracts its totals from the cached aggregates.
+     *
+     * @param component the {@link BuildingComponent} to remove
+     */
+    @Override
+    public void removeComponent(BuildingComponent component) {
+        if (components.remove(component)) {
+            component.setParent(null);
+            if (dirty) {
+                invalidate();
+            } else {
+                applyChange(totals(component), null);
+            }
+            for (CompositeComponent c = this; c != null; c = (CompositeComponent) c.getParent()) {
+                c.fireComponentRemoved(component, this);
+            }
+        }
+    }
+
+    /**
+     * Returns a read-only view of the subcomponents.
+     * Changes must go through {@link #addComponent} and {@link #removeComponent}.
+     *
+     * @return a list of {@link BuildingComponent} instances
+     */
+    @Override
+    public List<BuildingComponent> getComponents() {
+        return componentsView;
+    }
+
+    /**
+     * Registers a listener notified about components added to or removed from this subtree.
+     *
+     * @param listener the listener to register
+     */
+    public void addStructureListener(StructureListener listener) {
+        if (listeners == null) {
+            synchronized (this) {
+                if (listeners == null) {
+                    listeners = new CopyOnWriteArrayList<>();
+                }
+            }
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener added with {@link #addStructureListener}.
+     *
+     * @param listener the listener to unregister
+     */
+    public void removeStructureListener(StructureListener listener) {
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Finds a listener of the given type registered directly on this component.
+     *
+     * @param type the class of the listener
+     * @param <T>  the type of the listener
+     * @return an {@link Optional} containing the first matching listener, or empty if none is registered
+     */
+    public <T extends StructureListener> Optional<T> findStructureListener(Class<T> type) {
+        if (listeners != null) {
+            for (StructureListener listener : listeners) {
+                if (type.isInstance(listener)) {
+                    return Optional.of(type.cast(listener));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Tells whether the aggregates of the subtree are cached, so that the {@code calculate*}
+     * methods answer without visiting the subcomponents.
+     *
+     * @return true if the aggregates are cached
+     */
+    public boolean isCached() {
+        return !dirty;
+    }
+
+    /**
+     * Fills the cached aggregates with totals of all the subcomponents summed elsewhere, such as
+     * by summing ranges of a large component on several threads and combining the partial sums.
+     * Does nothing if the aggregates are already cached.
+     *
+     * @param totals the totals of all the subcomponents, summed in any order
+     */
+    public void refresh(PartialTotals totals) {
+        if (!dirty) {
+            return;
+        }
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            area.reset();
+            heat.reset();
+            cube.reset();
+            light.reset();
+            area.addAll(totals.area);
+            heat.addAll(totals.heat);
+            cube.addAll(totals.cube);
+            light.addAll(totals.light);
+            dirty = false;
+        }
+    }
+
+    /**
+     * Calculates the total area by summing the areas of all subcomponents.
+     *
+     * @return the total area
+     */
+    @Override
+    public double calculateArea() {
+        refresh();
+        return area.value();
+    }
+
+    /**
+     * Calculates the total heat demand by summing the heat demands of all subcomponents.
+     *
+     * @return the total heat demand
+     */
+    @Override
+    public double calculateHeat() {
+        refresh();
+        return heat.value();
+    }
+
+    /**
+     * Calculates the total cube by summing the cubes of all subcomponents.
+     *
+     * @return the total cube
+     */
+    @Override
+    public double calculateCube() {
+        refresh();
+        return cube.value();
+    }
+
+    /**
+     * Calculates the total light demand by summing the light demands of all subcomponents.
+     *
+     * @return the total light demand
+     */
+    @Override
+    public double calculateLight() {
+        refresh();
+        return light.value();
+    }
+
+    @Override
+    protected void invalidate() {
+        dirty = true;
+        super.invalidate();
+    }
+
+    /**
+     * Applies the change of a room's values to the cached aggregates and tells the listeners.
+     *
+     * @param room   the changed room, a subcomponent of this component
+     * @param before the totals of the room before the change
+     */
+    void componentChanged(Room room, double[] before) {
+        if (dirty) {
+            invalidate();
+        } else {
+            applyChange(before, totals(room));
+        }
+        for (CompositeComponent c = this; c != null; c = (CompositeComponent) c.getParent()) {
+            c.fireComponentChanged(room);
+        }
+    }
+
+    /**
+     * Replaces the totals of a subcomponent in the cached aggregates of this component, and then
+     * the old totals of this component with the new ones in its parent, up to the root.
+     * Stops at the first component without cached aggregates, invalidating it and its ancestors.
+     *
+     * @param removed the totals to subtract, or null
+     * @param added   the totals to add, or null
+     */
+    private void applyChange(double[] removed, double[] added) {
+        CompositeComponent c = this;
+        while (c != null) {
+            synchronized (c) {
+                if (c.dirty) {
+                    c.invalidate();
+                    return;
+                }
+                double[] before = c.cachedTotals();
+                if (removed != null) {
+                    c.area.subtract(removed[0]);
+                    c.heat.subtract(removed[1]);
+                    c.cube.subtract(removed[2]);
+                    c.light.subtract(removed[3]);
+                }
+                if (added != null) {
+                    c.area.add(added[0]);
+                    c.heat.add(added[1]);
+                    c.cube.add(added[2]);
+                    c.light.add(added[3]);
+                }
+                removed = before;
+                added = c.cachedTotals();
+            }
+            c = (CompositeComponent) c.getParent();
+        }
+    }
+
+    private double[] cachedTotals() {
+        return new double[]{area.value(), heat.value(), cube.value(), light.value()};
+    }
+
+    /**
+     * Gets the area, heat, cube and light of a component, in that order.
+     */
+    static double[] totals(BuildingComponent component) {
+        return new double[]{component.calculateArea(), component.calculateHeat(),
+                component.calculateCube(), component.calculateLight()};
+    }
+
+    private void fireComponentAdded(BuildingComponent component) {
+        if (listeners != null) {
+            for (StructureListener listener : listeners) {
+                listener.componentAdded(component);
+            }
+        }
+    }
+
+    private void fireComponentRemoved(BuildingComponent component, CompositeComponent parent) {
+        if (listeners != null) {
+            for (StructureListener listener : listeners) {
+                listener.componentRemoved(component, parent);
+            }
+        }
+    }
+
+    private void fireComponentChanged(BuildingComponent component) {
+        if (listeners != null) {
+            for (StructureListener listener : listeners) {
+                listener.componentChanged(component);
+            }
+        }
+    }
+
+    /**
+     * Recomputes the cached aggregates in one pass if the subtree changed since they were computed.
+     */
+    private void refresh() {
+        if (!dirty) {
+            return;
+        }
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            area.reset();
+            heat.reset();
+            cube.reset();
+            light.reset();
+            for (BuildingComponent component : components) {
+                area.add(component.calculateArea());
+                heat.add(component.calculateHeat());
+                cube.add(component.calculateCube());
+                light.add(component.calculateLight());
+            }
+            dirty = false;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package pl.put.poznan.buildinginfo.logic.entities;
+
+import java.util.Arrays;
+
+/**
+ * A running sum of doubles that is kept exactly, so values can be added and subtracted
+ * again in any order without losing accuracy.
+ *
+ * The exact sum is stored as a short list of non-overlapping partial sums (Shewchuk's
+ * algorithm, as used by Python's {@code math.fsum}), and its value is the exact sum
+ * correctly rounded to a double. The value therefore depends only on which values are
+ * currently in the sum, never on the order they were added or on values added and
+ * subtracted in between. Infinite and NaN values are counted separately.
+ */
+final class ExactSum {
+    private double[] partials = new double[4];
+    private int size;
+    private double value;
+
+    private int positiveInfinities;
+    private int negativeInfinities;
+    private int nans;
+
+    /**
+     * Adds a value to the sum.
+     *
+     * @param value the value to add
+     */
+    void add(double value) {
+        if (!Double.isFinite(value)) {
+            countSpecial(value, 1);
+        } else {
+            addFinite(value);
+        }
+    }
+
+    /**
+     * Subtracts a value added before from the sum.
+     *
+     * @param value the value to subtract
+     */
+    void subtract(double value) {
+        if (!Double.isFinite(value)) {
+            countSpecial(value, -1);
+        } else {
+            addFinite(-value);
+        }
+    }
+
+    /**
+     * Adds all the values of another sum to this one.
+     *
+     * @param other the sum to add; it is left unchanged
+     */
+    void addAll(ExactSum other) {
+        for (int i = 0; i < other.size; i++) {
+            addFinite(other.partials[i]);
+        }
+        positiveInfinities += other.positiveInfinities;
+        negativeInfinities += other.negativeInfinities;
+        nans += other.nans;
+    }
+
+    /**
+     * Copies the sum, so that the copy and the original can be changed independently.
+     *
+     * @return a sum with the same value
+     */
+    ExactSum copy() {
+        ExactSum copy = new ExactSum();
+        copy.partials = Arrays.copyOf(partials, partials.length);
+        copy.size = size;
+        copy.value = value;
+        copy.positiveInfinities = positiveInfinities;
+        copy.negativeInfinities = negativeInfinities;
+        copy.nans = nans;
+        return copy;
+    }
+
+    /**
+     * Resets the sum to zero.
+     */
+    void reset() {
+        size = 0;
+        value = 0;
+        positiveInfinities = 0;
+        negativeInfinities = 0;
+        nans = 0;
+    }
+
+    /**
+     * Gets the value of the sum.
+     *
+     * @return the sum of all added values, correctly rounded
+     */
+    double value() {
+        if (nans > 0 || (positiveInfinities > 0 && negativeInfinities > 0)) {
+            return Double.NaN;
+        }
+        if (positiveInfinities > 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (negativeInfinities > 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return value;
+    }
+
+    private void countSpecial(double value, int count) {
+        if (Double.isNaN(value)) {
+            nans += count;
+        } else if (value > 0) {
+            positiveInfinities += count;
+        } else {
+            negativeInfinities += count;
+        }
+    }
+
+    private void addFinite(double x) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            double y = partials[i];
+            if (Math.abs(x) < Math.abs(y)) {
+                double t = x;
+                x = y;
+                y = t;
+            }
+            double high = x + y;
+            double low = y - (high - x);
+            if (low != 0.0) {
+                partials[kept++] = low;
+            }
+            x = high;
+        }
+        if (kept == partials.length) {
+            partials = Arrays.copyOf(partials, kept * 2);
+        }
+        partials[kept++] = x;
+        size = kept;
+        value = round();
+    }
+
+    /**
+     * Rounds the exact sum of the partials, which are ordered by increasing magnitude, to a double.
+     */
+    private double round() {
+        int n = size;
+        if (n == 0) {
+            return 0.0;
+        }
+        double high = partials[--n];
+        double low = 0.0;
+        while (n > 0) {
+            double x = high;
+            double y = partials[--n];
+            high = x + y;
+            low = y - (high - x);
+            if (low != 0.0) {
+                break;
+            }
+        }
+        // Round half to even correctly when the remaining partials push past a tie
+        if (n > 0 && ((low < 0 && partials[n - 1] < 0) || (low > 0 && partials[n - 1] > 0))) {
+            double y = low * 2;
+            double x = high + y;
+            if (y == x - high) {
+                high = x;
+            }
+        }
+        return high;
+    }
+}
@@ -1,15 +1,13 @@
 package pl.put.poznan.buildinginfo.logic.entities;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Represents a level within a building, containing multiple rooms.
- * This class extends {@link BuildingComponent} and provides methods to manage
+ * This class extends {@link CompositeComponent} and provides methods to manage
  * and aggregate information about rooms on this level.
  */
-public class Level extends BuildingComponent {
-    private List<BuildingComponent> rooms = new ArrayList<>();
+public class Level extends CompositeComponent {
 
     /**
      * Constructs a Level with the given ID and name.
@@ -32,88 +30,10 @@ public class Level extends BuildingComponent {
             if (room == null) {
                 throw new IllegalArgumentException("Room cannot be null");
             }
-            rooms.add(room);  // Adds each room to the level's components
+            addComponent(room);  // Adds each room to the level's components
         }
     }
 
-    /**
-     * Adds a room or subcomponent to the level.
-     *
-     * @param component the {@link BuildingComponent} to add
-     */
-    @Override
-    public void addComponent(BuildingComponent component) {
-        rooms.add(component);
-    }
-
-    /**
-     * Removes a room or subcomponent from the level.
-     *
-     * @param component the {@link BuildingComponent} to remove
-     */
-    @Override
-    public void removeComponent(BuildingComponent component) {
-        rooms.remove(component);
-    }
-
-    /**
-     * Returns the list of rooms (components) on this level.
-     *
-     * @return a list of {@link BuildingComponent} instances representing the rooms
-     */
-    @Override
-    public List<BuildingComponent> getComponents() {
-        return rooms;
-    }
-
-    /**
-     * Calculates the total area of the level by summing the areas of all rooms.
-     *
-     * @return the total area of the level
-     */
-    @Override
-    public double calculateArea() {
-        return rooms.stream()
-                .mapToDouble(BuildingComponent::calculateArea)
-                .sum();
-    }
-
-    /**
-     * Calculates the total heat demand of the level by summing the heat demands of all rooms.
-     *
-     * @return the total heat demand of the level
-     */
-    @Override
-    public double calculateHeat() {
-        return rooms.stream()
-                .mapToDouble(BuildingComponent::calculateHeat)
-                .sum();
-    }
-
-    /**
-     * Calculates the cube heat demand of the level by summing the cube demands of all rooms.
-     *
-     * @return the cube heat demand of the level
-     */
-    @Override
-    public double calculateCube() {
-        return rooms.stream()
-                .mapToDouble(BuildingComponent::calculateCube)
-                .sum();
-    }
-
-    /**
-     * Calculates the total light demand of the level by summing the light demands of all rooms.
-     *
-     * @return the total light demand of the level
-     */
-    @Override
-    public double calculateLight() {
-        return rooms.stream()
-                .mapToDouble(BuildingComponent::calculateLight)
-                .sum();
-    }
-
     /**
      * Returns a string representation of the level, including its ID, name, and all rooms.
      *
@@ -125,7 +45,7 @@ public class Level extends BuildingComponent {
         sb.append("Level ID: ").append(getId()).append("\n")
                 .append("Name: ").append(getName()).append("\n")
                 .append("Rooms: \n");
-        for (BuildingComponent room : rooms) {
+        for (BuildingComponent room : getComponents()) {
             sb.append("  ").append(room.toString()).append("\n");
         }
         return sb.toString();
@@ -0,0 +1,201 @@
+package pl.put.poznan.buildinginfo.logic.entities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * An immutable version of a level, part of a {@link BuildingSnapshot}.
+ *
+ * Changes return a new level with a copy of the room list; the rooms themselves are
+ * read-only and shared with the previous version. The totals are summed exactly when the
+ * level is created and then updated by the difference of the changed room, so they equal
+ * those of a {@link Level} with the same rooms.
+ */
+public final class LevelSnapshot extends BuildingComponent {
+    private final List<BuildingComponent> rooms;
+    private final SnapshotTotals totals;
+
+    private LevelSnapshot(String id, String name, List<BuildingComponent> rooms, SnapshotTotals totals) {
+        super(id, name);
+        this.rooms = Collections.unmodifiableList(rooms);
+        this.totals = totals;
+    }
+
+    /**
+     * Creates a snapshot of the current state of a level.
+     *
+     * @param level the level to copy
+     * @return a snapshot with copies of the rooms of the level
+     */
+    public static LevelSnapshot of(Level level) {
+        List<BuildingComponent> rooms = new ArrayList<>(level.getComponents().size());
+        for (BuildingComponent room : level.getComponents()) {
+            rooms.add(ReadOnlyRoom.of((Room) room));
+        }
+        return new LevelSnapshot(level.getId(), level.getName(), rooms, SnapshotTotals.of(rooms));
+    }
+
+    /**
+     * Gets the rooms of the level. The rooms cannot be changed through {@link Room#update}.
+     *
+     * @return an unmodifiable list of the rooms
+     */
+    @Override
+    public List<BuildingComponent> getComponents() {
+        return rooms;
+    }
+
+    /**
+     * Finds a room of the level by its id.
+     *
+     * @param roomId the id of the room
+     * @return an {@link Optional} containing the room, or empty if the level has no such room
+     */
+    public Optional<Room> getRoom(String roomId) {
+        int index = indexOf(roomId);
+        return index < 0 ? Optional.empty() : Optional.of((Room) rooms.get(index));
+    }
+
+    /**
+     * Creates a version of the level with a room added at the end.
+     *
+     * @param room the room to add; it is copied
+     * @return the new version of the level
+     * @throws IllegalArgumentException if the level already has a room with the same id
+     */
+    public LevelSnapshot withRoom(Room room) {
+        if (indexOf(room.getId()) >= 0) {
+            throw new IllegalArgumentException("Room with given id already exists");
+        }
+        List<BuildingComponent> copy = new ArrayList<>(rooms.size() + 1);
+        copy.addAll(rooms);
+        Room added = ReadOnlyRoom.of(room);
+        copy.add(added);
+        return new LevelSnapshot(getId(), getName(), copy, totals.with(null, added));
+    }
+
+    /**
+     * Creates a version of the level with the values of a room changed.
+     *
+     * @param roomId  the id of the room
+     * @param area    the new area of the room in square meters
+     * @param cube    the new volume of the room in cubic meters
+     * @param heating the new heating demand of the room
+     * @param light   the new lighting level of the room in lumens
+     * @return the new version of the level
+     * @throws IllegalArgumentException if the level has no room with the given id
+     */
+    public LevelSnapshot withRoomUpdated(String roomId, double area, double cube, float heating, float light) {
+        int index = requireRoom(roomId);
+        Room room = (Room) rooms.get(index);
+        List<BuildingComponent> copy = new ArrayList<>(rooms);
+        Room updated = new ReadOnlyRoom(room.getId(), room.getName(), area, cube, heating, light);
+        copy.set(index, updated);
+        return new LevelSnapshot(getId(), getName(), copy, totals.with(room, updated));
+    }
+
+    /**
+     * Creates a version of the level without a room.
+     *
+     * @param roomId the id of the room to remove
+     * @return the new version of the level
+     * @throws IllegalArgumentException if the level has no room with the given id
+     */
+    public LevelSnapshot withoutRoom(String roomId) {
+        int index = requireRoom(roomId);
+        List<BuildingComponent> copy = new ArrayList<>(rooms);
+        BuildingComponent removed = copy.remove(index);
+        return new LevelSnapshot(getId(), getName(), copy, totals.with(removed, null));
+    }
+
+    /**
+     * Creates a mutable level with copies of the rooms of this snapshot.
+     *
+     * @return a new {@link Level}
+     */
+    public Level toLevel() {
+        Level level = new Level(getId(), getName());
+        for (BuildingComponent component : rooms) {
+            Room room = (Room) component;
+            level.addComponent(new Room(room.getId(), room.getName(), room.getArea(), room.getCube(),
+                    room.getHeating(), room.getLight()));
+        }
+        return level;
+    }
+
+    /**
+     * Gets the total area of the rooms.
+     *
+     * @return the total area
+     */
+    @Override
+    public double calculateArea() {
+        return totals.area();
+    }
+
+    /**
+     * Gets the total heat demand of the rooms.
+     *
+     * @return the total heat demand
+     */
+    @Override
+    public double calculateHeat() {
+        return totals.heat();
+    }
+
+    /**
+     * Gets the total cube of the rooms.
+     *
+     * @return the total cube
+     */
+    @Override
+    public double calculateCube() {
+        return totals.cube();
+    }
+
+    /**
+     * Gets the total light demand of the rooms.
+     *
+     * @return the total light demand
+     */
+    @Override
+    public double calculateLight() {
+        return totals.light();
+    }
+
+    /**
+     * Returns a string representation of the level in the same format as {@link Level#toString()}.
+     *
+     * @return a string describing the level
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Level ID: ").append(getId()).append("\n")
+                .append("Name: ").append(getName()).append("\n")
+                .append("Rooms: \n");
+        for (BuildingComponent room : rooms) {
+            sb.append("  ").append(room.toString()).append("\n");
+        }
+        return sb.toString();
+    }
+
+    private int requireRoom(String roomId) {
+        int index = indexOf(roomId);
+        if (index < 0) {
+            throw new IllegalArgumentException("Room with given id not found");
+        }
+        return index;
+    }
+
+    private int indexOf(String roomId) {
+        for (int i = 0; i < rooms.size(); i++) {
+            if (rooms.get(i).getId().equals(roomId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,55 @@
+package pl.put.poznan.buildinginfo.logic.entities;
+
+import java.util.List;
+
+/**
+ * The exact area, heat, cube and light sums of a range of sibling components.
+ *
+ * Ranges of the subcomponents of a large composite can be summed on several threads and the
+ * partial sums combined, in any order, before filling the cache of the composite through
+ * {@link CompositeComponent#refresh(PartialTotals)}. Since the sums are exact, the result is
+ * the same as summing all the subcomponents in one pass.
+ */
+public final class PartialTotals {
+    final ExactSum area = new ExactSum();
+    final ExactSum heat = new ExactSum();
+    final ExactSum cube = new ExactSum();
+    final ExactSum light = new ExactSum();
+
+    private PartialTotals() {
+    }
+
+    /**
+     * Sums the totals of a range of components.
+     *
+     * @param components the components
+     * @param from       the index of the first component of the range, inclusive
+     * @param to         the index of the last component of the range, exclusive
+     * @return the sums of the range
+     */
+    public static PartialTotals of(List<BuildingComponent> components, int from, int to) {
+        PartialTotals totals = new PartialTotals();
+        for (int i = from; i < to; i++) {
+            BuildingComponent component = components.get(i);
+            totals.area.add(component.calculateArea());
+            totals.heat.add(component.calculateHeat());
+            totals.cube.add(component.calculateCube());
+            totals.light.add(component.calculateLight());
+        }
+        return totals;
+    }
+
+    /**
+     * Adds the sums of another range to these.
+     *
+     * @param other the sums to add; they are left unchanged
+     * @return these sums
+     */
+    public PartialTotals plus(PartialTotals other) {
+        area.addAll(other.area);
+        heat.addAll(other.heat);
+        cube.addAll(other.cube);
+        light.addAll(other.light);
+        return this;
+    }
+}
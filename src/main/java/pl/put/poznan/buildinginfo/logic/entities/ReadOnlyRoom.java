@@ -0,0 +1,35 @@
+package pl.put.poznan.buildinginfo.logic.entities;
+
+/**
+ * A room of a {@link LevelSnapshot}. Snapshots share their rooms between versions,
+ * so the values of a snapshot room cannot be changed in place.
+ */
+final class ReadOnlyRoom extends Room {
+
+    /**
+     * Constructs a read-only room with the given parameters.
+     */
+    ReadOnlyRoom(String id, String name, double area, double cube, float heating, float light) {
+        super(id, name, area, cube, heating, light);
+    }
+
+    /**
+     * Gets a read-only copy of a room, or the room itself if it is already read-only.
+     */
+    static ReadOnlyRoom of(Room room) {
+        if (room instanceof ReadOnlyRoom) {
+            return (ReadOnlyRoom) room;
+        }
+        return new ReadOnlyRoom(room.getId(), room.getName(), room.getArea(), room.getCube(), room.getHeating(), room.getLight());
+    }
+
+    /**
+     * Always fails, since the room may be shared by several snapshots.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void update(double area, double cube, float heating, float light) {
+        throw new UnsupportedOperationException("Rooms of a snapshot cannot be changed");
+    }
+}
@@ -101,6 +101,26 @@ public class Room extends BuildingComponent {
      */
     public float getLight() { return light; }
 
+    /**
+     * Changes the values of the room. The cached aggregates of the containing level and
+     * building are updated by the difference, and their listeners are told about the change.
+     *
+     * @param area    the new area of the room in square meters
+     * @param cube    the new volume of the room in cubic meters
+     * @param heating the new heating demand of the room
+     * @param light   the new lighting level of the room in lumens
+     */
+    public void update(double area, double cube, float heating, float light) {
+        double[] before = CompositeComponent.totals(this);
+        this.area = area;
+        this.cube = cube;
+        this.heating = heating;
+        this.light = light;
+        if (getParent() instanceof CompositeComponent) {
+            ((CompositeComponent) getParent()).componentChanged(this, before);
+        }
+    }
+
     /**
      * Returns a string representation of the room, including its ID, name, area, volume, heating, and lighting.
      *
@@ -0,0 +1,81 @@
+package pl.put.poznan.buildinginfo.logic.entities;
+
+import java.util.List;
+
+/**
+ * The exact area, heat, cube and light sums of the children of a snapshot, as the cached
+ * aggregates of a {@link CompositeComponent} keep them.
+ *
+ * A new version of a snapshot gets a copy of the sums of the previous one with the totals of
+ * the replaced child subtracted and those of the new child added, so a change costs constant
+ * time instead of a pass over all children. Since the sums are exact, the result equals the
+ * sums computed from scratch. Once shared, the sums are never changed.
+ */
+final class SnapshotTotals {
+    private final ExactSum area;
+    private final ExactSum heat;
+    private final ExactSum cube;
+    private final ExactSum light;
+
+    private SnapshotTotals(ExactSum area, ExactSum heat, ExactSum cube, ExactSum light) {
+        this.area = area;
+        this.heat = heat;
+        this.cube = cube;
+        this.light = light;
+    }
+
+    /**
+     * Sums the totals of the given components.
+     */
+    static SnapshotTotals of(List<BuildingComponent> components) {
+        SnapshotTotals totals = new SnapshotTotals(new ExactSum(), new ExactSum(), new ExactSum(), new ExactSum());
+        for (BuildingComponent component : components) {
+            totals.add(component);
+        }
+        return totals;
+    }
+
+    /**
+     * Gets the sums with one child replaced by another.
+     *
+     * @param removed the child whose totals are subtracted, or null if a child is only added
+     * @param added   the child whose totals are added, or null if a child is only removed
+     * @return new sums; these are left unchanged
+     */
+    SnapshotTotals with(BuildingComponent removed, BuildingComponent added) {
+        SnapshotTotals totals = new SnapshotTotals(area.copy(), heat.copy(), cube.copy(), light.copy());
+        if (removed != null) {
+            totals.area.subtract(removed.calculateArea());
+            totals.heat.subtract(removed.calculateHeat());
+            totals.cube.subtract(removed.calculateCube());
+            totals.light.subtract(removed.calculateLight());
+        }
+        if (added != null) {
+            totals.add(added);
+        }
+        return totals;
+    }
+
+    double area() {
+        return area.value();
+    }
+
+    double heat() {
+        return heat.value();
+    }
+
+    double cube() {
+        return cube.value();
+    }
+
+    double light() {
+        return light.value();
+    }
+
+    private void add(BuildingComponent component) {
+        area.add(component.calculateArea());
+        heat.add(component.calculateHeat());
+        cube.add(component.calculateCube());
+        light.add(component.calculateLight());
+    }
+}
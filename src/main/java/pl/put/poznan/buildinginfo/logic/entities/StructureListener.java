@@ -0,0 +1,33 @@
+package pl.put.poznan.buildinginfo.logic.entities;
+
+/**
+ * Receives notifications about structural changes below a {@link CompositeComponent}.
+ * A listener registered on a composite is told about components added to or removed
+ * from that composite or any of its descendants, and about rooms whose values changed.
+ */
+public interface StructureListener {
+
+    /**
+     * Called after a component, together with its subtree, has been added.
+     *
+     * @param component the added component; its parent is already set
+     */
+    void componentAdded(BuildingComponent component);
+
+    /**
+     * Called after a component, together with its subtree, has been removed.
+     *
+     * @param component the removed component; its former parent is passed separately
+     * @param parent    the composite the component was removed from
+     */
+    void componentRemoved(BuildingComponent component, CompositeComponent parent);
+
+    /**
+     * Called after the values of a component have changed, without changing the structure.
+     * Does nothing by default.
+     *
+     * @param component the changed component
+     */
+    default void componentChanged(BuildingComponent component) {
+    }
+}
@@ -0,0 +1,85 @@
+package pl.put.poznan.buildinginfo.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import pl.put.poznan.buildinginfo.logic.BuildingBatchProcessor;
+import pl.put.poznan.buildinginfo.logic.Metric;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * REST controller for evaluating many buildings in one request.
+ * The buildings are processed in parallel by a {@link BuildingBatchProcessor} shared by all requests.
+ */
+@RestController
+public class BuildingBatchController {
+
+    private static final Logger logger = LoggerFactory.getLogger(BuildingBatchController.class);
+
+    /** Media type of the response, one JSON object per line. */
+    static final String NDJSON = "application/x-ndjson";
+
+    private final BuildingBatchProcessor processor;
+
+    /**
+     * Constructs the controller with a worker pool of the given size.
+     *
+     * @param threads     the number of worker threads, or 0 for one per available processor
+     * @param maxInFlight the maximum number of buildings of one request held in memory at a time
+     */
+    public BuildingBatchController(@Value("${buildinginfo.batch.threads:0}") int threads,
+                                   @Value("${buildinginfo.batch.max-in-flight:64}") int maxInFlight) {
+        this.processor = new BuildingBatchProcessor(
+                threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), maxInFlight);
+    }
+
+    /**
+     * Endpoint to calculate metrics for many buildings.
+     * The body holds the buildings as newline-delimited JSON or as a JSON array. The response
+     * is streamed as newline-delimited JSON with one line per building, written as soon as the
+     * building is finished, for example {@code {"index":0,"id":"building1","totalArea":105.0}}.
+     * A building that cannot be parsed gets a line with an "error" field instead.
+     *
+     * @param body     the request body
+     * @param metrics  (Optional) Comma-separated list of metrics, all of them if missing:
+     *                 area, heat, cube, light, maxPeople, restrooms, lightingPerArea
+     * @param response the response to stream the result lines to
+     * @throws IOException if the request cannot be read or the response cannot be written
+     */
+    @RequestMapping(value = "/batch", method = RequestMethod.POST, produces = NDJSON)
+    public void batch(InputStream body, @RequestParam(value = "metrics", required = false) String metrics,
+                      HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        OutputStream out = response.getOutputStream();
+        Set<Metric> requested;
+        try {
+            requested = Metric.parseList(metrics);
+        } catch (Exception e) {
+            logger.error("Error processing batch", e);
+            out.write("{\"error\":\"Failed to process batch\"}\n".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        int buildings = processor.process(body, requested, out);
+        logger.debug("Processed batch of {} buildings", buildings);
+    }
+
+    /**
+     * Stops the worker threads when the application shuts down.
+     */
+    @PreDestroy
+    public void close() {
+        processor.close();
+    }
+}
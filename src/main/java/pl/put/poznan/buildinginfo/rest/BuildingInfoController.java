@@ -1,40 +1,125 @@
 package pl.put.poznan.buildinginfo.rest;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
 import pl.put.poznan.buildinginfo.logic.BuildingFinder;
-import pl.put.poznan.buildinginfo.logic.BuildingParser;
+import pl.put.poznan.buildinginfo.logic.BuildingJsonWriter;
+import pl.put.poznan.buildinginfo.logic.BuildingParseCache;
+import pl.put.poznan.buildinginfo.logic.BuildingReport;
+import pl.put.poznan.buildinginfo.logic.HeatPerCubeIndex;
+import pl.put.poznan.buildinginfo.logic.Metric;
+import pl.put.poznan.buildinginfo.logic.ParallelAggregator;
+import pl.put.poznan.buildinginfo.logic.RoomFilter;
+import pl.put.poznan.buildinginfo.logic.RoomHistogram;
+import pl.put.poznan.buildinginfo.logic.RoomRanking;
 import pl.put.poznan.buildinginfo.logic.entities.Building;
 import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
 import pl.put.poznan.buildinginfo.logic.entities.Room;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * REST controller for providing building information and calculations.
+ * The parse, lookup, compute and serialize phases of every request are timed through {@link RequestMetrics}.
  */
 @RestController
 public class BuildingInfoController {
 
     private static final Logger logger = LoggerFactory.getLogger(BuildingInfoController.class);
 
+    /** Default memory budget of the parse cache, in bytes. */
+    private static final long DEFAULT_PARSE_CACHE_BYTES = 64L * 1024 * 1024;
+
+    private final BuildingParseCache parseCache;
+    private final ParallelAggregator aggregator;
+    private final RequestMetrics metrics;
+
+    /**
+     * Constructs the controller with a parse cache of the default size,
+     * recording its metrics in a registry of its own.
+     */
+    public BuildingInfoController() {
+        this(DEFAULT_PARSE_CACHE_BYTES, ParallelAggregator.DEFAULT_CUTOFF, new RequestMetrics(new SimpleMeterRegistry()));
+    }
+
+    /**
+     * Constructs the controller with a parse cache limited to the given memory budget.
+     *
+     * @param parseCacheBytes the maximum estimated size of all cached buildings, in bytes
+     * @param parallelCutoff  the number of rooms above which totals are calculated on several cores
+     * @param metrics         the metrics to record the request phases to
+     */
+    @Autowired
+    public BuildingInfoController(@Value("${buildinginfo.parse-cache.max-bytes:67108864}") long parseCacheBytes,
+                                  @Value("${buildinginfo.aggregation.parallel-cutoff:16384}") int parallelCutoff,
+                                  RequestMetrics metrics) {
+        this.parseCache = new BuildingParseCache(parseCacheBytes);
+        this.aggregator = new ParallelAggregator(ForkJoinPool.commonPool(), parallelCutoff);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Endpoint to retrieve the parse cache statistics.
+     *
+     * @return A map containing the hit, miss and eviction counters and the memory budget usage
+     */
+    @RequestMapping(path = "/parseCache", method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Object> getParseCacheStatistics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("hits", parseCache.getHitCount());
+        response.put("misses", parseCache.getMissCount());
+        response.put("evictions", parseCache.getEvictionCount());
+        response.put("entries", parseCache.size());
+        response.put("usedBytes", parseCache.getUsedBytes());
+        response.put("maxBytes", parseCache.getMaxBytes());
+        return response;
+    }
+
     /**
      * Endpoint to retrieve detailed information about a building.
+     * The building is streamed to the response as JSON in the same format as the request,
+     * optionally restricted to some fields and levels.
      *
      * @param buildingJson JSON string representing the building structure
-     * @return A string representation of the building object or an error message
+     * @param fields       (Optional) Comma-separated list of fields to include, all of them if missing:
+     *                     id, name, area, cube, heating, light
+     * @param levels       (Optional) Comma-separated list of ids or names of the levels to include, all if missing
+     * @param response     the response to stream the building or an error message to
+     * @throws IOException if the response cannot be written
      */
     @RequestMapping(path = "/info", method = RequestMethod.POST, produces = "application/json")
-    public String getInfo(@RequestBody String buildingJson) {
+    public void getInfo(@RequestBody String buildingJson,
+                        @RequestParam(value = "fields", required = false) String fields,
+                        @RequestParam(value = "levels", required = false) String levels,
+                        HttpServletResponse response) throws IOException {
+        RequestMetrics.RequestTimer timer = metrics.request("/info");
+        response.setContentType("application/json");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
         try {
-            Building building = BuildingParser.parseJson(buildingJson);
-            logger.debug("Building object info: " + building.toString());
-            return building.toString();
+            BuildingJsonWriter writer = new BuildingJsonWriter(
+                    BuildingJsonWriter.Field.parseList(fields), BuildingJsonWriter.parseLevels(levels));
+            Building building = timer.parse(() -> parseCache.parseCounted(buildingJson));
+            logger.debug("Streaming info of building {}", building.getId());
+            timer.serialize(() -> {
+                writer.write(building, response.getOutputStream());
+                return building;
+            });
         } catch (Exception e) {
+            timer.error();
             logger.error("Error processing building JSON", e);
-            return "{\"error\":\"Failed to process building JSON\"}";
+            if (!response.isCommitted()) {
+                response.resetBuffer();
+                response.getOutputStream().write(
+                        "{\"error\":\"Failed to process building JSON\"}".getBytes(StandardCharsets.UTF_8));
+            }
         }
     }
 
@@ -47,16 +132,16 @@ public class BuildingInfoController {
      */
     @RequestMapping(value = "/calculateArea", method = RequestMethod.POST, produces = "application/json")
     public Map<String, Object> calculateArea(@RequestBody String buildingJson, @RequestParam(value = "name", required = false) String name) {
+        RequestMetrics.RequestTimer timer = metrics.request("/calculateArea");
         try {
-            Building building = BuildingParser.parseJson(buildingJson);
-            double totalArea = name != null && !name.isEmpty()
-                    ? BuildingFinder.findComponentByName(building, name).map(BuildingComponent::calculateArea).orElseThrow(() -> new IllegalArgumentException("Component with given name not found"))
-                    : building.calculateArea();
+            BuildingComponent component = component(timer, buildingJson, name);
+            double totalArea = timer.compute(() -> aggregator.aggregate(component)).getArea();
             totalArea = Math.round(totalArea * 100.0) / 100.0;
             Map<String, Object> response = new HashMap<>();
             response.put("totalArea", totalArea);
             return response;
         } catch (Exception e) {
+            timer.error();
             logger.error("Error processing calculateArea", e);
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Failed to calculate area");
@@ -73,16 +158,16 @@ public class BuildingInfoController {
      */
     @RequestMapping(value = "/calculateHeat", method = RequestMethod.POST, produces = "application/json")
     public Map<String, Object> calculateHeat(@RequestBody String buildingJson, @RequestParam(value = "name", required = false) String name) {
+        RequestMetrics.RequestTimer timer = metrics.request("/calculateHeat");
         try {
-            Building building = BuildingParser.parseJson(buildingJson);
-            double totalHeat = name != null && !name.isEmpty()
-                    ? BuildingFinder.findComponentByName(building, name).map(BuildingComponent::calculateHeat).orElseThrow(() -> new IllegalArgumentException("Component with given name not found"))
-                    : building.calculateHeat();
+            BuildingComponent component = component(timer, buildingJson, name);
+            double totalHeat = timer.compute(() -> aggregator.aggregate(component)).getHeat();
             totalHeat = Math.round(totalHeat * 100.0) / 100.0;
             Map<String, Object> response = new HashMap<>();
             response.put("totalHeat", totalHeat);
             return response;
         } catch (Exception e) {
+            timer.error();
             logger.error("Error processing calculateHeat", e);
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Failed to calculate heat");
@@ -99,20 +184,15 @@ public class BuildingInfoController {
      */
     @RequestMapping(value = "/highRoomHeating", method = RequestMethod.POST, produces = "application/json")
     public Map<String, Object> highRoomHeating(@RequestBody String buildingJson, @RequestParam(value = "threshold") double threshold) {
+        RequestMetrics.RequestTimer timer = metrics.request("/highRoomHeating");
         try {
-            Building building = BuildingParser.parseJson(buildingJson);
-            List<Room> roomsExceedingThreshold = BuildingFinder.findRoomsExceedingHeatThreshold(building, threshold);
+            Building building = timer.parse(() -> parseCache.parseCounted(buildingJson));
+            List<Room> roomsExceedingThreshold = timer.compute(() -> HeatPerCubeIndex.of(building).exceeding(threshold));
             Map<String, Object> response = new HashMap<>();
-            response.put("roomsExceedingThreshold", roomsExceedingThreshold.stream()
-                    .map(room -> Map.of(
-                            "name", room.getName(),
-                            "cube", room.getCube(),
-                            "heating", room.getHeating(),
-                            "heatPerCube", Math.round((room.getHeating() / room.getCube()) * 100.0) / 100.0
-                    ))
-                    .collect(Collectors.toList()));
+            response.put("roomsExceedingThreshold", describeRooms(roomsExceedingThreshold));
             return response;
         } catch (Exception e) {
+            timer.error();
             logger.error("Error processing highRoomHeating", e);
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Failed to calculate heat");
@@ -120,6 +200,167 @@ public class BuildingInfoController {
         }
     }
 
+    /**
+     * Endpoint to find rooms with heating per cubic meter between two bounds, inclusive.
+     *
+     * @param buildingJson JSON string representing the building structure
+     * @param min          The lower bound of heating per cubic meter
+     * @param max          The upper bound of heating per cubic meter
+     * @return A map containing the rooms in range, in ascending order of heating per cubic meter, or an error message
+     */
+    @RequestMapping(value = "/roomHeatingRange", method = RequestMethod.POST, produces = "application/json")
+    public Map<String, Object> roomHeatingRange(@RequestBody String buildingJson, @RequestParam(value = "min") double min, @RequestParam(value = "max") double max) {
+        RequestMetrics.RequestTimer timer = metrics.request("/roomHeatingRange");
+        try {
+            Building building = timer.parse(() -> parseCache.parseCounted(buildingJson));
+            Map<String, Object> response = new HashMap<>();
+            response.put("roomsInRange", describeRooms(timer.compute(() -> HeatPerCubeIndex.of(building).between(min, max))));
+            return response;
+        } catch (Exception e) {
+            timer.error();
+            logger.error("Error processing roomHeatingRange", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to calculate heat");
+            return errorResponse;
+        }
+    }
+
+    /**
+     * Endpoint to find rooms with heating per cubic meter exceeding each of several thresholds.
+     *
+     * @param buildingJson JSON string representing the building structure
+     * @param thresholds   The heating thresholds per cubic meter
+     * @return A map containing, for every threshold, the number of rooms exceeding it and the rooms themselves,
+     * or an error message
+     */
+    @RequestMapping(value = "/highRoomHeatingBatch", method = RequestMethod.POST, produces = "application/json")
+    public Map<String, Object> highRoomHeatingBatch(@RequestBody String buildingJson, @RequestParam(value = "thresholds") double[] thresholds) {
+        RequestMetrics.RequestTimer timer = metrics.request("/highRoomHeatingBatch");
+        try {
+            Building building = timer.parse(() -> parseCache.parseCounted(buildingJson));
+            Map<String, Object> response = new HashMap<>();
+            response.put("thresholds", describeThresholds(thresholds, timer.compute(() -> HeatPerCubeIndex.of(building).exceedingEach(thresholds))));
+            return response;
+        } catch (Exception e) {
+            timer.error();
+            logger.error("Error processing highRoomHeatingBatch", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to calculate heat");
+            return errorResponse;
+        }
+    }
+
+    /**
+     * Endpoint to find the K rooms of a building or specific component with the highest or lowest value of a metric.
+     *
+     * @param buildingJson JSON string representing the building structure
+     * @param metric       The metric to rank the rooms by: heatPerCube, heating, lightPerArea or area
+     * @param k            (Optional) The maximum number of rooms to return, 10 by default
+     * @param order        (Optional) desc for the highest values first, the default, or asc for the lowest
+     * @param name         (Optional) Name of the component to search, for example a level
+     * @return A map containing the ranked rooms, best first, or an error message
+     */
+    @RequestMapping(value = "/topRooms", method = RequestMethod.POST, produces = "application/json")
+    public Map<String, Object> topRooms(@RequestBody String buildingJson, @RequestParam(value = "metric") String metric,
+                                        @RequestParam(value = "k", defaultValue = "10") int k,
+                                        @RequestParam(value = "order", required = false) String order,
+                                        @RequestParam(value = "name", required = false) String name) {
+        RequestMetrics.RequestTimer timer = metrics.request("/topRooms");
+        try {
+            RoomRanking.RoomMetric roomMetric = RoomRanking.RoomMetric.fromName(metric);
+            RoomRanking.Order rankingOrder = RoomRanking.Order.fromName(order);
+            BuildingComponent component = component(timer, buildingJson, name);
+            List<Room> rooms = timer.compute(() -> RoomRanking.top(component, roomMetric, k, rankingOrder));
+            Map<String, Object> response = new HashMap<>();
+            response.put("metric", roomMetric.getName());
+            response.put("rooms", describeRankedRooms(rooms, roomMetric));
+            return response;
+        } catch (Exception e) {
+            timer.error();
+            logger.error("Error processing topRooms", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to rank rooms");
+            return errorResponse;
+        }
+    }
+
+    /**
+     * Endpoint to estimate percentiles of a per-room metric over a building or specific component.
+     *
+     * @param buildingJson JSON string representing the building structure
+     * @param metric       The metric to record for every room: heatPerCube, heating, lightPerArea or area
+     * @param percentiles  (Optional) Comma separated percentiles between 0 and 100, 50,90,99 by default
+     * @param name         (Optional) Name of the component to describe, for example a level
+     * @return A map containing the number of rooms, the minimum, maximum and mean and the requested
+     * percentiles of the metric, or an error message
+     */
+    @RequestMapping(value = "/distribution", method = RequestMethod.POST, produces = "application/json")
+    public Map<String, Object> distribution(@RequestBody String buildingJson, @RequestParam(value = "metric") String metric,
+                                            @RequestParam(value = "percentiles", required = false) String percentiles,
+                                            @RequestParam(value = "name", required = false) String name) {
+        RequestMetrics.RequestTimer timer = metrics.request("/distribution");
+        try {
+            RoomRanking.RoomMetric roomMetric = RoomRanking.RoomMetric.fromName(metric);
+            double[] requestedPercentiles = RoomHistogram.parsePercentiles(percentiles);
+            BuildingComponent component = component(timer, buildingJson, name);
+            RoomHistogram histogram = timer.compute(() -> RoomHistogram.of(component, roomMetric));
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("metric", roomMetric.getName());
+            response.putAll(histogram.toMap(requestedPercentiles));
+            return response;
+        } catch (Exception e) {
+            timer.error();
+            logger.error("Error processing distribution", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to calculate distribution");
+            return errorResponse;
+        }
+    }
+
+    /**
+     * Endpoint to find the rooms of a building or specific component matching a filter expression over
+     * the room fields area, cube, heating and light, such as {@code area > 50 and light / area < 5}.
+     *
+     * @param buildingJson JSON string representing the building structure
+     * @param filter       The filter expression
+     * @param name         (Optional) Name of the component to search, for example a level
+     * @param servletResponse The HTTP response, set to status 400 if the filter is invalid
+     * @return A map containing the number of matching rooms and the rooms themselves, in the order of the building,
+     * or an error message, which for an invalid filter tells where the filter is wrong
+     */
+    @RequestMapping(value = "/rooms", method = RequestMethod.POST, produces = "application/json")
+    public Map<String, Object> rooms(@RequestBody String buildingJson, @RequestParam(value = "filter") String filter,
+                                     @RequestParam(value = "name", required = false) String name,
+                                     HttpServletResponse servletResponse) {
+        RequestMetrics.RequestTimer timer = metrics.request("/rooms");
+        RoomFilter roomFilter;
+        try {
+            roomFilter = RoomFilter.of(filter);
+        } catch (IllegalArgumentException e) {
+            timer.error();
+            logger.warn("Rejected filter '{}': {}", filter, e.getMessage());
+            servletResponse.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return errorResponse;
+        }
+        try {
+            BuildingComponent component = component(timer, buildingJson, name);
+            List<Room> rooms = timer.compute(() -> roomFilter.select(component));
+            Map<String, Object> response = new HashMap<>();
+            response.put("filter", roomFilter.getExpression());
+            response.put("count", rooms.size());
+            response.put("rooms", describeFilteredRooms(rooms));
+            return response;
+        } catch (Exception e) {
+            timer.error();
+            logger.error("Error processing rooms", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to filter rooms");
+            return errorResponse;
+        }
+    }
+
     /**
      * Endpoint to calculate the maximum number of people per area for a building or specific component.
      *
@@ -129,19 +370,17 @@ public class BuildingInfoController {
      */
     @RequestMapping(value = "/calculatePersonPerArea", method = RequestMethod.POST, produces = "application/json")
     public Map<String, Object> calculatePersonPerArea(@RequestBody String buildingJson, @RequestParam(value = "name", required = false) String name) {
+        RequestMetrics.RequestTimer timer = metrics.request("/calculatePersonPerArea");
         try {
-            Building building = BuildingParser.parseJson(buildingJson);
-            double totalArea = name != null && !name.isEmpty()
-                    ? BuildingFinder.findComponentByName(building, name)
-                    .map(BuildingComponent::calculateArea)
-                    .orElseThrow(() -> new IllegalArgumentException("Component with given name not found"))
-                    : building.calculateArea();
+            BuildingComponent component = component(timer, buildingJson, name);
+            double totalArea = timer.compute(() -> aggregator.aggregate(component)).getArea();
             int maxPeople = (int) Math.floor(totalArea / 3.0);
             Map<String, Object> response = new HashMap<>();
             response.put("totalArea", Math.round(totalArea * 100.0) / 100.0);
             response.put("maxPeople", maxPeople);
             return response;
         } catch (Exception e) {
+            timer.error();
             logger.error("Error processing calculatePersonPerArea", e);
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Failed to calculate person per area");
@@ -158,17 +397,15 @@ public class BuildingInfoController {
      */
     @RequestMapping(value = "/calculateCube", method = RequestMethod.POST, produces = "application/json")
     public Map<String, Object> calculateCube(@RequestBody String buildingJson, @RequestParam(value = "name", required = false) String name) {
+        RequestMetrics.RequestTimer timer = metrics.request("/calculateCube");
         try {
-            Building building = BuildingParser.parseJson(buildingJson);
-            double totalCube = name != null && !name.isEmpty()
-                    ? BuildingFinder.findComponentByName(building, name)
-                    .map(BuildingComponent::calculateCube)
-                    .orElseThrow(() -> new IllegalArgumentException("Component with given name not found"))
-                    : building.calculateCube();
+            BuildingComponent component = component(timer, buildingJson, name);
+            double totalCube = timer.compute(() -> aggregator.aggregate(component)).getCube();
             Map<String, Object> response = new HashMap<>();
             response.put("totalCube", Math.round(totalCube * 100.0) / 100.0);
             return response;
         } catch (Exception e) {
+            timer.error();
             logger.error("Error processing calculateCube", e);
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Failed to calculate cube");
@@ -185,19 +422,13 @@ public class BuildingInfoController {
      */
     @RequestMapping(value = "/calculateRestrooms", method = RequestMethod.POST, produces = "application/json")
     public Map<String, Object> calculateRestrooms(@RequestBody String buildingJson, @RequestParam(value = "name", required = false) String name) {
+        RequestMetrics.RequestTimer timer = metrics.request("/calculateRestrooms");
         try {
-            Building building = BuildingParser.parseJson(buildingJson);
-            Map<String, Object> personPerAreaResponse = calculatePersonPerArea(buildingJson, name);
-            if (personPerAreaResponse.containsKey("error")) {
-                throw new IllegalArgumentException((String) personPerAreaResponse.get("error"));
-            }
-            int maxPeople = (int) personPerAreaResponse.get("maxPeople");
-            int restrooms = (int) Math.ceil(maxPeople / 15.0);
-            Map<String, Object> response = new HashMap<>();
-            response.put("maxPeople", maxPeople);
-            response.put("requiredRestrooms", restrooms);
-            return response;
+            BuildingComponent component = component(timer, buildingJson, name);
+            BuildingReport report = timer.compute(() -> aggregator.aggregate(component));
+            return report.toMap(EnumSet.of(Metric.MAX_PEOPLE, Metric.RESTROOMS));
         } catch (Exception e) {
+            timer.error();
             logger.error("Error processing calculateRestrooms", e);
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Failed to calculate restrooms");
@@ -214,16 +445,16 @@ public class BuildingInfoController {
      */
     @RequestMapping(value = "/calculateTotalLight", method = RequestMethod.POST, produces = "application/json")
     public Map<String, Object> calculateTotalLight(@RequestBody String buildingJson, @RequestParam(value = "name", required = false) String name) {
+        RequestMetrics.RequestTimer timer = metrics.request("/calculateTotalLight");
         try {
-            Building building = BuildingParser.parseJson(buildingJson);
-            double totalLight = name != null && !name.isEmpty()
-                    ? BuildingFinder.findComponentByName(building, name).map(BuildingComponent::calculateLight).orElseThrow(() -> new IllegalArgumentException("Component with given name not found"))
-                    : building.calculateLight();
+            BuildingComponent component = component(timer, buildingJson, name);
+            double totalLight = timer.compute(() -> aggregator.aggregate(component)).getLight();
             totalLight = Math.round(totalLight * 100.0) / 100.0;
             Map<String, Object> response = new HashMap<>();
             response.put("totalLight", totalLight);
             return response;
         } catch (Exception e) {
+            timer.error();
             logger.error("Error processing calculateTotalLight", e);
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Failed to calculate total light");
@@ -240,31 +471,157 @@ public class BuildingInfoController {
      */
     @RequestMapping(value = "/calculateLighting", method = RequestMethod.POST, produces = "application/json")
     public Map<String, Object> calculateLighting(@RequestBody String buildingJson, @RequestParam(value = "name", required = false) String name) {
+        RequestMetrics.RequestTimer timer = metrics.request("/calculateLighting");
         try {
-            Building building = BuildingParser.parseJson(buildingJson);
-            double lightingPerArea;
-            if (name != null && !name.isEmpty()) {
-                BuildingComponent component = BuildingFinder.findComponentByName(building, name)
-                        .orElseThrow(() -> new IllegalArgumentException("Component with given name not found"));
-                lightingPerArea = component.calculateLight() / component.calculateArea();
-            } else {
-                Map<String, Object> totalLightResponse = calculateTotalLight(buildingJson, null);
-                if (totalLightResponse.containsKey("error")) {
-                    throw new IllegalArgumentException((String) totalLightResponse.get("error"));
-                }
-                double totalLight = (double) totalLightResponse.get("totalLight");
-                double totalArea = building.calculateArea();
-                lightingPerArea = totalLight / totalArea;
-            }
-            lightingPerArea = Math.round(lightingPerArea * 100.0) / 100.0;
-            Map<String, Object> response = new HashMap<>();
-            response.put("lightingPerArea", lightingPerArea);
-            return response;
+            BuildingComponent component = component(timer, buildingJson, name);
+            BuildingReport report = timer.compute(() -> aggregator.aggregate(component));
+            return report.toMap(EnumSet.of(Metric.LIGHTING_PER_AREA));
         } catch (Exception e) {
+            timer.error();
             logger.error("Error processing calculateLighting", e);
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Failed to calculate lighting per area");
             return errorResponse;
         }
     }
+
+    /**
+     * Endpoint to calculate several metrics of a building or specific component at once.
+     * The building is parsed once and its totals are computed in a single pass.
+     *
+     * @param buildingJson JSON string representing the building structure
+     * @param metricNames  (Optional) Comma separated names of the metrics to calculate, all by default:
+     *                     area, heat, cube, light, maxPeople, restrooms, lightingPerArea
+     * @param name         (Optional) Name of the specific component to calculate the metrics for
+     * @return A map containing the requested metrics or an error message
+     */
+    @RequestMapping(value = "/report", method = RequestMethod.POST, produces = "application/json")
+    public Map<String, Object> report(@RequestBody String buildingJson, @RequestParam(value = "metrics", required = false) String metricNames,
+                                      @RequestParam(value = "name", required = false) String name) {
+        RequestMetrics.RequestTimer timer = metrics.request("/report");
+        try {
+            Set<Metric> requestedMetrics = Metric.parseList(metricNames);
+            BuildingComponent component = component(timer, buildingJson, name);
+            return timer.compute(() -> aggregator.aggregate(component)).toMap(requestedMetrics);
+        } catch (Exception e) {
+            timer.error();
+            logger.error("Error processing report", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to calculate report");
+            return errorResponse;
+        }
+    }
+
+    /**
+     * Parses the component a request refers to, timing the parse and lookup phases.
+     * Without a name the whole building is parsed through the parse cache. With a name only
+     * the named component is parsed, unless the same body is already cached; the component
+     * is found while parsing, so the parse phase includes finding it and no lookup is recorded.
+     *
+     * @param timer        the recorder of the request phases
+     * @param buildingJson JSON string representing the building structure
+     * @param name         (Optional) Name of the specific component
+     * @return the named component, or the building if no name is given
+     * @throws Exception if the JSON is invalid or no component has the given name
+     */
+    private BuildingComponent component(RequestMetrics.RequestTimer timer, String buildingJson, String name) throws Exception {
+        if (name == null || name.isEmpty()) {
+            Building building = timer.parse(() -> parseCache.parseCounted(buildingJson));
+            return timer.lookup(() -> building);
+        }
+        Optional<BuildingComponent> component = timer.parseScoped(() -> parseCache.parseComponent(buildingJson, name));
+        return component.orElseThrow(() -> new IllegalArgumentException("Component with given name not found"));
+    }
+
+    /**
+     * Resolves the component a request refers to.
+     *
+     * @param building the parsed or stored building
+     * @param name     (Optional) Name of the specific component
+     * @return the named component, or the building if no name is given
+     * @throws IllegalArgumentException if no component has the given name
+     */
+    static BuildingComponent component(BuildingComponent building, String name) {
+        return name != null && !name.isEmpty()
+                ? BuildingFinder.findComponentByName(building, name).orElseThrow(() -> new IllegalArgumentException("Component with given name not found"))
+                : building;
+    }
+
+    /**
+     * Describes rooms for the heating endpoints, with their heating per cubic meter rounded to two decimals.
+     *
+     * @param rooms the rooms to describe
+     * @return a list of maps with the name, cube, heating and heating per cubic meter of every room
+     */
+    static List<Map<String, Object>> describeRooms(List<Room> rooms) {
+        List<Map<String, Object>> descriptions = new ArrayList<>(rooms.size());
+        for (Room room : rooms) {
+            Map<String, Object> description = new HashMap<>();
+            description.put("name", room.getName());
+            description.put("cube", room.getCube());
+            description.put("heating", room.getHeating());
+            description.put("heatPerCube", Math.round(HeatPerCubeIndex.heatPerCube(room) * 100.0) / 100.0);
+            descriptions.add(description);
+        }
+        return descriptions;
+    }
+
+    /**
+     * Describes ranked rooms, with the value of the ranking metric rounded to two decimals.
+     *
+     * @param rooms  the rooms to describe, best first
+     * @param metric the metric the rooms were ranked by
+     * @return a list of maps with the id, name and metric value of every room
+     */
+    static List<Map<String, Object>> describeRankedRooms(List<Room> rooms, RoomRanking.RoomMetric metric) {
+        List<Map<String, Object>> descriptions = new ArrayList<>(rooms.size());
+        for (Room room : rooms) {
+            Map<String, Object> description = new HashMap<>();
+            description.put("id", room.getId());
+            description.put("name", room.getName());
+            description.put("value", Math.round(metric.of(room) * 100.0) / 100.0);
+            descriptions.add(description);
+        }
+        return descriptions;
+    }
+
+    /**
+     * Describes rooms selected by a filter, with all the fields a filter can refer to.
+     *
+     * @param rooms the rooms to describe
+     * @return a list of maps with the id, name, area, cube, heating and light of every room
+     */
+    static List<Map<String, Object>> describeFilteredRooms(List<Room> rooms) {
+        List<Map<String, Object>> descriptions = new ArrayList<>(rooms.size());
+        for (Room room : rooms) {
+            Map<String, Object> description = new HashMap<>();
+            description.put("id", room.getId());
+            description.put("name", room.getName());
+            description.put("area", room.getArea());
+            description.put("cube", room.getCube());
+            description.put("heating", room.getHeating());
+            description.put("light", room.getLight());
+            descriptions.add(description);
+        }
+        return descriptions;
+    }
+
+    /**
+     * Describes the result of a multi-threshold heating query.
+     *
+     * @param thresholds the heating thresholds per cubic meter
+     * @param rooms      for every threshold, the rooms exceeding it
+     * @return a list of maps with the threshold, the number of rooms and the rooms themselves
+     */
+    static List<Map<String, Object>> describeThresholds(double[] thresholds, List<List<Room>> rooms) {
+        List<Map<String, Object>> results = new ArrayList<>(thresholds.length);
+        for (int i = 0; i < thresholds.length; i++) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("threshold", thresholds[i]);
+            result.put("count", rooms.get(i).size());
+            result.put("roomsExceedingThreshold", describeRooms(rooms.get(i)));
+            results.add(result);
+        }
+        return results;
+    }
 }
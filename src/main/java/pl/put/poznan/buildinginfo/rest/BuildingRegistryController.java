@@ -0,0 +1,717 @@
+package pl.put.poznan.buildinginfo.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.json.JSONObject;
+import org.springframework.web.bind.annotation.*;
+import pl.put.poznan.buildinginfo.logic.BuildingJsonWriter;
+import pl.put.poznan.buildinginfo.logic.BuildingParser;
+import pl.put.poznan.buildinginfo.logic.BuildingRegistry;
+import pl.put.poznan.buildinginfo.logic.BuildingReport;
+import pl.put.poznan.buildinginfo.logic.RegistryStore;
+import pl.put.poznan.buildinginfo.logic.HeatPerCubeIndex;
+import pl.put.poznan.buildinginfo.logic.Metric;
+import pl.put.poznan.buildinginfo.logic.RoomFilter;
+import pl.put.poznan.buildinginfo.logic.RoomHistogram;
+import pl.put.poznan.buildinginfo.logic.RoomRanking;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingSnapshot;
+import pl.put.poznan.buildinginfo.logic.entities.Room;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * REST controller for storing parsed buildings on the server and querying them by id,
+ * so that a building sent once can be used for many calculations without re-parsing.
+ * When a data directory is configured, the stored buildings are kept there by a
+ * {@link RegistryStore} and recovered when the application starts.
+ */
+@RestController
+@RequestMapping("/buildings")
+public class BuildingRegistryController {
+
+    private static final Logger logger = LoggerFactory.getLogger(BuildingRegistryController.class);
+
+    /** Maximum number of seconds to wait at shutdown for a periodic snapshot being written. */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 60;
+
+    private final BuildingRegistry registry;
+    private final RegistryStore store;
+    private final RegistryStore.Recovery recovery;
+    private final ScheduledExecutorService snapshots;
+
+    /**
+     * Constructs the controller with a registry limited to the given memory budget, kept in memory only.
+     *
+     * @param maxBytes the maximum estimated size of all stored buildings, in bytes
+     */
+    public BuildingRegistryController(long maxBytes) {
+        this.registry = new BuildingRegistry(maxBytes);
+        this.store = null;
+        this.recovery = null;
+        this.snapshots = null;
+    }
+
+    /**
+     * Constructs the controller with a registry limited to the given memory budget. If a data directory
+     * is given, the buildings stored there are recovered and every change is recorded, with a snapshot
+     * of the whole registry taken at the given interval and when the application shuts down.
+     *
+     * @param maxBytes         the maximum estimated size of all stored buildings, in bytes
+     * @param dataDirectory    the directory of the snapshots and change logs, or empty to keep buildings in memory only
+     * @param snapshotInterval the number of seconds between snapshots
+     * @throws IOException if the stored buildings cannot be recovered
+     */
+    @Autowired
+    public BuildingRegistryController(@Value("${buildinginfo.registry.max-bytes:268435456}") long maxBytes,
+                                      @Value("${buildinginfo.registry.data-dir:}") String dataDirectory,
+                                      @Value("${buildinginfo.registry.snapshot-interval-seconds:300}") long snapshotInterval)
+            throws IOException {
+        this.registry = new BuildingRegistry(maxBytes);
+        if (dataDirectory.trim().isEmpty()) {
+            this.store = null;
+            this.recovery = null;
+            this.snapshots = null;
+            return;
+        }
+        this.store = new RegistryStore(Paths.get(dataDirectory.trim()));
+        this.recovery = store.recover(registry);
+        logger.info("Recovered {} buildings ({} changes replayed) from {} in {} ms", recovery.getBuildings(),
+                recovery.getChanges(), dataDirectory, Math.round(recovery.getElapsedMillis()));
+        this.snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "registry-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshots.scheduleWithFixedDelay(this::snapshot, snapshotInterval, snapshotInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Endpoint to parse and store a building.
+     *
+     * @param buildingJson UTF-8 encoded JSON representing the building structure
+     * @return A map containing the id of the stored building or an error message
+     */
+    @RequestMapping(method = RequestMethod.POST, produces = "application/json")
+    public Map<String, Object> registerBuilding(@RequestBody byte[] buildingJson) {
+        try {
+            Building building = BuildingParser.parseJson(buildingJson);
+            Map<String, Object> response = new HashMap<>();
+            response.put("id", registry.register(building));
+            return response;
+        } catch (Exception e) {
+            logger.error("Error processing registerBuilding", e);
+            return error("Failed to register building");
+        }
+    }
+
+    /**
+     * Endpoint to remove a stored building.
+     *
+     * @param id Id of the stored building
+     * @return A map telling whether the building was removed
+     */
+    @RequestMapping(path = "/{id}", method = RequestMethod.DELETE, produces = "application/json")
+    public Map<String, Object> removeBuilding(@PathVariable("id") String id) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("removed", registry.remove(id));
+        return response;
+    }
+
+    /**
+     * Endpoint to retrieve the registry usage.
+     *
+     * @return A map containing the number of stored buildings and the memory budget usage
+     */
+    @RequestMapping(method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("buildings", registry.size());
+        response.put("usedBytes", registry.getUsedBytes());
+        response.put("maxBytes", registry.getMaxBytes());
+        if (recovery != null) {
+            response.put("recoveredBuildings", recovery.getBuildings());
+            response.put("recoveryMillis", round(recovery.getElapsedMillis()));
+        }
+        return response;
+    }
+
+    /**
+     * Endpoint to retrieve detailed information about a stored building.
+     * The building is streamed to the response as JSON in the format accepted by {@code POST /buildings},
+     * optionally restricted to some fields and levels.
+     *
+     * @param id       Id of the stored building
+     * @param fields   (Optional) Comma-separated list of fields to include, all of them if missing:
+     *                 id, name, area, cube, heating, light
+     * @param levels   (Optional) Comma-separated list of ids or names of the levels to include, all if missing
+     * @param response the response to stream the building or an error message to
+     * @throws IOException if the response cannot be written
+     */
+    @RequestMapping(path = "/{id}/info", method = RequestMethod.GET, produces = "application/json")
+    public void getInfo(@PathVariable("id") String id,
+                        @RequestParam(value = "fields", required = false) String fields,
+                        @RequestParam(value = "levels", required = false) String levels,
+                        HttpServletResponse response) throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        try {
+            BuildingJsonWriter writer = new BuildingJsonWriter(
+                    BuildingJsonWriter.Field.parseList(fields), BuildingJsonWriter.parseLevels(levels));
+            read(id, building -> {
+                try {
+                    writer.write(building, response.getOutputStream());
+                    return building;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (Exception e) {
+            logger.error("Error processing info", e);
+            if (!response.isCommitted()) {
+                response.resetBuffer();
+                response.getOutputStream().write(
+                        "{\"error\":\"Failed to process building\"}".getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * Endpoint to calculate the total area of a stored building or a specific component.
+     *
+     * @param id   Id of the stored building
+     * @param name (Optional) Name of the specific component to calculate the area for
+     * @return A map containing the total area or an error message
+     */
+    @RequestMapping(path = "/{id}/area", method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Object> calculateArea(@PathVariable("id") String id, @RequestParam(value = "name", required = false) String name) {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("totalArea", read(id, name, c -> round(c.calculateArea())));
+            return response;
+        } catch (Exception e) {
+            logger.error("Error processing area", e);
+            return error("Failed to calculate area");
+        }
+    }
+
+    /**
+     * Endpoint to calculate the total heating demand of a stored building or a specific component.
+     *
+     * @param id   Id of the stored building
+     * @param name (Optional) Name of the specific component to calculate the heating for
+     * @return A map containing the total heating or an error message
+     */
+    @RequestMapping(path = "/{id}/heat", method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Object> calculateHeat(@PathVariable("id") String id, @RequestParam(value = "name", required = false) String name) {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("totalHeat", read(id, name, c -> round(c.calculateHeat())));
+            return response;
+        } catch (Exception e) {
+            logger.error("Error processing heat", e);
+            return error("Failed to calculate heat");
+        }
+    }
+
+    /**
+     * Endpoint to calculate the total volume (cube) of a stored building or a specific component.
+     *
+     * @param id   Id of the stored building
+     * @param name (Optional) Name of the specific component to calculate the volume for
+     * @return A map containing the total volume or an error message
+     */
+    @RequestMapping(path = "/{id}/cube", method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Object> calculateCube(@PathVariable("id") String id, @RequestParam(value = "name", required = false) String name) {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("totalCube", read(id, name, c -> round(c.calculateCube())));
+            return response;
+        } catch (Exception e) {
+            logger.error("Error processing cube", e);
+            return error("Failed to calculate cube");
+        }
+    }
+
+    /**
+     * Endpoint to calculate the total lighting demand of a stored building or a specific component.
+     *
+     * @param id   Id of the stored building
+     * @param name (Optional) Name of the specific component to calculate the lighting for
+     * @return A map containing the total lighting or an error message
+     */
+    @RequestMapping(path = "/{id}/light", method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Object> calculateTotalLight(@PathVariable("id") String id, @RequestParam(value = "name", required = false) String name) {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("totalLight", read(id, name, c -> round(c.calculateLight())));
+            return response;
+        } catch (Exception e) {
+            logger.error("Error processing light", e);
+            return error("Failed to calculate total light");
+        }
+    }
+
+    /**
+     * Endpoint to calculate the maximum number of people for a stored building or a specific component.
+     *
+     * @param id   Id of the stored building
+     * @param name (Optional) Name of the specific component to calculate the metric for
+     * @return A map containing the total area and maximum number of people, or an error message
+     */
+    @RequestMapping(path = "/{id}/personPerArea", method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Object> calculatePersonPerArea(@PathVariable("id") String id, @RequestParam(value = "name", required = false) String name) {
+        try {
+            double totalArea = read(id, name, BuildingComponent::calculateArea);
+            Map<String, Object> response = new HashMap<>();
+            response.put("totalArea", round(totalArea));
+            response.put("maxPeople", (int) Math.floor(totalArea / 3.0));
+            return response;
+        } catch (Exception e) {
+            logger.error("Error processing personPerArea", e);
+            return error("Failed to calculate person per area");
+        }
+    }
+
+    /**
+     * Endpoint to calculate the required number of restrooms for a stored building or a specific component.
+     *
+     * @param id   Id of the stored building
+     * @param name (Optional) Name of the specific component to calculate for
+     * @return A map containing the required number of restrooms or an error message
+     */
+    @RequestMapping(path = "/{id}/restrooms", method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Object> calculateRestrooms(@PathVariable("id") String id, @RequestParam(value = "name", required = false) String name) {
+        try {
+            BuildingReport report = read(id, name, BuildingReport::of);
+            return report.toMap(EnumSet.of(Metric.MAX_PEOPLE, Metric.RESTROOMS));
+        } catch (Exception e) {
+            logger.error("Error processing restrooms", e);
+            return error("Failed to calculate restrooms");
+        }
+    }
+
+    /**
+     * Endpoint to calculate the lighting per unit area of a stored building or a specific component.
+     *
+     * @param id   Id of the stored building
+     * @param name (Optional) Name of the specific component to calculate for
+     * @return A map containing the lighting per area or an error message
+     */
+    @RequestMapping(path = "/{id}/lighting", method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Object> calculateLighting(@PathVariable("id") String id, @RequestParam(value = "name", required = false) String name) {
+        try {
+            BuildingReport report = read(id, name, BuildingReport::of);
+            return report.toMap(EnumSet.of(Metric.LIGHTING_PER_AREA));
+        } catch (Exception e) {
+            logger.error("Error processing lighting", e);
+            return error("Failed to calculate lighting per area");
+        }
+    }
+
+    /**
+     * Endpoint to find rooms of a stored building with heating per cubic meter exceeding a given threshold.
+     *
+     * @param id        Id of the stored building
+     * @param threshold The heating threshold per cubic meter
+     * @return A map containing rooms exceeding the threshold or an error message
+     */
+    @RequestMapping(path = "/{id}/highRoomHeating", method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Object> highRoomHeating(@PathVariable("id") String id, @RequestParam(value = "threshold") double threshold) {
+        try {
+            List<Room> roomsExceedingThreshold = read(id, building -> HeatPerCubeIndex.of(building).exceeding(threshold));
+            Map<String, Object> response = new HashMap<>();
+            response.put("roomsExceedingThreshold", BuildingInfoController.describeRooms(roomsExceedingThreshold));
+            return response;
+        } catch (Exception e) {
+            logger.error("Error processing highRoomHeating", e);
+            return error("Failed to calculate heat");
+        }
+    }
+
+    /**
+     * Endpoint to find rooms of a stored building with heating per cubic meter between two bounds, inclusive.
+     *
+     * @param id  Id of the stored building
+     * @param min The lower bound of heating per cubic meter
+     * @param max The upper bound of heating per cubic meter
+     * @return A map containing the rooms in range, in ascending order of heating per cubic meter, or an error message
+     */
+    @RequestMapping(path = "/{id}/roomHeatingRange", method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Object> roomHeatingRange(@PathVariable("id") String id, @RequestParam(value = "min") double min, @RequestParam(value = "max") double max) {
+        try {
+            List<Room> roomsInRange = read(id, building -> HeatPerCubeIndex.of(building).between(min, max));
+            Map<String, Object> response = new HashMap<>();
+            response.put("roomsInRange", BuildingInfoController.describeRooms(roomsInRange));
+            return response;
+        } catch (Exception e) {
+            logger.error("Error processing roomHeatingRange", e);
+            return error("Failed to calculate heat");
+        }
+    }
+
+    /**
+     * Endpoint to find rooms of a stored building with heating per cubic meter exceeding each of several thresholds.
+     *
+     * @param id         Id of the stored building
+     * @param thresholds The heating thresholds per cubic meter
+     * @return A map containing, for every threshold, the number of rooms exceeding it and the rooms themselves,
+     * or an error message
+     */
+    @RequestMapping(path = "/{id}/highRoomHeatingBatch", method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Object> highRoomHeatingBatch(@PathVariable("id") String id, @RequestParam(value = "thresholds") double[] thresholds) {
+        try {
+            List<List<Room>> roomsExceedingThresholds = read(id, building -> HeatPerCubeIndex.of(building).exceedingEach(thresholds));
+            Map<String, Object> response = new HashMap<>();
+            response.put("thresholds", BuildingInfoController.describeThresholds(thresholds, roomsExceedingThresholds));
+            return response;
+        } catch (Exception e) {
+            logger.error("Error processing highRoomHeatingBatch", e);
+            return error("Failed to calculate heat");
+        }
+    }
+
+    /**
+     * Endpoint to find the K rooms of a stored building or a specific component with the highest or lowest value of a metric.
+     *
+     * @param id     Id of the stored building
+     * @param metric The metric to rank the rooms by: heatPerCube, heating, lightPerArea or area
+     * @param k      (Optional) The maximum number of rooms to return, 10 by default
+     * @param order  (Optional) desc for the highest values first, the default, or asc for the lowest
+     * @param name   (Optional) Name of the component to search, for example a level
+     * @return A map containing the ranked rooms, best first, or an error message
+     */
+    @RequestMapping(path = "/{id}/topRooms", method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Object> topRooms(@PathVariable("id") String id, @RequestParam(value = "metric") String metric,
+                                        @RequestParam(value = "k", defaultValue = "10") int k,
+                                        @RequestParam(value = "order", required = false) String order,
+                                        @RequestParam(value = "name", required = false) String name) {
+        try {
+            RoomRanking.RoomMetric roomMetric = RoomRanking.RoomMetric.fromName(metric);
+            RoomRanking.Order rankingOrder = RoomRanking.Order.fromName(order);
+            Map<String, Object> response = new HashMap<>();
+            response.put("metric", roomMetric.getName());
+            response.put("rooms", read(id, name, component -> BuildingInfoController.describeRankedRooms(
+                    RoomRanking.top(component, roomMetric, k, rankingOrder), roomMetric)));
+            return response;
+        } catch (Exception e) {
+            logger.error("Error processing topRooms", e);
+            return error("Failed to rank rooms");
+        }
+    }
+
+    /**
+     * Endpoint to estimate percentiles of a per-room metric over a stored building or a specific component.
+     *
+     * @param id          Id of the stored building
+     * @param metric      The metric to record for every room: heatPerCube, heating, lightPerArea or area
+     * @param percentiles (Optional) Comma separated percentiles between 0 and 100, 50,90,99 by default
+     * @param name        (Optional) Name of the component to describe, for example a level
+     * @return A map containing the number of rooms, the minimum, maximum and mean and the requested
+     * percentiles of the metric, or an error message
+     */
+    @RequestMapping(path = "/{id}/distribution", method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Object> distribution(@PathVariable("id") String id, @RequestParam(value = "metric") String metric,
+                                            @RequestParam(value = "percentiles", required = false) String percentiles,
+                                            @RequestParam(value = "name", required = false) String name) {
+        try {
+            RoomRanking.RoomMetric roomMetric = RoomRanking.RoomMetric.fromName(metric);
+            double[] requestedPercentiles = RoomHistogram.parsePercentiles(percentiles);
+            return distribution(roomMetric, read(id, name, component -> RoomHistogram.of(component, roomMetric)), requestedPercentiles);
+        } catch (Exception e) {
+            logger.error("Error processing distribution", e);
+            return error("Failed to calculate distribution");
+        }
+    }
+
+    /**
+     * Endpoint to estimate percentiles of a per-room metric over the rooms of several stored buildings.
+     * The histogram of every building is built separately and the histograms are merged.
+     *
+     * @param ids         Comma separated ids of the stored buildings
+     * @param metric      The metric to record for every room: heatPerCube, heating, lightPerArea or area
+     * @param percentiles (Optional) Comma separated percentiles between 0 and 100, 50,90,99 by default
+     * @return A map containing the number of rooms, the minimum, maximum and mean and the requested
+     * percentiles of the metric, or an error message
+     */
+    @RequestMapping(path = "/distribution", method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Object> portfolioDistribution(@RequestParam(value = "ids") String[] ids, @RequestParam(value = "metric") String metric,
+                                                     @RequestParam(value = "percentiles", required = false) String percentiles) {
+        try {
+            RoomRanking.RoomMetric roomMetric = RoomRanking.RoomMetric.fromName(metric);
+            double[] requestedPercentiles = RoomHistogram.parsePercentiles(percentiles);
+            RoomHistogram portfolio = new RoomHistogram();
+            for (String id : ids) {
+                portfolio.merge(read(id.trim(), building -> RoomHistogram.of(building, roomMetric)));
+            }
+            Map<String, Object> response = distribution(roomMetric, portfolio, requestedPercentiles);
+            response.put("buildings", ids.length);
+            return response;
+        } catch (Exception e) {
+            logger.error("Error processing portfolio distribution", e);
+            return error("Failed to calculate distribution");
+        }
+    }
+
+    /**
+     * Endpoint to find the rooms of a stored building or a specific component matching a filter expression over
+     * the room fields area, cube, heating and light, such as {@code heating / cube between 0.1 and 0.3}.
+     *
+     * @param id     Id of the stored building
+     * @param filter The filter expression
+     * @param name   (Optional) Name of the component to search, for example a level
+     * @param servletResponse The HTTP response, set to status 400 if the filter is invalid
+     * @return A map containing the number of matching rooms and the rooms themselves, in the order of the building,
+     * or an error message, which for an invalid filter tells where the filter is wrong
+     */
+    @RequestMapping(path = "/{id}/rooms", method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Object> rooms(@PathVariable("id") String id, @RequestParam(value = "filter") String filter,
+                                     @RequestParam(value = "name", required = false) String name,
+                                     HttpServletResponse servletResponse) {
+        RoomFilter roomFilter;
+        try {
+            roomFilter = RoomFilter.of(filter);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected filter '{}': {}", filter, e.getMessage());
+            servletResponse.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return error(e.getMessage());
+        }
+        try {
+            List<Map<String, Object>> rooms = read(id, name, component -> BuildingInfoController.describeFilteredRooms(roomFilter.select(component)));
+            Map<String, Object> response = new HashMap<>();
+            response.put("filter", roomFilter.getExpression());
+            response.put("count", rooms.size());
+            response.put("rooms", rooms);
+            return response;
+        } catch (Exception e) {
+            logger.error("Error processing rooms", e);
+            return error("Failed to filter rooms");
+        }
+    }
+
+    /**
+     * Endpoint to calculate several metrics of a stored building or a specific component at once.
+     *
+     * @param id      Id of the stored building
+     * @param metrics (Optional) Comma separated names of the metrics to calculate, all by default
+     * @param name    (Optional) Name of the specific component to calculate the metrics for
+     * @return A map containing the requested metrics or an error message
+     */
+    @RequestMapping(path = "/{id}/report", method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Object> report(@PathVariable("id") String id, @RequestParam(value = "metrics", required = false) String metrics,
+                                      @RequestParam(value = "name", required = false) String name) {
+        try {
+            Set<Metric> requestedMetrics = Metric.parseList(metrics);
+            return read(id, name, BuildingReport::of).toMap(requestedMetrics);
+        } catch (Exception e) {
+            logger.error("Error processing report", e);
+            return error("Failed to calculate report");
+        }
+    }
+
+    /**
+     * Endpoint to add a level, with its rooms, to a stored building.
+     *
+     * @param id        Id of the stored building
+     * @param levelJson UTF-8 encoded JSON representing the level, as in the "levels" array of a building
+     * @return A map containing the totals of the building after the change or an error message
+     */
+    @RequestMapping(path = "/{id}/levels", method = RequestMethod.POST, produces = "application/json")
+    public Map<String, Object> addLevel(@PathVariable("id") String id, @RequestBody byte[] levelJson) {
+        try {
+            return totals(registry.addLevel(id, BuildingParser.parseLevel(levelJson)));
+        } catch (Exception e) {
+            logger.error("Error processing addLevel", e);
+            return error("Failed to add level");
+        }
+    }
+
+    /**
+     * Endpoint to remove a level, with its rooms, from a stored building.
+     *
+     * @param id      Id of the stored building
+     * @param levelId Id of the level to remove
+     * @return A map containing the totals of the building after the change or an error message
+     */
+    @RequestMapping(path = "/{id}/levels/{levelId}", method = RequestMethod.DELETE, produces = "application/json")
+    public Map<String, Object> removeLevel(@PathVariable("id") String id, @PathVariable("levelId") String levelId) {
+        try {
+            return totals(registry.removeLevel(id, levelId));
+        } catch (Exception e) {
+            logger.error("Error processing removeLevel", e);
+            return error("Failed to remove level");
+        }
+    }
+
+    /**
+     * Endpoint to add a room to a level of a stored building.
+     *
+     * @param id       Id of the stored building
+     * @param levelId  Id of the level to add the room to
+     * @param roomJson UTF-8 encoded JSON representing the room, as in the "rooms" array of a level
+     * @return A map containing the totals of the building after the change or an error message
+     */
+    @RequestMapping(path = "/{id}/levels/{levelId}/rooms", method = RequestMethod.POST, produces = "application/json")
+    public Map<String, Object> addRoom(@PathVariable("id") String id, @PathVariable("levelId") String levelId,
+                                       @RequestBody byte[] roomJson) {
+        try {
+            return totals(registry.addRoom(id, levelId, BuildingParser.parseRoom(roomJson)));
+        } catch (Exception e) {
+            logger.error("Error processing addRoom", e);
+            return error("Failed to add room");
+        }
+    }
+
+    /**
+     * Endpoint to change the values of a room of a stored building.
+     *
+     * @param id       Id of the stored building
+     * @param levelId  Id of the level of the room
+     * @param roomId   Id of the room to change
+     * @param roomJson JSON object with any of the fields area, cube, heating and light; missing fields keep their values
+     * @return A map containing the totals of the building after the change or an error message
+     */
+    @RequestMapping(path = "/{id}/levels/{levelId}/rooms/{roomId}", method = RequestMethod.PATCH, produces = "application/json")
+    public Map<String, Object> updateRoom(@PathVariable("id") String id, @PathVariable("levelId") String levelId,
+                                          @PathVariable("roomId") String roomId, @RequestBody String roomJson) {
+        try {
+            JSONObject values = new JSONObject(roomJson);
+            Double area = field(values, "area");
+            Double cube = field(values, "cube");
+            Double heating = field(values, "heating");
+            Double light = field(values, "light");
+            return totals(registry.updateRoom(id, levelId, roomId, room -> room.update(
+                    area != null ? area : room.getArea(),
+                    cube != null ? cube : room.getCube(),
+                    heating != null ? heating.floatValue() : room.getHeating(),
+                    light != null ? light.floatValue() : room.getLight())));
+        } catch (Exception e) {
+            logger.error("Error processing updateRoom", e);
+            return error("Failed to update room");
+        }
+    }
+
+    /**
+     * Endpoint to remove a room from a level of a stored building.
+     *
+     * @param id      Id of the stored building
+     * @param levelId Id of the level of the room
+     * @param roomId  Id of the room to remove
+     * @return A map containing the totals of the building after the change or an error message
+     */
+    @RequestMapping(path = "/{id}/levels/{levelId}/rooms/{roomId}", method = RequestMethod.DELETE, produces = "application/json")
+    public Map<String, Object> removeRoom(@PathVariable("id") String id, @PathVariable("levelId") String levelId,
+                                          @PathVariable("roomId") String roomId) {
+        try {
+            return totals(registry.removeRoom(id, levelId, roomId));
+        } catch (Exception e) {
+            logger.error("Error processing removeRoom", e);
+            return error("Failed to remove room");
+        }
+    }
+
+    /**
+     * Reads a numeric field of a room change strictly.
+     *
+     * @return the value, or null if the field is missing
+     * @throws org.json.JSONException if the field is present but not a number
+     */
+    private static Double field(JSONObject values, String key) {
+        if (!values.has(key)) {
+            return null;
+        }
+        double value = values.getDouble(key);
+        if (!Double.isFinite(value)) {
+            throw new IllegalArgumentException("Invalid value of " + key + ": " + value);
+        }
+        return value;
+    }
+
+    /**
+     * Runs a query on the current version of a stored building.
+     */
+    private <T> T read(String id, Function<BuildingSnapshot, T> query) {
+        return registry.read(id, query).orElseThrow(() -> new IllegalArgumentException("Building with given id not found"));
+    }
+
+    /**
+     * Runs a query on the current version of a stored building, or on its component with the given name.
+     */
+    private <T> T read(String id, String name, Function<BuildingComponent, T> query) {
+        return read(id, building -> query.apply(BuildingInfoController.component(building, name)));
+    }
+
+    private static Map<String, Object> distribution(RoomRanking.RoomMetric metric, RoomHistogram histogram, double[] percentiles) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("metric", metric.getName());
+        response.putAll(histogram.toMap(percentiles));
+        return response;
+    }
+
+    private static Map<String, Object> totals(BuildingReport report) {
+        return report.toMap(EnumSet.of(Metric.AREA, Metric.CUBE, Metric.HEAT, Metric.LIGHT));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    /**
+     * Takes a final snapshot of the stored buildings and closes the change log when the application shuts down.
+     * A periodic snapshot still being written is let finish first, so that the two never write at once.
+     */
+    @PreDestroy
+    public void close() {
+        if (store == null) {
+            return;
+        }
+        snapshots.shutdown();
+        try {
+            if (!snapshots.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Periodic snapshot still running after {} s", SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        snapshot();
+        try {
+            store.close();
+        } catch (IOException e) {
+            logger.error("Error closing the registry store", e);
+        }
+    }
+
+    private void snapshot() {
+        try {
+            long start = System.nanoTime();
+            store.snapshot(registry);
+            logger.debug("Wrote snapshot of {} buildings in {} ms", registry.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            logger.error("Error writing the registry snapshot", e);
+        }
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", message);
+        return errorResponse;
+    }
+}
@@ -0,0 +1,102 @@
+package pl.put.poznan.buildinginfo.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Connects {@link RequestMetrics} to Spring MVC: records the size of every request body
+ * and times the serialization of JSON responses, which happens after the controller returns.
+ */
+@Configuration
+public class MetricsConfiguration implements WebMvcConfigurer {
+
+    private final RequestMetrics metrics;
+
+    /**
+     * Constructs the configuration.
+     *
+     * @param metrics the metrics to record to
+     */
+    public MetricsConfiguration(RequestMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Registers the interceptor recording request body sizes.
+     *
+     * @param registry the interceptor registry
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                long bytes = request.getContentLengthLong();
+                if (bytes >= 0) {
+                    metrics.recordPayload(endpoint(request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE)), bytes);
+                }
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Replaces the JSON converter with one that times the serialization of each response.
+     *
+     * @param converters the converters configured so far
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i) instanceof MappingJackson2HttpMessageConverter) {
+                ObjectMapper objectMapper = ((MappingJackson2HttpMessageConverter) converters.get(i)).getObjectMapper();
+                converters.set(i, new TimedJsonConverter(objectMapper, metrics));
+            }
+        }
+    }
+
+    private static String endpoint(Object pattern) {
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+
+    /**
+     * A JSON converter recording the time spent writing each response as the serialize phase.
+     */
+    static final class TimedJsonConverter extends MappingJackson2HttpMessageConverter {
+        private final RequestMetrics metrics;
+
+        TimedJsonConverter(ObjectMapper objectMapper, RequestMetrics metrics) {
+            super(objectMapper);
+            this.metrics = metrics;
+        }
+
+        @Override
+        protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+            long start = System.nanoTime();
+            try {
+                super.writeInternal(object, type, outputMessage);
+            } finally {
+                RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+                Object pattern = attributes != null
+                        ? attributes.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST)
+                        : null;
+                metrics.recordPhase(endpoint(pattern), "serialize", System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package pl.put.poznan.buildinginfo.rest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import pl.put.poznan.buildinginfo.logic.BuildingParseCache;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long each phase of a request takes, and the size of the requests.
+ *
+ * Every endpoint is tagged with its path, the same value Spring uses for the "uri" tag of
+ * {@code http.server.requests}, which holds the overall latency and throughput. The meters are:
+ * <ul>
+ *     <li>{@code buildinginfo.request.phase}: a timer per endpoint and phase, one of
+ *     parse, lookup, compute and serialize</li>
+ *     <li>{@code buildinginfo.request.errors}: requests answered with an error message</li>
+ *     <li>{@code buildinginfo.request.payload}: the size of the request body in bytes</li>
+ *     <li>{@code buildinginfo.building.rooms}: the number of rooms of each building parsed in full,
+ *     as counted by {@link BuildingParseCache} when the building was parsed</li>
+ * </ul>
+ * The meters are registered on first use and then kept, so recording a value is a map lookup.
+ */
+@Component
+public class RequestMetrics {
+
+    /** Name of the phase timer. */
+    static final String PHASE = "buildinginfo.request.phase";
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> phases = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> payloads = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> rooms = new ConcurrentHashMap<>();
+    private final Map<String, Counter> errors = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs the metrics on top of the given registry.
+     *
+     * @param registry the registry to create the meters in
+     */
+    public RequestMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Gets the registry the meters are created in.
+     *
+     * @return the meter registry
+     */
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Starts recording a request.
+     *
+     * @param endpoint the path of the endpoint, for example "/calculateArea"
+     * @return the recorder of the phases of this request
+     */
+    public RequestTimer request(String endpoint) {
+        return new RequestTimer(endpoint);
+    }
+
+    /**
+     * Records the size of a request body.
+     *
+     * @param endpoint the path of the endpoint
+     * @param bytes    the size of the body in bytes
+     */
+    public void recordPayload(String endpoint, long bytes) {
+        payloads.computeIfAbsent(endpoint, e -> DistributionSummary.builder("buildinginfo.request.payload")
+                .description("Size of the request body")
+                .baseUnit("bytes")
+                .tag("endpoint", e)
+                .publishPercentileHistogram()
+                .register(registry))
+                .record(bytes);
+    }
+
+    /**
+     * Records the duration of one phase.
+     *
+     * @param endpoint the path of the endpoint
+     * @param phase    the phase, one of parse, lookup, compute and serialize
+     * @param nanos    the duration in nanoseconds
+     */
+    public void recordPhase(String endpoint, String phase, long nanos) {
+        phases.computeIfAbsent(endpoint + ' ' + phase, key -> Timer.builder(PHASE)
+                .description("Time spent in one phase of a request")
+                .tags("endpoint", endpoint, "phase", phase)
+                .publishPercentileHistogram()
+                .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * An action timed as one phase of a request.
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    public interface Phase<T> {
+
+        /**
+         * Runs the phase.
+         *
+         * @return the result of the phase
+         * @throws Exception if the phase fails
+         */
+        T run() throws Exception;
+    }
+
+    /**
+     * Records the phases of a single request.
+     */
+    public final class RequestTimer {
+        private final String endpoint;
+
+        private RequestTimer(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        /**
+         * Times the parsing of the request body and records the number of rooms of the building.
+         *
+         * @param parse the parse action
+         * @return the parsed building
+         * @throws Exception if parsing fails
+         */
+        public Building parse(Phase<BuildingParseCache.Parsed> parse) throws Exception {
+            BuildingParseCache.Parsed parsed = time("parse", parse);
+            rooms.computeIfAbsent(endpoint, e -> DistributionSummary.builder("buildinginfo.building.rooms")
+                    .description("Number of rooms of the requested building")
+                    .baseUnit("rooms")
+                    .tag("endpoint", e)
+                    .publishPercentileHistogram()
+                    .register(registry))
+                    .record(parsed.getRooms());
+            return parsed.getBuilding();
+        }
+
+        /**
+         * Times the parsing of only the part of the request body a name refers to.
+         * The number of rooms is not recorded, since the building is not parsed in full, and the
+         * phase includes finding the named component, which is not timed as a lookup.
+         *
+         * @param parse the parse action
+         * @param <T>   the type of the result
+         * @return the result of parsing
+         * @throws Exception if parsing fails
+         */
+        public <T> T parseScoped(Phase<T> parse) throws Exception {
+            return time("parse", parse);
+        }
+
+        /**
+         * Times the lookup of the component the request refers to.
+         *
+         * @param lookup the lookup action
+         * @param <T>    the type of the result
+         * @return the component
+         * @throws Exception if the lookup fails
+         */
+        public <T> T lookup(Phase<T> lookup) throws Exception {
+            return time("lookup", lookup);
+        }
+
+        /**
+         * Times the calculation of the response.
+         *
+         * @param compute the calculation
+         * @param <T>     the type of the result
+         * @return the result
+         * @throws Exception if the calculation fails
+         */
+        public <T> T compute(Phase<T> compute) throws Exception {
+            return time("compute", compute);
+        }
+
+        /**
+         * Times the serialization of a response the controller writes itself.
+         *
+         * @param serialize the serialization
+         * @param <T>       the type of the result
+         * @return the serialized response
+         * @throws Exception if the serialization fails
+         */
+        public <T> T serialize(Phase<T> serialize) throws Exception {
+            return time("serialize", serialize);
+        }
+
+        /**
+         * Counts the request as answered with an error message.
+         */
+        public void error() {
+            errors.computeIfAbsent(endpoint, e -> Counter.builder("buildinginfo.request.errors")
+                    .description("Requests answered with an error message")
+                    .tag("endpoint", e)
+                    .register(registry))
+                    .increment();
+        }
+
+        private <T> T time(String phase, Phase<T> action) throws Exception {
+            long start = System.nanoTime();
+            try {
+                return action.run();
+            } finally {
+                recordPhase(endpoint, phase, System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link BuildingBatchProcessor}.
+ */
+class BuildingBatchProcessorTest {
+
+    private BuildingBatchProcessor processor;
+    private BuildingGenerator generator;
+
+    /**
+     * Creates a processor with fewer in-flight slots than the batches have buildings.
+     */
+    @BeforeEach
+    void setUp() {
+        processor = new BuildingBatchProcessor(4, 3);
+        generator = BuildingGenerator.builder().seed(11).levels(3).roomsPerLevel(20).build();
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    @AfterEach
+    void tearDown() {
+        processor.close();
+    }
+
+    /**
+     * Tests that line-delimited and array input give the same result for every building.
+     */
+    @Test
+    void linesAndArrayGiveSameResults() throws Exception {
+        // Arrange
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        ByteArrayOutputStream array = new ByteArrayOutputStream();
+        generator.writePortfolioLines(lines, 10);
+        generator.writePortfolio(array, 10);
+
+        // Act
+        Map<Integer, JSONObject> fromLines = process(lines.toByteArray(), EnumSet.of(Metric.AREA, Metric.RESTROOMS));
+        Map<Integer, JSONObject> fromArray = process(array.toByteArray(), EnumSet.of(Metric.AREA, Metric.RESTROOMS));
+
+        // Assert
+        assertEquals(10, fromLines.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(fromLines.get(i).toString(), fromArray.get(i).toString());
+            assertEquals("building" + (i + 1), fromLines.get(i).getString("id"));
+            assertFalse(fromLines.get(i).has("totalHeat"));
+        }
+        Building first = BuildingParser.parseJson(generator.toJson());
+        assertEquals(Math.round(first.calculateArea() * 100.0) / 100.0, fromLines.get(0).getDouble("totalArea"), 1e-9);
+    }
+
+    /**
+     * Tests that a malformed line only affects its own building.
+     */
+    @Test
+    void malformedLineGivesErrorLine() throws Exception {
+        // Arrange
+        String input = "{\"id\":\"b1\",\"levels\":[]}\n"
+                + "\n"
+                + "{\"id\":\"b2\",\"levels\":[{\"id\":\"l1\"}]}\n"
+                + "{\"id\":\"b3\",\"levels\":[\n"
+                + "{\"id\":\"b4\",\"levels\":[]}";
+
+        // Act
+        Map<Integer, JSONObject> results = process(input.getBytes(StandardCharsets.UTF_8), EnumSet.allOf(Metric.class));
+
+        // Assert
+        assertEquals(4, results.size());
+        assertEquals("b1", results.get(0).getString("id"));
+        assertEquals("JSONObject[\"rooms\"] not found.", results.get(1).getString("error"));
+        assertTrue(results.get(2).has("error"));
+        assertEquals("b4", results.get(3).getString("id"));
+    }
+
+    /**
+     * Tests that a syntax error in array input ends the batch with an error line.
+     */
+    @Test
+    void malformedArrayEndsBatch() throws Exception {
+        // Arrange
+        String input = "[{\"id\":\"b1\",\"levels\":[]}, {\"id\":\"b2\",\"levels\":[}, {\"id\":\"b3\",\"levels\":[]}]";
+
+        // Act
+        Map<Integer, JSONObject> results = process(input.getBytes(StandardCharsets.UTF_8), EnumSet.of(Metric.AREA));
+
+        // Assert
+        assertEquals(2, results.size());
+        assertEquals(0.0, results.get(0).getDouble("totalArea"));
+        assertTrue(results.get(1).has("error"));
+    }
+
+    /**
+     * Tests that building files found by a glob are evaluated, with one NDJSON or CSV line per file,
+     * and that a broken file gives an error line without stopping the batch.
+     */
+    @Test
+    void processesFiles(@TempDir Path directory) throws Exception {
+        // Arrange
+        Building building = BuildingParser.parseJson(generator.toJson());
+        Files.write(directory.resolve("a.json"), generator.toJson());
+        BuildingBinaryFormat.write(ColumnarBuilding.of(building), directory.resolve("b.bin"));
+        Files.write(directory.resolve("c.json"), "{\"id\":".getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("notes.txt"), new byte[0]);
+        List<Path> files = BuildingBatchProcessor.findFiles(directory.toString());
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+
+        // Act
+        BuildingBatchProcessor.Summary summary = processor.processFiles(files, EnumSet.of(Metric.AREA), BuildingBatchProcessor.OutputFormat.NDJSON, ndjson);
+        processor.processFiles(BuildingBatchProcessor.findFiles(directory + "/*.json"), EnumSet.of(Metric.AREA, Metric.LIGHT),
+                BuildingBatchProcessor.OutputFormat.CSV, csv);
+
+        // Assert
+        assertEquals(3, summary.getFiles());
+        assertEquals(1, summary.getFailures());
+        assertEquals(120, summary.getRooms());
+        Map<String, JSONObject> results = new TreeMap<>();
+        for (String line : ndjson.toString(StandardCharsets.UTF_8).split("\n")) {
+            JSONObject result = new JSONObject(line);
+            results.put(Paths.get(result.getString("file")).getFileName().toString(), result);
+        }
+        assertEquals(List.of("a.json", "b.bin", "c.json"), List.copyOf(results.keySet()));
+        assertEquals(Math.round(building.calculateArea() * 100.0) / 100.0, results.get("b.bin").getDouble("totalArea"));
+        assertEquals(results.get("a.json").getDouble("totalArea"), results.get("b.bin").getDouble("totalArea"));
+        assertEquals(60, results.get("a.json").getInt("rooms"));
+        assertTrue(results.get("c.json").has("error"));
+
+        String[] lines = csv.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("file,id,rooms,totalArea,totalLight,error", lines[0]);
+        assertEquals(3, lines.length);
+        assertEquals(6, lines[1].split(",", -1).length);
+    }
+
+    private Map<Integer, JSONObject> process(byte[] input, EnumSet<Metric> metrics) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        processor.process(new ByteArrayInputStream(input), metrics, out);
+        Map<Integer, JSONObject> results = new TreeMap<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            JSONObject result = new JSONObject(line);
+            assertNull(results.put(result.getInt("index"), result), "duplicate index in " + line);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,118 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link BuildingBinaryFormat}.
+ */
+class BuildingBinaryFormatTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Tests that a building written to a file and mapped back has the same columns.
+     */
+    @Test
+    void fileRoundTripKeepsColumns() throws IOException {
+        // Arrange
+        ColumnarBuilding building = ColumnarBuilding.parse(BuildingGenerator.builder()
+                .seed(11)
+                .levels(5)
+                .roomsPerLevel(300)
+                .nameCardinality(40)
+                .build()
+                .toJson());
+        Path file = directory.resolve("building.bin");
+
+        // Act
+        BuildingBinaryFormat.write(building, file);
+        ColumnarBuilding loaded = BuildingBinaryFormat.read(file);
+
+        // Assert
+        assertEquals(building.getId(), loaded.getId());
+        assertEquals(building.getName(), loaded.getName());
+        assertEquals(building.getLevelCount(), loaded.getLevelCount());
+        assertEquals(building.getRoomCount(), loaded.getRoomCount());
+        assertEquals(building.getDictionarySize(), loaded.getDictionarySize());
+        for (int level = 0; level < building.getLevelCount(); level++) {
+            assertEquals(building.getLevelId(level), loaded.getLevelId(level));
+            assertEquals(building.getLevelEnd(level), loaded.getLevelEnd(level));
+        }
+        for (int room = 0; room < building.getRoomCount(); room++) {
+            assertEquals(building.getRoomId(room), loaded.getRoomId(room));
+            assertEquals(building.getRoomName(room), loaded.getRoomName(room));
+            assertEquals(building.getArea(room), loaded.getArea(room), 0.0);
+            assertEquals(building.getCube(room), loaded.getCube(room), 0.0);
+            assertEquals(building.getHeating(room), loaded.getHeating(room), 0.0f);
+            assertEquals(building.getLight(room), loaded.getLight(room), 0.0f);
+        }
+        assertEquals(building.calculateHeat(), loaded.calculateHeat(), 0.0);
+    }
+
+    /**
+     * Tests that converting JSON to a building file and back gives JSON describing the same
+     * building, including missing names and non-ASCII strings.
+     */
+    @Test
+    void jsonConversionRoundTrip() throws Exception {
+        // Arrange
+        String json = "{\"id\":\"b1\",\"levels\":["
+                + "{\"id\":\"l1\",\"name\":\"Parter\",\"rooms\":["
+                + "{\"id\":\"r1\",\"name\":\"Łazienka\",\"area\":12.5,\"cube\":30,\"heating\":40.25,\"light\":100.1},"
+                + "{\"id\":\"r2\",\"area\":20,\"cube\":60,\"heating\":120,\"light\":200}]},"
+                + "{\"id\":\"l2\",\"rooms\":[]}]}";
+        Path file = directory.resolve("building.bin");
+
+        // Act
+        BuildingBinaryFormat.jsonToBinary(new ByteArrayInputStream(json.getBytes("UTF-8")), file);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BuildingBinaryFormat.binaryToJson(file, out);
+        Building original = BuildingParser.parseJson(json);
+        Building converted = BuildingParser.parseJson(out.toString("UTF-8"));
+
+        // Assert
+        assertEquals(original.toString(), converted.toString());
+        assertNull(converted.getName());
+        assertEquals("Łazienka", converted.getComponents().get(0).getComponents().get(0).getName());
+        assertEquals(original.calculateLight(), converted.calculateLight(), 0.0);
+    }
+
+    /**
+     * Tests that files with a wrong magic number, a newer version or a wrong length are rejected.
+     */
+    @Test
+    void invalidFilesAreRejected() throws IOException {
+        // Arrange
+        Path file = directory.resolve("building.bin");
+        BuildingBinaryFormat.write(ColumnarBuilding.parse(BuildingGenerator.builder().build().toJson()), file);
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer newer = ByteBuffer.wrap(bytes.clone()).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(4, BuildingBinaryFormat.VERSION + 1);
+        ByteBuffer truncated = ByteBuffer.wrap(bytes, 0, bytes.length - 1);
+        ByteBuffer badCode = ByteBuffer.wrap(bytes.clone()).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(24, 1_000);
+
+        // Act & Assert
+        IOException notBuilding = assertThrows(IOException.class,
+                () -> BuildingBinaryFormat.read(ByteBuffer.wrap("{\"id\":\"b1\"}".getBytes("UTF-8"))));
+        assertEquals("Not a building file", notBuilding.getMessage());
+        IOException version = assertThrows(IOException.class, () -> BuildingBinaryFormat.read(newer));
+        assertTrue(version.getMessage().startsWith("Unsupported building file version"));
+        assertThrows(IOException.class, () -> BuildingBinaryFormat.read(truncated));
+        assertThrows(IOException.class, () -> BuildingBinaryFormat.read(badCode));
+        assertNotNull(BuildingBinaryFormat.read(ByteBuffer.wrap(bytes)));
+    }
+}
@@ -0,0 +1,79 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link BuildingFileWatcher}.
+ */
+class BuildingFileWatcherTest {
+
+    /**
+     * Tests that the files are loaded at start, that a burst of writes to one file loads only that
+     * file, once, with its last content, and that a broken file is reported without stopping the watcher.
+     */
+    @Test
+    void loadsChangedFilesOnce(@TempDir Path directory) throws Exception {
+        // Arrange
+        Path first = directory.resolve("first.json");
+        Path second = directory.resolve("second.json");
+        Files.write(first, building("b1", 10).getBytes(StandardCharsets.UTF_8));
+        Files.write(second, building("b2", 20).getBytes(StandardCharsets.UTF_8));
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        BuildingFileWatcher.Listener listener = new BuildingFileWatcher.Listener() {
+            @Override
+            public void loaded(Path file, Building building) {
+                events.add(file.getFileName() + " " + building.calculateArea());
+            }
+
+            @Override
+            public void failed(Path file, Exception error) {
+                events.add(file.getFileName() + " failed");
+            }
+        };
+        BuildingFileWatcher watcher = new BuildingFileWatcher(Arrays.asList(first, second), 300, listener);
+        Thread thread = new Thread(watcher::run);
+        thread.start();
+
+        try {
+            // Act
+            String initialFirst = events.poll(10, TimeUnit.SECONDS);
+            String initialSecond = events.poll(10, TimeUnit.SECONDS);
+            for (int area = 11; area <= 15; area++) {
+                Files.write(first, building("b1", area).getBytes(StandardCharsets.UTF_8));
+            }
+            Files.write(directory.resolve("other.json"), building("b3", 30).getBytes(StandardCharsets.UTF_8));
+            String changed = events.poll(10, TimeUnit.SECONDS);
+            String extra = events.poll(1, TimeUnit.SECONDS);
+            Files.write(second, "{\"id\":".getBytes(StandardCharsets.UTF_8));
+            String broken = events.poll(10, TimeUnit.SECONDS);
+
+            // Assert
+            assertEquals("first.json 10.0", initialFirst);
+            assertEquals("second.json 20.0", initialSecond);
+            assertEquals("first.json 15.0", changed);
+            assertNull(extra);
+            assertEquals("second.json failed", broken);
+        } finally {
+            watcher.close();
+            thread.join(10_000);
+        }
+        assertFalse(thread.isAlive());
+    }
+
+    private static String building(String id, double area) {
+        return "{\"id\":\"" + id + "\",\"levels\":[{\"id\":\"l1\",\"rooms\":[{\"id\":\"r1\",\"area\":" + area
+                + ",\"cube\":1.0,\"heating\":1.0,\"light\":1.0}]}]}";
+    }
+}
@@ -0,0 +1,117 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import org.junit.jupiter.api.Test;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link BuildingGenerator}.
+ */
+class BuildingGeneratorTest {
+
+    /**
+     * Tests that the generated building has the configured shape and parses.
+     */
+    @Test
+    void generatesConfiguredShape() throws IOException {
+        // Arrange
+        BuildingGenerator generator = BuildingGenerator.builder()
+                .seed(42)
+                .levels(3)
+                .roomsPerLevel(5)
+                .nameCardinality(4)
+                .area(BuildingGenerator.Distribution.constant(10.0))
+                .build();
+
+        // Act
+        Building building = BuildingParser.parseJson(generator.toJson());
+
+        // Assert
+        assertEquals(15, generator.getRoomCount());
+        assertEquals("building1", building.getId());
+        assertEquals(3, building.getComponents().size());
+        for (BuildingComponent level : building.getComponents()) {
+            assertEquals(5, level.getComponents().size());
+        }
+        assertEquals(150.0, building.calculateArea(), 1e-9);
+        assertEquals(4, BuildingNameIndex.of(building).get().findAll("Room 1").size());
+        assertEquals(3, BuildingNameIndex.of(building).get().findAll("Room 4").size());
+        assertTrue(BuildingNameIndex.of(building).get().findAll("Room 5").isEmpty());
+    }
+
+    /**
+     * Tests that the same seed gives the same bytes and a different seed different values.
+     */
+    @Test
+    void sameSeedSameOutput() {
+        // Arrange
+        BuildingGenerator.Builder builder = BuildingGenerator.builder().levels(4).roomsPerLevel(50);
+
+        // Act
+        byte[] first = builder.seed(7).build().toJson();
+        byte[] second = builder.seed(7).build().toJson();
+        byte[] other = builder.seed(8).build().toJson();
+
+        // Assert
+        assertArrayEquals(first, second);
+        assertFalse(Arrays.equals(first, other));
+    }
+
+    /**
+     * Tests that the array and line-delimited portfolios hold the same buildings and
+     * that the single building equals the first one of the portfolio.
+     */
+    @Test
+    void portfolioFormatsAgree() throws IOException {
+        // Arrange
+        BuildingGenerator generator = BuildingGenerator.builder().seed(3).levels(2).roomsPerLevel(3).build();
+        ByteArrayOutputStream array = new ByteArrayOutputStream();
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+
+        // Act
+        generator.writePortfolio(array, 3);
+        generator.writePortfolioLines(lines, 3);
+
+        // Assert
+        List<String> documents = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(lines.toByteArray()), StandardCharsets.UTF_8))
+                .lines().collect(Collectors.toList());
+        assertEquals(3, documents.size());
+        assertEquals("[" + String.join(",", documents) + "]", array.toString(StandardCharsets.UTF_8));
+        assertEquals(documents.get(0), new String(generator.toJson(), StandardCharsets.UTF_8));
+        assertEquals("building3", BuildingParser.parseJson(documents.get(2)).getId());
+    }
+
+    /**
+     * Tests that the normal distribution never produces negative values.
+     */
+    @Test
+    void normalDistributionIsNotNegative() throws IOException {
+        // Arrange
+        BuildingGenerator generator = BuildingGenerator.builder()
+                .levels(10)
+                .roomsPerLevel(100)
+                .heating(BuildingGenerator.Distribution.normal(1.0, 5.0))
+                .build();
+
+        // Act
+        ColumnarBuilding columns = ColumnarBuilding.parse(generator.toJson());
+
+        // Assert
+        for (int room = 0; room < columns.getRoomCount(); room++) {
+            assertTrue(columns.getHeating(room) >= 0.0f);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import org.junit.jupiter.api.Test;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.Room;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link BuildingJsonWriter}.
+ */
+class BuildingJsonWriterTest {
+
+    /**
+     * Tests that a building written with all fields parses back to the same building.
+     */
+    @Test
+    void writtenJsonParsesBack() throws IOException {
+        // Arrange
+        Building building = BuildingParser.parseJson(BuildingGenerator.builder()
+                .seed(3)
+                .levels(4)
+                .roomsPerLevel(50)
+                .nameCardinality(0)
+                .build()
+                .toJson());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        new BuildingJsonWriter().write(building, out);
+        Building parsed = BuildingParser.parseJson(out.toByteArray());
+
+        // Assert
+        assertEquals(building.toString(), parsed.toString());
+        assertEquals(building.calculateHeat(), parsed.calculateHeat(), 0.0);
+    }
+
+    /**
+     * Tests that only the requested fields and levels are written, matching levels by id or name.
+     */
+    @Test
+    void projectionAndLevelFilter() throws IOException {
+        // Arrange
+        Building building = BuildingParser.parseJson(BuildingGenerator.builder()
+                .seed(3)
+                .levels(3)
+                .roomsPerLevel(1)
+                .build()
+                .toJson());
+        Set<BuildingJsonWriter.Field> fields = BuildingJsonWriter.Field.parseList(" name, HEATING ");
+        BuildingJsonWriter writer = new BuildingJsonWriter(fields, BuildingJsonWriter.parseLevels("level1, Level 3,"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        writer.write(building, out);
+
+        // Assert
+        assertEquals(EnumSet.of(BuildingJsonWriter.Field.NAME, BuildingJsonWriter.Field.HEATING), fields);
+        String heating1 = String.valueOf(((Room) building.getComponents().get(0).getComponents().get(0)).getHeating());
+        String heating3 = String.valueOf(((Room) building.getComponents().get(2).getComponents().get(0)).getHeating());
+        assertEquals("{\"name\":\"Building 1\",\"levels\":["
+                        + "{\"name\":\"Level 1\",\"rooms\":[{\"name\":\"Room 1\",\"heating\":" + heating1 + "}]},"
+                        + "{\"name\":\"Level 3\",\"rooms\":[{\"name\":\"Room 3\",\"heating\":" + heating3 + "}]}]}",
+                out.toString("UTF-8"));
+        assertThrows(IllegalArgumentException.class, () -> BuildingJsonWriter.Field.parseList("id,volume"));
+    }
+}
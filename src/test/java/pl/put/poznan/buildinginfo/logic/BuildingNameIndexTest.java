@@ -0,0 +1,137 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+import pl.put.poznan.buildinginfo.logic.entities.Level;
+import pl.put.poznan.buildinginfo.logic.entities.Room;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link BuildingNameIndex}, checking that indexed lookups return the same
+ * component as the recursive search in {@link BuildingFinder}.
+ */
+class BuildingNameIndexTest {
+
+    private Building building;
+    private Level level1;
+    private Level level2;
+    private Room office1;
+    private Room office2;
+
+    /**
+     * Builds a building with a room name used on both levels.
+     */
+    @BeforeEach
+    void setUp() {
+        office1 = new Room("room1", "Office", 30.0, 90.0, 15.0f, 200.0f);
+        office2 = new Room("room2", "OFFICE", 25.0, 75.0, 10.0f, 150.0f);
+        level1 = new Level("level1", "Ground Floor");
+        level1.addComponent(new Room("room0", "Hall", 50.0, 150.0, 20.5f, 300.0f));
+        level1.addComponent(office1);
+        level2 = new Level("level2", "First Floor");
+        level2.addComponent(office2);
+        building = new Building("building1", "Main Office");
+        building.addComponent(level1);
+        building.addComponent(level2);
+    }
+
+    /**
+     * Tests that lookups ignore case and resolve duplicates in traversal order.
+     */
+    @Test
+    void findsComponentsIgnoringCase() {
+        // Act
+        BuildingNameIndex index = BuildingNameIndex.attach(building);
+
+        // Assert
+        assertSame(building, index.find("main office").orElseThrow());
+        assertSame(level2, index.find("FIRST floor").orElseThrow());
+        assertSame(office1, index.find("office").orElseThrow());
+        assertEquals(List.of(office1, office2), index.findAll("Office"));
+        assertFalse(index.find("Offce").isPresent());
+        assertSame(index, BuildingNameIndex.attach(building));
+    }
+
+    /**
+     * Tests that the index follows components added and removed after it was built,
+     * including a duplicate inserted before an existing one in traversal order.
+     */
+    @Test
+    void followsStructuralChanges() {
+        // Arrange
+        BuildingNameIndex index = BuildingNameIndex.attach(building);
+        Room office0 = new Room("room3", "office", 10.0, 30.0, 5.0f, 50.0f);
+
+        // Act & Assert
+        level1.removeComponent(office1);
+        assertSame(office2, index.find("Office").orElseThrow());
+
+        level1.addComponent(office0);
+        assertSame(office0, index.find("Office").orElseThrow());
+
+        building.removeComponent(level1);
+        assertSame(office2, index.find("Office").orElseThrow());
+        assertFalse(index.find("Hall").isPresent());
+
+        Level level3 = new Level("level3", "Roof");
+        level3.addComponent(new Room("room4", "Hall", 5.0, 15.0, 1.0f, 10.0f));
+        building.addComponent(level3);
+        assertSame(level3, index.find("roof").orElseThrow());
+        assertEquals("room4", index.find("hall").orElseThrow().getId());
+    }
+
+    /**
+     * Tests that many components sharing a name, added in an order that differs from
+     * traversal order, are found in traversal order.
+     */
+    @Test
+    void ordersManyDuplicates() {
+        // Arrange
+        BuildingNameIndex index = BuildingNameIndex.attach(building);
+        Room first = new Room("room5", "Office", 1.0, 3.0, 1.0f, 10.0f);
+
+        // Act
+        for (int i = 0; i < 1000; i++) {
+            level2.addComponent(new Room("level2-" + i, "Office", 1.0, 3.0, 1.0f, 10.0f));
+        }
+        level1.addComponent(first);
+        List<BuildingComponent> offices = index.findAll("office");
+        level2.removeComponent(level2.getComponents().get(1));
+
+        // Assert
+        assertEquals(1003, offices.size());
+        assertEquals(List.of(office1, first, office2), offices.subList(0, 3));
+        assertEquals("level2-999", offices.get(1002).getId());
+        assertEquals("level2-1", index.findAll("office").get(3).getId());
+        assertSame(office1, index.find("OFFICE").orElseThrow());
+    }
+
+    /**
+     * Tests that {@link BuildingFinder#findComponentByName} gives the same answers
+     * with and without an index.
+     */
+    @Test
+    void finderMatchesRecursiveSearch() {
+        // Arrange
+        String[] names = {"Main Office", "ground floor", "office", "HALL", "missing", "First Floor"};
+        Optional<?>[] expected = new Optional<?>[names.length];
+        for (int i = 0; i < names.length; i++) {
+            expected[i] = BuildingFinder.findComponentByName(building, names[i]);
+        }
+
+        // Act
+        BuildingNameIndex.attach(building);
+
+        // Assert
+        for (int i = 0; i < names.length; i++) {
+            Optional<BuildingComponent> actual = BuildingFinder.findComponentByName(building, names[i]);
+            assertEquals(expected[i], actual, names[i]);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import org.junit.jupiter.api.Test;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link BuildingParseCache}, covering hits, misses and eviction.
+ */
+class BuildingParseCacheTest {
+
+    private static String json(String id) {
+        return "{\"id\": \"" + id + "\", \"name\": \"Main Office\", \"levels\": [{\"id\": \"level1\", \"rooms\": [" +
+                "{\"id\": \"room1\", \"area\": 50.0, \"cube\": 150.0, \"heating\": 20.5, \"light\": 300.0}]}]}";
+    }
+
+    /**
+     * Tests that an unchanged body returns the same building and counts as a hit.
+     */
+    @Test
+    void reusesParsedBuilding() throws IOException {
+        // Arrange
+        BuildingParseCache cache = new BuildingParseCache(1 << 20);
+
+        // Act
+        Building first = cache.parse(json("b1"));
+        Building second = cache.parse(json("b1"));
+        Building other = cache.parse(json("b2"));
+
+        // Assert
+        assertSame(first, second);
+        assertNotSame(first, other);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    /**
+     * Tests that the rooms are counted when the building is parsed and the count is reused on hits.
+     */
+    @Test
+    void countsRoomsOnce() throws IOException {
+        // Arrange
+        BuildingParseCache cache = new BuildingParseCache(1 << 20);
+
+        // Act
+        BuildingParseCache.Parsed first = cache.parseCounted(json("b1"));
+        BuildingParseCache.Parsed second = cache.parseCounted(json("b1"));
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(1, first.getRooms());
+        assertSame(first.getBuilding(), cache.parse(json("b1")));
+    }
+
+    /**
+     * Tests that a named component is parsed on its own and cached when the body is not cached,
+     * and looked up in the cached building otherwise.
+     */
+    @Test
+    void parsesNamedComponent() throws IOException {
+        // Arrange
+        BuildingParseCache cache = new BuildingParseCache(1 << 20);
+
+        // Act
+        BuildingComponent scoped = cache.parseComponent(json("b1"), "Main Office").orElse(null);
+        BuildingComponent repeated = cache.parseComponent(json("b1"), "MAIN OFFICE").orElse(null);
+        Building building = cache.parse(json("b1"));
+        BuildingComponent cached = cache.parseComponent(json("b1"), "main office").orElse(null);
+
+        // Assert
+        assertNotNull(scoped);
+        assertSame(scoped, repeated);
+        assertNotSame(building, scoped);
+        assertSame(building, cached);
+        assertFalse(cache.parseComponent(json("b2"), "Missing").isPresent());
+        assertFalse(cache.parseComponent(json("b2"), "Missing").isPresent());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(3, cache.size());
+    }
+
+    /**
+     * Tests that a body whose levels after the named one are invalid is rejected whether or
+     * not it is cached, as by a full parse.
+     */
+    @Test
+    void rejectsInvalidTailLikeFullParse() {
+        // Arrange
+        String json = "{\"id\": \"b1\", \"levels\": [{\"id\": \"level1\", \"name\": \"Ground Floor\", \"rooms\": []}, " +
+                "{\"id\": \"level2\", \"rooms\": [{\"id\": \"room1\", \"cube\": 150.0, \"heating\": 20.5, \"light\": 300.0}]}]}";
+        BuildingParseCache cache = new BuildingParseCache(1 << 20);
+
+        // Act
+        Exception full = assertThrows(Exception.class, () -> cache.parse(json));
+        Exception scoped = assertThrows(Exception.class, () -> cache.parseComponent(json, "Ground Floor"));
+
+        // Assert
+        assertEquals(full.getClass(), scoped.getClass());
+        assertEquals(full.getMessage(), scoped.getMessage());
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Tests that the least recently used building is evicted once the budget is exceeded.
+     */
+    @Test
+    void evictsLeastRecentlyUsed() throws IOException {
+        // Arrange
+        long bytes = BuildingSizeEstimator.estimateBytes(BuildingParser.parseJson(json("b1")));
+        BuildingParseCache cache = new BuildingParseCache(2 * bytes);
+        cache.parse(json("b1"));
+        cache.parse(json("b2"));
+        cache.parse(json("b1"));
+
+        // Act
+        cache.parse(json("b3"));
+        cache.parse(json("b1"));
+        cache.parse(json("b2"));
+
+        // Assert
+        assertEquals(2, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+        assertEquals(2, cache.getEvictionCount());
+        assertEquals(2, cache.size());
+    }
+}
@@ -0,0 +1,221 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import org.json.JSONException;
+import org.junit.jupiter.api.Test;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+import pl.put.poznan.buildinginfo.logic.entities.Room;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link BuildingParser}, checking that the streaming parser produces
+ * the same model as the DOM based {@link BuildingParser#parseJson(String)}.
+ */
+class BuildingParserTest {
+
+    private static final String JSON = "{\n" +
+            "  \"id\": \"building1\",\n" +
+            "  \"name\": \"Main Office\",\n" +
+            "  \"levels\": [\n" +
+            "    {\n" +
+            "      \"id\": \"level1\",\n" +
+            "      \"name\": \"Ground Floor\",\n" +
+            "      \"rooms\": [\n" +
+            "        {\"id\": \"room1\", \"name\": \"Conference Room\", \"area\": 50.0, \"cube\": 150.0, \"heating\": 20.5, \"light\": 300.0},\n" +
+            "        {\"id\": \"room2\", \"name\": \"Office 101\", \"area\": 30.0, \"cube\": 90.0, \"heating\": 15.0, \"light\": 200.0}\n" +
+            "      ]\n" +
+            "    },\n" +
+            "    {\n" +
+            "      \"id\": \"level2\",\n" +
+            "      \"rooms\": [\n" +
+            "        {\"light\": \"150\", \"heating\": 10, \"cube\": 75.0, \"area\": 25.0, \"id\": \"room3\", \"name\": null, \"extra\": [1, 2]}\n" +
+            "      ]\n" +
+            "    }\n" +
+            "  ]\n" +
+            "}";
+
+    /**
+     * Tests that the streaming parser builds the same hierarchy as the DOM parser,
+     * including optional names, numeric strings and unknown fields.
+     */
+    @Test
+    void streamingParserMatchesDomParser() throws IOException {
+        // Arrange
+        byte[] bytes = JSON.getBytes(StandardCharsets.UTF_8);
+
+        // Act
+        Building expected = BuildingParser.parseJson(JSON);
+        Building fromBytes = BuildingParser.parseJson(bytes);
+        Building fromStream = BuildingParser.parseJson(new ByteArrayInputStream(bytes));
+
+        // Assert
+        assertEquals(expected.toString(), fromBytes.toString());
+        assertEquals(expected.toString(), fromStream.toString());
+        assertNull(fromBytes.getComponents().get(1).getName());
+        Room room = (Room) fromBytes.getComponents().get(1).getComponents().get(0);
+        assertNull(room.getName());
+        assertEquals(150.0f, room.getLight());
+        assertEquals(expected.calculateHeat(), fromBytes.calculateHeat());
+    }
+
+    /**
+     * Tests that both parsers reject a room without a required numeric field.
+     */
+    @Test
+    void missingRequiredFieldIsRejected() {
+        // Arrange
+        String json = "{\"id\": \"b\", \"levels\": [{\"id\": \"l\", \"rooms\": [" +
+                "{\"id\": \"r\", \"area\": 1, \"cube\": 1, \"heating\": 1}]}]}";
+
+        // Act & Assert
+        assertThrows(JSONException.class, () -> BuildingParser.parseJson(json));
+        JSONException e = assertThrows(JSONException.class,
+                () -> BuildingParser.parseJson(json.getBytes(StandardCharsets.UTF_8)));
+        assertTrue(e.getMessage().contains("light"));
+    }
+
+    /**
+     * Tests that both parsers reject a building without levels, and that the streaming
+     * parser rejects a non string id.
+     */
+    @Test
+    void invalidBuildingIsRejected() {
+        // Arrange
+        String noLevels = "{\"id\": \"b\"}";
+        String numericId = "{\"id\": 7, \"levels\": []}";
+
+        // Act & Assert
+        assertThrows(JSONException.class, () -> BuildingParser.parseJson(noLevels));
+        assertThrows(JSONException.class, () -> BuildingParser.parseJson(noLevels.getBytes(StandardCharsets.UTF_8)));
+        assertThrows(JSONException.class, () -> BuildingParser.parseJson(numericId.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Tests that the streaming parser allocates noticeably less per parse than the
+     * DOM parser on a larger building.
+     */
+    @Test
+    void streamingParserAllocatesLessThanDomParser() throws IOException {
+        // Arrange
+        String json = largeBuildingJson(50, 100);
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < 5; i++) {
+            BuildingParser.parseJson(json);
+            BuildingParser.parseJson(bytes);
+        }
+
+        // Act
+        long start = threads.getThreadAllocatedBytes(thread);
+        BuildingComponent dom = BuildingParser.parseJson(json);
+        long domBytes = threads.getThreadAllocatedBytes(thread) - start;
+        start = threads.getThreadAllocatedBytes(thread);
+        BuildingComponent streamed = BuildingParser.parseJson(bytes);
+        long streamingBytes = threads.getThreadAllocatedBytes(thread) - start;
+
+        // Assert
+        assertEquals(dom.calculateArea(), streamed.calculateArea());
+        assertTrue(streamingBytes * 2 < domBytes,
+                "streaming parse allocated " + streamingBytes + " bytes, DOM parse " + domBytes + " bytes");
+    }
+
+    /**
+     * Tests that a scoped parse returns the same component as searching the fully parsed
+     * building, whether names come before or after the nested arrays.
+     */
+    @Test
+    void scopedParseMatchesFinder() throws IOException {
+        // Arrange
+        String json = "{\"levels\": [" +
+                "{\"rooms\": [" +
+                "{\"id\": \"r1\", \"name\": \"Hall\", \"area\": 10, \"cube\": 30, \"heating\": 5, \"light\": 100}," +
+                "{\"id\": \"r2\", \"name\": \"Lab\", \"area\": 20, \"cube\": 60, \"heating\": 7, \"light\": 150}" +
+                "], \"id\": \"l1\", \"name\": \"Lab\"}," +
+                "{\"id\": \"l2\", \"name\": \"Second\", \"rooms\": [" +
+                "{\"area\": 12, \"cube\": 36, \"heating\": 4, \"light\": 80, \"name\": \"hall\", \"id\": \"r3\"}," +
+                "{\"id\": \"r4\", \"name\": \"Office\", \"area\": 15, \"cube\": 45, \"heating\": 6, \"light\": 90}]}," +
+                "{\"id\": \"l3\", \"name\": \"Office\", \"rooms\": [" +
+                "{\"id\": \"r5\", \"area\": 40, \"cube\": 120, \"heating\": 9, \"light\": 300}]}" +
+                "], \"id\": \"b1\", \"name\": \"Campus\"}";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        Building building = BuildingParser.parseJson(bytes);
+
+        for (String name : new String[]{"Lab", "HALL", "second", "Office", "Campus", "Missing"}) {
+            // Act
+            Optional<BuildingComponent> scoped = BuildingParser.parseComponent(bytes, name);
+            Optional<BuildingComponent> expected = BuildingFinder.findComponentByName(building, name);
+
+            // Assert
+            assertEquals(expected.isPresent(), scoped.isPresent(), name);
+            if (expected.isPresent()) {
+                assertEquals(expected.get().getClass(), scoped.get().getClass(), name);
+                assertEquals(expected.get().getId(), scoped.get().getId(), name);
+                assertEquals(expected.get().toString(), scoped.get().toString(), name);
+                assertEquals(expected.get().calculateArea(), scoped.get().calculateArea(), name);
+                assertEquals(expected.get().calculateHeat(), scoped.get().calculateHeat(), name);
+            }
+        }
+    }
+
+    /**
+     * Tests that a scoped parse of a large building gives the same totals as the full parse
+     * while allocating far less, since the other levels are never turned into objects.
+     */
+    @Test
+    void scopedParseSkipsOtherLevels() throws IOException {
+        // Arrange
+        byte[] bytes = largeBuildingJson(50, 100).getBytes(StandardCharsets.UTF_8);
+        Building building = BuildingParser.parseJson(bytes);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < 5; i++) {
+            BuildingParser.parseJson(bytes);
+            BuildingParser.parseComponent(bytes, "Room 7");
+        }
+
+        // Act
+        long start = threads.getThreadAllocatedBytes(thread);
+        BuildingParser.parseJson(bytes);
+        long fullBytes = threads.getThreadAllocatedBytes(thread) - start;
+        start = threads.getThreadAllocatedBytes(thread);
+        BuildingComponent room = BuildingParser.parseComponent(bytes, "Room 7").orElseThrow();
+        long scopedBytes = threads.getThreadAllocatedBytes(thread) - start;
+
+        // Assert
+        assertEquals("r0-7", room.getId());
+        assertEquals(BuildingFinder.findComponentByName(building, "room 7").orElseThrow().calculateCube(),
+                room.calculateCube());
+        assertSame(Building.class, BuildingParser.parseComponent(bytes, "campus").orElseThrow().getClass());
+        assertEquals(building.calculateLight(), BuildingParser.parseComponent(bytes, "Campus").orElseThrow().calculateLight());
+        assertTrue(scopedBytes * 10 < fullBytes,
+                "scoped parse allocated " + scopedBytes + " bytes, full parse " + fullBytes + " bytes");
+    }
+
+    private static String largeBuildingJson(int levels, int roomsPerLevel) {
+        StringBuilder sb = new StringBuilder("{\"id\": \"b\", \"name\": \"Campus\", \"levels\": [");
+        for (int l = 0; l < levels; l++) {
+            sb.append(l == 0 ? "" : ",").append("{\"id\": \"l").append(l).append("\", \"rooms\": [");
+            for (int r = 0; r < roomsPerLevel; r++) {
+                sb.append(r == 0 ? "" : ",")
+                        .append("{\"id\": \"r").append(l).append('-').append(r)
+                        .append("\", \"name\": \"Room ").append(r)
+                        .append("\", \"area\": ").append(10.5 + r)
+                        .append(", \"cube\": ").append(31.5 + 3 * r)
+                        .append(", \"heating\": ").append(5.25 + l)
+                        .append(", \"light\": ").append(100.75 + r).append('}');
+            }
+            sb.append("]}");
+        }
+        return sb.append("]}").toString();
+    }
+}
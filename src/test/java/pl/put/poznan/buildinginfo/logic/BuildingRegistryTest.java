@@ -0,0 +1,208 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import org.junit.jupiter.api.Test;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingSnapshot;
+import pl.put.poznan.buildinginfo.logic.entities.Level;
+import pl.put.poznan.buildinginfo.logic.entities.Room;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link BuildingRegistry}, covering storage, the memory budget and eviction.
+ */
+class BuildingRegistryTest {
+
+    /**
+     * Tests that a copy of a registered building can be retrieved and removed by its id.
+     */
+    @Test
+    void registerGetAndRemove() {
+        // Arrange
+        BuildingRegistry registry = new BuildingRegistry(1 << 20);
+        Building building = building("b1");
+
+        // Act
+        String id = registry.register(building);
+        ((Room) building.getComponents().get(0).getComponents().get(0)).update(1.0, 1.0, 1.0f, 1.0f);
+
+        // Assert
+        assertEquals(building("b1").toString(), registry.get(id).orElseThrow().toString());
+        assertEquals(50.0, registry.get(id).orElseThrow().calculateArea());
+        assertEquals(BuildingSizeEstimator.estimateBytes(building), registry.getUsedBytes());
+        assertTrue(registry.remove(id));
+        assertFalse(registry.get(id).isPresent());
+        assertEquals(0, registry.getUsedBytes());
+    }
+
+    /**
+     * Tests that the least recently used building is evicted when the budget is exceeded.
+     */
+    @Test
+    void evictsLeastRecentlyUsed() throws InterruptedException {
+        // Arrange
+        long bytes = BuildingSizeEstimator.estimateBytes(building("b1"));
+        BuildingRegistry registry = new BuildingRegistry(2 * bytes);
+        String first = registry.register(building("b1"));
+        String second = registry.register(building("b2"));
+        Thread.sleep(1);
+        registry.get(first);
+
+        // Act
+        String third = registry.register(building("b3"));
+
+        // Assert
+        assertTrue(registry.get(first).isPresent());
+        assertFalse(registry.get(second).isPresent());
+        assertTrue(registry.get(third).isPresent());
+        assertEquals(2, registry.size());
+    }
+
+    /**
+     * Tests that a building larger than the whole budget is rejected.
+     */
+    @Test
+    void rejectsBuildingLargerThanBudget() {
+        // Arrange
+        BuildingRegistry registry = new BuildingRegistry(16);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> registry.register(building("b1")));
+        assertEquals(0, registry.size());
+    }
+
+    /**
+     * Tests that rooms and levels can be added, updated and removed, keeping the totals
+     * and the used memory in line with the changed building.
+     */
+    @Test
+    void changesStoredBuilding() {
+        // Arrange
+        BuildingRegistry registry = new BuildingRegistry(1 << 20);
+        String id = registry.register(building("b1"));
+        Level level2 = new Level("level2", "First Floor");
+        level2.addComponent(new Room("room2", "Office 201", 25.0, 75.0, 10.0f, 150.0f));
+
+        // Act
+        registry.addLevel(id, level2);
+        registry.addRoom(id, "level1", new Room("room3", "Office 101", 30.0, 90.0, 15.0f, 200.0f));
+        registry.updateRoom(id, "level1", "room1", room -> room.update(40.0, 120.0, 20.0f, 300.0f));
+        BuildingReport report = registry.removeRoom(id, "level2", "room2");
+
+        // Assert
+        assertEquals(70.0, report.getArea());
+        assertEquals(210.0, report.getCube());
+        assertEquals(35.0, report.getHeat());
+        assertEquals(70.0, registry.read(id, BuildingSnapshot::calculateArea).orElseThrow());
+        assertEquals(BuildingSizeEstimator.estimateBytes(registry.get(id).orElseThrow()), registry.getUsedBytes());
+        assertEquals(500.0, registry.removeLevel(id, "level2").getLight());
+        assertEquals(BuildingSizeEstimator.estimateBytes(registry.get(id).orElseThrow()), registry.getUsedBytes());
+    }
+
+    /**
+     * Tests that a query neither waits for nor sees a change made while it runs, and that
+     * the change is visible to the queries that start after it.
+     */
+    @Test
+    void queriesKeepTheirVersion() {
+        // Arrange
+        BuildingRegistry registry = new BuildingRegistry(1 << 20);
+        String id = registry.register(building("b1"));
+
+        // Act
+        double[] areas = registry.read(id, building -> {
+            double before = building.calculateArea();
+            registry.updateRoom(id, "level1", "room1", room -> room.update(40.0, 120.0, 20.0f, 300.0f));
+            return new double[]{before, building.calculateArea(), ((Room) building.getComponents().get(0).getComponents().get(0)).getArea()};
+        }).orElseThrow();
+
+        // Assert
+        assertArrayEquals(new double[]{50.0, 50.0, 50.0}, areas);
+        assertEquals(40.0, registry.read(id, BuildingSnapshot::calculateArea).orElseThrow());
+    }
+
+    /**
+     * Tests that changes naming an unknown building, level or room, or adding a duplicate, are rejected.
+     */
+    @Test
+    void rejectsInvalidChanges() {
+        // Arrange
+        BuildingRegistry registry = new BuildingRegistry(1 << 20);
+        String id = registry.register(building("b1"));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> registry.removeLevel("unknown", "level1"));
+        assertThrows(IllegalArgumentException.class, () -> registry.removeLevel(id, "level2"));
+        assertThrows(IllegalArgumentException.class, () -> registry.removeRoom(id, "level1", "room2"));
+        assertThrows(IllegalArgumentException.class,
+                () -> registry.addRoom(id, "level1", new Room("room1", null, 1.0, 1.0, 1.0f, 1.0f)));
+        assertThrows(IllegalArgumentException.class, () -> registry.addLevel(id, new Level("level1", null)));
+        assertEquals(50.0, registry.read(id, BuildingSnapshot::calculateArea).orElseThrow());
+        assertFalse(registry.read("unknown", BuildingSnapshot::calculateArea).isPresent());
+    }
+
+    /**
+     * Tests that the totals kept up to date by the differences of many room changes equal the
+     * totals of the same building parsed from scratch, even for values whose sum is not exact.
+     */
+    @Test
+    void changedTotalsMatchParsedBuilding() throws IOException {
+        // Arrange
+        BuildingRegistry registry = new BuildingRegistry(1 << 20);
+        Building building = new Building("b1", "Main Office");
+        double[] areas = {1e16, 0.1, 0.2, 0.3, 1.0, -1e16, 3.3};
+        for (int l = 0; l < 3; l++) {
+            Level level = new Level("level" + l, "Level " + l);
+            for (int r = 0; r < areas.length; r++) {
+                level.addComponent(new Room("room" + r, "Room " + r, areas[r], 3 * areas[r], 0.7f * r, 100.0f));
+            }
+            building.addComponent(level);
+        }
+        String id = registry.register(building);
+
+        // Act
+        for (int i = 0; i < 50; i++) {
+            double area = areas[i % areas.length] * (i + 1) / 7;
+            registry.updateRoom(id, "level" + (i % 3), "room" + (i % areas.length),
+                    room -> room.update(area, 2 * area + 0.1, (float) (0.3 * area), 0.1f));
+        }
+        registry.addRoom(id, "level1", new Room("room9", "Room 9", 0.7, 2.1, 1.1f, 3.0f));
+        registry.removeRoom(id, "level2", "room0");
+        BuildingSnapshot changed = registry.get(id).orElseThrow();
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        new BuildingJsonWriter().write(changed.toBuilding(), json);
+        Building parsed = BuildingParser.parseJson(json.toByteArray());
+
+        // Assert
+        assertEquals(parsed.calculateArea(), changed.calculateArea());
+        assertEquals(parsed.calculateHeat(), changed.calculateHeat());
+        assertEquals(parsed.calculateCube(), changed.calculateCube());
+        assertEquals(parsed.calculateLight(), changed.calculateLight());
+        for (int l = 0; l < 3; l++) {
+            BuildingComponent level = changed.getLevel("level" + l).orElseThrow();
+            BuildingComponent parsedLevel = parsed.getComponents().get(l);
+            assertEquals(parsedLevel.calculateArea(), level.calculateArea());
+            assertEquals(parsedLevel.calculateHeat(), level.calculateHeat());
+            assertEquals(parsedLevel.calculateCube(), level.calculateCube());
+            assertEquals(parsedLevel.calculateLight(), level.calculateLight());
+        }
+    }
+
+    /**
+     * Builds a small building with one level and one room, shared with {@link RegistryStoreTest}.
+     *
+     * @param id the id of the building
+     * @return a building with an area of 50
+     */
+    static Building building(String id) {
+        Level level = new Level("level1", "Ground Floor");
+        level.addComponent(new Room("room1", "Conference Room", 50.0, 150.0, 20.5f, 300.0f));
+        Building building = new Building(id, "Main Office");
+        building.addComponent(level);
+        return building;
+    }
+}
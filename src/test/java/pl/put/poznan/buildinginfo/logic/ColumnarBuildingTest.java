@@ -0,0 +1,123 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import org.json.JSONException;
+import org.junit.jupiter.api.Test;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link ColumnarBuilding}, comparing its answers with the object model.
+ */
+class ColumnarBuildingTest {
+
+    private static final double DELTA = 1e-6;
+
+    private static final String JSON = "{\"id\":\"b1\",\"name\":\"Main Office\",\"levels\":["
+            + "{\"id\":\"l1\",\"name\":\"Ground Floor\",\"rooms\":["
+            + "{\"id\":\"r1\",\"name\":\"Lobby\",\"area\":50.5,\"cube\":150,\"heating\":300.5,\"light\":500},"
+            + "{\"id\":\"r2\",\"area\":20,\"cube\":60,\"heating\":120,\"light\":200}]},"
+            + "{\"rooms\":[],\"id\":\"l2\"},"
+            + "{\"id\":\"l3\",\"name\":\"First Floor\",\"rooms\":["
+            + "{\"id\":\"r3\",\"name\":\"lobby\",\"area\":30,\"cube\":90,\"heating\":180.25,\"light\":250},"
+            + "{\"id\":\"r4\",\"name\":\"Office\",\"area\":40,\"cube\":120,\"heating\":\"240\",\"light\":400}]}]}";
+
+    /**
+     * Tests that the columns hold the same structure and values as the parsed hierarchy,
+     * whether built from the hierarchy or parsed directly.
+     */
+    @Test
+    void columnsMatchParsedBuilding() throws IOException {
+        // Arrange
+        Building building = BuildingParser.parseJson(JSON.getBytes(StandardCharsets.UTF_8));
+
+        // Act
+        ColumnarBuilding fromModel = ColumnarBuilding.of(building);
+        ColumnarBuilding parsed = ColumnarBuilding.parse(
+                new ByteArrayInputStream(JSON.getBytes(StandardCharsets.UTF_8)));
+
+        // Assert
+        for (ColumnarBuilding columns : new ColumnarBuilding[]{fromModel, parsed}) {
+            assertEquals("b1", columns.getId());
+            assertEquals("Main Office", columns.getName());
+            assertEquals(3, columns.getLevelCount());
+            assertEquals(4, columns.getRoomCount());
+            assertEquals(0, columns.getLevelEnd(1) - columns.getLevelStart(1));
+            assertNull(columns.getLevelName(1));
+            assertNull(columns.getRoomName(1));
+            assertEquals("r4", columns.getRoomId(3));
+            assertEquals(240.0f, columns.getHeating(3));
+            assertMetrics(building, columns.scope());
+            assertEquals(building.calculateArea(), columns.calculateArea(), DELTA);
+            assertEquals(building.calculateHeat(), columns.calculateHeat(), DELTA);
+            assertEquals(building.calculateCube(), columns.calculateCube(), DELTA);
+            assertEquals(building.calculateLight(), columns.calculateLight(), DELTA);
+        }
+        assertEquals(building.toString(), parsed.toBuilding().toString());
+    }
+
+    /**
+     * Tests that name lookups resolve to the same component as {@link BuildingFinder}.
+     */
+    @Test
+    void findScopeByNameMatchesFinder() throws IOException {
+        // Arrange
+        Building building = BuildingParser.parseJson(JSON.getBytes(StandardCharsets.UTF_8));
+        ColumnarBuilding columns = ColumnarBuilding.of(building);
+
+        // Act & Assert
+        for (String name : new String[]{"main office", "GROUND FLOOR", "LOBBY", "Office", "First Floor"}) {
+            BuildingComponent component = BuildingFinder.findComponentByName(building, name).get();
+            assertMetrics(component, columns.findScopeByName(name).get());
+        }
+        assertEquals(0, columns.findScopeByName("lobby").get().getFrom());
+        assertFalse(columns.findScopeByName("Basement").isPresent());
+        assertFalse(columns.findScopeByName(null).isPresent());
+    }
+
+    /**
+     * Tests the example buildings and that repeated ids and names share dictionary entries.
+     */
+    @Test
+    void examplesMatchObjectModel() throws IOException {
+        for (String example : new String[]{"example1.json", "example2.json", "example3.json"}) {
+            // Arrange
+            byte[] json = Files.readAllBytes(Paths.get("examples", example));
+            Building building = BuildingParser.parseJson(json);
+
+            // Act
+            ColumnarBuilding columns = ColumnarBuilding.parse(json);
+
+            // Assert
+            assertMetrics(building, columns.scope());
+            assertTrue(columns.getDictionarySize() <= 2 * (1 + columns.getLevelCount() + columns.getRoomCount()));
+        }
+    }
+
+    /**
+     * Tests that the columnar parser reports missing fields like the object parser.
+     */
+    @Test
+    void parseReportsMissingFields() {
+        // Arrange
+        byte[] json = "{\"id\":\"b1\",\"levels\":[{\"id\":\"l1\"}]}".getBytes(StandardCharsets.UTF_8);
+
+        // Act & Assert
+        JSONException e = assertThrows(JSONException.class, () -> ColumnarBuilding.parse(json));
+        assertEquals("JSONObject[\"rooms\"] not found.", e.getMessage());
+    }
+
+    private static void assertMetrics(BuildingComponent expected, ColumnarBuilding.Scope actual) {
+        assertEquals(expected.calculateArea(), actual.calculateArea(), DELTA);
+        assertEquals(expected.calculateHeat(), actual.calculateHeat(), DELTA);
+        assertEquals(expected.calculateCube(), actual.calculateCube(), DELTA);
+        assertEquals(expected.calculateLight(), actual.calculateLight(), DELTA);
+    }
+}
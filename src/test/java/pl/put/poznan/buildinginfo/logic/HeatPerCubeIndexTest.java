@@ -0,0 +1,94 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.Level;
+import pl.put.poznan.buildinginfo.logic.entities.Room;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link HeatPerCubeIndex}, comparing its answers with
+ * {@link BuildingFinder#findRoomsExceedingHeatThreshold}.
+ */
+class HeatPerCubeIndexTest {
+
+    private Building building;
+    private Level level;
+
+    /**
+     * Builds a building whose rooms have heating per cubic meter 0.1, 0.2, 0.3, 0.2 and NaN.
+     */
+    @BeforeEach
+    void setUp() {
+        level = new Level("level1", "Ground Floor");
+        level.addComponent(new Room("room1", "A", 10.0, 100.0, 10.0f, 100.0f));
+        level.addComponent(new Room("room2", "B", 10.0, 100.0, 20.0f, 100.0f));
+        level.addComponent(new Room("room3", "C", 10.0, 100.0, 30.0f, 100.0f));
+        level.addComponent(new Room("room4", "D", 10.0, 50.0, 10.0f, 100.0f));
+        level.addComponent(new Room("room5", "E", 0.0, 0.0, 0.0f, 0.0f));
+        building = new Building("building1", "Main Office");
+        building.addComponent(level);
+    }
+
+    /**
+     * Tests that threshold queries return the same rooms as the recursive search,
+     * sorted by heating per cubic meter with ties in traversal order.
+     */
+    @Test
+    void exceedingMatchesFinder() {
+        // Arrange
+        HeatPerCubeIndex index = HeatPerCubeIndex.of(building);
+
+        // Act & Assert
+        assertEquals(4, index.size());
+        for (double threshold : new double[]{-1.0, 0.1, 0.15, 0.2, 0.25, 0.3, Double.NaN}) {
+            assertEquals(new HashSet<>(BuildingFinder.findRoomsExceedingHeatThreshold(building, threshold)),
+                    new HashSet<>(index.exceeding(threshold)), "threshold " + threshold);
+        }
+        assertEquals(List.of("A", "B", "D", "C"), names(index.exceeding(0.0)));
+    }
+
+    /**
+     * Tests inclusive range queries and multi-threshold queries.
+     */
+    @Test
+    void rangeAndBatchQueries() {
+        // Arrange
+        HeatPerCubeIndex index = HeatPerCubeIndex.of(building);
+
+        // Act & Assert
+        assertEquals(List.of("B", "D", "C"), names(index.between(0.2, 0.3)));
+        assertEquals(List.of("A"), names(index.between(0.0, 0.1)));
+        assertTrue(index.between(0.3, 0.2).isEmpty());
+        List<List<Room>> batch = index.exceedingEach(0.1, 0.2, 0.5);
+        assertEquals(List.of(3, 1, 0), List.of(batch.get(0).size(), batch.get(1).size(), batch.get(2).size()));
+    }
+
+    /**
+     * Tests that the cached index is reused and rebuilt after the building changes.
+     */
+    @Test
+    void rebuildsAfterChanges() {
+        // Arrange
+        HeatPerCubeIndex index = HeatPerCubeIndex.of(building);
+        assertSame(index, HeatPerCubeIndex.of(building));
+
+        // Act
+        level.addComponent(new Room("room6", "F", 10.0, 10.0, 10.0f, 10.0f));
+
+        // Assert
+        HeatPerCubeIndex rebuilt = HeatPerCubeIndex.of(building);
+        assertNotSame(index, rebuilt);
+        assertEquals(List.of("F"), names(rebuilt.exceeding(0.5)));
+    }
+
+    private static List<String> names(List<Room> rooms) {
+        return rooms.stream().map(Room::getName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,71 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import org.junit.jupiter.api.Test;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests for {@link MetricAccumulator}.
+ */
+class MetricAccumulatorTest {
+
+    /**
+     * Tests that the accumulated totals match the cached totals of the building, and that only the
+     * values needed by the requested metrics are summed.
+     */
+    @Test
+    void matchesCachedTotals() throws Exception {
+        // Arrange
+        Building building = BuildingParser.parseJson(BuildingGenerator.builder().seed(3).levels(4).roomsPerLevel(50).build().toJson());
+        MetricAccumulator all = new MetricAccumulator();
+        MetricAccumulator lighting = new MetricAccumulator(EnumSet.of(Metric.LIGHTING_PER_AREA));
+
+        // Act
+        all.accumulate(building);
+        lighting.accumulate(building.getComponents().get(1));
+
+        // Assert
+        assertEquals(200, all.getRooms());
+        assertEquals(200, MetricAccumulator.countRooms(building));
+        assertEquals(building.calculateArea(), all.getArea(), 1e-9);
+        assertEquals(building.calculateHeat(), all.getHeat(), 1e-9);
+        assertEquals(building.calculateCube(), all.getCube(), 1e-9);
+        assertEquals(building.calculateLight(), all.getLight(), 1e-9);
+        assertEquals(BuildingReport.of(building).toMap(EnumSet.allOf(Metric.class)),
+                all.toReport().toMap(EnumSet.allOf(Metric.class)));
+        assertEquals(50, lighting.getRooms());
+        assertEquals(building.getComponents().get(1).calculateLight(), lighting.getLight(), 1e-9);
+        assertEquals(0.0, lighting.getHeat());
+    }
+
+    /**
+     * Tests that accumulating a building again allocates nothing.
+     */
+    @Test
+    void allocatesNothing() throws Exception {
+        // Arrange
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        Building building = BuildingParser.parseJson(BuildingGenerator.builder().seed(3).levels(4).roomsPerLevel(50).build().toJson());
+        MetricAccumulator accumulator = new MetricAccumulator();
+        for (int i = 0; i < 1000; i++) {
+            accumulator.accumulate(building);
+        }
+
+        // Act
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 1000; i++) {
+            accumulator.accumulate(building);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        // Assert
+        assertTrue(allocated < 1000, "Allocated " + allocated + " bytes in 1000 walks");
+    }
+}
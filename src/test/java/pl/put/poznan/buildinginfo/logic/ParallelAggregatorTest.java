@@ -0,0 +1,199 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+import pl.put.poznan.buildinginfo.logic.entities.CompositeComponent;
+import pl.put.poznan.buildinginfo.logic.entities.Level;
+import pl.put.poznan.buildinginfo.logic.entities.Room;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link ParallelAggregator}.
+ */
+class ParallelAggregatorTest {
+    private final List<ForkJoinPool> pools = new ArrayList<>();
+
+    /**
+     * Shuts down the pools created by the test.
+     */
+    @AfterEach
+    void shutDownPools() {
+        pools.forEach(ForkJoinPool::shutdown);
+    }
+
+    /**
+     * Tests that the parallel totals are exactly the cached sequential ones, including a level
+     * larger than the cutoff, and that the caches of the levels are filled on the way.
+     */
+    @Test
+    void parallelTotalsMatchSequential() throws IOException {
+        // Arrange
+        Building building = generate(40, 300);
+        Level large = new Level("large", "Large Level");
+        for (int i = 0; i < 5000; i++) {
+            large.addComponent(new Room("r" + i, null, 0.1 * i, 0.3 * i, 0.01f * i, 1.5f));
+        }
+        building.addComponent(large);
+        Building sequential = generate(40, 300);
+        Level copy = new Level("large", "Large Level");
+        for (int i = 0; i < 5000; i++) {
+            copy.addComponent(new Room("r" + i, null, 0.1 * i, 0.3 * i, 0.01f * i, 1.5f));
+        }
+        sequential.addComponent(copy);
+        ParallelAggregator aggregator = new ParallelAggregator(pool(4), 1000);
+
+        // Act
+        BuildingReport report = aggregator.aggregate(building);
+
+        // Assert
+        assertTrue(building.isCached());
+        for (BuildingComponent level : building.getComponents()) {
+            assertTrue(((CompositeComponent) level).isCached());
+        }
+        assertEquals(sequential.calculateArea(), report.getArea(), 0.0);
+        assertEquals(sequential.calculateHeat(), report.getHeat(), 0.0);
+        assertEquals(sequential.calculateCube(), report.getCube(), 0.0);
+        assertEquals(sequential.calculateLight(), report.getLight(), 0.0);
+        assertEquals(large.calculateArea(), aggregator.aggregate(large).getArea(), 0.0);
+    }
+
+    /**
+     * Tests that a single level with more rooms than the cutoff is summed in ranges on several
+     * threads: the first room waits for the last one, which only a concurrent range can reach.
+     */
+    @Test
+    void splitsLargeLevel() throws IOException {
+        // Arrange
+        CountDownLatch lastRoomSummed = new CountDownLatch(1);
+        boolean[] firstRoomWaited = new boolean[1];
+        Level large = new Level("large", "Large Level");
+        large.addComponent(new Room("first", null, 1.0, 3.0, 0.5f, 1.5f) {
+            @Override
+            public double calculateArea() {
+                try {
+                    firstRoomWaited[0] = lastRoomSummed.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.calculateArea();
+            }
+        });
+        for (int i = 1; i < 4999; i++) {
+            large.addComponent(new Room("r" + i, null, 0.1 * i, 0.3 * i, 0.01f * i, 1.5f));
+        }
+        large.addComponent(new Room("last", null, 2.0, 6.0, 1.0f, 1.5f) {
+            @Override
+            public double calculateArea() {
+                lastRoomSummed.countDown();
+                return super.calculateArea();
+            }
+        });
+        Building building = new Building("b1", "Main Office");
+        building.addComponent(large);
+        Level sequential = new Level("large", "Large Level");
+        for (BuildingComponent room : large.getComponents()) {
+            Room r = (Room) room;
+            sequential.addComponent(new Room(r.getId(), null, r.getArea(), r.getCube(), r.getHeating(), r.getLight()));
+        }
+
+        // Act
+        BuildingReport report = new ParallelAggregator(pool(4), 1000).aggregate(building);
+
+        // Assert
+        assertTrue(firstRoomWaited[0]);
+        assertTrue(large.isCached());
+        assertEquals(sequential.calculateArea(), report.getArea(), 0.0);
+        assertEquals(sequential.calculateHeat(), report.getHeat(), 0.0);
+        assertEquals(sequential.calculateCube(), report.getCube(), 0.0);
+        assertEquals(sequential.calculateLight(), report.getLight(), 0.0);
+    }
+
+    /**
+     * Tests that after a room changes only the totals are updated, and that a later call
+     * still gives the exactly recomputed totals.
+     */
+    @Test
+    void followsChanges() throws IOException {
+        // Arrange
+        Building building = generate(40, 300);
+        ParallelAggregator aggregator = new ParallelAggregator(pool(4), 1000);
+        aggregator.aggregate(building);
+        Room room = (Room) building.getComponents().get(7).getComponents().get(11);
+
+        // Act
+        room.update(room.getArea() + 12.5, room.getCube(), room.getHeating(), room.getLight());
+        BuildingReport report = aggregator.aggregate(building);
+
+        // Assert
+        assertTrue(building.isCached());
+        assertEquals(BuildingReport.of(generate(40, 300)).getArea() + 12.5, report.getArea(), 1e-6);
+        assertEquals(building.calculateArea(), report.getArea(), 0.0);
+    }
+
+    /**
+     * Tests that the totals of fresh copies of a building are bit for bit the same on every
+     * run, whatever the parallelism.
+     */
+    @Test
+    void resultIsDeterministic() throws IOException {
+        // Arrange
+        Building building = generate(64, 500);
+        BuildingReport expected = new ParallelAggregator(pool(1), 2000).aggregate(building);
+
+        for (int parallelism : new int[]{2, 3, 8}) {
+            // Act
+            ParallelAggregator aggregator = new ParallelAggregator(pool(parallelism), 2000);
+            for (int run = 0; run < 5; run++) {
+                BuildingReport report = aggregator.aggregate(generate(64, 500));
+
+                // Assert
+                assertEquals(expected.getArea(), report.getArea(), 0.0);
+                assertEquals(expected.getHeat(), report.getHeat(), 0.0);
+                assertEquals(expected.getCube(), report.getCube(), 0.0);
+                assertEquals(expected.getLight(), report.getLight(), 0.0);
+            }
+        }
+    }
+
+    /**
+     * Tests that components below the cutoff give exactly the cached sequential totals.
+     */
+    @Test
+    void smallBuildingsStaySequential() throws IOException {
+        // Arrange
+        Building building = generate(3, 10);
+
+        // Act
+        BuildingReport report = ParallelAggregator.commonPool().aggregate(building);
+
+        // Assert
+        assertEquals(building.calculateArea(), report.getArea(), 0.0);
+        assertEquals(building.calculateLight(), report.getLight(), 0.0);
+        assertThrows(IllegalArgumentException.class, () -> new ParallelAggregator(ForkJoinPool.commonPool(), 0));
+    }
+
+    private ForkJoinPool pool(int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        pools.add(pool);
+        return pool;
+    }
+
+    private static Building generate(int levels, int roomsPerLevel) throws IOException {
+        return BuildingParser.parseJson(BuildingGenerator.builder()
+                .seed(5)
+                .levels(levels)
+                .roomsPerLevel(roomsPerLevel)
+                .build()
+                .toJson());
+    }
+}
@@ -0,0 +1,102 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingSnapshot;
+import pl.put.poznan.buildinginfo.logic.entities.Level;
+import pl.put.poznan.buildinginfo.logic.entities.Room;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link RegistryStore}.
+ */
+class RegistryStoreTest {
+
+    /**
+     * Tests that a restarted registry gets back the buildings of the snapshot together with
+     * every change made after it, with the same ids and totals.
+     */
+    @Test
+    void recoversSnapshotAndChanges(@TempDir Path directory) throws Exception {
+        // Arrange
+        BuildingRegistry registry = new BuildingRegistry(1 << 24);
+        RegistryStore store = new RegistryStore(directory);
+        store.recover(registry);
+        BuildingGenerator generator = BuildingGenerator.builder().seed(5).levels(3).roomsPerLevel(10).build();
+        String generated = registry.register(BuildingParser.parseJson(generator.toJson()));
+        String changed = registry.register(BuildingRegistryTest.building("b2"));
+        String removed = registry.register(BuildingRegistryTest.building("b3"));
+        store.snapshot(registry);
+        Level level2 = new Level("level2", null);
+        level2.addComponent(new Room("room2", "Office 201", 25.0, 75.0, 10.0f, 150.0f));
+        registry.addLevel(changed, level2);
+        registry.addRoom(changed, "level1", new Room("room3", null, 30.0, 90.0, 15.0f, 200.0f));
+        registry.updateRoom(changed, "level1", "room1", room -> room.update(40.0, 120.0, 20.25f, 300.0f));
+        registry.removeRoom(changed, "level2", "room2");
+        registry.remove(removed);
+        String added = registry.register(BuildingRegistryTest.building("b4"));
+        store.close();
+
+        // Act
+        BuildingRegistry recovered = new BuildingRegistry(1 << 24);
+        RegistryStore reopened = new RegistryStore(directory);
+        RegistryStore.Recovery recovery = reopened.recover(recovered);
+        reopened.close();
+
+        // Assert
+        assertEquals(3, recovery.getBuildings());
+        assertEquals(6, recovery.getChanges());
+        assertFalse(recovered.get(removed).isPresent());
+        for (String id : new String[]{generated, changed, added}) {
+            BuildingSnapshot original = registry.get(id).orElseThrow();
+            BuildingSnapshot copy = recovered.get(id).orElseThrow();
+            assertEquals(original.toString(), copy.toString());
+            assertEquals(original.calculateArea(), copy.calculateArea());
+            assertEquals(original.calculateHeat(), copy.calculateHeat());
+            assertEquals(original.calculateCube(), copy.calculateCube());
+            assertEquals(original.calculateLight(), copy.calculateLight());
+        }
+        assertEquals(registry.getUsedBytes(), recovered.getUsedBytes());
+    }
+
+    /**
+     * Tests that a record cut short by a crash is ignored, that a snapshot left half written is
+     * deleted, and that a later snapshot replaces the older snapshots and logs.
+     */
+    @Test
+    void ignoresTornRecordAndCompacts(@TempDir Path directory) throws Exception {
+        // Arrange
+        BuildingRegistry registry = new BuildingRegistry(1 << 20);
+        RegistryStore store = new RegistryStore(directory);
+        store.recover(registry);
+        String id = registry.register(BuildingRegistryTest.building("b1"));
+        registry.updateRoom(id, "level1", "room1", room -> room.update(10.0, 30.0, 5.0f, 60.0f));
+        store.close();
+        Path log = directory.resolve("changes-1.log");
+        Files.write(log, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+        Files.write(directory.resolve("snapshot-7.bin.tmp"), new byte[]{1, 2, 3});
+
+        // Act
+        BuildingRegistry recovered = new BuildingRegistry(1 << 20);
+        RegistryStore reopened = new RegistryStore(directory);
+        RegistryStore.Recovery recovery = reopened.recover(recovered);
+        reopened.snapshot(recovered);
+        reopened.close();
+
+        // Assert
+        assertEquals(2, recovery.getChanges());
+        assertEquals(10.0, recovered.read(id, BuildingSnapshot::calculateArea).orElseThrow());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(Arrays.asList("changes-3.log", "snapshot-3.bin"),
+                    files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList()));
+        }
+    }
+}
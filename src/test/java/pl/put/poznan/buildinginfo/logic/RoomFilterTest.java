@@ -0,0 +1,150 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import org.junit.jupiter.api.Test;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.Level;
+import pl.put.poznan.buildinginfo.logic.entities.Room;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests for {@link RoomFilter}.
+ */
+class RoomFilterTest {
+
+    /**
+     * Tests comparisons, arithmetic, precedence, parentheses, {@code between}, {@code not},
+     * case-insensitive keywords and rooms whose values are not numbers.
+     */
+    @Test
+    void selectsMatchingRooms() {
+        // Arrange
+        Level level = new Level("level1", "Ground Floor");
+        level.addComponent(new Room("room1", "Conference Room", 50.0, 150.0, 20.5f, 300.0f));
+        level.addComponent(new Room("room2", "Office 101", 30.0, 90.0, 15.0f, 200.0f));
+        level.addComponent(new Room("room3", "Office 201", 25.0, 75.0, 10.0f, 150.0f));
+        level.addComponent(new Room("room4", "Shaft", 0.0, 0.0, 0.0f, 0.0f));
+
+        // Act & Assert
+        assertEquals(Arrays.asList("room1", "room2"), ids(level, "area > 25 and light/area < 7"));
+        assertEquals(Arrays.asList("room1", "room3"), ids(level, "heating/cube between 0.1 and 0.15"));
+        assertEquals(Arrays.asList("room1", "room3"), ids(level, "HEATING / CUBE Between 0.1 AND 0.15"));
+        assertEquals(Arrays.asList("room2", "room4"), ids(level, "not heating/cube between 0.1 and 0.15"));
+        assertEquals(Arrays.asList("room1", "room4"), ids(level, "area >= 50 or area = 0"));
+        assertEquals(Arrays.asList("room1"), ids(level, "area > 40 or area > 20 and light < 180 and cube > 80"));
+        assertEquals(Arrays.asList("room1", "room3"), ids(level, "(area > 40 or area > 20) and light != 200"));
+        assertEquals(Arrays.asList("room2", "room3"), ids(level, "(area + 5) * 2 <= 70 and -area < -1"));
+        assertEquals(Arrays.asList("room1", "room2", "room3"), ids(level, "light / area >= 2 * 3 - 1e0"));
+        assertEquals(Arrays.asList("room1", "room2", "room3"), ids(level, "heating / cube <> 0"));
+    }
+
+    /**
+     * Tests that invalid expressions are rejected with the position of the error.
+     */
+    @Test
+    void rejectsInvalidExpressions() {
+        // Act & Assert
+        assertEquals("Invalid filter at position 1: unknown field 'volume', expected one of area, cube, heating, light",
+                assertThrows(IllegalArgumentException.class, () -> RoomFilter.of("volume > 5")).getMessage());
+        assertEquals("Invalid filter at position 8: unexpected end",
+                assertThrows(IllegalArgumentException.class, () -> RoomFilter.of("area > ")).getMessage());
+        assertEquals("Invalid filter at position 1: expected a comparison",
+                assertThrows(IllegalArgumentException.class, () -> RoomFilter.of("area * 2")).getMessage());
+        assertEquals("Invalid filter at position 1: expected a value, not a condition",
+                assertThrows(IllegalArgumentException.class, () -> RoomFilter.of("(area > 1) + 2 > 3")).getMessage());
+        assertEquals("Invalid filter at position 10: unexpected ')'",
+                assertThrows(IllegalArgumentException.class, () -> RoomFilter.of("area > 1 )")).getMessage());
+        assertThrows(IllegalArgumentException.class, () -> RoomFilter.of("area between 1 or 2"));
+        assertThrows(IllegalArgumentException.class, () -> RoomFilter.of(" "));
+    }
+
+    /**
+     * Tests that expressions nested up to the limit are accepted, and that deeper ones are
+     * rejected instead of overflowing the stack, however deep they go.
+     */
+    @Test
+    void rejectsDeeplyNestedExpressions() {
+        // Arrange
+        Room room = new Room("room1", "Conference Room", 50.0, 150.0, 20.5f, 300.0f);
+        String parentheses = repeat("(", RoomFilter.MAX_DEPTH) + "area > 1" + repeat(")", RoomFilter.MAX_DEPTH);
+        String negations = repeat("not ", RoomFilter.MAX_DEPTH) + "area > 1";
+        String signs = "area > " + repeat("-", RoomFilter.MAX_DEPTH) + "1";
+
+        // Act & Assert
+        assertTrue(RoomFilter.compile(parentheses).test(room));
+        assertTrue(RoomFilter.compile(negations).test(room));
+        assertTrue(RoomFilter.compile(signs).test(room));
+        assertEquals("Invalid filter at position 65: nested more than 64 deep",
+                assertThrows(IllegalArgumentException.class, () -> RoomFilter.compile("(" + parentheses + ")")).getMessage());
+        assertThrows(IllegalArgumentException.class, () -> RoomFilter.compile("not " + negations));
+        assertThrows(IllegalArgumentException.class, () -> RoomFilter.compile("area > -" + signs.substring(7)));
+        assertThrows(IllegalArgumentException.class, () -> RoomFilter.compile(repeat("(", 100_000) + "area > 1"));
+        assertThrows(IllegalArgumentException.class, () -> RoomFilter.compile(repeat("not ", 100_000) + "area > 1"));
+        assertThrows(IllegalArgumentException.class, () -> RoomFilter.compile("area > " + repeat("-+", 100_000) + "1"));
+    }
+
+    /**
+     * Tests that the same expression text is compiled once, and that the compiled filter
+     * finds the same rooms as the hard-coded heating threshold search.
+     */
+    @Test
+    void cachesCompiledFilters() throws Exception {
+        // Arrange
+        Building building = BuildingParser.parseJson(BuildingGenerator.builder().seed(7).levels(3).roomsPerLevel(100).build().toJson());
+
+        // Act
+        RoomFilter first = RoomFilter.of("heating / cube > 0.15");
+        RoomFilter second = RoomFilter.of("heating / cube > 0.15");
+
+        // Assert
+        assertSame(first, second);
+        assertNotSame(first, RoomFilter.compile("heating / cube > 0.15"));
+        assertEquals(BuildingFinder.findRoomsExceedingHeatThreshold(building, 0.15), first.select(building));
+    }
+
+    /**
+     * Tests that testing rooms against a compiled filter allocates nothing.
+     */
+    @Test
+    void testsWithoutAllocating() {
+        // Arrange
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        RoomFilter filter = RoomFilter.of("area > 20 and light / area < 7 or not heating / cube between 0.1 and 0.3");
+        Room room = new Room("room1", "Conference Room", 50.0, 150.0, 20.5f, 300.0f);
+        int matches = 0;
+        for (int i = 0; i < 10_000; i++) {
+            matches += filter.test(room) ? 1 : 0;
+        }
+
+        // Act
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 10_000; i++) {
+            matches += filter.test(room) ? 1 : 0;
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        // Assert
+        assertEquals(20_000, matches);
+        assertTrue(allocated < 1000, "Allocated " + allocated + " bytes in 10000 tests");
+    }
+
+    private static List<String> ids(Level level, String expression) {
+        return RoomFilter.of(expression).select(level).stream().map(Room::getId).collect(Collectors.toList());
+    }
+
+    private static String repeat(String text, int count) {
+        StringBuilder builder = new StringBuilder(text.length() * count);
+        for (int i = 0; i < count; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+}
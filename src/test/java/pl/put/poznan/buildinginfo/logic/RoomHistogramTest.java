@@ -0,0 +1,102 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import org.junit.jupiter.api.Test;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link RoomHistogram}.
+ */
+class RoomHistogramTest {
+
+    /**
+     * Tests that percentiles are within the relative accuracy of the exact ones, for values spread over many magnitudes.
+     */
+    @Test
+    void percentilesWithinRelativeAccuracy() {
+        // Arrange
+        Random random = new Random(5);
+        double[] values = new double[100_000];
+        RoomHistogram histogram = new RoomHistogram();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (random.nextBoolean() ? 1 : -1) * Math.exp(random.nextGaussian() * 5);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double p : new double[]{0, 1, 25, 50, 90, 99, 99.9, 100}) {
+            // Act
+            double estimate = histogram.percentile(p);
+
+            // Assert
+            double exact = values[(int) Math.floor(p / 100 * (values.length - 1))];
+            assertEquals(exact, estimate, Math.abs(exact) * RoomHistogram.RELATIVE_ACCURACY, "p" + p);
+        }
+        assertEquals(values[0], histogram.getMin());
+        assertEquals(values[values.length - 1], histogram.getMax());
+    }
+
+    /**
+     * Tests that merging the histograms of the levels of a building gives the histogram of the building.
+     */
+    @Test
+    void mergedLevelsMatchBuilding() {
+        // Arrange
+        Building building = BuildingParser.parseJson(new String(BuildingGenerator.builder()
+                .seed(9)
+                .levels(6)
+                .roomsPerLevel(300)
+                .build()
+                .toJson(), StandardCharsets.UTF_8));
+        RoomHistogram merged = new RoomHistogram();
+
+        // Act
+        for (BuildingComponent level : building.getComponents()) {
+            merged.merge(RoomHistogram.of(level, RoomRanking.RoomMetric.HEAT_PER_CUBE));
+        }
+        RoomHistogram whole = RoomHistogram.of(building, RoomRanking.RoomMetric.HEAT_PER_CUBE);
+
+        // Assert
+        double[] percentiles = {0, 10, 50, 90, 99, 100};
+        assertEquals(whole.toMap(percentiles).keySet(), merged.toMap(percentiles).keySet());
+        for (double p : percentiles) {
+            assertEquals(whole.percentile(p), merged.percentile(p), 0.0);
+        }
+        assertEquals(1800, merged.getCount());
+    }
+
+    /**
+     * Tests zeros, ignored NaN values, an empty histogram and the parsing of percentile lists.
+     */
+    @Test
+    void edgeCases() {
+        // Arrange
+        RoomHistogram histogram = new RoomHistogram();
+        RoomHistogram empty = new RoomHistogram();
+
+        // Act
+        histogram.record(0.0);
+        histogram.record(Double.NaN);
+        histogram.record(0.0);
+        histogram.record(4.0);
+
+        // Assert
+        assertEquals(3, histogram.getCount());
+        assertEquals(0.0, histogram.percentile(50));
+        assertEquals(4.0, histogram.percentile(100));
+        assertTrue(Double.isNaN(empty.percentile(50)));
+        assertEquals(3, empty.merge(histogram).getCount());
+        assertArrayEquals(new double[]{50, 90, 99}, RoomHistogram.parsePercentiles(null));
+        assertArrayEquals(new double[]{99.9, 5}, RoomHistogram.parsePercentiles("99.9, 5,"));
+        assertEquals("[count, min, max, mean, p99.9, p5]",
+                histogram.toMap(RoomHistogram.parsePercentiles("99.9,5")).keySet().toString());
+        assertThrows(IllegalArgumentException.class, () -> RoomHistogram.parsePercentiles("101"));
+        assertThrows(IllegalArgumentException.class, () -> histogram.percentile(-1));
+    }
+}
@@ -0,0 +1,80 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import org.junit.jupiter.api.Test;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.Level;
+import pl.put.poznan.buildinginfo.logic.entities.Room;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link RoomRanking}.
+ */
+class RoomRankingTest {
+
+    /**
+     * Tests that every metric and order gives the first K rooms of a full stable sort.
+     */
+    @Test
+    void matchesFullSort() {
+        // Arrange
+        Building building = BuildingParser.parseJson(new String(BuildingGenerator.builder()
+                .seed(11)
+                .levels(5)
+                .roomsPerLevel(200)
+                .build()
+                .toJson(), StandardCharsets.UTF_8));
+        List<Room> rooms = new ArrayList<>();
+        building.getComponents().forEach(level -> level.getComponents().forEach(room -> rooms.add((Room) room)));
+
+        for (RoomRanking.RoomMetric metric : RoomRanking.RoomMetric.values()) {
+            for (RoomRanking.Order order : RoomRanking.Order.values()) {
+                Comparator<Room> comparator = Comparator.comparingDouble(metric::of);
+                List<Room> expected = rooms.stream()
+                        .sorted(order == RoomRanking.Order.DESC ? comparator.reversed() : comparator)
+                        .limit(20)
+                        .collect(Collectors.toList());
+
+                // Act
+                List<Room> top = RoomRanking.top(building, metric, 20, order);
+
+                // Assert
+                assertEquals(expected, top, metric + " " + order);
+            }
+        }
+    }
+
+    /**
+     * Tests that ties keep the building order, rooms with undefined values are left out
+     * and K may exceed the number of rooms.
+     */
+    @Test
+    void tiesAndUndefinedValues() {
+        // Arrange
+        Level level = new Level("level1", null);
+        Room first = new Room("room1", null, 10.0, 30.0, 3.0f, 100.0f);
+        Room second = new Room("room2", null, 10.0, 30.0, 3.0f, 100.0f);
+        Room empty = new Room("room3", null, 0.0, 0.0, 0.0f, 0.0f);
+        Room third = new Room("room4", null, 10.0, 30.0, 3.0f, 100.0f);
+        level.addComponent(first);
+        level.addComponent(second);
+        level.addComponent(empty);
+        level.addComponent(third);
+
+        // Act
+        List<Room> two = RoomRanking.top(level, RoomRanking.RoomMetric.HEAT_PER_CUBE, 2, RoomRanking.Order.DESC);
+        List<Room> all = RoomRanking.top(level, RoomRanking.RoomMetric.LIGHT_PER_AREA, 10, RoomRanking.Order.ASC);
+
+        // Assert
+        assertEquals(List.of(first, second), two);
+        assertEquals(List.of(first, second, third), all);
+        assertThrows(IllegalArgumentException.class, () -> RoomRanking.top(level, RoomRanking.RoomMetric.AREA, 0, RoomRanking.Order.ASC));
+        assertThrows(IllegalArgumentException.class, () -> RoomRanking.Order.fromName("up"));
+    }
+}
@@ -0,0 +1,79 @@
+package pl.put.poznan.buildinginfo.logic;
+
+import org.junit.jupiter.api.Test;
+import pl.put.poznan.buildinginfo.logic.entities.Building;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingComponent;
+import pl.put.poznan.buildinginfo.logic.entities.BuildingSnapshot;
+import pl.put.poznan.buildinginfo.logic.entities.Level;
+import pl.put.poznan.buildinginfo.logic.entities.Room;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link VersionedBuilding}.
+ */
+class VersionedBuildingTest {
+
+    /**
+     * Tests that readers running during updates always see a consistent snapshot: the writer moves
+     * area between two rooms on different levels, so every version has the same total area.
+     */
+    @Test
+    void readersSeeConsistentSnapshots() throws InterruptedException {
+        // Arrange
+        Level level1 = new Level("level1", null);
+        level1.addComponent(new Room("room1", null, 50.0, 150.0, 20.0f, 300.0f));
+        Level level2 = new Level("level2", null);
+        level2.addComponent(new Room("room2", null, 50.0, 150.0, 20.0f, 300.0f));
+        Building building = new Building("building1", null);
+        building.addComponent(level1);
+        building.addComponent(level2);
+        VersionedBuilding versioned = new VersionedBuilding(building);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger inconsistent = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                BuildingSnapshot snapshot = versioned.current();
+                double rooms = 0;
+                for (BuildingComponent level : snapshot.getComponents()) {
+                    rooms += level.getComponents().get(0).calculateArea();
+                }
+                if (snapshot.calculateArea() != 100.0 || rooms != 100.0) {
+                    inconsistent.incrementAndGet();
+                }
+            }
+        });
+
+        // Act
+        reader.start();
+        for (int i = 1; i <= 2000; i++) {
+            double area = i % 100;
+            versioned.update(s -> s
+                    .withRoomUpdated("level1", "room1", area, 150.0, 20.0f, 300.0f)
+                    .withRoomUpdated("level2", "room2", 100.0 - area, 150.0, 20.0f, 300.0f));
+        }
+        done.set(true);
+        reader.join();
+
+        // Assert
+        assertEquals(0, inconsistent.get());
+        assertEquals(100.0 - 2000 % 100, versioned.current().getLevel("level2").orElseThrow().calculateArea());
+    }
+
+    /**
+     * Tests that a failed change keeps the current version.
+     */
+    @Test
+    void failedChangeKeepsCurrentVersion() {
+        // Arrange
+        VersionedBuilding versioned = new VersionedBuilding(new Building("building1", null));
+        BuildingSnapshot before = versioned.current();
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> versioned.update(s -> s.withoutLevel("level1")));
+        assertSame(before, versioned.current());
+    }
+}
@@ -0,0 +1,94 @@
+package pl.put.poznan.buildinginfo.logic.entities;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link BuildingSnapshot} and {@link LevelSnapshot}, covering path copying,
+ * immutability and the totals of changed versions.
+ */
+class BuildingSnapshotTest {
+
+    /**
+     * Tests that a change copies only the changed level and leaves the previous version untouched.
+     */
+    @Test
+    void changesShareUnchangedParts() {
+        // Arrange
+        BuildingSnapshot first = BuildingSnapshot.of(building());
+
+        // Act
+        BuildingSnapshot second = first.withRoomUpdated("level1", "room1", 40.0, 120.0, 20.0f, 250.0f);
+
+        // Assert
+        assertEquals(105.0, first.calculateArea());
+        assertEquals(95.0, second.calculateArea());
+        assertSame(first.getComponents().get(1), second.getComponents().get(1));
+        assertNotSame(first.getComponents().get(0), second.getComponents().get(0));
+        assertSame(first.getComponents().get(0).getComponents().get(1), second.getComponents().get(0).getComponents().get(1));
+        assertEquals(50.0, first.getLevel("level1").orElseThrow().getRoom("room1").orElseThrow().getArea());
+    }
+
+    /**
+     * Tests that the totals of a changed snapshot equal those of a mutable building changed the same way.
+     */
+    @Test
+    void totalsMatchMutableBuilding() {
+        // Arrange
+        Building building = building();
+        BuildingSnapshot snapshot = BuildingSnapshot.of(building);
+        Level level3 = new Level("level3", "Second Floor");
+        level3.addComponent(new Room("room4", "Office 301", 12.3, 36.9, 4.1f, 77.7f));
+
+        // Act
+        snapshot = snapshot.withLevel(LevelSnapshot.of(level3))
+                .withRoom("level2", new Room("room5", null, 0.1, 0.3, 0.7f, 1.1f))
+                .withoutRoom("level1", "room2")
+                .withoutLevel("level3");
+        building.addComponent(level3);
+        ((Level) building.getComponents().get(1)).addComponent(new Room("room5", null, 0.1, 0.3, 0.7f, 1.1f));
+        building.getComponents().get(0).removeComponent(building.getComponents().get(0).getComponents().get(1));
+        building.removeComponent(level3);
+
+        // Assert
+        assertEquals(building.calculateArea(), snapshot.calculateArea(), 0.0);
+        assertEquals(building.calculateHeat(), snapshot.calculateHeat(), 0.0);
+        assertEquals(building.calculateCube(), snapshot.calculateCube(), 0.0);
+        assertEquals(building.calculateLight(), snapshot.calculateLight(), 0.0);
+        assertEquals(building.toString(), snapshot.toString());
+        assertEquals(building.toString(), snapshot.toBuilding().toString());
+    }
+
+    /**
+     * Tests that snapshots cannot be changed in place and reject changes to unknown or duplicate parts.
+     */
+    @Test
+    void snapshotsAreImmutable() {
+        // Arrange
+        BuildingSnapshot snapshot = BuildingSnapshot.of(building());
+        Room room = (Room) snapshot.getComponents().get(0).getComponents().get(0);
+
+        // Act & Assert
+        assertThrows(UnsupportedOperationException.class, () -> room.update(1.0, 1.0, 1.0f, 1.0f));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getComponents().clear());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.addComponent(new Level("level3", null)));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.withoutLevel("level3"));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.withoutRoom("level1", "room3"));
+        assertThrows(IllegalArgumentException.class,
+                () -> snapshot.withRoom("level1", new Room("room1", null, 1.0, 1.0, 1.0f, 1.0f)));
+        assertEquals(105.0, snapshot.calculateArea());
+    }
+
+    private static Building building() {
+        Level level1 = new Level("level1", "Ground Floor");
+        level1.addComponent(new Room("room1", "Conference Room", 50.0, 150.0, 20.5f, 300.0f));
+        level1.addComponent(new Room("room2", "Office 101", 30.0, 90.0, 15.0f, 200.0f));
+        Level level2 = new Level("level2", "First Floor");
+        level2.addComponent(new Room("room3", "Office 201", 25.0, 75.0, 10.0f, 150.0f));
+        Building building = new Building("building1", "Main Office");
+        building.addComponent(level1);
+        building.addComponent(level2);
+        return building;
+    }
+}
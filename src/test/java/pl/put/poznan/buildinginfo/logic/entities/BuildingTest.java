@@ -1,6 +1,11 @@
 package pl.put.poznan.buildinginfo.logic.entities;
 
 import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -120,4 +125,112 @@ class BuildingTest {
         // Assert
         assertEquals(650.0, result, "The total calculated light should match the expected value.");
     }
+
+    /**
+     * Tests that the cached aggregates are invalidated up the parent chain
+     * when rooms and levels are added or removed after a first calculation.
+     */
+    @Test
+    void cachedAggregatesFollowChanges() {
+        // Arrange
+        Room room1 = new Room("room1", "Conference Room", 50.0, 150.0, 20.5f, 300.0f);
+        Level level1 = new Level("level1", "Ground Floor");
+        level1.addComponent(room1);
+        Building building = new Building("building1", "Main Office");
+        building.addComponent(level1);
+        assertEquals(50.0, building.calculateArea());
+
+        // Act & Assert
+        Room room2 = new Room("room2", "Office 101", 30.0, 90.0, 15.0f, 200.0f);
+        level1.setRooms(List.of(room2));
+        assertEquals(80.0, building.calculateArea());
+        assertEquals(35.5, building.calculateHeat());
+
+        Level level2 = new Level("level2", "First Floor");
+        level2.addComponent(new Room("room3", "Office 201", 25.0, 75.0, 10.0f, 150.0f));
+        building.setLevels(List.of(level2));
+        assertEquals(650.0, building.calculateLight());
+
+        level1.removeComponent(room1);
+        assertEquals(55.0, building.calculateArea());
+        assertEquals(165.0, building.calculateCube());
+        assertNull(room1.getParent());
+        assertSame(building, level2.getParent());
+    }
+
+    /**
+     * Tests that a component cannot belong to two composites at once
+     * and that the component list cannot be modified directly.
+     */
+    @Test
+    void componentHasSingleParent() {
+        // Arrange
+        Room room = new Room("room1", "Conference Room", 50.0, 150.0, 20.5f, 300.0f);
+        Level level1 = new Level("level1", "Ground Floor");
+        Level level2 = new Level("level2", "First Floor");
+        level1.addComponent(room);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> level2.addComponent(room));
+        assertThrows(UnsupportedOperationException.class, () -> level1.getComponents().clear());
+        assertEquals(50.0, level1.calculateArea());
+        assertEquals(0.0, level2.calculateArea());
+    }
+
+    /**
+     * Tests that totals kept up to date by differences after every change are exactly
+     * the totals of a building built from scratch with the remaining rooms.
+     */
+    @Test
+    void deltaAggregatesMatchRecompute() {
+        // Arrange
+        Random random = new Random(7);
+        Level level1 = new Level("level1", "Ground Floor");
+        Level level2 = new Level("level2", "First Floor");
+        Building building = new Building("building1", "Main Office");
+        building.addComponent(level1);
+        building.addComponent(level2);
+        List<Room> rooms = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Room room = new Room("room" + i, null, value(random), value(random), (float) value(random), (float) value(random));
+            rooms.add(room);
+            (i % 2 == 0 ? level1 : level2).addComponent(room);
+        }
+        building.calculateArea();
+
+        // Act
+        for (int i = 0; i < 1000; i++) {
+            Room room = rooms.get(random.nextInt(rooms.size()));
+            if (i % 3 == 0 && room.getParent() != null) {
+                ((Level) room.getParent()).removeComponent(room);
+            } else if (i % 3 == 0) {
+                level2.addComponent(room);
+            } else {
+                room.update(value(random), value(random), (float) value(random), (float) value(random));
+            }
+        }
+
+        // Assert
+        Building recomputed = new Building("building1", "Main Office");
+        for (BuildingComponent level : building.getComponents()) {
+            Level copy = new Level(level.getId(), level.getName());
+            for (BuildingComponent component : level.getComponents()) {
+                Room room = (Room) component;
+                copy.addComponent(new Room(room.getId(), null, room.getArea(), room.getCube(), room.getHeating(), room.getLight()));
+            }
+            recomputed.addComponent(copy);
+        }
+        assertEquals(recomputed.calculateArea(), building.calculateArea(), 0.0);
+        assertEquals(recomputed.calculateCube(), building.calculateCube(), 0.0);
+        assertEquals(recomputed.calculateHeat(), building.calculateHeat(), 0.0);
+        assertEquals(recomputed.calculateLight(), building.calculateLight(), 0.0);
+        assertEquals(recomputed.getComponents().get(1).calculateArea(), level2.calculateArea(), 0.0);
+    }
+
+    /**
+     * Draws a value of a random magnitude, so that rounding errors of a plain running sum would show.
+     */
+    private static double value(Random random) {
+        return random.nextDouble() * Math.pow(10, random.nextInt(12) - 4);
+    }
 }
@@ -0,0 +1,100 @@
+package pl.put.poznan.buildinginfo.logic.entities;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link ComponentWalker}.
+ */
+class ComponentWalkerTest {
+
+    /**
+     * Tests that components are visited depth first in the order of the subcomponents, that a skipped
+     * composite hides its rooms, and that the walk ends as soon as the visitor is done.
+     */
+    @Test
+    void visitsInOrder() {
+        // Arrange
+        Building building = new Building("b1", "Main Office");
+        Level ground = new Level("level1", "Ground Floor");
+        ground.addComponent(new Room("room1", "Conference Room", 50.0, 150.0, 20.5f, 300.0f));
+        ground.addComponent(new Room("room2", "Office 101", 30.0, 90.0, 15.0f, 200.0f));
+        Level first = new Level("level2", "First Floor");
+        first.addComponent(new Room("room3", "Office 201", 25.0, 75.0, 10.0f, 150.0f));
+        building.addComponent(ground);
+        building.addComponent(new Level("level3", "Empty Floor"));
+        building.addComponent(first);
+        List<String> visited = new ArrayList<>();
+        List<String> skipping = new ArrayList<>();
+        List<String> stopping = new ArrayList<>();
+
+        // Act
+        building.accept(new Recorder(visited, null, null));
+        building.accept(new Recorder(skipping, "level1", null));
+        building.accept(new Recorder(stopping, null, "room2"));
+
+        // Assert
+        assertEquals(Arrays.asList("b1", "level1", "room1", "room2", "level3", "level2", "room3"), visited);
+        assertEquals(Arrays.asList("b1", "level1", "level3", "level2", "room3"), skipping);
+        assertEquals(Arrays.asList("b1", "level1", "room1", "room2"), stopping);
+    }
+
+    /**
+     * Tests that a tree much deeper than the thread stack allows for recursion is walked,
+     * and that the walker can be reused afterwards.
+     */
+    @Test
+    void walksDeepTrees() {
+        // Arrange
+        Level deepest = new Level("level99999", null);
+        deepest.addComponent(new Room("room", null, 1.0, 1.0, 1.0f, 1.0f));
+        Level root = deepest;
+        for (int i = 99_998; i >= 0; i--) {
+            Level parent = new Level("level" + i, null);
+            parent.addComponent(root);
+            root = parent;
+        }
+        ComponentWalker walker = new ComponentWalker();
+        int[] rooms = new int[1];
+
+        // Act
+        walker.visit(root, room -> rooms[0]++);
+        walker.visit(deepest, room -> rooms[0]++);
+
+        // Assert
+        assertEquals(2, rooms[0]);
+    }
+
+    private static final class Recorder implements ComponentVisitor {
+        private final List<String> visited;
+        private final String skip;
+        private final String stop;
+
+        private Recorder(List<String> visited, String skip, String stop) {
+            this.visited = visited;
+            this.skip = skip;
+            this.stop = stop;
+        }
+
+        @Override
+        public void visitRoom(Room room) {
+            visited.add(room.getId());
+        }
+
+        @Override
+        public boolean enterComposite(BuildingComponent component) {
+            visited.add(component.getId());
+            return !component.getId().equals(skip);
+        }
+
+        @Override
+        public boolean isDone() {
+            return visited.contains(stop);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package pl.put.poznan.buildinginfo.rest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the {@link BuildingBatchController} class.
+ */
+public class BuildingBatchControllerTest {
+
+    private BuildingBatchController controller;
+
+    /**
+     * Creates the controller with two worker threads.
+     */
+    @BeforeEach
+    void setUp() {
+        controller = new BuildingBatchController(2, 4);
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    @AfterEach
+    void tearDown() {
+        controller.close();
+    }
+
+    /**
+     * Tests that every building of the body gets its own result line.
+     * @throws Exception if an error occurs during processing.
+     */
+    @Test
+    void testBatch() throws Exception {
+        String body = "{\"id\":\"b1\",\"levels\":[{\"id\":\"l1\",\"rooms\":[{\"id\":\"r1\",\"area\":30,\"cube\":90,\"heating\":15,\"light\":200}]}]}\n"
+                + "not json\n";
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.batch(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), "area,maxPeople", response);
+
+        String[] lines = response.getContentAsString().split("\n");
+        Arrays.sort(lines);
+        assertEquals(BuildingBatchController.NDJSON, response.getContentType().split(";")[0]);
+        assertEquals(2, lines.length);
+        assertEquals("{\"index\":0,\"id\":\"b1\",\"totalArea\":30.0,\"maxPeople\":10}", lines[0]);
+        assertTrue(lines[1].startsWith("{\"index\":1,\"error\":"));
+    }
+
+    /**
+     * Tests that an unknown metric is reported without reading the body.
+     * @throws Exception if an error occurs during processing.
+     */
+    @Test
+    void testBatchUnknownMetric() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.batch(new ByteArrayInputStream(new byte[0]), "volume", response);
+
+        assertEquals("{\"error\":\"Failed to process batch\"}\n", response.getContentAsString());
+    }
+}
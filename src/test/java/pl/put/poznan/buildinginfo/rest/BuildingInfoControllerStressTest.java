@@ -0,0 +1,99 @@
+package pl.put.poznan.buildinginfo.rest;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import pl.put.poznan.buildinginfo.logic.BuildingGenerator;
+import pl.put.poznan.buildinginfo.logic.ColumnarBuilding;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the {@link BuildingInfoController} endpoints against a generated building of
+ * 100 000 rooms and checks the answers against {@link ColumnarBuilding}.
+ */
+public class BuildingInfoControllerStressTest {
+
+    private static final int LEVELS = 200;
+    private static final int ROOMS_PER_LEVEL = 500;
+
+    private static String jsonInput;
+    private static ColumnarBuilding expected;
+
+    /**
+     * Generates the building once for all tests; the room names repeat every 1000 rooms.
+     * @throws IOException if the generated building cannot be parsed.
+     */
+    @BeforeAll
+    static void setUp() throws IOException {
+        byte[] json = BuildingGenerator.builder()
+                .seed(2024)
+                .levels(LEVELS)
+                .roomsPerLevel(ROOMS_PER_LEVEL)
+                .nameCardinality(1000)
+                .build()
+                .toJson();
+        jsonInput = new String(json, StandardCharsets.UTF_8);
+        expected = ColumnarBuilding.parse(json);
+    }
+
+    /**
+     * Tests the whole-building and level totals of a large building.
+     */
+    @Test
+    void testTotals() {
+        BuildingInfoController controller = new BuildingInfoController();
+        assertEquals(round(expected.calculateArea()), controller.calculateArea(jsonInput, null).get("totalArea"));
+        assertEquals(round(expected.calculateHeat()), controller.calculateHeat(jsonInput, null).get("totalHeat"));
+        assertEquals(round(expected.calculateCube()), controller.calculateCube(jsonInput, null).get("totalCube"));
+        assertEquals(round(expected.calculateLight()), controller.calculateTotalLight(jsonInput, null).get("totalLight"));
+        assertEquals(round(expected.levelScope(LEVELS - 1).calculateArea()),
+                controller.calculateArea(jsonInput, "Level " + LEVELS).get("totalArea"));
+
+        Map<String, Object> statistics = controller.getParseCacheStatistics();
+        assertEquals(1L, statistics.get("misses"));
+        assertEquals(4L, statistics.get("hits"));
+    }
+
+    /**
+     * Tests that heat threshold queries return every matching room of a large building.
+     */
+    @Test
+    void testHighRoomHeating() {
+        BuildingInfoController controller = new BuildingInfoController();
+        double threshold = 0.2;
+        int count = 0;
+        for (int room = 0; room < expected.getRoomCount(); room++) {
+            if (expected.getHeating(room) / expected.getCube(room) > threshold) {
+                count++;
+            }
+        }
+
+        List<?> rooms = (List<?>) controller.highRoomHeating(jsonInput, threshold).get("roomsExceedingThreshold");
+
+        assertTrue(count > 0);
+        assertEquals(count, rooms.size());
+    }
+
+    /**
+     * Tests the full report of a large building.
+     */
+    @Test
+    void testReport() {
+        BuildingInfoController controller = new BuildingInfoController();
+
+        Map<String, Object> response = controller.report(jsonInput, null, null);
+
+        assertEquals(round(expected.calculateArea()), response.get("totalArea"));
+        assertEquals((int) Math.floor(expected.calculateArea() / 3.0), response.get("maxPeople"));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+}
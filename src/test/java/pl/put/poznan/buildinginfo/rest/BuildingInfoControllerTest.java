@@ -1,8 +1,13 @@
 package pl.put.poznan.buildinginfo.rest;
 
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServletResponse;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -254,4 +259,182 @@ public class BuildingInfoControllerTest {
         Map<String, Object> response = controller.calculateLighting(jsonInput, null);
         assertEquals(6.19, response.get("lightingPerArea"));
     }
+
+    /**
+     * Tests that repeated calls with an unchanged body are answered from the parse cache
+     * instead of parsing the JSON again.
+     * @throws Exception if an error occurs during calculation.
+     */
+    @Test
+    void testRepeatedRequestsUseParseCache() throws Exception {
+        controller.calculateHeat(jsonInput, null);
+        controller.calculateHeat(jsonInput, null);
+        Map<String, Object> response = controller.calculateLighting(jsonInput, null);
+        assertEquals(6.19, response.get("lightingPerArea"));
+
+        Map<String, Object> statistics = controller.getParseCacheStatistics();
+        assertEquals(1L, statistics.get("misses"));
+        assertEquals(2L, statistics.get("hits"));
+        assertEquals(1, statistics.get("entries"));
+    }
+
+    /**
+     * Tests the {@link BuildingInfoController#roomHeatingRange(String, double, double)} and
+     * {@link BuildingInfoController#highRoomHeatingBatch(String, double[])} methods.
+     * @throws Exception if an error occurs during calculation.
+     */
+    @Test
+    void testRoomHeatingRangeAndBatch() throws Exception {
+        List<Map<String, Object>> roomsInRange =
+                (List<Map<String, Object>>) controller.roomHeatingRange(jsonInput, 0.13, 0.14).get("roomsInRange");
+        assertEquals(List.of("Office 201", "Conference Room"),
+                roomsInRange.stream().map(room -> room.get("name")).collect(Collectors.toList()));
+
+        List<Map<String, Object>> thresholds =
+                (List<Map<String, Object>>) controller.highRoomHeatingBatch(jsonInput, new double[]{0.1, 0.135, 0.2}).get("thresholds");
+        assertEquals(List.of(3, 2, 0),
+                thresholds.stream().map(result -> result.get("count")).collect(Collectors.toList()));
+    }
+
+    /**
+     * Tests the {@link BuildingInfoController#topRooms(String, String, int, String, String)} method in both orders
+     * and scoped to a named level.
+     * @throws Exception if an error occurs during calculation.
+     */
+    @Test
+    void testTopRooms() throws Exception {
+        Map<String, Object> response = controller.topRooms(jsonInput, "heatPerCube", 2, null, null);
+        List<Map<String, Object>> rooms = (List<Map<String, Object>>) response.get("rooms");
+        assertEquals("heatPerCube", response.get("metric"));
+        assertEquals(List.of("room2", "room1"), rooms.stream().map(room -> room.get("id")).collect(Collectors.toList()));
+        assertEquals(0.17, rooms.get(0).get("value"));
+
+        List<Map<String, Object>> smallest = (List<Map<String, Object>>) controller.topRooms(jsonInput, "area", 5, "asc", "Ground Floor").get("rooms");
+        assertEquals(List.of("Office 101", "Conference Room"), smallest.stream().map(room -> room.get("name")).collect(Collectors.toList()));
+
+        assertEquals("Failed to rank rooms", controller.topRooms(jsonInput, "volume", 2, null, null).get("error"));
+        assertEquals("Failed to rank rooms", controller.topRooms(jsonInput, "area", 0, null, null).get("error"));
+    }
+
+    /**
+     * Tests the {@link BuildingInfoController#distribution(String, String, String, String)} method for the
+     * building and a named level.
+     * @throws Exception if an error occurs during calculation.
+     */
+    @Test
+    void testDistribution() throws Exception {
+        Map<String, Object> response = controller.distribution(jsonInput, "area", "0,50,100", null);
+        assertEquals(List.of("metric", "count", "min", "max", "mean", "p0", "p50", "p100"), List.copyOf(response.keySet()));
+        assertEquals(3L, response.get("count"));
+        assertEquals(25.0, response.get("p0"));
+        assertEquals(30.0, (double) response.get("p50"), 0.3);
+        assertEquals(50.0, response.get("p100"));
+        assertEquals(35.0, response.get("mean"));
+
+        assertEquals(2L, controller.distribution(jsonInput, "heatPerCube", null, "Ground Floor").get("count"));
+        assertEquals("Failed to calculate distribution", controller.distribution(jsonInput, "area", "200", null).get("error"));
+    }
+
+    /**
+     * Tests the {@link BuildingInfoController#rooms(String, String, String, javax.servlet.http.HttpServletResponse)}
+     * method for the building and a named level, and with an invalid filter.
+     * @throws Exception if an error occurs during calculation.
+     */
+    @Test
+    void testRooms() throws Exception {
+        Map<String, Object> response = controller.rooms(jsonInput, "area > 25 and light / area < 7", null, new MockHttpServletResponse());
+        List<Map<String, Object>> rooms = (List<Map<String, Object>>) response.get("rooms");
+        assertEquals("area > 25 and light / area < 7", response.get("filter"));
+        assertEquals(2, response.get("count"));
+        assertEquals(List.of("room1", "room2"), rooms.stream().map(room -> room.get("id")).collect(Collectors.toList()));
+        assertEquals(300.0f, rooms.get(0).get("light"));
+
+        assertEquals(1, controller.rooms(jsonInput, "heating / cube between 0.1 and 0.135", "First Floor", new MockHttpServletResponse()).get("count"));
+
+        MockHttpServletResponse invalid = new MockHttpServletResponse();
+        assertEquals("Invalid filter at position 1: unknown field 'volume', expected one of area, cube, heating, light",
+                controller.rooms(jsonInput, "volume > 1", null, invalid).get("error"));
+        assertEquals(400, invalid.getStatus());
+    }
+
+    /**
+     * Tests the {@link BuildingInfoController#report(String, String, String)} method for all metrics of the building
+     * and for selected metrics of a named level.
+     * @throws Exception if an error occurs during calculation.
+     */
+    @Test
+    void testReport() throws Exception {
+        Map<String, Object> response = controller.report(jsonInput, null, null);
+        assertEquals(105.0, response.get("totalArea"));
+        assertEquals(45.5, response.get("totalHeat"));
+        assertEquals(315.0, response.get("totalCube"));
+        assertEquals(650.0, response.get("totalLight"));
+        assertEquals(35, response.get("maxPeople"));
+        assertEquals(3, response.get("requiredRestrooms"));
+        assertEquals(6.19, response.get("lightingPerArea"));
+
+        Map<String, Object> level = controller.report(jsonInput, "restrooms, area", "Ground Floor");
+        assertEquals(List.of("totalArea", "requiredRestrooms"), List.copyOf(level.keySet()));
+        assertEquals(80.0, level.get("totalArea"));
+        assertEquals(2, level.get("requiredRestrooms"));
+
+        assertEquals("Failed to calculate report", controller.report(jsonInput, "volume", null).get("error"));
+    }
+
+    /**
+     * Tests the {@link BuildingInfoController#getInfo(String, String, String, HttpServletResponse)} method
+     * to stream selected fields of one level as JSON.
+     * @throws Exception if an error occurs during serialization.
+     */
+    @Test
+    void testInfoProjectionAndLevels() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.getInfo(jsonInput, "id,area", "First Floor", response);
+
+        assertEquals("application/json", response.getContentType().split(";")[0]);
+        assertEquals("{\"id\":\"building1\",\"levels\":[{\"id\":\"level2\",\"rooms\":[{\"id\":\"room3\",\"area\":25.0}]}]}",
+                response.getContentAsString());
+    }
+
+    /**
+     * Tests the {@link BuildingInfoController#getInfo(String, String, String, HttpServletResponse)} method
+     * to answer invalid JSON and unknown fields with an error message.
+     * @throws Exception if an error occurs during serialization.
+     */
+    @Test
+    void testInfoInvalid() throws Exception {
+        MockHttpServletResponse invalidJson = new MockHttpServletResponse();
+        MockHttpServletResponse unknownField = new MockHttpServletResponse();
+
+        controller.getInfo("{not json", null, null, invalidJson);
+        controller.getInfo(jsonInput, "volume", null, unknownField);
+
+        assertEquals("{\"error\":\"Failed to process building JSON\"}", invalidJson.getContentAsString());
+        assertEquals("{\"error\":\"Failed to process building JSON\"}", unknownField.getContentAsString());
+    }
+
+    /**
+     * Tests that every phase of a request is timed and that the room count and errors are recorded.
+     * @throws Exception if an error occurs during calculation.
+     */
+    @Test
+    void testRequestMetrics() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BuildingInfoController controller = new BuildingInfoController(1024 * 1024, 16384, new RequestMetrics(registry));
+
+        controller.calculateArea(jsonInput, "Ground Floor");
+        controller.calculateArea(jsonInput, null);
+        controller.calculateArea(jsonInput, null);
+        controller.calculateArea("not json", null);
+
+        for (String phase : List.of("parse", "lookup", "compute")) {
+            Timer timer = registry.find(RequestMetrics.PHASE).tags("endpoint", "/calculateArea", "phase", phase).timer();
+            assertEquals(phase.equals("parse") ? 4 : phase.equals("lookup") ? 2 : 3, timer.count(), phase);
+        }
+        // The request with a name finds the component while parsing, so it records no lookup
+        // Only the requests without a name parse the whole building; the second one is a cache hit
+        assertEquals(6.0, registry.find("buildinginfo.building.rooms").summary().totalAmount());
+        assertEquals(1.0, registry.find("buildinginfo.request.errors").tag("endpoint", "/calculateArea").counter().count());
+    }
 }
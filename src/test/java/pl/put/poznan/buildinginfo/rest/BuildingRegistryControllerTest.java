@@ -0,0 +1,160 @@
+package pl.put.poznan.buildinginfo.rest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link BuildingRegistryController} class, registering a building once
+ * and querying the stored model through the id based endpoints.
+ */
+public class BuildingRegistryControllerTest {
+
+    private BuildingRegistryController controller;
+    private String id;
+
+    /**
+     * Registers the sample building used by every test.
+     */
+    @BeforeEach
+    void setUp() {
+        controller = new BuildingRegistryController(1 << 20);
+        String json = "{\"id\": \"building1\", \"name\": \"Main Office\", \"levels\": [" +
+                "{\"id\": \"level1\", \"name\": \"Ground Floor\", \"rooms\": [" +
+                "{\"id\": \"room1\", \"name\": \"Conference Room\", \"area\": 50.0, \"cube\": 150.0, \"heating\": 20.5, \"light\": 300.0}," +
+                "{\"id\": \"room2\", \"name\": \"Office 101\", \"area\": 30.0, \"cube\": 90.0, \"heating\": 15.0, \"light\": 200.0}]}," +
+                "{\"id\": \"level2\", \"name\": \"First Floor\", \"rooms\": [" +
+                "{\"id\": \"room3\", \"name\": \"Office 201\", \"area\": 25.0, \"cube\": 75.0, \"heating\": 10.0, \"light\": 150.0}]}]}";
+        id = (String) controller.registerBuilding(json.getBytes(StandardCharsets.UTF_8)).get("id");
+    }
+
+    /**
+     * Tests the metric endpoints against the stored building and a named component.
+     */
+    @Test
+    void testMetrics() {
+        assertEquals(105.0, controller.calculateArea(id, null).get("totalArea"));
+        assertEquals(80.0, controller.calculateArea(id, "Ground Floor").get("totalArea"));
+        assertEquals(45.5, controller.calculateHeat(id, "Main Office").get("totalHeat"));
+        assertEquals(75.0, controller.calculateCube(id, "Office 201").get("totalCube"));
+        assertEquals(650.0, controller.calculateTotalLight(id, null).get("totalLight"));
+        assertEquals(26, controller.calculatePersonPerArea(id, "Ground Floor").get("maxPeople"));
+        assertEquals(3, controller.calculateRestrooms(id, null).get("requiredRestrooms"));
+        assertEquals(6.19, controller.calculateLighting(id, null).get("lightingPerArea"));
+    }
+
+    /**
+     * Tests the high room heating endpoint against the stored building.
+     */
+    @Test
+    void testHighRoomHeating() {
+        List<?> rooms = (List<?>) controller.highRoomHeating(id, 0.135).get("roomsExceedingThreshold");
+        assertEquals(2, rooms.size());
+    }
+
+    /**
+     * Tests that the info endpoint streams the stored building as JSON, restricted to the requested level.
+     */
+    @Test
+    void testInfo() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockHttpServletResponse missing = new MockHttpServletResponse();
+
+        controller.getInfo(id, "name,light", "level2", response);
+        controller.getInfo("missing", null, null, missing);
+
+        assertEquals("{\"name\":\"Main Office\",\"levels\":[{\"name\":\"First Floor\",\"rooms\":"
+                + "[{\"name\":\"Office 201\",\"light\":150.0}]}]}", response.getContentAsString());
+        assertEquals("{\"error\":\"Failed to process building\"}", missing.getContentAsString());
+    }
+
+    /**
+     * Tests that rooms and levels of the stored building can be added, updated and removed.
+     */
+    @Test
+    void testChanges() {
+        String level = "{\"id\": \"level3\", \"rooms\": [" +
+                "{\"id\": \"room4\", \"area\": 20.0, \"cube\": 60.0, \"heating\": 5.0, \"light\": 100.0}]}";
+        String room = "{\"id\": \"room5\", \"area\": 10.0, \"cube\": 30.0, \"heating\": 2.5, \"light\": 50.0}";
+
+        assertEquals(125.0, controller.addLevel(id, level.getBytes(StandardCharsets.UTF_8)).get("totalArea"));
+        assertEquals(135.0, controller.addRoom(id, "level3", room.getBytes(StandardCharsets.UTF_8)).get("totalArea"));
+        Map<String, Object> updated = controller.updateRoom(id, "level1", "room1", "{\"area\": 40.0, \"light\": 250.0}");
+        assertEquals(125.0, updated.get("totalArea"));
+        assertEquals(750.0, updated.get("totalLight"));
+        assertEquals(405.0, updated.get("totalCube"));
+        assertEquals(95.0, controller.removeRoom(id, "level1", "room2").get("totalArea"));
+        assertEquals(65.0, controller.removeLevel(id, "level3").get("totalArea"));
+        assertEquals(65.0, controller.calculateArea(id, null).get("totalArea"));
+        assertEquals("Failed to remove room", controller.removeRoom(id, "level1", "room2").get("error"));
+        assertEquals("Failed to add room", controller.addRoom(id, "level2", "{}".getBytes(StandardCharsets.UTF_8)).get("error"));
+        assertEquals("Failed to update room", controller.updateRoom(id, "level1", "room1", "{\"heating\": \"abc\"}").get("error"));
+        assertEquals("Failed to update room", controller.updateRoom(id, "level1", "room1", "{\"area\": 1.0, \"cube\": null}").get("error"));
+        assertEquals(65.0, controller.calculateArea(id, null).get("totalArea"));
+    }
+
+    /**
+     * Tests the distribution of a room metric over one stored building and over several merged ones.
+     */
+    @Test
+    void testDistribution() {
+        Map<String, Object> building = controller.distribution(id, "area", "100", "First Floor");
+        String[] ids = {id, id};
+        Map<String, Object> portfolio = controller.portfolioDistribution(ids, "area", "0,100");
+
+        assertEquals(1L, building.get("count"));
+        assertEquals(25.0, building.get("p100"));
+        assertEquals(6L, portfolio.get("count"));
+        assertEquals(2, portfolio.get("buildings"));
+        assertEquals(25.0, portfolio.get("p0"));
+        assertEquals(50.0, portfolio.get("p100"));
+        assertEquals("Failed to calculate distribution",
+                controller.portfolioDistribution(new String[]{id, "missing"}, "area", null).get("error"));
+    }
+
+    /**
+     * Tests filtering the rooms of the stored building and of a named level.
+     */
+    @Test
+    void testRooms() {
+        Map<String, Object> building = controller.rooms(id, "heating / cube > 0.135", null, new MockHttpServletResponse());
+        Map<String, Object> level = controller.rooms(id, "heating / cube > 0.135", "First Floor", new MockHttpServletResponse());
+        MockHttpServletResponse invalid = new MockHttpServletResponse();
+        MockHttpServletResponse missing = new MockHttpServletResponse();
+
+        assertEquals(2, building.get("count"));
+        assertEquals(2, ((List<?>) building.get("rooms")).size());
+        assertEquals(0, level.get("count"));
+        assertEquals("Invalid filter at position 7: unexpected end", controller.rooms(id, "area >", null, invalid).get("error"));
+        assertEquals(400, invalid.getStatus());
+        assertEquals("Failed to filter rooms", controller.rooms("missing", "area > 1", null, missing).get("error"));
+        assertEquals(200, missing.getStatus());
+    }
+
+    /**
+     * Tests that unknown ids and component names produce error responses.
+     */
+    @Test
+    void testErrors() {
+        assertTrue(controller.calculateArea("missing", null).containsKey("error"));
+        assertTrue(controller.calculateArea(id, "Missing Room").containsKey("error"));
+        assertTrue(controller.registerBuilding("{}".getBytes(StandardCharsets.UTF_8)).containsKey("error"));
+    }
+
+    /**
+     * Tests that a removed building can no longer be queried.
+     */
+    @Test
+    void testRemove() {
+        assertEquals(true, controller.removeBuilding(id).get("removed"));
+        assertEquals(0, controller.getStatistics().get("buildings"));
+        Map<String, Object> response = controller.calculateHeat(id, null);
+        assertEquals("Failed to calculate heat", response.get("error"));
+    }
+}